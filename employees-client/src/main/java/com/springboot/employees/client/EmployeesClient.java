@@ -0,0 +1,361 @@
+package com.springboot.employees.client;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.springboot.employees.client.domain.Employee;
+import com.springboot.employees.client.domain.EmployeeBatch;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous client of the employees service, following api-specs/api-spec.json plus the multi-get,
+ * existence and count endpoints. One instance is meant to be shared: it keeps a pool of connections, HTTP/2
+ * multiplexed where the service speaks it, and merges {@link #get(UUID)} calls made close together into
+ * multi-gets.
+ *
+ * Every call returns at once with a {@link CompletableFuture}; non-async continuations run on the
+ * client's I/O threads and must not block. Each request's latency is recorded in the
+ * {@code employees.client.requests} timer, tagged by operation and status, and the size of every multi-get
+ * in {@code employees.client.batch.size}. With a request timeout the service is told the same budget
+ * through {@code X-Request-Timeout-Ms}.
+ */
+public final class EmployeesClient implements Closeable {
+
+    static final String TIMEOUT_HEADER = "X-Request-Timeout-Ms";
+
+    private static final MediaType JSON = MediaType.get("application/json");
+
+    private final HttpUrl employeesUrl;
+    private final OkHttpClient http;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary batchSizes;
+    private final Long requestTimeoutMillis;
+    private final GetBatcher batcher;
+
+    private EmployeesClient(Builder builder) {
+        HttpUrl baseUrl = HttpUrl.get(builder.baseUrl);
+        this.employeesUrl = baseUrl.newBuilder().addPathSegment("employees").build();
+        this.meterRegistry = builder.meterRegistry;
+        this.requestTimeoutMillis = builder.requestTimeout == null ? null : builder.requestTimeout.toMillis();
+
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(builder.maxRequests);
+        dispatcher.setMaxRequestsPerHost(builder.maxRequests);
+        OkHttpClient.Builder http = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(builder.maxIdleConnections, builder.keepAlive.toMillis(), TimeUnit.MILLISECONDS))
+                .connectTimeout(builder.connectTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        if (requestTimeoutMillis != null) {
+            http.callTimeout(requestTimeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        if (!baseUrl.isHttps() && builder.http2PriorKnowledge) {
+            // Without TLS there is no ALPN to negotiate HTTP/2 with, so it has to be known up front.
+            http.protocols(Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE));
+        }
+        this.http = http.build();
+
+        this.objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.batchSizes = DistributionSummary.builder("employees.client.batch.size").register(meterRegistry);
+        this.batcher = new GetBatcher(builder.batchWindow.toNanos() / 1000, builder.maxBatchSize, this::getAll);
+    }
+
+    public static Builder builder(String baseUrl) {
+        return new Builder(baseUrl);
+    }
+
+    /**
+     * Looks the employee up through the next multi-get; empty when it doesn't exist.
+     */
+    public CompletableFuture<Optional<Employee>> get(UUID id) {
+        return batcher.get(id);
+    }
+
+    /**
+     * Looks the employees up with one multi-get, bypassing the batching.
+     */
+    public CompletableFuture<EmployeeBatch> getAll(Collection<UUID> ids) {
+        batchSizes.record(ids.size());
+        return call("getAll", post(employeesUrl.newBuilder().addPathSegment("batch").build(), new ArrayList<>(ids)), false,
+                response -> read(response, EmployeeBatch.class));
+    }
+
+    public CompletableFuture<Optional<Employee>> getByFirstName(String firstName) {
+        HttpUrl url = employeesUrl.newBuilder().addPathSegment("names").addPathSegment(firstName).build();
+        return call("getByFirstName", request(url).get().build(), true,
+                response -> response.code() == 404 ? Optional.empty() : Optional.of(read(response, Employee.class)));
+    }
+
+    public CompletableFuture<List<Employee>> getByDepartmentName(String departmentName) {
+        HttpUrl url = employeesUrl.newBuilder().addPathSegments("departments/names").addPathSegment(departmentName).build();
+        return call("getByDepartmentName", request(url).get().build(), false, this::readEmbedded);
+    }
+
+    /**
+     * The employees reporting to the manager through at most depth levels, direct reports first; a null
+     * depth includes every level the service allows.
+     */
+    public CompletableFuture<List<Employee>> getReports(UUID managerId, Integer depth) {
+        HttpUrl.Builder url = employeesUrl.newBuilder().addPathSegment(managerId.toString()).addPathSegment("reports");
+        if (depth != null) {
+            url.addQueryParameter("depth", depth.toString());
+        }
+        return call("getReports", request(url.build()).get().build(), false, this::readEmbedded);
+    }
+
+    /**
+     * Whether the employee exists, asked with a HEAD request that transfers no body.
+     */
+    public CompletableFuture<Boolean> exists(UUID id) {
+        HttpUrl url = employeesUrl.newBuilder().addPathSegment(id.toString()).build();
+        return call("exists", request(url).head().build(), true, response -> response.code() != 404);
+    }
+
+    public CompletableFuture<Long> countInDepartment(String departmentName) {
+        HttpUrl url = employeesUrl.newBuilder().addPathSegments("departments/names").addPathSegment(departmentName).addPathSegment("count").build();
+        return call("countInDepartment", request(url).get().build(), false, response -> read(response, JsonNode.class).path("count").asLong());
+    }
+
+    /**
+     * Creates the employee; creating the same employee again returns the existing one.
+     */
+    public CompletableFuture<Employee> create(Employee employee) {
+        return call("create", post(employeesUrl, employee), false, response -> read(response, Employee.class));
+    }
+
+    public CompletableFuture<Employee> update(UUID id, Employee employee) {
+        HttpUrl url = employeesUrl.newBuilder().addPathSegment(id.toString()).build();
+        return call("update", request(url).put(json(employee)).build(), false, response -> read(response, Employee.class));
+    }
+
+    public CompletableFuture<Void> delete(UUID id) {
+        HttpUrl url = employeesUrl.newBuilder().addPathSegment(id.toString()).build();
+        return call("delete", request(url).delete().build(), false, response -> null);
+    }
+
+    /**
+     * Sends the gets still waiting for their batch, then releases the threads and connections.
+     */
+    @Override
+    public void close() {
+        batcher.close();
+        http.dispatcher().executorService().shutdown();
+        http.connectionPool().evictAll();
+    }
+
+
+    private Request.Builder request(HttpUrl url) {
+        Request.Builder request = new Request.Builder().url(url).header("Accept", "application/json");
+        if (requestTimeoutMillis != null) {
+            request.header(TIMEOUT_HEADER, String.valueOf(requestTimeoutMillis));
+        }
+        return request;
+    }
+
+    private Request post(HttpUrl url, Object body) {
+        return request(url).post(json(body)).build();
+    }
+
+    private RequestBody json(Object body) {
+        try {
+            return RequestBody.create(JSON, objectMapper.writeValueAsBytes(body));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not serialize the request body", e);
+        }
+    }
+
+    /**
+     * Sends the request; a response the service refused fails the future, except a 404 when
+     * {@code notFoundAnswers} says the reader makes an answer of it.
+     */
+    private <T> CompletableFuture<T> call(String operation, Request request, boolean notFoundAnswers, ResponseReader<T> reader) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        long started = System.nanoTime();
+        http.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                record(operation, "IO_ERROR", started);
+                result.completeExceptionally(new EmployeesClientException(operation + " failed: " + e.getMessage(), e));
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (ResponseBody ignored = response.body()) {
+                    record(operation, String.valueOf(response.code()), started);
+                    if (!response.isSuccessful() && !(response.code() == 404 && notFoundAnswers)) {
+                        throw error(response);
+                    }
+                    result.complete(reader.read(response));
+                } catch (IOException e) {
+                    result.completeExceptionally(new EmployeesClientException(operation + " failed: " + e.getMessage(), e));
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            }
+        });
+        return result;
+    }
+
+    private void record(String operation, String status, long started) {
+        Timer.builder("employees.client.requests")
+                .tag("operation", operation)
+                .tag("status", status)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry)
+                .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    }
+
+    private EmployeesClientException error(Response response) throws IOException {
+        String message = "The service answered " + response.code();
+        String errorId = null;
+        ResponseBody body = response.body();
+        if (body != null) {
+            try {
+                JsonNode details = objectMapper.readTree(body.byteStream());
+                message = details.path("message").asText(message);
+                errorId = details.path("errorId").asText(null);
+            } catch (IOException malformed) {
+                // Not an error body of the service, a proxy's for example; the status says enough.
+            }
+        }
+        return new EmployeesClientException(response.code(), message, errorId);
+    }
+
+    private <T> T read(Response response, Class<T> type) throws IOException {
+        return objectMapper.readValue(response.body().byteStream(), type);
+    }
+
+    /**
+     * The employees of a HAL collection, which sit in the only array under {@code _embedded}; an empty
+     * collection has no {@code _embedded} at all.
+     */
+    private List<Employee> readEmbedded(Response response) throws IOException {
+        JsonNode embedded = read(response, JsonNode.class).path("_embedded");
+        Iterator<JsonNode> relations = embedded.elements();
+        if (!relations.hasNext()) {
+            return Collections.emptyList();
+        }
+        return objectMapper.convertValue(relations.next(), new TypeReference<List<Employee>>() { });
+    }
+
+
+    @FunctionalInterface
+    private interface ResponseReader<T> {
+
+        T read(Response response) throws IOException;
+    }
+
+
+    public static final class Builder {
+
+        private final String baseUrl;
+        private Duration batchWindow = Duration.ofMillis(2);
+        private int maxBatchSize = 100;
+        private int maxRequests = 64;
+        private int maxIdleConnections = 5;
+        private Duration keepAlive = Duration.ofMinutes(5);
+        private Duration connectTimeout = Duration.ofSeconds(5);
+        private Duration requestTimeout;
+        private boolean http2PriorKnowledge = true;
+        private MeterRegistry meterRegistry = Metrics.globalRegistry;
+
+        private Builder(String baseUrl) {
+            this.baseUrl = baseUrl;
+        }
+
+        /**
+         * How long the first {@link #get(UUID)} of a batch waits for others to join it, 2 ms by default.
+         */
+        public Builder batchWindow(Duration batchWindow) {
+            this.batchWindow = batchWindow;
+            return this;
+        }
+
+        /**
+         * The most ids in one multi-get, 100 by default; the service accepts up to {@code employees.batch.max-ids}.
+         */
+        public Builder maxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        public Builder maxRequests(int maxRequests) {
+            this.maxRequests = maxRequests;
+            return this;
+        }
+
+        public Builder connectionPool(int maxIdleConnections, Duration keepAlive) {
+            this.maxIdleConnections = maxIdleConnections;
+            this.keepAlive = keepAlive;
+            return this;
+        }
+
+        public Builder connectTimeout(Duration connectTimeout) {
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        /**
+         * Fails calls that take longer, and asks the service to give up on them at the same time.
+         */
+        public Builder requestTimeout(Duration requestTimeout) {
+            this.requestTimeout = requestTimeout;
+            return this;
+        }
+
+        /**
+         * Whether to speak HTTP/2 without TLS from the first byte, on by default; switch it off for services
+         * or proxies that only speak HTTP/1.1 in the clear. Over TLS HTTP/2 is negotiated either way.
+         */
+        public Builder http2PriorKnowledge(boolean http2PriorKnowledge) {
+            this.http2PriorKnowledge = http2PriorKnowledge;
+            return this;
+        }
+
+        public Builder meterRegistry(MeterRegistry meterRegistry) {
+            this.meterRegistry = meterRegistry;
+            return this;
+        }
+
+        public EmployeesClient build() {
+            if (maxBatchSize < 1) {
+                throw new IllegalArgumentException("A batch needs room for at least one id");
+            }
+            return new EmployeesClient(this);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.springboot.employees.client;
+
+/**
+ * A request the service refused or that never got an answer. The status is 0 when no response arrived;
+ * otherwise the message and error id are those of the service's error body, when it sent one.
+ */
+public class EmployeesClientException extends RuntimeException {
+
+    private final int status;
+    private final String errorId;
+
+    public EmployeesClientException(int status, String message, String errorId) {
+        super(message);
+        this.status = status;
+        this.errorId = errorId;
+    }
+
+    public EmployeesClientException(String message, Throwable cause) {
+        super(message, cause);
+        this.status = 0;
+        this.errorId = null;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public String getErrorId() {
+        return errorId;
+    }
+}
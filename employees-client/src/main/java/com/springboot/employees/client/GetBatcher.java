@@ -0,0 +1,125 @@
+package com.springboot.employees.client;
+
+import com.springboot.employees.client.domain.Employee;
+import com.springboot.employees.client.domain.EmployeeBatch;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Merges single gets into multi-gets. The first id asked for opens a window of {@code windowMicros}; every id
+ * asked for until it closes, or until {@code maxBatchSize} distinct ids are waiting, goes out in one request.
+ * Callers asking for the same id in a window share one future, and so one {@link Employee} instance.
+ */
+final class GetBatcher implements AutoCloseable {
+
+    private final long windowMicros;
+    private final int maxBatchSize;
+    private final Function<List<UUID>, CompletableFuture<EmployeeBatch>> multiGet;
+    private final ScheduledExecutorService timer;
+
+    private Map<UUID, CompletableFuture<Optional<Employee>>> pending = new LinkedHashMap<>();
+    private ScheduledFuture<?> scheduledFlush;
+    private boolean closed;
+
+    GetBatcher(long windowMicros, int maxBatchSize, Function<List<UUID>, CompletableFuture<EmployeeBatch>> multiGet) {
+        this.windowMicros = windowMicros;
+        this.maxBatchSize = maxBatchSize;
+        this.multiGet = multiGet;
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "employees-client-batcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    CompletableFuture<Optional<Employee>> get(UUID id) {
+        CompletableFuture<Optional<Employee>> result;
+        Map<UUID, CompletableFuture<Optional<Employee>>> full = null;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("The client is closed");
+            }
+            result = pending.computeIfAbsent(id, ignored -> new CompletableFuture<>());
+            if (pending.size() >= maxBatchSize) {
+                full = drain();
+            } else if (scheduledFlush == null) {
+                scheduledFlush = timer.schedule(this::flush, windowMicros, TimeUnit.MICROSECONDS);
+            }
+        }
+        if (full != null) {
+            send(full);
+        }
+        return result;
+    }
+
+    void flush() {
+        Map<UUID, CompletableFuture<Optional<Employee>>> batch;
+        synchronized (this) {
+            batch = drain();
+        }
+        send(batch);
+    }
+
+    /**
+     * Sends what is waiting and stops the timer; gets after this fail.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        flush();
+        timer.shutdown();
+    }
+
+
+    private Map<UUID, CompletableFuture<Optional<Employee>>> drain() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        Map<UUID, CompletableFuture<Optional<Employee>>> batch = pending;
+        pending = new LinkedHashMap<>();
+        return batch;
+    }
+
+    private void send(Map<UUID, CompletableFuture<Optional<Employee>>> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        CompletableFuture<EmployeeBatch> response;
+        try {
+            response = multiGet.apply(new ArrayList<>(batch.keySet()));
+        } catch (RuntimeException e) {
+            batch.values().forEach(future -> future.completeExceptionally(e));
+            return;
+        }
+        response.whenComplete((employees, failure) -> {
+            if (failure != null) {
+                batch.values().forEach(future -> future.completeExceptionally(failure));
+                return;
+            }
+            if (employees.getEmployees() != null) {
+                for (Employee employee : employees.getEmployees()) {
+                    CompletableFuture<Optional<Employee>> future = batch.get(employee.getId());
+                    if (future != null) {
+                        future.complete(Optional.of(employee));
+                    }
+                }
+            }
+            // Missing ids, and anything the service left out, resolve empty.
+            batch.values().forEach(future -> future.complete(Optional.empty()));
+        });
+    }
+}
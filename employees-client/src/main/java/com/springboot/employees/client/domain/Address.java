@@ -0,0 +1,21 @@
+package com.springboot.employees.client.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder(toBuilder = true)
+public class Address {
+
+    private String city;
+
+    private String street;
+
+    private int zipcode;
+
+    private String state;
+}
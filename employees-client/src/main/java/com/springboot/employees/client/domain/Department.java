@@ -0,0 +1,21 @@
+package com.springboot.employees.client.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder(toBuilder = true)
+public class Department {
+
+    private int departmentId;
+
+    private String name;
+
+    private int size;
+
+    private String function;
+}
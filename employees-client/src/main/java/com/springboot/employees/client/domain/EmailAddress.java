@@ -0,0 +1,17 @@
+package com.springboot.employees.client.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder(toBuilder = true)
+public class EmailAddress {
+
+    private String email;
+
+    private boolean primary;
+}
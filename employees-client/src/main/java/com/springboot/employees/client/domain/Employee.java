@@ -0,0 +1,44 @@
+package com.springboot.employees.client.domain;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The Employee schema of api-specs/api-spec.json. The id and the timestamps are set by the service; the
+ * HAL links it adds are not kept.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder(toBuilder = true)
+public class Employee {
+
+    static final String TIMESTAMP_PATTERN = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'";
+
+    private UUID id;
+
+    private String firstName;
+
+    private String lastName;
+
+    private Department department;
+
+    private UUID managerId;
+
+    private Address address;
+
+    private List<EmailAddress> emailAddresses;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = TIMESTAMP_PATTERN)
+    private LocalDateTime createdAt;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = TIMESTAMP_PATTERN)
+    private LocalDateTime updatedAt;
+}
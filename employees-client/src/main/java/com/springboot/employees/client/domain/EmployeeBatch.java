@@ -0,0 +1,23 @@
+package com.springboot.employees.client.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * What a multi-get returns: the employees found, in the order asked for, and the ids that don't exist.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class EmployeeBatch {
+
+    private List<Employee> employees;
+
+    private List<UUID> missingIds;
+}
@@ -0,0 +1,156 @@
+package com.springboot.employees.client;
+
+import com.springboot.employees.client.domain.Employee;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.Protocol;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class EmployeesClientTest {
+
+    private MockWebServer server;
+    private SimpleMeterRegistry meterRegistry;
+    private EmployeesClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.setProtocols(Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE));
+        server.start();
+        meterRegistry = new SimpleMeterRegistry();
+        client = EmployeesClient.builder(server.url("/").toString())
+                .batchWindow(Duration.ofMillis(50))
+                .requestTimeout(Duration.ofSeconds(5))
+                .meterRegistry(meterRegistry)
+                .build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        client.close();
+        server.shutdown();
+    }
+
+    @Test
+    public void getsWithinTheWindowShareOneMultiGetTest() throws Exception {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        UUID missing = UUID.randomUUID();
+        server.enqueue(json(200, "{\"employees\":["
+                + "{\"id\":\"" + first + "\",\"firstName\":\"Alice\",\"createdAt\":\"2020-12-20T10:15:30.000Z\"},"
+                + "{\"id\":\"" + second + "\",\"firstName\":\"Bob\"}],"
+                + "\"missingIds\":[\"" + missing + "\"]}"));
+
+        CompletableFuture<Optional<Employee>> firstEmployee = client.get(first);
+        CompletableFuture<Optional<Employee>> secondEmployee = client.get(second);
+        CompletableFuture<Optional<Employee>> missingEmployee = client.get(missing);
+        CompletableFuture<Optional<Employee>> firstAgain = client.get(first);
+
+        assertEquals("Alice", firstEmployee.get(5, TimeUnit.SECONDS).get().getFirstName());
+        assertEquals(2020, firstEmployee.get().get().getCreatedAt().getYear());
+        assertEquals("Bob", secondEmployee.get(5, TimeUnit.SECONDS).get().getFirstName());
+        assertFalse(missingEmployee.get(5, TimeUnit.SECONDS).isPresent());
+        assertTrue(firstAgain.get(5, TimeUnit.SECONDS).isPresent());
+
+        RecordedRequest request = server.takeRequest();
+        assertEquals(1, server.getRequestCount());
+        assertEquals("POST", request.getMethod());
+        assertEquals("/employees/batch", request.getPath());
+        assertEquals("5000", request.getHeader(EmployeesClient.TIMEOUT_HEADER));
+        assertEquals("[\"" + first + "\",\"" + second + "\",\"" + missing + "\"]", request.getBody().readUtf8());
+        assertEquals(3.0, meterRegistry.get("employees.client.batch.size").summary().totalAmount(), 0.0);
+    }
+
+    @Test
+    public void lookupsAnswerNotFoundTest() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(404));
+        server.enqueue(new MockResponse().setResponseCode(404));
+        server.enqueue(json(200, "{\"links\":[]}"));
+
+        assertFalse(client.getByFirstName("Nobody").get(5, TimeUnit.SECONDS).isPresent());
+        assertFalse(client.exists(UUID.randomUUID()).get(5, TimeUnit.SECONDS));
+        assertTrue(client.getByDepartmentName("Nowhere").get(5, TimeUnit.SECONDS).isEmpty());
+
+        assertEquals("/employees/names/Nobody", server.takeRequest().getPath());
+        assertEquals("HEAD", server.takeRequest().getMethod());
+        assertEquals(2, meterRegistry.get("employees.client.requests").tag("status", "404").timers().size());
+    }
+
+    @Test
+    public void departmentEmployeesAreReadFromTheCollectionTest() throws Exception {
+        server.enqueue(json(200, "{\"_embedded\":{\"employeeList\":[{\"firstName\":\"Alice\"},{\"firstName\":\"Bob\"}]}}"));
+
+        List<Employee> employees = client.getByDepartmentName("Research and Development").get(5, TimeUnit.SECONDS);
+
+        assertEquals(Arrays.asList("Alice", "Bob"), Arrays.asList(employees.get(0).getFirstName(), employees.get(1).getFirstName()));
+        assertEquals("/employees/departments/names/Research%20and%20Development", server.takeRequest().getPath());
+    }
+
+    @Test
+    public void reportsAreReadFromTheCollectionTest() throws Exception {
+        UUID managerId = UUID.randomUUID();
+        server.enqueue(json(200, "{\"_embedded\":{\"employeeList\":[{\"firstName\":\"Rane\",\"managerId\":\"" + managerId + "\"}]}}"));
+
+        List<Employee> reports = client.getReports(managerId, 2).get(5, TimeUnit.SECONDS);
+
+        assertEquals(managerId, reports.get(0).getManagerId());
+        assertEquals("/employees/" + managerId + "/reports?depth=2", server.takeRequest().getPath());
+    }
+
+    @Test
+    public void refusedRequestsFailWithTheServiceErrorTest() throws Exception {
+        server.enqueue(json(409, "{\"message\":\"An employee with this email already exists\",\"errorId\":\"abc\",\"httpStatus\":\"CONFLICT\"}"));
+
+        try {
+            client.create(Employee.builder().firstName("Alice").build()).get(5, TimeUnit.SECONDS);
+            fail("The create should have failed");
+        } catch (ExecutionException e) {
+            EmployeesClientException error = (EmployeesClientException) e.getCause();
+            assertEquals(409, error.getStatus());
+            assertEquals("An employee with this email already exists", error.getMessage());
+            assertEquals("abc", error.getErrorId());
+        }
+        assertEquals(1, meterRegistry.get("employees.client.requests").tag("operation", "create").tag("status", "409").timer().count());
+    }
+
+    @Test
+    public void closeSendsTheWaitingGetsTest() throws Exception {
+        UUID id = UUID.randomUUID();
+        server.enqueue(json(200, "{\"employees\":[],\"missingIds\":[\"" + id + "\"]}"));
+        EmployeesClient slow = EmployeesClient.builder(server.url("/").toString())
+                .batchWindow(Duration.ofMinutes(1))
+                .meterRegistry(meterRegistry)
+                .build();
+
+        CompletableFuture<Optional<Employee>> employee = slow.get(id);
+        slow.close();
+
+        assertFalse(employee.get(5, TimeUnit.SECONDS).isPresent());
+        assertNull(server.takeRequest().getHeader(EmployeesClient.TIMEOUT_HEADER));
+    }
+
+
+    private static MockResponse json(int status, String body) {
+        return new MockResponse().setResponseCode(status).setHeader("Content-Type", "application/json").setBody(body);
+    }
+}
@@ -0,0 +1,48 @@
+package com.springboot.employees.config;
+
+import com.springboot.employees.deadline.DeadlineInterceptor;
+import com.springboot.employees.persistence.DeadlineMongoTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wires request deadlines: the interceptor that starts them, a {@link MongoTemplate} that passes them on to
+ * every operation, and driver timeouts so that an unreachable or saturated MongoDB fails requests quickly
+ * instead of parking their threads.
+ */
+@Configuration
+public class DeadlineConfiguration implements WebMvcConfigurer {
+
+    @Autowired
+    private DeadlineInterceptor deadlineInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(deadlineInterceptor);
+    }
+
+    @Bean
+    public MongoTemplate mongoTemplate(MongoDatabaseFactory factory, MongoConverter converter) {
+        return new DeadlineMongoTemplate(factory, converter);
+    }
+
+    @Bean
+    public MongoClientSettingsBuilderCustomizer driverTimeouts(@Value("${employees.deadlines.server-selection-timeout-ms}") long serverSelectionMillis,
+                                                               @Value("${employees.deadlines.connection-wait-ms}") long connectionWaitMillis,
+                                                               @Value("${employees.deadlines.socket-read-timeout-ms}") int socketReadMillis) {
+        return settings -> settings
+                .applyToClusterSettings(cluster -> cluster.serverSelectionTimeout(serverSelectionMillis, TimeUnit.MILLISECONDS))
+                .applyToConnectionPoolSettings(pool -> pool.maxWaitTime(connectionWaitMillis, TimeUnit.MILLISECONDS))
+                .applyToSocketSettings(socket -> socket.readTimeout(socketReadMillis, TimeUnit.MILLISECONDS));
+    }
+}
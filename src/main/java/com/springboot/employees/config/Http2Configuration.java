@@ -0,0 +1,27 @@
+package com.springboot.employees.config;
+
+import org.apache.coyote.http2.Http2Protocol;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Serves HTTP/2 in the clear (h2c) when {@code server.http2.enabled} is set, which Spring Boot itself only
+ * honors over TLS. Tomcat then accepts both the upgrade from HTTP/1.1 and clients that speak HTTP/2 from the
+ * first byte, like the employees client, so its concurrent requests share one connection.
+ */
+@Configuration
+@ConditionalOnProperty("server.http2.enabled")
+public class Http2Configuration {
+
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> h2cCustomizer() {
+        return factory -> {
+            if (factory.getSsl() == null || !factory.getSsl().isEnabled()) {
+                factory.addConnectorCustomizers(connector -> connector.addUpgradeProtocol(new Http2Protocol()));
+            }
+        };
+    }
+}
@@ -0,0 +1,89 @@
+package com.springboot.employees.config;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import com.springboot.employees.domain.Department;
+import com.springboot.employees.domain.Employee;
+import com.springboot.employees.service.DepartmentCache;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ * Registers Afterburner with the application ObjectMapper, and through it with the HAL mapper copied from it,
+ * so bean properties are read and written through generated accessors instead of reflection.
+ *
+ * Employees only store the id of their department, so their department is written from the
+ * {@link DepartmentCache} instead, falling back to the one sent with the employee before it is known there.
+ */
+@Configuration
+public class JacksonConfiguration {
+
+    @Bean
+    public Module afterburnerModule() {
+        return new AfterburnerModule();
+    }
+
+    @Bean
+    public Module departmentReferencesModule(ObjectProvider<DepartmentCache> departmentCache) {
+        // The cache is looked up late: it depends on repositories that depend on the ObjectMapper.
+        SimpleModule module = new SimpleModule("DepartmentReferences");
+        module.setSerializerModifier(new BeanSerializerModifier() {
+            @Override
+            public List<BeanPropertyWriter> changeProperties(SerializationConfig config, BeanDescription beanDesc,
+                                                             List<BeanPropertyWriter> beanProperties) {
+                if (Employee.class.isAssignableFrom(beanDesc.getBeanClass())) {
+                    beanProperties.replaceAll(writer -> "department".equals(writer.getName())
+                            ? new DepartmentWriter(writer, departmentCache) : writer);
+                }
+                return beanProperties;
+            }
+        });
+        return module;
+    }
+
+
+    private static final class DepartmentWriter extends BeanPropertyWriter {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient ObjectProvider<DepartmentCache> departmentCache;
+
+        private DepartmentWriter(BeanPropertyWriter base, ObjectProvider<DepartmentCache> departmentCache) {
+            super(base);
+            this.departmentCache = departmentCache;
+        }
+
+        @Override
+        public void serializeAsField(Object bean, JsonGenerator gen, SerializerProvider prov) throws Exception {
+            Employee employee = (Employee) bean;
+            DepartmentCache cache = departmentCache.getIfAvailable();
+            Department department = cache == null ? employee.getDepartment()
+                    : cache.get(employee.getDepartmentId()).orElse(employee.getDepartment());
+            if (department == null) {
+                if (_nullSerializer != null) {
+                    gen.writeFieldName(_name);
+                    _nullSerializer.serialize(null, gen, prov);
+                }
+                return;
+            }
+            JsonSerializer<Object> serializer = prov.findValueSerializer(department.getClass(), this);
+            gen.writeFieldName(_name);
+            if (_typeSerializer == null) {
+                serializer.serialize(department, gen, prov);
+            } else {
+                serializer.serializeWithType(department, gen, prov, _typeSerializer);
+            }
+        }
+    }
+}
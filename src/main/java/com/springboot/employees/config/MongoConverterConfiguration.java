@@ -0,0 +1,26 @@
+package com.springboot.employees.config;
+
+import com.springboot.employees.persistence.EmployeeMappingMongoConverter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.core.convert.DefaultDbRefResolver;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+/**
+ * Replaces the converter Spring Boot would configure with one that maps employees by hand; it is set up
+ * the same way otherwise.
+ */
+@Configuration
+public class MongoConverterConfiguration {
+
+    @Bean
+    public MappingMongoConverter mappingMongoConverter(MongoDatabaseFactory factory, MongoMappingContext context,
+                                                       MongoCustomConversions conversions) {
+        MappingMongoConverter converter = new EmployeeMappingMongoConverter(new DefaultDbRefResolver(factory), context);
+        converter.setCustomConversions(conversions);
+        return converter;
+    }
+}
@@ -0,0 +1,18 @@
+package com.springboot.employees.config;
+
+import com.springboot.employees.profiler.OperationProfiler;
+import com.springboot.employees.profiler.ProfilerCommandListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(name = "employees.profiler.enabled", havingValue = "true")
+public class ProfilerConfiguration {
+
+    @Bean
+    public MongoClientSettingsBuilderCustomizer profilerCommandListener(OperationProfiler profiler) {
+        return settings -> settings.addCommandListener(new ProfilerCommandListener(profiler));
+    }
+}
@@ -0,0 +1,90 @@
+package com.springboot.employees.controller;
+
+import com.springboot.employees.deadline.DeadlineDefault;
+import com.springboot.employees.domain.Department;
+import com.springboot.employees.exceptions.ItemNotFoundException;
+import com.springboot.employees.service.DepartmentService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.Link;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+
+@RestController
+@RequestMapping(value = "/employees/departments")
+@Slf4j
+public class DepartmentController {
+
+    @Autowired
+    private DepartmentService service;
+
+    @Operation(description = "This method fetches all departments.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "The departments have been fetched successfully.",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = Department.class))})})
+    @GetMapping
+    public CollectionModel<EntityModel<Department>> findDepartments() {
+        log.info("Inside findDepartments method of the Department controller.");
+
+        List<EntityModel<Department>> departments = service.retrieveDepartments().stream()
+                .map(department -> EntityModel.of(department, getDepartmentSelfLink(department.getDepartmentId())))
+                .collect(Collectors.toList());
+        return CollectionModel.of(departments, linkTo(DepartmentController.class).withSelfRel());
+    }
+
+
+    @Operation(description = "This method fetches a department based on the given department id.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "The department has been fetched successfully.",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = Department.class))}),
+            @ApiResponse(responseCode = "404", description = "Department requested for the given id doesn't exist.")})
+    @DeadlineDefault("${employees.deadlines.lookup-ms}")
+    @GetMapping("/{departmentId:\\d+}")
+    public EntityModel<Department> findDepartmentById(@Parameter(description = "The id of the department to look up.") @PathVariable("departmentId") int departmentId) {
+        log.info("Inside findDepartmentById method of the Department controller.");
+
+        return service.retrieveDepartmentById(departmentId)
+                .map(department -> EntityModel.of(department, getDepartmentSelfLink(departmentId)))
+                .orElseThrow(() -> new ItemNotFoundException("The department with id : "+departmentId+" could not be found!"));
+    }
+
+
+    @Operation(description = "This method creates or replaces the department with the given id. Renaming a department changes it for all of its employees at once.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "The department has been saved successfully.",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = Department.class))}),
+            @ApiResponse(responseCode = "400", description = "Department data is invalid, e.g. its name is missing."),
+            @ApiResponse(responseCode = "409", description = "Another department already has the given name.")})
+    @PutMapping("/{departmentId:\\d+}")
+    public EntityModel<Department> saveDepartment(@Parameter(description = "The id of the department to save.") @PathVariable("departmentId") int departmentId,
+                                                  @RequestBody Department department) {
+        log.info("Inside saveDepartment method of the Department controller.");
+
+        return EntityModel.of(service.saveDepartment(departmentId, department), getDepartmentSelfLink(departmentId));
+    }
+
+
+    static Link getDepartmentSelfLink(int departmentId) {
+        return linkTo(DepartmentController.class).slash(departmentId).withSelfRel();
+    }
+}
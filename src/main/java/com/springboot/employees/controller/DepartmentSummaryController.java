@@ -0,0 +1,72 @@
+package com.springboot.employees.controller;
+
+import com.springboot.employees.deadline.DeadlineDefault;
+import com.springboot.employees.domain.DepartmentSummary;
+import com.springboot.employees.exceptions.ItemNotFoundException;
+import com.springboot.employees.service.DepartmentSummaryService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.Link;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+
+@RestController
+@RequestMapping(value = "/employees/departments")
+@Slf4j
+public class DepartmentSummaryController {
+
+    @Autowired
+    private DepartmentSummaryService service;
+
+    @Operation(description = "This method fetches the summaries of all departments: headcount, headcount per state and the most recent hire.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "The department summaries have been fetched successfully.",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = DepartmentSummary.class))})})
+    @GetMapping("/summaries")
+    public CollectionModel<EntityModel<DepartmentSummary>> findDepartmentSummaries() {
+        log.info("Inside findDepartmentSummaries method of the DepartmentSummary controller.");
+
+        List<EntityModel<DepartmentSummary>> summaries = service.retrieveSummaries().stream()
+                .map(summary -> EntityModel.of(summary, getDepartmentSummarySelfLink(summary.getName())))
+                .collect(Collectors.toList());
+        return CollectionModel.of(summaries, linkTo(DepartmentSummaryController.class).slash("summaries").withSelfRel());
+    }
+
+
+    @Operation(description = "This method fetches the summary of a department: headcount, headcount per state and the most recent hire.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "The department summary has been fetched successfully.",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = DepartmentSummary.class))}),
+            @ApiResponse(responseCode = "404", description = "No employee works in the given department.")})
+    @DeadlineDefault("${employees.deadlines.lookup-ms}")
+    @GetMapping("/names/{departmentName}/summary")
+    public EntityModel<DepartmentSummary> findDepartmentSummaryByName(@Parameter(description = "The name of the department to summarize.") @PathVariable("departmentName") String departmentName) {
+        log.info("Inside findDepartmentSummaryByName method of the DepartmentSummary controller.");
+
+        return service.retrieveSummary(departmentName)
+                .map(summary -> EntityModel.of(summary, getDepartmentSummarySelfLink(summary.getName())))
+                .orElseThrow(() -> new ItemNotFoundException("The department with name : "+departmentName+" could not be found!"));
+    }
+
+
+    static Link getDepartmentSummarySelfLink(String departmentName) {
+        return linkTo(DepartmentSummaryController.class).slash("names").slash(departmentName).slash("summary").withSelfRel();
+    }
+}
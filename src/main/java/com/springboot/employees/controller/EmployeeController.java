@@ -1,10 +1,21 @@
 package com.springboot.employees.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.springboot.employees.deadline.DeadlineDefault;
 import com.springboot.employees.domain.Employee;
+import com.springboot.employees.domain.EmployeeBatch;
+import com.springboot.employees.domain.EmployeeChangeEvent;
+import com.springboot.employees.domain.EmployeeCount;
+import com.springboot.employees.domain.EmployeeDelta;
 import com.springboot.employees.domain.EmployeeWrapper;
+import com.springboot.employees.domain.ImportJob;
 import com.springboot.employees.exceptions.BadRequestException;
 import com.springboot.employees.exceptions.ItemNotFoundException;
+import com.springboot.employees.service.EmployeeChangeFeed;
+import com.springboot.employees.service.EmployeeImportService;
 import com.springboot.employees.service.EmployeeService;
+import com.springboot.employees.tracing.RequestTrace;
+import com.springboot.employees.util.JsonPatches;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -16,12 +27,20 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
 import org.springframework.hateoas.Link;
+import org.springframework.hateoas.server.mvc.WebMvcLinkBuilder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
-import java.text.ParseException;
+import java.io.IOException;
 import java.util.List;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
@@ -34,6 +53,15 @@ public class EmployeeController {
     @Autowired
     private EmployeeService service;
 
+    @Autowired
+    private EmployeeChangeFeed changeFeed;
+
+    @Autowired
+    private EmployeeResponseCache responseCache;
+
+    @Autowired
+    private EmployeeImportService importService;
+
     @Operation(summary = "This method creates a Employee resource with requisite details and adds it to the database.")
     @ApiResponses({
             @ApiResponse(responseCode = "201", description = "The Employee resource has been created successfully.",
@@ -49,7 +77,7 @@ public class EmployeeController {
         EntityModel<Employee> resource = EntityModel.of(employeeWrapper.getEmployee());
 
         resource.add(getEmployeeSelfLink(employeeWrapper.getEmployee().getId()));
-        response.setHeader("Location", String.valueOf(linkTo(EmployeeController.class).slash(employeeWrapper.getEmployee().getId()).toUri()));
+        response.setHeader("Location", String.valueOf(employeesLink().slash(employeeWrapper.getEmployee().getId()).toUri()));
 
         if (!employeeWrapper.isIdempotent()) {
             response.setStatus(HttpServletResponse.SC_CREATED);
@@ -66,19 +94,139 @@ public class EmployeeController {
                     content = { @Content(mediaType = "application/json",
                             schema = @Schema(implementation = Employee.class))}),
             @ApiResponse(responseCode = "404", description = "Employee requested for the given id doesn't exist in the database.")})
+    @DeadlineDefault("${employees.deadlines.lookup-ms}")
     @GetMapping("/{id}")
-    public EntityModel<Employee> findEmployeeById(@Parameter(description = "The id of the employee to look up.") @PathVariable("id") String employeeId) {
+    public ResponseEntity<EntityModel<Employee>> findEmployeeById(@Parameter(description = "The id of the employee to look up.") @PathVariable("id") UUID employeeId,
+                                                                  HttpServletRequest request, HttpServletResponse response) throws IOException {
         log.info("Inside findEmployeeById method of the Employee controller.");
 
-        try {
-            Employee employee = service.retrieveEmployeeById(employeeId);
-            EntityModel<Employee> resource = EntityModel.of(employee);
-            resource.add(getEmployeeSelfLink(employee.getId()));
-            return resource;
-        } catch (Exception e) {
-            throw new ItemNotFoundException("The employee with id : "+employeeId+" could not be found!");
+        Employee employee = service.retrieveEmployeeById(employeeId)
+                .orElseThrow(() -> new ItemNotFoundException("The employee with id : "+employeeId+" could not be found!"));
+        Link selfLink = getEmployeeSelfLink(employee.getId());
+
+        if (responseCache.write(employee, selfLink, request.getHeader(HttpHeaders.ACCEPT), response)) {
+            // Already written from the rendered bytes, nothing left for the message converters.
+            return null;
         }
+        return ResponseEntity.ok(EntityModel.of(employee, selfLink));
+    }
+
+
+    @Operation(description = "This method checks whether an employee with the given id exists, without a body and without loading the employee.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "The employee exists."),
+            @ApiResponse(responseCode = "404", description = "Employee requested for the given id doesn't exist in the database.")})
+    @DeadlineDefault("${employees.deadlines.lookup-ms}")
+    @RequestMapping(value = "/{id}", method = RequestMethod.HEAD)
+    public ResponseEntity<Void> employeeExists(@Parameter(description = "The id of the employee to look for.") @PathVariable("id") UUID employeeId) {
+        log.info("Inside employeeExists method of the Employee controller.");
+
+        return exists(service.employeeExists(employeeId));
+    }
+
+
+    @Operation(description = "This method fetches the employees reporting to the given employee, directly or through up to depth levels of managers, level by level with the direct reports first.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "The reports have been fetched successfully.",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = Employee.class))}),
+            @ApiResponse(responseCode = "400", description = "The depth is out of range, or more employees report within it than allowed."),
+            @ApiResponse(responseCode = "404", description = "Employee requested for the given id doesn't exist in the database.")})
+    @GetMapping("/{id}/reports")
+    public CollectionModel<EntityModel<Employee>> findReports(@Parameter(description = "The id of the manager.") @PathVariable("id") UUID managerId,
+                                                              @Parameter(description = "How many levels below the manager to include, all of them up to employees.reports.max-depth by default.") @RequestParam(value = "depth", required = false) Integer depth) {
+        log.info("Inside findReports method of the Employee controller.");
+
+        List<EntityModel<Employee>> reports = service.retrieveReports(managerId, depth).stream()
+                .map(employee -> EntityModel.of(employee, getEmployeeSelfLink(employee.getId())))
+                .collect(Collectors.toList());
+        WebMvcLinkBuilder self = employeesLink().slash(managerId).slash("reports");
+        return CollectionModel.of(reports, depth == null ? self.withSelfRel()
+                : Link.of(self.toUriComponentsBuilder().queryParam("depth", depth).toUriString()));
+    }
+
+
+    @Operation(description = "This method fetches many employee resources at once for the given comma separated employee ids. Ids that don't exist are listed in missingIds.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "The employee resources that exist have been fetched successfully.",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = EmployeeBatch.class))}),
+            @ApiResponse(responseCode = "400", description = "No ids or more ids than allowed in one request were given.")})
+    @GetMapping(params = "ids")
+    public EntityModel<EmployeeBatch> findEmployeesByIds(@Parameter(description = "The ids of the employees to look up.") @RequestParam("ids") List<UUID> employeeIds) {
+        log.info("Inside findEmployeesByIds method of the Employee controller.");
+
+        return EntityModel.of(service.retrieveEmployeesByIds(employeeIds));
+    }
+
+
+    @Operation(description = "This method fetches many employee resources at once for the employee ids in the request body, for lists too long for a query string. Ids that don't exist are listed in missingIds.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "The employee resources that exist have been fetched successfully.",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = EmployeeBatch.class))}),
+            @ApiResponse(responseCode = "400", description = "No ids or more ids than allowed in one request were given.")})
+    @PostMapping("/batch")
+    public EntityModel<EmployeeBatch> findEmployeesByIdsInBody(@RequestBody List<UUID> employeeIds) {
+        log.info("Inside findEmployeesByIdsInBody method of the Employee controller.");
+
+        return EntityModel.of(service.retrieveEmployeesByIds(employeeIds));
+    }
 
+
+    @Operation(description = "This method streams employee creates, updates and deletes as Server-Sent Events. Reconnect with the Last-Event-ID header to resume after the last event received; a reset event means the position is gone and the client should reload.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "The change stream has been opened.",
+                    content = { @Content(mediaType = "text/event-stream",
+                            schema = @Schema(implementation = EmployeeChangeEvent.class))})})
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamEmployeeChanges(@Parameter(description = "The id of the last event received, to resume after it.") @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        log.info("Inside streamEmployeeChanges method of the Employee controller.");
+
+        return changeFeed.subscribe(lastEventId);
+    }
+
+
+    @Operation(description = "This method fetches the employees created, updated or deleted after a watermark, one page at a time. Start with a ts and continue with the watermark of the previous page as cursor.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "The page of changes has been fetched successfully.",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = EmployeeDelta.class))}),
+            @ApiResponse(responseCode = "400", description = "Neither ts nor cursor was given, one of them is malformed or the limit is out of range.")})
+    @GetMapping("/changes-since")
+    public EntityModel<EmployeeDelta> findEmployeeChangesSince(@Parameter(description = "The time to sync from, e.g. 2021-01-31T23:59:59.000Z.") @RequestParam(value = "ts", required = false) String since,
+                                                              @Parameter(description = "The watermark returned by the previous sync.") @RequestParam(value = "cursor", required = false) String cursor,
+                                                              @Parameter(description = "The maximum number of changes to return.") @RequestParam(value = "limit", defaultValue = "500") int limit) {
+        log.info("Inside findEmployeeChangesSince method of the Employee controller.");
+
+        EmployeeDelta delta = service.retrieveEmployeeChangesSince(since, cursor, limit);
+        String next = employeesLink().slash("changes-since").toUriComponentsBuilder()
+                .queryParam("cursor", delta.getWatermark())
+                .queryParam("limit", limit)
+                .toUriString();
+        return EntityModel.of(delta, Link.of(next, "next"));
+    }
+
+
+    @Operation(description = "This method uploads a CSV or NDJSON file of employees and imports it in the background. Follow the Location header to the import job for its progress.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "202", description = "The file has been accepted and its import is queued.",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ImportJob.class))}),
+            @ApiResponse(responseCode = "400", description = "The file is empty or not in a supported format."),
+            @ApiResponse(responseCode = "503", description = "Too many imports are queued already.")})
+    @PostMapping(value = "/imports", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public EntityModel<ImportJob> importEmployees(@Parameter(description = "The CSV or NDJSON file of employees.") @RequestParam("file") MultipartFile file,
+                                                  @Parameter(description = "csv or ndjson, when the file name and content type don't tell.") @RequestParam(value = "format", required = false) String format,
+                                                  HttpServletResponse response) throws IOException {
+        log.info("Inside importEmployees method of the Employee controller.");
+
+        ImportJob job = importService.startImport(file, format);
+        Link jobLink = RequestTrace.span("links", () -> ImportJobController.getImportJobSelfLink(job.getId()));
+        response.setHeader("Location", jobLink.getHref());
+        response.setStatus(HttpServletResponse.SC_ACCEPTED);
+
+        return EntityModel.of(job, jobLink);
     }
 
 
@@ -88,19 +236,44 @@ public class EmployeeController {
                     content = { @Content(mediaType = "application/json",
                             schema = @Schema(implementation = Employee.class))}),
             @ApiResponse(responseCode = "404", description = "Employee requested for the given firstName doesn't exist in the database.")})
+    @DeadlineDefault("${employees.deadlines.lookup-ms}")
     @GetMapping("/names/{firstName}")
     public EntityModel<Employee> findEmployeeByFirstName(@Parameter(description = "The first name of the employee to look up.") @PathVariable("firstName") String employeeFirstName) {
         log.info("Inside findEmployeeByFirstName method of the Employee controller.");
 
-        try {
-            Employee employee = service.retrieveEmployeeByFirstName(employeeFirstName);
-            EntityModel<Employee> resource = EntityModel.of(employee);
-            resource.add(linkTo(EmployeeController.class).slash("names").slash(employeeFirstName).withSelfRel());
-            return resource;
-        } catch (Exception e) {
-            throw new ItemNotFoundException("The employee with firstName : "+employeeFirstName+" could not be found!");
-        }
+        return service.retrieveEmployeeByFirstName(employeeFirstName)
+                .map(employee -> EntityModel.of(employee, employeesLink().slash("names").slash(employeeFirstName).withSelfRel()))
+                .orElseThrow(() -> new ItemNotFoundException("The employee with firstName : "+employeeFirstName+" could not be found!"));
+    }
+
+
+    @Operation(description = "This method checks whether an employee with the given firstName exists, without a body and without loading the employee.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "An employee with the firstName exists."),
+            @ApiResponse(responseCode = "404", description = "Employee requested for the given firstName doesn't exist in the database.")})
+    @DeadlineDefault("${employees.deadlines.lookup-ms}")
+    @RequestMapping(value = "/names/{firstName}", method = RequestMethod.HEAD)
+    public ResponseEntity<Void> employeeWithFirstNameExists(@Parameter(description = "The first name of the employee to look for.") @PathVariable("firstName") String employeeFirstName) {
+        log.info("Inside employeeWithFirstNameExists method of the Employee controller.");
 
+        return exists(service.employeeWithFirstNameExists(employeeFirstName));
+    }
+
+
+    @Operation(description = "This method fetches a employee resource from the database based on one of the employee's email addresses.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "The employee resource requested has been fetched successfully.",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = Employee.class))}),
+            @ApiResponse(responseCode = "404", description = "No employee has the given email address.")})
+    @DeadlineDefault("${employees.deadlines.lookup-ms}")
+    @GetMapping("/emails/{email}")
+    public EntityModel<Employee> findEmployeeByEmail(@Parameter(description = "An email address of the employee to look up.") @PathVariable("email") String email) {
+        log.info("Inside findEmployeeByEmail method of the Employee controller.");
+
+        return service.retrieveEmployeeByEmail(email)
+                .map(employee -> EntityModel.of(employee, employeesLink().slash("emails").slash(email).withSelfRel()))
+                .orElseThrow(() -> new ItemNotFoundException("The employee with email : "+email+" could not be found!"));
     }
 
 
@@ -124,7 +297,7 @@ public class EmployeeController {
                     })
                     .collect(Collectors.toList());
             CollectionModel<EntityModel<Employee>> resource = CollectionModel.of(employeeEntityList);
-            resource.add(linkTo(EmployeeController.class).slash("departments").slash("names").slash(departmentName).withSelfRel());
+            resource.add(employeesLink().slash("departments").slash("names").slash(departmentName).withSelfRel());
             return resource;
         } catch (Exception e) {
             throw new ItemNotFoundException("The employee with firstName : "+departmentName+" could not be found!");
@@ -132,6 +305,21 @@ public class EmployeeController {
     }
 
 
+    @Operation(description = "This method counts the employees of a department without loading them.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "The employees have been counted successfully.",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = EmployeeCount.class))})})
+    @DeadlineDefault("${employees.deadlines.lookup-ms}")
+    @GetMapping("/departments/names/{departmentName}/count")
+    public EntityModel<EmployeeCount> countEmployeesInDepartment(@Parameter(description = "The name of the department to count the employees of.") @PathVariable("departmentName") String departmentName) {
+        log.info("Inside countEmployeesInDepartment method of the Employee controller.");
+
+        return EntityModel.of(new EmployeeCount(service.countEmployeesInDepartment(departmentName)),
+                employeesLink().slash("departments").slash("names").slash(departmentName).slash("count").withSelfRel());
+    }
+
+
     @Operation(summary = "This method updates a Employee resource with requisite details and updates it to the database.")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "The Employee resource has been updated successfully.",
@@ -140,7 +328,7 @@ public class EmployeeController {
             @ApiResponse(responseCode = "400", description = "Employee data is invalid, e.g. primary emailAddress is missing."),
             @ApiResponse(responseCode = "409", description = "Employee data with same update already exists.")})
     @PutMapping("/{id}")
-    public EntityModel<Employee> updateEmployee(@Parameter(description = "The id of the employee to update.") @PathVariable String id, @RequestBody @Valid Employee employeeUpdate, HttpServletResponse response) throws ParseException {
+    public EntityModel<Employee> updateEmployee(@Parameter(description = "The id of the employee to update.") @PathVariable UUID id, @RequestBody @Valid Employee employeeUpdate, HttpServletResponse response) {
 
         log.info("Inside updateEmployee method of the Employee controller.");
 
@@ -153,6 +341,7 @@ public class EmployeeController {
         }
 
         Employee employee = service.updateEmployee(employeeUpdate);
+        responseCache.evict(employee.getId());
         EntityModel<Employee> resource = EntityModel.of(employee);
 
         resource.add(getEmployeeSelfLink(employee.getId()));
@@ -162,6 +351,38 @@ public class EmployeeController {
     }
 
 
+    @Operation(summary = "This method applies a JSON Merge Patch (application/merge-patch+json) to a Employee resource and writes only the fields it changes to the database.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "The Employee resource has been patched successfully.",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = Employee.class))}),
+            @ApiResponse(responseCode = "400", description = "The patch is malformed or the patched employee is invalid."),
+            @ApiResponse(responseCode = "404", description = "The employee to patch doesn't exist."),
+            @ApiResponse(responseCode = "409", description = "The patch gives the employee an email address or identity another employee has.")})
+    @PatchMapping(value = "/{id}", consumes = JsonPatches.MERGE_PATCH_JSON_VALUE)
+    public EntityModel<Employee> mergePatchEmployee(@Parameter(description = "The id of the employee to patch.") @PathVariable UUID id, @RequestBody JsonNode patch) {
+        log.info("Inside mergePatchEmployee method of the Employee controller.");
+
+        return patched(service.patchEmployee(id, patch, false));
+    }
+
+
+    @Operation(summary = "This method applies a JSON Patch (application/json-patch+json) to a Employee resource and writes only the fields it changes to the database.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "The Employee resource has been patched successfully.",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = Employee.class))}),
+            @ApiResponse(responseCode = "400", description = "The patch is malformed, a test failed or the patched employee is invalid."),
+            @ApiResponse(responseCode = "404", description = "The employee to patch doesn't exist."),
+            @ApiResponse(responseCode = "409", description = "The patch gives the employee an email address or identity another employee has.")})
+    @PatchMapping(value = "/{id}", consumes = JsonPatches.JSON_PATCH_JSON_VALUE)
+    public EntityModel<Employee> jsonPatchEmployee(@Parameter(description = "The id of the employee to patch.") @PathVariable UUID id, @RequestBody JsonNode patch) {
+        log.info("Inside jsonPatchEmployee method of the Employee controller.");
+
+        return patched(service.patchEmployee(id, patch, true));
+    }
+
+
     @Operation(summary = "This method deletes a Employee resource from the database for the given employee id.")
     @ApiResponses({
             @ApiResponse(responseCode = "204", description = "The Employee resource has been deleted successfully.",
@@ -169,16 +390,33 @@ public class EmployeeController {
                             schema = @Schema(implementation = Employee.class))}),
             @ApiResponse(responseCode = "404", description = "Employee data is invalid, e.g. primary emailAddress is missing.")})
     @DeleteMapping("/{id}")
-    public void deleteEmployee(@Parameter(description = "The id of the employee to delete.") @PathVariable String id, HttpServletResponse response) {
+    public void deleteEmployee(@Parameter(description = "The id of the employee to delete.") @PathVariable UUID id, HttpServletResponse response) {
         log.info("Inside deleteEmployee method of the Employee controller.");
 
         service.deleteEmployee(id);
+        responseCache.evict(id);
         response.setStatus(HttpServletResponse.SC_NO_CONTENT);
     }
 
 
-    private Link getEmployeeSelfLink(String id){
-        return linkTo(EmployeeController.class).slash(id).withSelfRel();
+    private EntityModel<Employee> patched(Employee employee) {
+        responseCache.evict(employee.getId());
+        return EntityModel.of(employee, getEmployeeSelfLink(employee.getId()));
+    }
+
+    /**
+     * A bodiless answer to an existence check; a miss is a plain 404 rather than an error.
+     */
+    private static ResponseEntity<Void> exists(boolean exists) {
+        return exists ? ResponseEntity.ok().build() : ResponseEntity.notFound().build();
+    }
+
+    private Link getEmployeeSelfLink(UUID id){
+        return employeesLink().slash(id).withSelfRel();
+    }
+
+    private static WebMvcLinkBuilder employeesLink() {
+        return RequestTrace.span("links", () -> linkTo(EmployeeController.class));
     }
 
 
@@ -0,0 +1,163 @@
+package com.springboot.employees.controller;
+
+import com.springboot.employees.domain.EmployeeCount;
+import com.springboot.employees.domain.EmployeePage;
+import com.springboot.employees.service.EmployeeService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.server.mvc.WebMvcLinkBuilder;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+
+@RestController
+@RequestMapping(value = "/employees/locations")
+@Slf4j
+public class EmployeeLocationController {
+
+    @Autowired
+    private EmployeeService service;
+
+    @Operation(description = "This method fetches the employees living in a state, ordered by city, one page at a time. Continue with the cursor of the previous page.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "The page of employees has been fetched successfully.",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = EmployeePage.class))}),
+            @ApiResponse(responseCode = "400", description = "The cursor is malformed or the limit is out of range.")})
+    @GetMapping("/states/{state}")
+    public EntityModel<EmployeePage> findEmployeesInState(@Parameter(description = "The state the employees live in.") @PathVariable("state") String state,
+                                                         @Parameter(description = "The cursor returned by the previous page.") @RequestParam(value = "cursor", required = false) String cursor,
+                                                         @Parameter(description = "The maximum number of employees to return.") @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        log.info("Inside findEmployeesInState method of the EmployeeLocation controller.");
+
+        EmployeePage page = service.retrieveEmployeesInState(state, cursor, limit);
+        return withLinks(page, statesLink(state).toUriComponentsBuilder(), cursor, limit);
+    }
+
+
+    @Operation(description = "This method counts the employees living in a state.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "The employees have been counted successfully.",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = EmployeeCount.class))})})
+    @GetMapping("/states/{state}/count")
+    public EntityModel<EmployeeCount> countEmployeesInState(@Parameter(description = "The state the employees live in.") @PathVariable("state") String state) {
+        log.info("Inside countEmployeesInState method of the EmployeeLocation controller.");
+
+        return EntityModel.of(new EmployeeCount(service.countEmployeesInState(state)), statesLink(state).slash("count").withSelfRel());
+    }
+
+
+    @Operation(description = "This method fetches the employees living in a city of a state, one page at a time. Continue with the cursor of the previous page.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "The page of employees has been fetched successfully.",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = EmployeePage.class))}),
+            @ApiResponse(responseCode = "400", description = "The cursor is malformed or the limit is out of range.")})
+    @GetMapping("/states/{state}/cities/{city}")
+    public EntityModel<EmployeePage> findEmployeesInCity(@Parameter(description = "The state the city is in.") @PathVariable("state") String state,
+                                                        @Parameter(description = "The city the employees live in.") @PathVariable("city") String city,
+                                                        @Parameter(description = "The cursor returned by the previous page.") @RequestParam(value = "cursor", required = false) String cursor,
+                                                        @Parameter(description = "The maximum number of employees to return.") @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        log.info("Inside findEmployeesInCity method of the EmployeeLocation controller.");
+
+        EmployeePage page = service.retrieveEmployeesInCity(state, city, cursor, limit);
+        return withLinks(page, citiesLink(state, city).toUriComponentsBuilder(), cursor, limit);
+    }
+
+
+    @Operation(description = "This method counts the employees living in a city of a state.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "The employees have been counted successfully.",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = EmployeeCount.class))})})
+    @GetMapping("/states/{state}/cities/{city}/count")
+    public EntityModel<EmployeeCount> countEmployeesInCity(@Parameter(description = "The state the city is in.") @PathVariable("state") String state,
+                                                          @Parameter(description = "The city the employees live in.") @PathVariable("city") String city) {
+        log.info("Inside countEmployeesInCity method of the EmployeeLocation controller.");
+
+        return EntityModel.of(new EmployeeCount(service.countEmployeesInCity(state, city)), citiesLink(state, city).slash("count").withSelfRel());
+    }
+
+
+    @Operation(description = "This method fetches the employees with a zipcode in a range, both ends included, ordered by zipcode, one page at a time. Continue with the cursor of the previous page.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "The page of employees has been fetched successfully.",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = EmployeePage.class))}),
+            @ApiResponse(responseCode = "400", description = "The range is empty, the cursor is malformed or the limit is out of range.")})
+    @GetMapping("/zipcodes")
+    public EntityModel<EmployeePage> findEmployeesInZipcodeRange(@Parameter(description = "The lowest zipcode.") @RequestParam("from") int from,
+                                                                @Parameter(description = "The highest zipcode.") @RequestParam("to") int to,
+                                                                @Parameter(description = "The cursor returned by the previous page.") @RequestParam(value = "cursor", required = false) String cursor,
+                                                                @Parameter(description = "The maximum number of employees to return.") @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        log.info("Inside findEmployeesInZipcodeRange method of the EmployeeLocation controller.");
+
+        EmployeePage page = service.retrieveEmployeesInZipcodeRange(from, to, cursor, limit);
+        return withLinks(page, zipcodesLink().toUriComponentsBuilder().queryParam("from", from).queryParam("to", to), cursor, limit);
+    }
+
+
+    @Operation(description = "This method counts the employees with a zipcode in a range, both ends included.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "The employees have been counted successfully.",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = EmployeeCount.class))}),
+            @ApiResponse(responseCode = "400", description = "The range is empty.")})
+    @GetMapping("/zipcodes/count")
+    public EntityModel<EmployeeCount> countEmployeesInZipcodeRange(@Parameter(description = "The lowest zipcode.") @RequestParam("from") int from,
+                                                                  @Parameter(description = "The highest zipcode.") @RequestParam("to") int to) {
+        log.info("Inside countEmployeesInZipcodeRange method of the EmployeeLocation controller.");
+
+        String self = zipcodesLink().slash("count").toUriComponentsBuilder()
+                .queryParam("from", from)
+                .queryParam("to", to)
+                .toUriString();
+        return EntityModel.of(new EmployeeCount(service.countEmployeesInZipcodeRange(from, to)), Link.of(self));
+    }
+
+
+    /**
+     * Adds the self link and, when another page exists, the next link carrying its cursor.
+     */
+    private static EntityModel<EmployeePage> withLinks(EmployeePage page, UriComponentsBuilder query, String cursor, int limit) {
+        EntityModel<EmployeePage> model = EntityModel.of(page, Link.of(pageUri(query, cursor, limit)));
+        if (page.isHasMore()) {
+            model.add(Link.of(pageUri(query, page.getCursor(), limit), "next"));
+        }
+        return model;
+    }
+
+    private static String pageUri(UriComponentsBuilder query, String cursor, int limit) {
+        UriComponentsBuilder uri = query.cloneBuilder();
+        if (cursor != null) {
+            uri.queryParam("cursor", cursor);
+        }
+        return uri.queryParam("limit", limit).toUriString();
+    }
+
+    private static WebMvcLinkBuilder statesLink(String state) {
+        return linkTo(EmployeeLocationController.class).slash("states").slash(state);
+    }
+
+    private static WebMvcLinkBuilder citiesLink(String state, String city) {
+        return statesLink(state).slash("cities").slash(city);
+    }
+
+    private static WebMvcLinkBuilder zipcodesLink() {
+        return linkTo(EmployeeLocationController.class).slash("zipcodes");
+    }
+}
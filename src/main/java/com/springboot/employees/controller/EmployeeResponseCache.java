@@ -0,0 +1,218 @@
+package com.springboot.employees.controller;
+
+import com.springboot.employees.domain.Employee;
+import com.springboot.employees.service.DepartmentCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the rendered HAL bytes of single-employee responses, switched on with
+ * {@code employees.response-cache.enabled}. An entry is only served while the employee's updatedAt and self
+ * link are the ones it was rendered for, and no department changed since, so an update is never answered
+ * with stale bytes; hits are copied to the response without any object mapping.
+ *
+ * Bytes are rendered by the same message converter the regular path would pick, and HAL and plain JSON
+ * requests share them because that converter writes both alike. Other representations such as HAL-FORMS
+ * are left to the regular path. At most {@code employees.response-cache.max-size} employees are kept; past
+ * that the oldest of a small sample of entries is dropped on every insert.
+ */
+@Component
+public class EmployeeResponseCache {
+
+    private final boolean enabled;
+    private final int maxSize;
+    private final ObjectProvider<RequestMappingHandlerAdapter> handlerAdapter;
+    private final DepartmentCache departmentCache;
+    private final Counter hits;
+    private final Counter misses;
+
+    private final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+    private volatile HttpMessageConverter<Object> converter;
+
+    public EmployeeResponseCache(@Value("${employees.response-cache.enabled}") boolean enabled,
+                                 @Value("${employees.response-cache.max-size}") int maxSize,
+                                 ObjectProvider<RequestMappingHandlerAdapter> handlerAdapter,
+                                 DepartmentCache departmentCache,
+                                 MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.maxSize = maxSize;
+        this.handlerAdapter = handlerAdapter;
+        this.departmentCache = departmentCache;
+        this.hits = Counter.builder("employees.responses.cache").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("employees.responses.cache").tag("result", "miss").register(meterRegistry);
+    }
+
+    /**
+     * Writes the employee with its self link to the response, rendering it only when no bytes are cached for
+     * its current version. Returns false, without touching the response, when the request has to go through
+     * the regular path.
+     */
+    public boolean write(Employee employee, Link self, String accept, HttpServletResponse response) throws IOException {
+        if (!enabled || employee.getId() == null || employee.getUpdatedAt() == null) {
+            return false;
+        }
+        MediaType mediaType = negotiate(accept);
+        if (mediaType == null) {
+            return false;
+        }
+
+        Entry entry = entries.get(employee.getId());
+        long departmentsVersion = departmentCache.version();
+        byte[] body;
+        if (entry != null && entry.updatedAt.equals(employee.getUpdatedAt()) && entry.selfHref.equals(self.getHref())
+                && entry.departmentsVersion == departmentsVersion) {
+            hits.increment();
+            body = entry.body;
+        } else {
+            misses.increment();
+            body = render(EntityModel.of(employee, self));
+            entries.put(employee.getId(), new Entry(employee.getUpdatedAt(), self.getHref(), departmentsVersion, body, System.nanoTime()));
+            if (entries.size() > maxSize) {
+                trim();
+            }
+        }
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(mediaType.toString());
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+        return true;
+    }
+
+    public void evict(UUID id) {
+        if (id != null) {
+            entries.remove(id);
+        }
+    }
+
+
+    /**
+     * The media type content negotiation would settle on when it is one the cached bytes can be served as,
+     * otherwise null.
+     */
+    private static MediaType negotiate(String accept) {
+        if (accept == null || accept.trim().isEmpty()) {
+            return MediaTypes.HAL_JSON;
+        }
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return null;
+        }
+        MediaType.sortBySpecificityAndQuality(accepted);
+        for (MediaType type : accepted) {
+            if (type.getQualityValue() == 0) {
+                continue;
+            }
+            if (type.includes(MediaTypes.HAL_JSON)) {
+                return MediaTypes.HAL_JSON;
+            }
+            if (type.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return MediaType.APPLICATION_JSON;
+            }
+            if (type.isCompatibleWith(MediaTypes.HAL_FORMS_JSON)) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private byte[] render(EntityModel<Employee> model) throws IOException {
+        BufferedOutputMessage message = new BufferedOutputMessage();
+        halConverter().write(model, MediaTypes.HAL_JSON, message);
+        return message.body.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    private HttpMessageConverter<Object> halConverter() {
+        HttpMessageConverter<Object> resolved = converter;
+        if (resolved == null) {
+            for (HttpMessageConverter<?> candidate : handlerAdapter.getObject().getMessageConverters()) {
+                if (candidate.canWrite(EntityModel.class, MediaTypes.HAL_JSON)) {
+                    resolved = (HttpMessageConverter<Object>) candidate;
+                    break;
+                }
+            }
+            if (resolved == null) {
+                throw new IllegalStateException("No message converter renders " + MediaTypes.HAL_JSON);
+            }
+            converter = resolved;
+        }
+        return resolved;
+    }
+
+    private void trim() {
+        Iterator<Map.Entry<UUID, Entry>> iterator = entries.entrySet().iterator();
+        long oldest = Long.MAX_VALUE;
+        UUID oldestId = null;
+        // A bounded sample keeps eviction O(1) regardless of the cache size.
+        for (int sampled = 0; sampled < 16 && iterator.hasNext(); sampled++) {
+            Map.Entry<UUID, Entry> candidate = iterator.next();
+            if (candidate.getValue().renderedAt < oldest) {
+                oldest = candidate.getValue().renderedAt;
+                oldestId = candidate.getKey();
+            }
+        }
+        if (oldestId != null) {
+            entries.remove(oldestId);
+        }
+    }
+
+
+    private static final class Entry {
+
+        private final LocalDateTime updatedAt;
+        private final String selfHref;
+        private final long departmentsVersion;
+        private final byte[] body;
+        private final long renderedAt;
+
+        private Entry(LocalDateTime updatedAt, String selfHref, long departmentsVersion, byte[] body, long renderedAt) {
+            this.updatedAt = updatedAt;
+            this.selfHref = selfHref;
+            this.departmentsVersion = departmentsVersion;
+            this.body = body;
+            this.renderedAt = renderedAt;
+        }
+    }
+
+    private static final class BufferedOutputMessage implements HttpOutputMessage {
+
+        private final HttpHeaders headers = new HttpHeaders();
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream(1024);
+
+        @Override
+        public OutputStream getBody() {
+            return body;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    }
+}
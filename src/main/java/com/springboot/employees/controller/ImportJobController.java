@@ -0,0 +1,52 @@
+package com.springboot.employees.controller;
+
+import com.springboot.employees.domain.ImportJob;
+import com.springboot.employees.exceptions.ItemNotFoundException;
+import com.springboot.employees.service.EmployeeImportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.Link;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.UUID;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+
+@RestController
+@RequestMapping(value = "/jobs")
+@Slf4j
+public class ImportJobController {
+
+    @Autowired
+    private EmployeeImportService importService;
+
+    @Operation(description = "This method fetches the progress of an employee import: rows read, imported and rejected, the rejected rows with their reason, and throughput.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "The import job has been fetched successfully.",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ImportJob.class))}),
+            @ApiResponse(responseCode = "404", description = "No import job with the given id is known to this instance.")})
+    @GetMapping("/{id}")
+    public EntityModel<ImportJob> findImportJobById(@Parameter(description = "The id of the import job to look up.") @PathVariable("id") UUID jobId) {
+        log.info("Inside findImportJobById method of the ImportJob controller.");
+
+        return importService.retrieveImportJob(jobId)
+                .map(job -> EntityModel.of(job, getImportJobSelfLink(job.getId())))
+                .orElseThrow(() -> new ItemNotFoundException("The import job with id : "+jobId+" could not be found!"));
+    }
+
+
+    static Link getImportJobSelfLink(UUID id) {
+        return linkTo(ImportJobController.class).slash(id).withSelfRel();
+    }
+}
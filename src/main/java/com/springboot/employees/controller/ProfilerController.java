@@ -0,0 +1,62 @@
+package com.springboot.employees.controller;
+
+import com.springboot.employees.domain.ProfilerReport;
+import com.springboot.employees.exceptions.BadRequestException;
+import com.springboot.employees.profiler.OperationProfiler;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletResponse;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+
+@RestController
+@RequestMapping(value = "/internal/profiler")
+@ConditionalOnProperty(name = "employees.profiler.enabled", havingValue = "true")
+@Slf4j
+public class ProfilerController {
+
+    @Autowired
+    private OperationProfiler profiler;
+
+    @Operation(description = "This method fetches the slowest recent requests and MongoDB commands, with redacted query shapes, and the repository methods that took the most time.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "The profile has been fetched successfully.",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ProfilerReport.class))}),
+            @ApiResponse(responseCode = "400", description = "The number of repository methods asked for is out of range.")})
+    @GetMapping
+    public EntityModel<ProfilerReport> findProfile(@Parameter(description = "How many repository methods to list, most total time first.") @RequestParam(value = "top", defaultValue = "10") int top) {
+        log.info("Inside findProfile method of the Profiler controller.");
+
+        if (top < 1 || top > 100) {
+            throw new BadRequestException("Between 1 and 100 repository methods can be listed!");
+        }
+        return EntityModel.of(profiler.report(top), linkTo(ProfilerController.class).withSelfRel());
+    }
+
+
+    @Operation(description = "This method discards everything the profiler has captured so far.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "204", description = "The profile has been reset.")})
+    @DeleteMapping
+    public void resetProfile(HttpServletResponse response) {
+        log.info("Inside resetProfile method of the Profiler controller.");
+
+        profiler.reset();
+        response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+    }
+}
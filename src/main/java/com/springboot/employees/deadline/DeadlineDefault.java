@@ -0,0 +1,18 @@
+package com.springboot.employees.deadline;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The deadline of an endpoint when the client sends none, in milliseconds; placeholders like
+ * {@code ${employees.deadlines.lookup-ms}} are resolved. Endpoints without it get
+ * {@code employees.deadlines.default-ms}.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface DeadlineDefault {
+
+    String value();
+}
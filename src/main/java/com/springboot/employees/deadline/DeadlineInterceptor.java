@@ -0,0 +1,86 @@
+package com.springboot.employees.deadline;
+
+import com.springboot.employees.exceptions.BadRequestException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Starts the deadline of every handled request: the {@value #HEADER} header when the client sends one,
+ * capped at {@code employees.deadlines.max-ms}, otherwise the endpoint's {@link DeadlineDefault} or
+ * {@code employees.deadlines.default-ms}. A handler that goes async, such as the change stream, gives its
+ * thread back before completing, so the deadline is stopped there as well.
+ */
+@Component
+public class DeadlineInterceptor implements AsyncHandlerInterceptor {
+
+    public static final String HEADER = "X-Request-Timeout-Ms";
+
+    private final boolean enabled;
+    private final long defaultMillis;
+    private final long maxMillis;
+    private final Environment environment;
+    private final Map<Method, Long> defaultsByMethod = new ConcurrentHashMap<>();
+
+    public DeadlineInterceptor(@Value("${employees.deadlines.enabled}") boolean enabled,
+                               @Value("${employees.deadlines.default-ms}") long defaultMillis,
+                               @Value("${employees.deadlines.max-ms}") long maxMillis,
+                               Environment environment) {
+        this.enabled = enabled;
+        this.defaultMillis = defaultMillis;
+        this.maxMillis = maxMillis;
+        this.environment = environment;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (enabled) {
+            RequestDeadline.start(budgetOf(request, handler));
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        RequestDeadline.stop();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        RequestDeadline.stop();
+    }
+
+
+    long budgetOf(HttpServletRequest request, Object handler) {
+        String header = request.getHeader(HEADER);
+        if (header != null) {
+            long requested;
+            try {
+                requested = Long.parseLong(header.trim());
+            } catch (NumberFormatException e) {
+                requested = 0;
+            }
+            if (requested <= 0) {
+                throw new BadRequestException(HEADER + " should be a positive number of milliseconds!");
+            }
+            return Math.min(requested, maxMillis);
+        }
+        if (handler instanceof HandlerMethod) {
+            return defaultsByMethod.computeIfAbsent(((HandlerMethod) handler).getMethod(), this::defaultOf);
+        }
+        return defaultMillis;
+    }
+
+    private long defaultOf(Method method) {
+        DeadlineDefault annotation = method.getAnnotation(DeadlineDefault.class);
+        return annotation == null ? defaultMillis : Long.parseLong(environment.resolveRequiredPlaceholders(annotation.value()));
+    }
+}
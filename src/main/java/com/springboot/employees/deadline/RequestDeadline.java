@@ -0,0 +1,55 @@
+package com.springboot.employees.deadline;
+
+import com.springboot.employees.exceptions.DeadlineExceededException;
+
+/**
+ * The point in time by which the request handled on this thread has to be answered. Work that runs outside
+ * a request, such as background imports and scheduled rebuilds, has no deadline, so callers can always ask
+ * for {@link #remainingMillis()} and {@link #check()}.
+ */
+public final class RequestDeadline {
+
+    public static final long NONE = Long.MAX_VALUE;
+
+    private static final ThreadLocal<RequestDeadline> CURRENT = new ThreadLocal<>();
+
+    private final long budgetMillis;
+    private final long expiresAtNanos;
+
+    private RequestDeadline(long budgetMillis) {
+        this.budgetMillis = budgetMillis;
+        this.expiresAtNanos = System.nanoTime() + budgetMillis * 1_000_000L;
+    }
+
+    static void start(long budgetMillis) {
+        CURRENT.set(new RequestDeadline(budgetMillis));
+    }
+
+    static void stop() {
+        CURRENT.remove();
+    }
+
+    /**
+     * The milliseconds left before the deadline, at least 1 while it is not spent, or {@link #NONE}.
+     */
+    public static long remainingMillis() {
+        RequestDeadline deadline = CURRENT.get();
+        if (deadline == null) {
+            return NONE;
+        }
+        long remainingNanos = deadline.expiresAtNanos - System.nanoTime();
+        return remainingNanos <= 0 ? 0 : Math.max(1, remainingNanos / 1_000_000L);
+    }
+
+    /**
+     * Fails fast, before more work is queued, once the deadline is spent.
+     */
+    public static long check() {
+        long remaining = remainingMillis();
+        if (remaining == 0) {
+            throw new DeadlineExceededException("The request did not complete within its "
+                    + CURRENT.get().budgetMillis + " ms deadline!");
+        }
+        return remaining;
+    }
+}
@@ -5,8 +5,8 @@ import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.springboot.employees.util.JsonDateDeserializer;
 import com.springboot.employees.util.JsonDateSerializer;
 
-import java.text.ParseException;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 
 public abstract class AbstractLinkableEntity {
 
@@ -18,23 +18,27 @@ public abstract class AbstractLinkableEntity {
     @JsonDeserialize(using = JsonDateDeserializer.class)
     private LocalDateTime updatedAt;
 
-    public LocalDateTime getCreatedAt() throws ParseException {
-        return this.createdAt == null?null: LocalDateTime.from(JsonDateSerializer.formatter.parse(JsonDateSerializer.formatter.format(createdAt)));
+    public LocalDateTime getCreatedAt() {
+        return this.createdAt;
     }
 
-    public LocalDateTime getUpdatedAt() throws ParseException {
-        return this.updatedAt == null?null: LocalDateTime.from(JsonDateSerializer.formatter.parse(JsonDateSerializer.formatter.format(updatedAt)));
+    public LocalDateTime getUpdatedAt() {
+        return this.updatedAt;
     }
 
-    public void setCreatedAt(LocalDateTime date) throws ParseException {
-        this.createdAt = date == null?LocalDateTime.now(): LocalDateTime.from(JsonDateSerializer.formatter.parse(JsonDateSerializer.formatter.format(date)));
+    /**
+     * Timestamps are kept at the millisecond precision they are serialized and stored with, so a value read
+     * back from JSON or MongoDB equals the one that was written. A null stamps the current time.
+     */
+    public void setCreatedAt(LocalDateTime date) {
+        this.createdAt = (date == null ? LocalDateTime.now() : date).truncatedTo(ChronoUnit.MILLIS);
     }
 
-    public void setUpdatedAt(LocalDateTime date) throws ParseException {
-        this.updatedAt = date == null?LocalDateTime.now(): LocalDateTime.from(JsonDateSerializer.formatter.parse(JsonDateSerializer.formatter.format(date)));
+    public void setUpdatedAt(LocalDateTime date) {
+        this.updatedAt = (date == null ? LocalDateTime.now() : date).truncatedTo(ChronoUnit.MILLIS);
     }
 
-    public void cleanUp() throws ParseException {
+    public void cleanUp() {
         setCreatedAt(null);
         setUpdatedAt(null);
     }
@@ -4,15 +4,28 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
 
 import javax.validation.constraints.NotBlank;
 
+/**
+ * A department, stored once in its own collection; employees only hold its id. Names are unique, since
+ * employees are looked up and summarized by department name.
+ */
 @Data
 @AllArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
+@Document(collection = "departments")
+@CompoundIndexes({
+    @CompoundIndex(name = "name", def = "{'name':1}", unique = true)
+})
 public class Department {
 
+    @Id
     @NotBlank(message = "Department id is required.")
     private int departmentId;
 
@@ -0,0 +1,37 @@
+package com.springboot.employees.domain;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.springboot.employees.util.JsonDateDeserializer;
+import com.springboot.employees.util.JsonDateSerializer;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Dashboard view of a department: how many employees it has, how many of them live in each state, and when
+ * the most recent of them was hired. Summaries are stored by department id and take the current name of the
+ * department when they are served, so renaming a department leaves them alone.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder(toBuilder = true)
+public class DepartmentSummary {
+
+    private int departmentId;
+
+    private String name;
+
+    private long headcount;
+
+    private Map<String, Long> headcountByState;
+
+    @JsonSerialize(using = JsonDateSerializer.class)
+    @JsonDeserialize(using = JsonDateDeserializer.class)
+    private LocalDateTime mostRecentHire;
+}
@@ -1,9 +1,11 @@
 package com.springboot.employees.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import lombok.*;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
 import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
@@ -12,8 +14,9 @@ import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotEmpty;
 import java.util.List;
 import java.util.Objects;
+import java.util.UUID;
 
-@JsonPropertyOrder({ "_links", "_embedded", "firstName", "lastName", "department",
+@JsonPropertyOrder({ "_links", "_embedded", "firstName", "lastName", "department", "managerId",
         "addresses", "id", "createdAt", "updatedAt"})
 @Data
 @AllArgsConstructor
@@ -22,13 +25,19 @@ import java.util.Objects;
 @Document(collection = "employees")
 @CompoundIndexes({
     @CompoundIndex(name = "firstName_lastName_departmentId",
-            def = "{'firstName':1,'lastName':1, 'department.id':1}", unique = true)
+            def = "{'firstName':1,'lastName':1, 'departmentId':1}", unique = true),
+    @CompoundIndex(name = "updatedAt_id", def = "{'updatedAt':1, '_id':1}"),
+    @CompoundIndex(name = "departmentId_createdAt", def = "{'departmentId':1, 'createdAt':-1}"),
+    @CompoundIndex(name = "state_city_id", def = "{'address.state':1, 'address.city':1, '_id':1}"),
+    @CompoundIndex(name = "zipcode_id", def = "{'address.zipcode':1, '_id':1}"),
+    @CompoundIndex(name = "emailAddresses_email", def = "{'emailAddresses.email':1}", unique = true),
+    @CompoundIndex(name = "managerId", def = "{'managerId':1}")
 })
 public class Employee extends AbstractLinkableEntity {
 
     @Id
     @JsonProperty("id")
-    private String id;
+    private UUID id;
 
     @NotBlank(message = "firstName can't be empty!.")
     private String firstName;
@@ -36,9 +45,23 @@ public class Employee extends AbstractLinkableEntity {
     @NotBlank(message = "lastName can't be empty!.")
     private String lastName;
 
-    @NotBlank(message = "Employee department details are required.")
+    /**
+     * Not stored: in JSON the employee carries the department it references, filled in from the department
+     * cache when it is written. A department sent along with an employee sets departmentId, and is
+     * registered if no department has its id yet.
+     */
+    @Transient
     private Department department;
 
+    @JsonIgnore
+    @NotBlank(message = "Employee department details are required.")
+    private Integer departmentId;
+
+    /**
+     * The id of the employee this one reports to; null at the top of the organization.
+     */
+    private UUID managerId;
+
     @NotBlank(message = "At least one address is required.")
     private Address address;
 
@@ -52,12 +75,32 @@ public class Employee extends AbstractLinkableEntity {
         if (o == null || getClass() != o.getClass()) return false;
         Employee employee = (Employee) o;
         return firstName.equals(employee.firstName) && lastName.equals(employee.lastName)
-                && department.equals(employee.department) && address.equals(employee.address)
+                && Objects.equals(departmentId, employee.departmentId) && Objects.equals(managerId, employee.managerId)
+                && address.equals(employee.address)
                 && emailAddresses.equals(employee.emailAddresses);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(firstName, lastName, department, address, emailAddresses);
+        return Objects.hash(firstName, lastName, departmentId, managerId, address, emailAddresses);
+    }
+
+    public void setDepartment(Department department) {
+        this.department = department;
+        if (department != null) {
+            this.departmentId = department.getDepartmentId();
+        }
+    }
+
+
+    public static class EmployeeBuilder {
+
+        public EmployeeBuilder department(Department department) {
+            this.department = department;
+            if (department != null) {
+                this.departmentId = department.getDepartmentId();
+            }
+            return this;
+        }
     }
 }
@@ -0,0 +1,15 @@
+package com.springboot.employees.domain;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+public class EmployeeBatch {
+
+    private List<Employee> employees;
+    private List<UUID> missingIds;
+}
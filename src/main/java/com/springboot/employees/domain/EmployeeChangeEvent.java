@@ -0,0 +1,27 @@
+package com.springboot.employees.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * One create, update or delete of an employee as published on the change feed. The token orders events and
+ * is what a subscriber hands back to resume; employee is null for deletes.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class EmployeeChangeEvent {
+
+    public enum Type { CREATED, UPDATED, DELETED }
+
+    private String token;
+    private Type type;
+    private UUID employeeId;
+    private Employee employee;
+    private long timestamp;
+}
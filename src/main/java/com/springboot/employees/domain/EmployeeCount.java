@@ -0,0 +1,16 @@
+package com.springboot.employees.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The number of employees matching a query, answered without loading them.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class EmployeeCount {
+
+    private long count;
+}
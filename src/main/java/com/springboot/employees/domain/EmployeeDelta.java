@@ -0,0 +1,19 @@
+package com.springboot.employees.domain;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * One page of employee changes in (updatedAt, id) order. The watermark is the position after the last
+ * change and is passed back as the cursor of the next sync; hasMore tells whether to fetch again right away.
+ */
+@Data
+@Builder
+public class EmployeeDelta {
+
+    private List<EmployeeChangeEvent> changes;
+    private String watermark;
+    private boolean hasMore;
+}
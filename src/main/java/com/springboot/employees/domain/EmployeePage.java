@@ -0,0 +1,19 @@
+package com.springboot.employees.domain;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paged employee query. The cursor is the position after the last employee and is
+ * passed back to fetch the next page; it is null when hasMore is false.
+ */
+@Data
+@Builder
+public class EmployeePage {
+
+    private List<Employee> employees;
+    private String cursor;
+    private boolean hasMore;
+}
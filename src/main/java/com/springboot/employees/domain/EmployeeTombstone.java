@@ -0,0 +1,38 @@
+package com.springboot.employees.domain;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.springboot.employees.util.JsonDateDeserializer;
+import com.springboot.employees.util.JsonDateSerializer;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Marker left behind by a deleted employee so incremental syncs learn about the delete. Tombstones expire
+ * after 30 days; a client whose watermark is older than that has to do a full sync.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Document(collection = "employee_tombstones")
+@CompoundIndex(name = "deletedAt_id", def = "{'deletedAt': 1, '_id': 1}")
+public class EmployeeTombstone {
+
+    @Id
+    private UUID id;
+
+    @Indexed(name = "deletedAt_ttl", expireAfter = "30d")
+    @JsonSerialize(using = JsonDateSerializer.class)
+    @JsonDeserialize(using = JsonDateDeserializer.class)
+    private LocalDateTime deletedAt;
+}
@@ -0,0 +1,36 @@
+package com.springboot.employees.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * The most looked-up keys of one lookup over a recent window, most lookups first. Counts are approximate:
+ * a count may be too high by at most its error, and a key can only be missing if it was looked up less
+ * often than the least counted key of a window bucket.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class HeavyHitterReport {
+
+    private String lookup;
+    private long windowMillis;
+    private long lookups;
+    private List<HeavyHitter> top;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Builder
+    public static class HeavyHitter {
+        private String key;
+        private long count;
+        private long error;
+        private double share;
+    }
+}
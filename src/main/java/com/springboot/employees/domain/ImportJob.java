@@ -0,0 +1,59 @@
+package com.springboot.employees.domain;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.springboot.employees.util.JsonDateDeserializer;
+import com.springboot.employees.util.JsonDateSerializer;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Progress of a bulk employee import. Rows are counted as they are read; rejected rows are listed with their
+ * line number and reason, up to a configured number, and rowsPerSecond is measured from when the job started.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ImportJob {
+
+    public enum Status {QUEUED, RUNNING, COMPLETED, FAILED}
+
+    private UUID id;
+    private Status status;
+    private String fileName;
+    private String format;
+    private long rowsRead;
+    private long rowsImported;
+    private long rowsRejected;
+    private List<RowError> errors;
+    private double rowsPerSecond;
+    private String failure;
+
+    @JsonSerialize(using = JsonDateSerializer.class)
+    @JsonDeserialize(using = JsonDateDeserializer.class)
+    private LocalDateTime createdAt;
+
+    @JsonSerialize(using = JsonDateSerializer.class)
+    @JsonDeserialize(using = JsonDateDeserializer.class)
+    private LocalDateTime startedAt;
+
+    @JsonSerialize(using = JsonDateSerializer.class)
+    @JsonDeserialize(using = JsonDateDeserializer.class)
+    private LocalDateTime finishedAt;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class RowError {
+
+        private long line;
+        private String message;
+    }
+}
@@ -0,0 +1,74 @@
+package com.springboot.employees.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What the slow-operation profiler captured since it started or was last reset: the slowest recent requests
+ * and MongoDB commands, slowest first, and the repository methods that took the most time in total.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ProfilerReport {
+
+    private long slowRequestThresholdMillis;
+    private long slowCommandThresholdMillis;
+    private List<SlowRequest> slowRequests;
+    private List<SlowCommand> slowCommands;
+    private List<MethodProfile> repositoryMethods;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Builder
+    public static class SlowRequest {
+        private long at;
+        private String method;
+        private String route;
+        private int status;
+        private double durationMillis;
+        private int mongoCommands;
+        private double mongoMillis;
+    }
+
+    /**
+     * A MongoDB command with its values redacted: the shape keeps field names and operators, parameters
+     * keep only the BSON type of each value. Docs examined are only known when slow commands are explained.
+     */
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Builder
+    public static class SlowCommand {
+        private long at;
+        private String command;
+        private String collection;
+        private String shape;
+        private Map<String, String> parameters;
+        private double durationMillis;
+        private Long docsReturned;
+        private Long docsExamined;
+        private Long keysExamined;
+        private String failure;
+    }
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Builder
+    public static class MethodProfile {
+        private String method;
+        private long calls;
+        private long errors;
+        private double totalMillis;
+        private double meanMillis;
+        private double maxMillis;
+    }
+}
@@ -5,7 +5,7 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 
 
 @ResponseStatus(value = HttpStatus.NOT_ACCEPTABLE)
-public class ConfigurationException  extends RuntimeException {
+public class ConfigurationException extends DomainException {
     public ConfigurationException(String msg) {
         super(msg);
     }
@@ -1,5 +1,10 @@
 package com.springboot.employees.exceptions;
 
+import com.mongodb.MongoExecutionTimeoutException;
+import com.mongodb.MongoSocketReadTimeoutException;
+import com.springboot.employees.util.ErrorIds;
+import org.springframework.beans.TypeMismatchException;
+import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -11,64 +16,91 @@ import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
 
 
 @ControllerAdvice
 @RestController
 public class CustomValidationExceptionHandler extends ResponseEntityExceptionHandler {
 
-    @ExceptionHandler(Exception.class)
-    public ResponseEntity<ErrorDetails> handleBadGatewayException(Exception ex) {
-
-        ErrorDetails errorDetails = new ErrorDetails(new Date(), UUID.randomUUID().toString(), ex.getMessage());
+    private static final Map<Class<?>, HttpStatus> STATUS_BY_TYPE = new HashMap<>();
+
+    static {
+        STATUS_BY_TYPE.put(BadRequestException.class, HttpStatus.BAD_REQUEST);
+        STATUS_BY_TYPE.put(ItemNotFoundException.class, HttpStatus.NOT_FOUND);
+        STATUS_BY_TYPE.put(UnauthorizedException.class, HttpStatus.UNAUTHORIZED);
+        STATUS_BY_TYPE.put(ForbiddenException.class, HttpStatus.FORBIDDEN);
+        STATUS_BY_TYPE.put(DuplicateItemException.class, HttpStatus.CONFLICT);
+        STATUS_BY_TYPE.put(ServiceUnavailableException.class, HttpStatus.SERVICE_UNAVAILABLE);
+        STATUS_BY_TYPE.put(DeadlineExceededException.class, HttpStatus.GATEWAY_TIMEOUT);
+        STATUS_BY_TYPE.put(DataAccessResourceFailureException.class, HttpStatus.SERVICE_UNAVAILABLE);
+        STATUS_BY_TYPE.put(ConfigurationException.class, HttpStatus.NOT_ACCEPTABLE);
+        STATUS_BY_TYPE.put(DuplicateKeyException.class, HttpStatus.INTERNAL_SERVER_ERROR);
+    }
 
-        if(ex instanceof BadRequestException){
-            errorDetails.setHttpStatus(HttpStatus.BAD_REQUEST.value());
-            errorDetails.setErrorType("BadRequestException");
+    /**
+     * Resolves the status of an exception type once, walking up to the nearest mapped superclass, and
+     * caches it per class. Unmapped exceptions become a 500.
+     */
+    private static final ClassValue<HttpStatus> STATUS_CACHE = new ClassValue<HttpStatus>() {
+        @Override
+        protected HttpStatus computeValue(Class<?> type) {
+            for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+                HttpStatus status = STATUS_BY_TYPE.get(current);
+                if (status != null) {
+                    return status;
+                }
+            }
+            return HttpStatus.INTERNAL_SERVER_ERROR;
         }
+    };
 
-        if(ex instanceof ItemNotFoundException) {
-            errorDetails.setHttpStatus(HttpStatus.NOT_FOUND.value());
-            errorDetails.setErrorType("ItemNotFoundException");
-        }
+    @ExceptionHandler(Exception.class)
+    public ResponseEntity<ErrorDetails> handleBadGatewayException(Exception ex) {
 
-        if(ex instanceof UnauthorizedException) {
-            errorDetails.setHttpStatus(HttpStatus.UNAUTHORIZED.value());
-            errorDetails.setErrorType("UnauthorizedException");
-        }
+        HttpStatus status = isTimeout(ex) ? HttpStatus.GATEWAY_TIMEOUT : STATUS_CACHE.get(ex.getClass());
 
-        if(ex instanceof ForbiddenException) {
-            errorDetails.setHttpStatus(HttpStatus.FORBIDDEN.value());
-            errorDetails.setErrorType("ForbiddenException");
-        }
+        ErrorDetails errorDetails = new ErrorDetails(new Date(), ErrorIds.next(), ex.getMessage());
+        errorDetails.setHttpStatus(status.value());
+        errorDetails.setErrorType(ex.getClass().getSimpleName());
 
-        if(ex instanceof DuplicateItemException) {
-            errorDetails.setHttpStatus(HttpStatus.CONFLICT.value());
-            errorDetails.setErrorType("DuplicateItemException");
-        }
+        return new ResponseEntity<>(errorDetails, status);
+    }
 
-        if(ex instanceof ServiceUnavailableException) {
-            errorDetails.setHttpStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
-            errorDetails.setErrorType("ServiceUnavailableException");
-        }
 
-        if(ex instanceof ConfigurationException) {
-            errorDetails.setHttpStatus(HttpStatus.NOT_ACCEPTABLE.value());
-            errorDetails.setErrorType("ConfigurationException");
+    /**
+     * Whether MongoDB gave up on an operation because it ran past its maxTimeMS, or the driver stopped
+     * waiting for the reply; translated or not, the driver's exception is somewhere in the causes.
+     */
+    private static boolean isTimeout(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoExecutionTimeoutException || cause instanceof MongoSocketReadTimeoutException) {
+                return true;
+            }
         }
+        return false;
+    }
 
-        if(ex instanceof DuplicateKeyException) {
-            errorDetails.setHttpStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
-            errorDetails.setErrorType("DuplicateKeyException");
-        }
 
-        return new ResponseEntity<>(errorDetails, HttpStatus.valueOf(errorDetails.getHttpStatus()));
+    /**
+     * Path variables and parameters that can't be converted, e.g. an employee id that is not a UUID.
+     */
+    @Override
+    protected ResponseEntity<Object> handleTypeMismatch(TypeMismatchException ex, HttpHeaders headers,
+                                                        HttpStatus status, WebRequest request) {
+
+        String name = ex instanceof MethodArgumentTypeMismatchException ? ((MethodArgumentTypeMismatchException) ex).getName() : ex.getPropertyName();
+        ErrorDetails errorDetails = new ErrorDetails(new Date(), ErrorIds.next(), "Invalid value for " + name + ": " + ex.getValue());
+        errorDetails.setHttpStatus(HttpStatus.BAD_REQUEST.value());
+        errorDetails.setErrorType("BadRequest");
+        return new ResponseEntity<>(errorDetails, HttpStatus.BAD_REQUEST);
     }
 
 
@@ -85,11 +117,10 @@ public class CustomValidationExceptionHandler extends ResponseEntityExceptionHan
         }
 
 
-        ErrorDetails errorDetails = new ErrorDetails(new Date(), UUID.randomUUID().toString(), errors.get(0));
+        ErrorDetails errorDetails = new ErrorDetails(new Date(), ErrorIds.next(), errors.get(0));
         errorDetails.setHttpStatus(status.value());
         errorDetails.setErrorType("BadRequest");
         return new ResponseEntity(errorDetails, HttpStatus.valueOf(errorDetails.getHttpStatus()));
     }
 }
 
-
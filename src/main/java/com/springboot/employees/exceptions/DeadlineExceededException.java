@@ -0,0 +1,13 @@
+package com.springboot.employees.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.GATEWAY_TIMEOUT)
+public class DeadlineExceededException extends DomainException {
+    public DeadlineExceededException(String msg) {
+        super(msg);
+    }
+
+
+}
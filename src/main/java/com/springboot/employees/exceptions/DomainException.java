@@ -0,0 +1,12 @@
+package com.springboot.employees.exceptions;
+
+/**
+ * Base of the exceptions that carry an API error back to the client. They are expected outcomes rather
+ * than bugs, so they skip capturing a stack trace, which is most of the cost of throwing.
+ */
+public abstract class DomainException extends RuntimeException {
+
+    protected DomainException(String msg) {
+        super(msg, null, false, false);
+    }
+}
@@ -5,7 +5,7 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 
 
 @ResponseStatus(value = HttpStatus.CONFLICT)
-public class DuplicateItemException extends RuntimeException {
+public class DuplicateItemException extends DomainException {
     public DuplicateItemException(String msg) {
         super(msg);
     }
@@ -5,7 +5,7 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 
 
 @ResponseStatus(value = HttpStatus.NOT_FOUND)
-public class ItemNotFoundException extends RuntimeException {
+public class ItemNotFoundException extends DomainException {
     public ItemNotFoundException(String msg) {
         super(msg);
     }
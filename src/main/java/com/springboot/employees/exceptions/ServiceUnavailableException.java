@@ -5,7 +5,7 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 
 
 @ResponseStatus(value = HttpStatus.SERVICE_UNAVAILABLE)
-public class ServiceUnavailableException extends RuntimeException {
+public class ServiceUnavailableException extends DomainException {
     public ServiceUnavailableException(String msg) {
         super(msg);
     }
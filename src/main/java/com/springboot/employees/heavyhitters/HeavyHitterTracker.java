@@ -0,0 +1,202 @@
+package com.springboot.employees.heavyhitters;
+
+import com.springboot.employees.domain.HeavyHitterReport;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Tracks the most looked-up ids, first names and department names in fixed memory, switched on with
+ * {@code employees.heavy-hitters.enabled}. Every lookup feeds a Space-Saving sketch of
+ * {@code employees.heavy-hitters.capacity} counters; each lookup has a ring of
+ * {@code employees.heavy-hitters.buckets} sketches that take turns every {@code employees.heavy-hitters.bucket-ms},
+ * so a window is answered by merging the buckets it covers and old traffic ages out a bucket at a time.
+ *
+ * A sketch takes a lock on every lookup, so each bucket is split into {@code employees.heavy-hitters.stripes}
+ * sketches, picked by the recording thread, and merged like the buckets when reported. Request threads then
+ * rarely wait for one another, at the cost of more counters and errors that add up across stripes.
+ *
+ * The share of lookups that went to the top ten keys over the whole ring is published as the
+ * {@code employees.heavy-hitters.top-share} gauge.
+ */
+@Component
+public class HeavyHitterTracker {
+
+    private static final int GAUGE_TOP = 10;
+
+    public enum Lookup {
+        ID("id"), FIRST_NAME("firstName"), DEPARTMENT_NAME("departmentName");
+
+        private final String key;
+
+        Lookup(String key) {
+            this.key = key;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public static Lookup ofKey(String key) {
+            for (Lookup lookup : values()) {
+                if (lookup.key.equals(key)) {
+                    return lookup;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final boolean enabled;
+    private final int capacity;
+    private final long bucketMillis;
+    private final int buckets;
+    private final int stripes;
+    private final Map<Lookup, Window> windows = new EnumMap<>(Lookup.class);
+
+    public HeavyHitterTracker(@Value("${employees.heavy-hitters.enabled}") boolean enabled,
+                              @Value("${employees.heavy-hitters.capacity}") int capacity,
+                              @Value("${employees.heavy-hitters.bucket-ms}") long bucketMillis,
+                              @Value("${employees.heavy-hitters.buckets}") int buckets,
+                              @Value("${employees.heavy-hitters.stripes}") int stripes,
+                              MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.bucketMillis = bucketMillis;
+        this.buckets = buckets;
+        this.stripes = stripes;
+        for (Lookup lookup : Lookup.values()) {
+            windows.put(lookup, new Window(capacity, buckets, stripes));
+            if (enabled) {
+                Gauge.builder("employees.heavy-hitters.top-share", this, tracker -> tracker.topShare(lookup))
+                        .tag("lookup", lookup.getKey())
+                        .register(meterRegistry);
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * The longest window that can be reported, covered by the whole ring of buckets.
+     */
+    public long getMaxWindowMillis() {
+        return bucketMillis * buckets;
+    }
+
+    public void record(Lookup lookup, Object key) {
+        if (enabled && key != null) {
+            record(lookup, key.toString(), System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * The keys looked up most over the last {@code windowMillis}, capped at the ring, most lookups first.
+     */
+    public HeavyHitterReport report(Lookup lookup, long windowMillis, int top) {
+        return report(lookup, windowMillis, top, System.currentTimeMillis());
+    }
+
+
+    void record(Lookup lookup, String key, long now) {
+        windows.get(lookup).offer(key, now / bucketMillis, (int) (Thread.currentThread().getId() % stripes));
+    }
+
+    HeavyHitterReport report(Lookup lookup, long windowMillis, int top, long now) {
+        long window = Math.max(bucketMillis, Math.min(windowMillis, getMaxWindowMillis()));
+        int covered = (int) ((window + bucketMillis - 1) / bucketMillis);
+        Map<String, SpaceSavingSketch.Counter> totals = new HashMap<>();
+        long lookups = windows.get(lookup).addTo(totals, now / bucketMillis, covered);
+
+        List<SpaceSavingSketch.Counter> counters = new ArrayList<>(totals.values());
+        counters.sort(Comparator.comparingLong(SpaceSavingSketch.Counter::getCount).reversed()
+                .thenComparing(SpaceSavingSketch.Counter::getKey));
+        List<HeavyHitterReport.HeavyHitter> heavyHitters = new ArrayList<>();
+        for (SpaceSavingSketch.Counter counter : counters.subList(0, Math.min(top, counters.size()))) {
+            heavyHitters.add(HeavyHitterReport.HeavyHitter.builder()
+                    .key(counter.getKey())
+                    .count(counter.getCount())
+                    .error(counter.getError())
+                    .share(lookups == 0 ? 0 : (double) counter.getCount() / lookups)
+                    .build());
+        }
+        return HeavyHitterReport.builder()
+                .lookup(lookup.getKey())
+                .windowMillis(covered * bucketMillis)
+                .lookups(lookups)
+                .top(heavyHitters)
+                .build();
+    }
+
+    private double topShare(Lookup lookup) {
+        return report(lookup, getMaxWindowMillis(), GAUGE_TOP).getTop().stream()
+                .mapToDouble(HeavyHitterReport.HeavyHitter::getShare)
+                .sum();
+    }
+
+
+    /**
+     * A ring of striped sketches, one set per time bucket. The bucket an epoch maps to is cleared the first
+     * time the epoch writes to it, so stale buckets cost nothing until they are reused.
+     */
+    private static final class Window {
+
+        private final SpaceSavingSketch[][] sketches;
+        private final AtomicLongArray epochs;
+
+        private Window(int capacity, int buckets, int stripes) {
+            this.sketches = new SpaceSavingSketch[buckets][stripes];
+            this.epochs = new AtomicLongArray(buckets);
+            for (int bucket = 0; bucket < buckets; bucket++) {
+                for (int stripe = 0; stripe < stripes; stripe++) {
+                    sketches[bucket][stripe] = new SpaceSavingSketch(capacity);
+                }
+                epochs.set(bucket, -1);
+            }
+        }
+
+        private void offer(String key, long epoch, int stripe) {
+            int bucket = (int) (epoch % sketches.length);
+            SpaceSavingSketch[] striped = sketches[bucket];
+            if (epochs.get(bucket) != epoch) {
+                synchronized (striped) {
+                    if (epochs.get(bucket) < epoch) {
+                        for (SpaceSavingSketch sketch : striped) {
+                            sketch.clear();
+                        }
+                        epochs.set(bucket, epoch);
+                    }
+                }
+            }
+            striped[stripe].offer(key);
+        }
+
+        private long addTo(Map<String, SpaceSavingSketch.Counter> totals, long epoch, int covered) {
+            long lookups = 0;
+            for (long past = epoch; past > epoch - covered && past >= 0; past--) {
+                int bucket = (int) (past % sketches.length);
+                if (epochs.get(bucket) == past) {
+                    for (SpaceSavingSketch sketch : sketches[bucket]) {
+                        lookups += sketch.addTo(totals);
+                    }
+                }
+            }
+            return lookups;
+        }
+    }
+}
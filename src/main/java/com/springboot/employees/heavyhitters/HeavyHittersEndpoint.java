@@ -0,0 +1,52 @@
+package com.springboot.employees.heavyhitters;
+
+import com.springboot.employees.domain.HeavyHitterReport;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Actuator endpoint at {@code /actuator/heavyhitters} listing the most looked-up keys of every lookup, or of
+ * one lookup at {@code /actuator/heavyhitters/{lookup}}. {@code windowMs} defaults to the whole ring and
+ * {@code top} to ten keys; both are capped at what the tracker keeps.
+ */
+@Component
+@Endpoint(id = "heavyhitters")
+public class HeavyHittersEndpoint {
+
+    private static final int DEFAULT_TOP = 10;
+
+    private final HeavyHitterTracker tracker;
+
+    public HeavyHittersEndpoint(HeavyHitterTracker tracker) {
+        this.tracker = tracker;
+    }
+
+    @ReadOperation
+    public List<HeavyHitterReport> heavyHitters(@Nullable Long windowMs, @Nullable Integer top) {
+        List<HeavyHitterReport> reports = new ArrayList<>();
+        for (HeavyHitterTracker.Lookup lookup : HeavyHitterTracker.Lookup.values()) {
+            reports.add(report(lookup, windowMs, top));
+        }
+        return reports;
+    }
+
+    @ReadOperation
+    public HeavyHitterReport heavyHittersOf(@Selector String lookup, @Nullable Long windowMs, @Nullable Integer top) {
+        HeavyHitterTracker.Lookup selected = HeavyHitterTracker.Lookup.ofKey(lookup);
+        // A null result is answered with 404.
+        return selected == null ? null : report(selected, windowMs, top);
+    }
+
+
+    private HeavyHitterReport report(HeavyHitterTracker.Lookup lookup, Long windowMs, Integer top) {
+        long window = windowMs == null ? tracker.getMaxWindowMillis() : windowMs;
+        int keys = top == null ? DEFAULT_TOP : Math.max(1, Math.min(top, tracker.getCapacity()));
+        return tracker.report(lookup, window, keys);
+    }
+}
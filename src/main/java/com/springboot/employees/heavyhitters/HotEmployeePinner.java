@@ -0,0 +1,86 @@
+package com.springboot.employees.heavyhitters;
+
+import com.springboot.employees.domain.Employee;
+import com.springboot.employees.domain.HeavyHitterReport;
+import com.springboot.employees.persistence.EmployeeRepository;
+import com.springboot.employees.service.EmployeeCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the hottest employees in the {@link EmployeeCache}. Every {@code employees.heavy-hitters.pin-interval-ms}
+ * up to {@code employees.heavy-hitters.pin-top} ids looked up at least {@code employees.heavy-hitters.pin-min-count}
+ * times over the tracked window are pinned, so size eviction passes them over, and those missing from the
+ * cache or expiring before the next round are reloaded with one {@code $in} query. Pinned entries still
+ * expire and are still evicted on writes; reloading them ahead of time only spares their readers the miss.
+ */
+@Component
+@Slf4j
+public class HotEmployeePinner {
+
+    private final HeavyHitterTracker tracker;
+    private final EmployeeCache cache;
+    private final EmployeeRepository repo;
+    private final int pinTop;
+    private final long pinMinCount;
+    private final long intervalMillis;
+
+    public HotEmployeePinner(HeavyHitterTracker tracker, EmployeeCache cache, EmployeeRepository repo,
+                             @Value("${employees.heavy-hitters.pin-top}") int pinTop,
+                             @Value("${employees.heavy-hitters.pin-min-count}") long pinMinCount,
+                             @Value("${employees.heavy-hitters.pin-interval-ms}") long intervalMillis,
+                             MeterRegistry meterRegistry) {
+        this.tracker = tracker;
+        this.cache = cache;
+        this.repo = repo;
+        this.pinTop = pinTop;
+        this.pinMinCount = pinMinCount;
+        this.intervalMillis = intervalMillis;
+        meterRegistry.gauge("employees.cache.pinned", cache, EmployeeCache::getPinnedCount);
+    }
+
+    @Scheduled(initialDelayString = "${employees.heavy-hitters.pin-interval-ms}",
+            fixedDelayString = "${employees.heavy-hitters.pin-interval-ms}")
+    public void pinHotEmployees() {
+        if (!tracker.isEnabled() || !cache.isEnabled() || pinTop < 1) {
+            return;
+        }
+        HeavyHitterReport report = tracker.report(HeavyHitterTracker.Lookup.ID, tracker.getMaxWindowMillis(), pinTop);
+        Set<UUID> hot = new LinkedHashSet<>();
+        for (HeavyHitterReport.HeavyHitter heavyHitter : report.getTop()) {
+            if (heavyHitter.getCount() >= pinMinCount) {
+                hot.add(UUID.fromString(heavyHitter.getKey()));
+            }
+        }
+        cache.pin(hot);
+
+        Set<UUID> stale = hot.stream()
+                .filter(id -> cache.expiresWithin(id, intervalMillis))
+                .collect(Collectors.toSet());
+        if (stale.isEmpty()) {
+            return;
+        }
+        try {
+            // Hot ids are the likeliest to be written while they are reloaded; those must not be cached again.
+            Map<UUID, Long> stamps = new HashMap<>();
+            stale.forEach(id -> stamps.put(id, cache.invalidationStamp(id)));
+            for (Employee employee : repo.findByIdIn(stale)) {
+                cache.putIfNotInvalidatedSince(employee, stamps.get(employee.getId()));
+            }
+            log.debug("Reloaded {} of {} pinned employees", stale.size(), hot.size());
+        } catch (RuntimeException ex) {
+            // The next round tries again; until then readers load them on a miss as usual.
+            log.warn("Could not reload {} pinned employees", stale.size(), ex);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.springboot.employees.heavyhitters;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Space-Saving top-k sketch (Metwally et al.) over string keys. At most {@code capacity} counters are kept;
+ * a key that is not counted yet takes over the smallest counter and inherits its count as the error, so a
+ * count is never underestimated and overestimated by at most {@link Counter#getError()}. Any key seen more
+ * than {@code total / capacity} times is guaranteed to be counted.
+ */
+final class SpaceSavingSketch {
+
+    private static final Comparator<Counter> BY_COUNT = Comparator.<Counter>comparingLong(counter -> counter.count)
+            .thenComparingLong(counter -> counter.sequence);
+
+    private final int capacity;
+    private final Map<String, Counter> counters = new HashMap<>();
+    private final TreeSet<Counter> byCount = new TreeSet<>(BY_COUNT);
+    private long total;
+    private long nextSequence;
+
+    SpaceSavingSketch(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("A sketch needs at least one counter!");
+        }
+        this.capacity = capacity;
+    }
+
+    synchronized void offer(String key) {
+        total++;
+        Counter counter = counters.get(key);
+        if (counter != null) {
+            // The tree is ordered by count, so the counter has to leave it while its count changes.
+            byCount.remove(counter);
+            counter.count++;
+        } else if (counters.size() < capacity) {
+            counter = new Counter(key, 1, 0, nextSequence++);
+            counters.put(key, counter);
+        } else {
+            Counter smallest = byCount.pollFirst();
+            counters.remove(smallest.key);
+            counter = new Counter(key, smallest.count + 1, smallest.count, nextSequence++);
+            counters.put(key, counter);
+        }
+        byCount.add(counter);
+    }
+
+    /**
+     * Adds every counter to the given totals, so that sketches of consecutive time buckets can be merged.
+     */
+    synchronized long addTo(Map<String, Counter> totals) {
+        for (Counter counter : counters.values()) {
+            totals.merge(counter.key, new Counter(counter.key, counter.count, counter.error, 0),
+                    (merged, added) -> new Counter(merged.key, merged.count + added.count, merged.error + added.error, 0));
+        }
+        return total;
+    }
+
+    synchronized void clear() {
+        counters.clear();
+        byCount.clear();
+        total = 0;
+    }
+
+
+    static final class Counter {
+
+        private final String key;
+        private long count;
+        private final long error;
+        private final long sequence;
+
+        Counter(String key, long count, long error, long sequence) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+            this.sequence = sequence;
+        }
+
+        String getKey() {
+            return key;
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        long getError() {
+            return error;
+        }
+    }
+}
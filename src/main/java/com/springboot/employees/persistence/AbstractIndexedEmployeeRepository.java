@@ -0,0 +1,824 @@
+package com.springboot.employees.persistence;
+
+import com.springboot.employees.domain.Address;
+import com.springboot.employees.domain.EmailAddress;
+import com.springboot.employees.domain.Employee;
+import com.springboot.employees.domain.EmployeeTombstone;
+import com.springboot.employees.util.UuidOrder;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.support.ExampleMatcherAccessor;
+import org.springframework.util.ReflectionUtils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Field;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+/**
+ * Base for the {@link EmployeeRepository} implementations that run without MongoDB.
+ *
+ * It owns the secondary indexes on firstName, department, manager and address, the (updatedAt, id) change order,
+ * emulates the unique firstName/lastName/department and email indexes, keeps delete tombstones and implements the
+ * Spring Data plumbing, so subclasses only decide how an employee is stored and loaded by id. Writes are
+ * serialized through a read/write lock; every method returns private copies, just like documents
+ * round-tripped through Mongo.
+ */
+public abstract class AbstractIndexedEmployeeRepository implements EmployeeRepository {
+
+    private final Map<String, Set<UUID>> idsByFirstName = new ConcurrentHashMap<>();
+
+    private final Map<Integer, Set<UUID>> idsByDepartmentId = new ConcurrentHashMap<>();
+
+    private final Map<UUID, Set<UUID>> idsByManagerId = new ConcurrentHashMap<>();
+
+    private final Map<String, UUID> idsByUniqueKey = new ConcurrentHashMap<>();
+
+    private final Map<String, UUID> idsByEmail = new ConcurrentHashMap<>();
+
+    private final Map<UUID, IndexEntry> indexEntriesById = new ConcurrentHashMap<>();
+
+    private final NavigableSet<Position> updateOrder = new ConcurrentSkipListSet<>();
+
+    private final NavigableSet<Location> byStateAndCity = new ConcurrentSkipListSet<>(Location.BY_STATE_AND_CITY);
+
+    private final NavigableSet<Location> byZipcode = new ConcurrentSkipListSet<>(Location.BY_ZIPCODE);
+
+    private final Map<UUID, EmployeeTombstone> tombstonesById = new ConcurrentHashMap<>();
+
+    private final NavigableSet<Position> tombstoneOrder = new ConcurrentSkipListSet<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Loads a private copy of the stored employee, or null when the id is unknown.
+     */
+    protected abstract Employee load(UUID id);
+
+    protected abstract void store(Employee employee);
+
+    protected abstract void erase(UUID id);
+
+    protected abstract void eraseAll();
+
+    /**
+     * Persists a tombstone; stores that don't outlive the process have nothing to do.
+     */
+    protected void storeTombstone(EmployeeTombstone tombstone) {
+    }
+
+    protected final Lock writeLock() {
+        return lock.writeLock();
+    }
+
+    protected final Collection<UUID> storedIds() {
+        return indexEntriesById.keySet();
+    }
+
+    /**
+     * Adds an employee that is already persisted, e.g. while replaying a log on startup, to the indexes.
+     */
+    protected final void index(Employee employee) {
+        IndexEntry entry = new IndexEntry(employee);
+        indexEntriesById.put(employee.getId(), entry);
+        addToIndex(idsByFirstName, entry.firstName, employee.getId());
+        addToIndex(idsByDepartmentId, entry.departmentId, employee.getId());
+        addToIndex(idsByManagerId, entry.managerId, employee.getId());
+        idsByUniqueKey.put(entry.uniqueKey, employee.getId());
+        for (String email : entry.emails) {
+            idsByEmail.put(email, employee.getId());
+        }
+        if (entry.position != null) {
+            updateOrder.add(entry.position);
+        }
+        if (entry.location != null) {
+            byStateAndCity.add(entry.location);
+            byZipcode.add(entry.location);
+        }
+    }
+
+    protected final void unindex(UUID id) {
+        IndexEntry entry = indexEntriesById.remove(id);
+        if (entry != null) {
+            removeFromIndex(idsByFirstName, entry.firstName, id);
+            removeFromIndex(idsByDepartmentId, entry.departmentId, id);
+            removeFromIndex(idsByManagerId, entry.managerId, id);
+            idsByUniqueKey.remove(entry.uniqueKey, id);
+            for (String email : entry.emails) {
+                idsByEmail.remove(email, id);
+            }
+            if (entry.position != null) {
+                updateOrder.remove(entry.position);
+            }
+            if (entry.location != null) {
+                byStateAndCity.remove(entry.location);
+                byZipcode.remove(entry.location);
+            }
+        }
+    }
+
+    /**
+     * Adds a tombstone that is already persisted to the change order.
+     */
+    protected final void indexTombstone(EmployeeTombstone tombstone) {
+        EmployeeTombstone previous = tombstonesById.put(tombstone.getId(), tombstone);
+        if (previous != null) {
+            tombstoneOrder.remove(new Position(previous.getDeletedAt(), previous.getId()));
+        }
+        tombstoneOrder.add(new Position(tombstone.getDeletedAt(), tombstone.getId()));
+    }
+
+    protected final void unindexTombstone(EmployeeTombstone tombstone) {
+        if (tombstonesById.remove(tombstone.getId(), tombstone)) {
+            tombstoneOrder.remove(new Position(tombstone.getDeletedAt(), tombstone.getId()));
+        }
+    }
+
+    protected final Collection<EmployeeTombstone> tombstones() {
+        return tombstonesById.values();
+    }
+
+    @Override
+    public Optional<Employee> findByFirstName(String firstName) {
+        List<Employee> matches = lookup(idsByFirstName, firstName);
+        if (matches.size() > 1) {
+            throw new IncorrectResultSizeDataAccessException(1, matches.size());
+        }
+        return matches.stream().findFirst();
+    }
+
+
+    @Override
+    public Optional<Employee> findByEmailAddressesEmail(String email) {
+        UUID id = email == null ? null : idsByEmail.get(email);
+        return id == null ? Optional.empty() : findById(id);
+    }
+
+    @Override
+    public List<Employee> findByDepartmentId(int departmentId) {
+        return lookup(idsByDepartmentId, departmentId);
+    }
+
+    @Override
+    public List<Employee> findByIdIn(Collection<UUID> ids) {
+        return read(() -> ids.stream()
+                .distinct()
+                .map(this::load)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList()));
+    }
+
+    @Override
+    public List<Employee> findUpdatedAfter(LocalDateTime updatedAt, UUID id, int limit) {
+        return read(() -> updateOrder.tailSet(new Position(updatedAt, id), false).stream()
+                .limit(limit)
+                .map(position -> load(position.id))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList()));
+    }
+
+    @Override
+    public List<Employee> findInState(String state, String afterCity, UUID afterId, int limit) {
+        return read(() -> load(scan(byStateAndCity, new Location(state, afterCity, 0, afterId),
+                location -> Objects.equals(location.state, state), limit)));
+    }
+
+    @Override
+    public List<Employee> findInCity(String state, String city, UUID afterId, int limit) {
+        return read(() -> load(scan(byStateAndCity, new Location(state, city, 0, afterId),
+                location -> Objects.equals(location.state, state) && Objects.equals(location.city, city), limit)));
+    }
+
+    @Override
+    public List<Employee> findInZipcodeRange(int from, int to, Integer afterZipcode, UUID afterId, int limit) {
+        Location start = afterZipcode == null || afterZipcode < from
+                ? new Location(null, null, from, null) : new Location(null, null, afterZipcode, afterId);
+        return read(() -> load(scan(byZipcode, start, location -> location.zipcode <= to, limit)));
+    }
+
+    @Override
+    public boolean existsId(UUID id) {
+        return id != null && indexEntriesById.containsKey(id);
+    }
+
+    @Override
+    public boolean existsFirstName(String firstName) {
+        return !ids(idsByFirstName, firstName).isEmpty();
+    }
+
+    @Override
+    public long countInDepartment(int departmentId) {
+        return ids(idsByDepartmentId, departmentId).size();
+    }
+
+    @Override
+    public long countInState(String state) {
+        return scan(byStateAndCity, new Location(state, null, 0, null),
+                location -> Objects.equals(location.state, state), Integer.MAX_VALUE).size();
+    }
+
+    @Override
+    public long countInCity(String state, String city) {
+        return scan(byStateAndCity, new Location(state, city, 0, null),
+                location -> Objects.equals(location.state, state) && Objects.equals(location.city, city), Integer.MAX_VALUE).size();
+    }
+
+    @Override
+    public long countInZipcodeRange(int from, int to) {
+        return scan(byZipcode, new Location(null, null, from, null), location -> location.zipcode <= to, Integer.MAX_VALUE).size();
+    }
+
+    @Override
+    public List<Employee> findReports(UUID managerId, int maxDepth, int limit) {
+        return read(() -> {
+            // Breadth-first, visiting every employee once however the ids loop.
+            Set<UUID> visited = new LinkedHashSet<>();
+            List<UUID> level = Collections.singletonList(managerId);
+            for (int depth = 0; depth < maxDepth && !level.isEmpty() && visited.size() < limit; depth++) {
+                List<UUID> next = new ArrayList<>();
+                for (UUID id : level) {
+                    for (UUID report : ids(idsByManagerId, id)) {
+                        if (visited.size() < limit && visited.add(report)) {
+                            next.add(report);
+                        }
+                    }
+                }
+                level = next;
+            }
+            return load(new ArrayList<>(visited));
+        });
+    }
+
+    @Override
+    public Set<Integer> insertSkippingDuplicates(List<Employee> employees) {
+        Set<Integer> duplicates = new TreeSet<>();
+        for (int i = 0; i < employees.size(); i++) {
+            try {
+                insert(employees.get(i));
+            } catch (DuplicateKeyException e) {
+                duplicates.add(i);
+            }
+        }
+        return duplicates;
+    }
+
+    @Override
+    public Optional<Employee> applyUpdate(UUID id, LocalDateTime updatedAt, EmployeeUpdate update) {
+        return write(() -> {
+            Employee employee = load(id);
+            if (employee == null || !Objects.equals(employee.getUpdatedAt(), updatedAt)) {
+                return Optional.empty();
+            }
+            BeanWrapperImpl wrapper = new BeanWrapperImpl(employee);
+            update.getSet().forEach(wrapper::setPropertyValue);
+            update.getUnset().forEach(path -> wrapper.setPropertyValue(path, null));
+            if (!update.getPushedEmailAddresses().isEmpty() || !update.getPulledEmails().isEmpty()) {
+                List<EmailAddress> emailAddresses = employee.getEmailAddresses() == null
+                        ? new ArrayList<>() : new ArrayList<>(employee.getEmailAddresses());
+                emailAddresses.addAll(update.getPushedEmailAddresses());
+                emailAddresses.removeIf(emailAddress -> emailAddress != null && update.getPulledEmails().contains(emailAddress.getEmail()));
+                employee.setEmailAddresses(emailAddresses);
+            }
+            return Optional.of(save(employee));
+        });
+    }
+
+    @Override
+    public Optional<Employee> removeById(UUID id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        return write(() -> {
+            Employee employee = load(id);
+            if (employee != null) {
+                erase(id);
+                unindex(id);
+            }
+            return Optional.ofNullable(employee);
+        });
+    }
+
+    @Override
+    public void forEachKey(BiConsumer<UUID, String> consumer) {
+        indexEntriesById.forEach((id, entry) -> consumer.accept(id, entry.firstName));
+    }
+
+    @Override
+    public void saveTombstone(EmployeeTombstone tombstone) {
+        write(() -> {
+            storeTombstone(tombstone);
+            indexTombstone(tombstone);
+            return null;
+        });
+    }
+
+    @Override
+    public List<EmployeeTombstone> findTombstonesAfter(LocalDateTime deletedAt, UUID id, int limit) {
+        return tombstoneOrder.tailSet(new Position(deletedAt, id), false).stream()
+                .limit(limit)
+                .map(position -> tombstonesById.get(position.id))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public <S extends Employee> S save(S employee) {
+        return write(() -> {
+            if (employee.getId() == null) {
+                employee.setId(UUID.randomUUID());
+            }
+
+            IndexEntry entry = new IndexEntry(employee);
+            UUID owner = idsByUniqueKey.get(entry.uniqueKey);
+            if (owner != null && !owner.equals(employee.getId())) {
+                throw new DuplicateKeyException("E11000 duplicate key error index: firstName_lastName_departmentId dup key: " + entry.uniqueKey);
+            }
+            for (String email : entry.emails) {
+                UUID emailOwner = idsByEmail.get(email);
+                if (emailOwner != null && !emailOwner.equals(employee.getId())) {
+                    throw new DuplicateKeyException("E11000 duplicate key error index: " + EMAIL_INDEX + " dup key: " + email);
+                }
+            }
+
+            store(employee);
+            unindex(employee.getId());
+            index(employee);
+            return employee;
+        });
+    }
+
+    @Override
+    public <S extends Employee> S insert(S employee) {
+        return write(() -> {
+            if (employee.getId() != null && indexEntriesById.containsKey(employee.getId())) {
+                throw new DuplicateKeyException("E11000 duplicate key error index: _id_ dup key: " + employee.getId());
+            }
+            return save(employee);
+        });
+    }
+
+    @Override
+    public <S extends Employee> List<S> insert(Iterable<S> employees) {
+        List<S> inserted = new ArrayList<>();
+        for (S employee : employees) {
+            inserted.add(insert(employee));
+        }
+        return inserted;
+    }
+
+    @Override
+    public <S extends Employee> List<S> saveAll(Iterable<S> employees) {
+        List<S> saved = new ArrayList<>();
+        for (S employee : employees) {
+            saved.add(save(employee));
+        }
+        return saved;
+    }
+
+    @Override
+    public Optional<Employee> findById(UUID id) {
+        return id == null ? Optional.empty() : Optional.ofNullable(read(() -> load(id)));
+    }
+
+    @Override
+    public boolean existsById(UUID id) {
+        return indexEntriesById.containsKey(id);
+    }
+
+    @Override
+    public List<Employee> findAll() {
+        return read(() -> storedIds().stream()
+                .map(this::load)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList()));
+    }
+
+    @Override
+    public List<Employee> findAll(Sort sort) {
+        List<Employee> employees = findAll();
+        employees.sort(comparatorFor(sort));
+        return employees;
+    }
+
+    @Override
+    public Page<Employee> findAll(Pageable pageable) {
+        return page(findAll(pageable.getSort()), pageable);
+    }
+
+    @Override
+    public Iterable<Employee> findAllById(Iterable<UUID> ids) {
+        return StreamSupport.stream(ids.spliterator(), false)
+                .map(this::findById)
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public long count() {
+        return indexEntriesById.size();
+    }
+
+    @Override
+    public void deleteById(UUID id) {
+        remove(id);
+    }
+
+    @Override
+    public void delete(Employee employee) {
+        remove(employee.getId());
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends Employee> employees) {
+        employees.forEach(this::delete);
+    }
+
+    /**
+     * Tombstones are kept: like the tombstone collection in MongoDB they are not employees, and clients
+     * syncing changes still need them until they expire.
+     */
+    @Override
+    public void deleteAll() {
+        write(() -> {
+            eraseAll();
+            indexEntriesById.clear();
+            idsByFirstName.clear();
+            idsByDepartmentId.clear();
+            idsByManagerId.clear();
+            idsByUniqueKey.clear();
+            idsByEmail.clear();
+            updateOrder.clear();
+            byStateAndCity.clear();
+            byZipcode.clear();
+            return null;
+        });
+    }
+
+    @Override
+    public <S extends Employee> Optional<S> findOne(Example<S> example) {
+        List<S> matches = findAll(example);
+        if (matches.size() > 1) {
+            throw new IncorrectResultSizeDataAccessException(1, matches.size());
+        }
+        return matches.stream().findFirst();
+    }
+
+    /**
+     * Queries by example scan every stored employee, there being no index to narrow them down with.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <S extends Employee> List<S> findAll(Example<S> example) {
+        ExampleFilter filter = new ExampleFilter(example);
+        return read(() -> storedIds().stream()
+                .map(this::load)
+                .filter(Objects::nonNull)
+                .filter(filter)
+                .map(employee -> (S) employee)
+                .collect(Collectors.toList()));
+    }
+
+    @Override
+    public <S extends Employee> List<S> findAll(Example<S> example, Sort sort) {
+        List<S> employees = findAll(example);
+        employees.sort(comparatorFor(sort));
+        return employees;
+    }
+
+    @Override
+    public <S extends Employee> Page<S> findAll(Example<S> example, Pageable pageable) {
+        return page(findAll(example, pageable.getSort()), pageable);
+    }
+
+    @Override
+    public <S extends Employee> long count(Example<S> example) {
+        return findAll(example).size();
+    }
+
+    @Override
+    public <S extends Employee> boolean exists(Example<S> example) {
+        ExampleFilter filter = new ExampleFilter(example);
+        return read(() -> storedIds().stream()
+                .map(this::load)
+                .filter(Objects::nonNull)
+                .anyMatch(filter));
+    }
+
+
+    protected final <T> T read(Supplier<T> action) {
+        lock.readLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    protected final <T> T write(Supplier<T> action) {
+        lock.writeLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void remove(UUID id) {
+        if (id == null) {
+            return;
+        }
+        write(() -> {
+            if (indexEntriesById.containsKey(id)) {
+                erase(id);
+                unindex(id);
+            }
+            return null;
+        });
+    }
+
+    private static <K> Set<UUID> ids(Map<K, Set<UUID>> index, K key) {
+        Set<UUID> ids = key == null ? null : index.get(key);
+        return ids == null ? Collections.emptySet() : ids;
+    }
+
+    private <K> List<Employee> lookup(Map<K, Set<UUID>> index, K key) {
+        Set<UUID> ids = key == null ? null : index.get(key);
+        if (ids == null) {
+            return Collections.emptyList();
+        }
+        return read(() -> ids.stream()
+                .map(this::load)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList()));
+    }
+
+    private List<Employee> load(List<UUID> ids) {
+        return ids.stream()
+                .map(this::load)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * The ids that follow start in the index for as long as they stay within the range.
+     */
+    private static List<UUID> scan(NavigableSet<Location> index, Location start, Predicate<Location> within, int limit) {
+        List<UUID> ids = new ArrayList<>();
+        for (Location location : index.tailSet(start, false)) {
+            if (ids.size() == limit || !within.test(location)) {
+                break;
+            }
+            ids.add(location.id);
+        }
+        return ids;
+    }
+
+    private static <K> void addToIndex(Map<K, Set<UUID>> index, K key, UUID id) {
+        if (key != null) {
+            index.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+    }
+
+    private static <K> void removeFromIndex(Map<K, Set<UUID>> index, K key, UUID id) {
+        if (key != null) {
+            index.computeIfPresent(key, (k, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Comparator<Employee> comparatorFor(Sort sort) {
+        Comparator<Employee> comparator = (a, b) -> 0;
+        for (Sort.Order order : sort) {
+            Comparator<Employee> byProperty = Comparator.comparing(
+                    employee -> (Comparable) new BeanWrapperImpl(employee).getPropertyValue(order.getProperty()),
+                    Comparator.nullsFirst(Comparator.naturalOrder()));
+            comparator = comparator.thenComparing(order.isAscending() ? byProperty : byProperty.reversed());
+        }
+        return comparator;
+    }
+
+    private static <T> Page<T> page(List<T> all, Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(all);
+        }
+        int from = (int) Math.min(pageable.getOffset(), all.size());
+        int to = Math.min(from + pageable.getPageSize(), all.size());
+        return new PageImpl<>(all.subList(from, to), pageable, all.size());
+    }
+
+
+    /**
+     * The indexed keys of a stored employee, kept so an update or delete can unindex it without loading it.
+     */
+    private static final class IndexEntry {
+
+        private final String firstName;
+        private final Integer departmentId;
+        private final UUID managerId;
+        private final String uniqueKey;
+        private final List<String> emails;
+        private final Position position;
+        private final Location location;
+
+        private IndexEntry(Employee employee) {
+            this.firstName = employee.getFirstName();
+            this.departmentId = employee.getDepartmentId();
+            this.managerId = employee.getManagerId();
+            this.uniqueKey = employee.getFirstName() + '\u0000' + employee.getLastName() + '\u0000' + departmentId;
+            this.emails = employee.getEmailAddresses() == null ? Collections.<String>emptyList() : employee.getEmailAddresses().stream()
+                    .filter(Objects::nonNull)
+                    .map(EmailAddress::getEmail)
+                    .filter(Objects::nonNull)
+                    .distinct()
+                    .collect(Collectors.toList());
+            this.position = employee.getUpdatedAt() == null ? null : new Position(employee.getUpdatedAt(), employee.getId());
+            Address address = employee.getAddress();
+            this.location = address == null ? null
+                    : new Location(address.getState(), address.getCity(), address.getZipcode(), employee.getId());
+        }
+    }
+
+    /**
+     * An employee's address key, ordered either like the state_city_id or like the zipcode_id index; null
+     * values come first, so a key with a null id is positioned before every employee sharing its prefix.
+     */
+    private static final class Location {
+
+        private static final Comparator<Location> BY_STATE_AND_CITY = Comparator
+                .comparing((Location location) -> location.state, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+                .thenComparing(location -> location.city, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+                .thenComparing(location -> location.id, Comparator.nullsFirst(UuidOrder.BINARY));
+
+        private static final Comparator<Location> BY_ZIPCODE = Comparator
+                .comparingInt((Location location) -> location.zipcode)
+                .thenComparing(location -> location.id, Comparator.nullsFirst(UuidOrder.BINARY));
+
+        private final String state;
+        private final String city;
+        private final int zipcode;
+        private final UUID id;
+
+        private Location(String state, String city, int zipcode, UUID id) {
+            this.state = state;
+            this.city = city;
+            this.zipcode = zipcode;
+            this.id = id;
+        }
+    }
+
+    /**
+     * A (timestamp, id) key, ordered like the updatedAt_id and deletedAt_id indexes; a null id comes first.
+     */
+    private static final class Position implements Comparable<Position> {
+
+        private static final Comparator<Position> ORDER = Comparator
+                .comparing((Position position) -> position.at)
+                .thenComparing(position -> position.id, Comparator.nullsFirst(UuidOrder.BINARY));
+
+        private final LocalDateTime at;
+        private final UUID id;
+
+        private Position(LocalDateTime at, UUID id) {
+            this.at = at;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Position other) {
+            return ORDER.compare(this, other);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Position && compareTo((Position) o) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(at, id);
+        }
+    }
+
+    /**
+     * Matches employees against an example the way the MongoDB example mapper builds its query: every stored
+     * property of the probe is a criterion, nested objects path by path, primitives even at their default
+     * value, and the transient department never. Strings follow the string matcher and case of their path.
+     */
+    private static final class ExampleFilter implements Predicate<Employee> {
+
+        private final Example<? extends Employee> example;
+        private final ExampleMatcherAccessor accessor;
+
+        private ExampleFilter(Example<? extends Employee> example) {
+            this.example = example;
+            this.accessor = new ExampleMatcherAccessor(example.getMatcher());
+        }
+
+        @Override
+        public boolean test(Employee employee) {
+            if (!example.getProbeType().isInstance(employee)) {
+                return false;
+            }
+            List<Boolean> criteria = new ArrayList<>();
+            collect(example.getProbe(), employee, "", criteria);
+            if (criteria.isEmpty()) {
+                return true;
+            }
+            return example.getMatcher().isAllMatching() ? !criteria.contains(false) : criteria.contains(true);
+        }
+
+        private void collect(Object probe, Object candidate, String prefix, List<Boolean> criteria) {
+            BeanWrapper probed = new BeanWrapperImpl(probe);
+            BeanWrapper matched = candidate == null ? null : new BeanWrapperImpl(candidate);
+            for (PropertyDescriptor property : probed.getPropertyDescriptors()) {
+                String path = prefix + property.getName();
+                if (!isStored(probe.getClass(), property) || accessor.isIgnoredPath(path)) {
+                    continue;
+                }
+                Optional<Object> expected = accessor.getValueTransformerForPath(path)
+                        .apply(Optional.ofNullable(probed.getPropertyValue(property.getName())));
+                Object actual = matched == null ? null : matched.getPropertyValue(property.getName());
+                if (!expected.isPresent()) {
+                    if (accessor.getNullHandler() == ExampleMatcher.NullHandler.INCLUDE) {
+                        criteria.add(actual == null);
+                    }
+                } else if (expected.get().getClass().getPackage() == Employee.class.getPackage() && !(expected.get() instanceof Enum)) {
+                    collect(expected.get(), actual, path + ".", criteria);
+                } else {
+                    criteria.add(matches(path, expected.get(), actual));
+                }
+            }
+        }
+
+        private boolean matches(String path, Object expected, Object actual) {
+            if (!(expected instanceof String)) {
+                return Objects.equals(expected, actual);
+            }
+            if (!(actual instanceof String)) {
+                return false;
+            }
+            String value = (String) actual;
+            String part = (String) expected;
+            boolean ignoreCase = accessor.isIgnoreCaseForPath(path);
+            switch (accessor.getStringMatcherForPath(path)) {
+                case STARTING:
+                    return value.regionMatches(ignoreCase, 0, part, 0, part.length());
+                case ENDING:
+                    return value.regionMatches(ignoreCase, value.length() - part.length(), part, 0, part.length());
+                case CONTAINING:
+                    for (int from = 0; from + part.length() <= value.length(); from++) {
+                        if (value.regionMatches(ignoreCase, from, part, 0, part.length())) {
+                            return true;
+                        }
+                    }
+                    return false;
+                case REGEX:
+                    // Like $regex, the pattern may match anywhere in the value.
+                    return Pattern.compile(part, ignoreCase ? Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE : 0).matcher(value).find();
+                default:
+                    return ignoreCase ? value.equalsIgnoreCase(part) : value.equals(part);
+            }
+        }
+
+        private static boolean isStored(Class<?> type, PropertyDescriptor property) {
+            Field field = property.getReadMethod() == null ? null : ReflectionUtils.findField(type, property.getName());
+            return field != null && !field.isAnnotationPresent(Transient.class);
+        }
+    }
+}
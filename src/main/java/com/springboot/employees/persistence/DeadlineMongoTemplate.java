@@ -0,0 +1,91 @@
+package com.springboot.employees.persistence;
+
+import com.mongodb.client.AggregateIterable;
+import com.mongodb.client.DistinctIterable;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.CountOptions;
+import com.mongodb.client.model.FindOneAndDeleteOptions;
+import com.mongodb.client.model.FindOneAndReplaceOptions;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.springboot.employees.deadline.RequestDeadline;
+import org.bson.Document;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MongoTemplate} that holds every operation to the deadline of the request it runs for. Before an
+ * operation is sent it fails fast once the deadline is spent; reads, counts, aggregations and
+ * find-and-modify commands carry the time that is left as {@code maxTimeMS}, so the server gives up on them
+ * together with the client. Writes have no {@code maxTimeMS} and are only checked before they are sent.
+ * Outside a request nothing changes.
+ */
+public class DeadlineMongoTemplate extends MongoTemplate {
+
+    public DeadlineMongoTemplate(MongoDatabaseFactory factory, MongoConverter converter) {
+        super(factory, converter);
+    }
+
+    @Override
+    protected MongoCollection<Document> prepareCollection(MongoCollection<Document> collection) {
+        return withDeadline(super.prepareCollection(collection));
+    }
+
+
+    @SuppressWarnings("unchecked")
+    static MongoCollection<Document> withDeadline(MongoCollection<Document> collection) {
+        return (MongoCollection<Document>) Proxy.newProxyInstance(MongoCollection.class.getClassLoader(),
+                new Class<?>[]{ MongoCollection.class }, (proxy, method, args) -> invoke(collection, method, args));
+    }
+
+    private static Object invoke(MongoCollection<Document> collection, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class || RequestDeadline.remainingMillis() == RequestDeadline.NONE) {
+            return call(collection, method, args);
+        }
+        long remaining = RequestDeadline.check();
+        if (args != null) {
+            for (Object arg : args) {
+                if (arg instanceof CountOptions) {
+                    ((CountOptions) arg).maxTime(remaining, TimeUnit.MILLISECONDS);
+                } else if (arg instanceof FindOneAndUpdateOptions) {
+                    ((FindOneAndUpdateOptions) arg).maxTime(remaining, TimeUnit.MILLISECONDS);
+                } else if (arg instanceof FindOneAndReplaceOptions) {
+                    ((FindOneAndReplaceOptions) arg).maxTime(remaining, TimeUnit.MILLISECONDS);
+                } else if (arg instanceof FindOneAndDeleteOptions) {
+                    ((FindOneAndDeleteOptions) arg).maxTime(remaining, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+
+        Object result = call(collection, method, args);
+        if (result instanceof FindIterable) {
+            ((FindIterable<?>) result).maxTime(remaining, TimeUnit.MILLISECONDS);
+        } else if (result instanceof AggregateIterable) {
+            ((AggregateIterable<?>) result).maxTime(remaining, TimeUnit.MILLISECONDS);
+        } else if (result instanceof DistinctIterable) {
+            ((DistinctIterable<?>) result).maxTime(remaining, TimeUnit.MILLISECONDS);
+        }
+        return result;
+    }
+
+    private static Object call(MongoCollection<Document> collection, Method method, Object[] args) throws Throwable {
+        try {
+            Object result = method.invoke(collection, args);
+            // withReadPreference, withWriteConcern and friends return a collection that must keep the deadline.
+            if (result instanceof MongoCollection && ((MongoCollection<?>) result).getDocumentClass() == Document.class) {
+                @SuppressWarnings("unchecked")
+                MongoCollection<Document> derived = (MongoCollection<Document>) result;
+                return withDeadline(derived);
+            }
+            return result;
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.springboot.employees.persistence;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.result.UpdateResult;
+import com.springboot.employees.domain.Department;
+import com.springboot.employees.domain.Employee;
+import com.springboot.employees.exceptions.ConfigurationException;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonType;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * One-off tool that moves the department copied into every employee document to the {@code departments}
+ * collection, leaving only its id on the employee. Run it with the {@code migrate-departments} profile, e.g.
+ * {@code java -jar employees.jar --spring.profiles.active=migrate-departments}, which starts no web server;
+ * the application exits when it is done, and running it again only picks up what is left.
+ *
+ * Each department id takes the copy of its most recently updated employee, and departments already in the
+ * collection are kept. Names are unique, so two ids sharing a name stop the migration before anything is
+ * written. The employees are then rewritten by one pipeline update, which needs MongoDB 4.2. The old natural key
+ * index, declared on a department.id field that never existed, and the department name index are dropped for
+ * the next start to create their replacements; so are the summaries, which were kept by department name.
+ */
+@Component
+@Profile("migrate-departments")
+@Slf4j
+public class DepartmentMigration implements ApplicationRunner {
+
+    private static final List<String> REPLACED_INDEXES = Arrays.asList("firstName_lastName_departmentId", "departmentName_createdAt");
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ConfigurableApplicationContext context;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        MongoCollection<Document> employees = mongoTemplate.getCollection(mongoTemplate.getCollectionName(Employee.class));
+        MongoCollection<Document> departments = mongoTemplate.getCollection(mongoTemplate.getCollectionName(Department.class));
+
+        Map<Integer, Document> stored = new TreeMap<>();
+        for (Document department : departments.find()) {
+            stored.put(((Number) department.get("_id")).intValue(), department);
+        }
+        Map<Integer, Document> carried = carriedDepartments(employees);
+        carried.keySet().removeAll(stored.keySet());
+        checkNames(stored, carried);
+
+        for (Map.Entry<Integer, Document> department : carried.entrySet()) {
+            Document migrated = new Document(department.getValue());
+            migrated.remove("departmentId");
+            migrated.put("_id", department.getKey());
+            departments.insertOne(migrated);
+        }
+        log.info("Created {} departments from the employees.", carried.size());
+
+        UpdateResult updated = employees.updateMany(Filters.exists("department"), Arrays.asList(
+                new Document("$set", new Document("departmentId", "$department.departmentId")),
+                new Document("$unset", "department")));
+        log.info("Replaced the department of {} employees by its id.", updated.getModifiedCount());
+
+        for (Document index : employees.listIndexes()) {
+            String name = index.getString("name");
+            if (REPLACED_INDEXES.contains(name) && !index.get("key", Document.class).containsKey("departmentId")) {
+                employees.dropIndex(name);
+                log.info("Dropped the index {} of the employees.", name);
+            }
+        }
+        long summaries = mongoTemplate.getCollection(MongoDepartmentSummaryRepository.COLLECTION)
+                .deleteMany(Filters.type("_id", BsonType.STRING)).getDeletedCount();
+        log.info("Dropped {} department summaries kept by name.", summaries);
+
+        // Exits before the application is ready, so no index of the old documents is created in between.
+        System.exit(SpringApplication.exit(context, () -> 0));
+    }
+
+    /**
+     * The department of the most recently updated employee of every department id, without its id.
+     */
+    private static Map<Integer, Document> carriedDepartments(MongoCollection<Document> employees) {
+        Map<Integer, Document> carried = new TreeMap<>();
+        Map<Integer, Date> carriedAt = new HashMap<>();
+        for (Document employee : employees.find(Filters.type("department", BsonType.DOCUMENT))
+                .projection(Projections.include("department", "updatedAt"))) {
+            Document department = employee.get("department", Document.class);
+            if (!(department.get("departmentId") instanceof Number)) {
+                continue;
+            }
+            int id = ((Number) department.get("departmentId")).intValue();
+            Date updatedAt = employee.getDate("updatedAt");
+            Date previous = carriedAt.get(id);
+            if (!carried.containsKey(id) || updatedAt != null && (previous == null || updatedAt.after(previous))) {
+                carried.put(id, department);
+                carriedAt.put(id, updatedAt);
+            }
+        }
+        return carried;
+    }
+
+    private static void checkNames(Map<Integer, Document> stored, Map<Integer, Document> carried) {
+        Map<String, Integer> idsByName = new HashMap<>();
+        stored.forEach((id, department) -> idsByName.put(department.getString("name"), id));
+        List<String> conflicts = new ArrayList<>();
+        carried.forEach((id, department) -> {
+            Integer other = idsByName.putIfAbsent(department.getString("name"), id);
+            if (other != null) {
+                conflicts.add("departments " + other + " and " + id + " are both named '" + department.getString("name") + "'");
+            }
+        });
+        if (!conflicts.isEmpty()) {
+            throw new ConfigurationException("Department names have to be unique, rename the departments of the "
+                    + "employees first: " + String.join(", ", conflicts) + ".");
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.springboot.employees.persistence;
+
+import com.springboot.employees.domain.Department;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The departments employees reference by id. There are few of them, so they are read all at once into the
+ * department cache and written one at a time.
+ */
+public interface DepartmentRepository {
+
+    List<Department> findAll();
+
+    Optional<Department> findById(int departmentId);
+
+    /**
+     * Creates the department or replaces the one with its id.
+     */
+    Department save(Department department);
+}
@@ -0,0 +1,35 @@
+package com.springboot.employees.persistence;
+
+import com.springboot.employees.domain.DepartmentSummary;
+import com.springboot.employees.domain.Employee;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The {@link DepartmentSummary} of every department, kept up to date by the employee write paths and
+ * rebuilt from the employees from time to time to repair any drift. Summaries are kept by department id and
+ * returned without a name, which is the current one of the department.
+ */
+public interface DepartmentSummaryRepository {
+
+    Optional<DepartmentSummary> findByDepartmentId(int departmentId);
+
+    List<DepartmentSummary> findAll();
+
+    /**
+     * Counts newly stored employees into the summaries of their departments.
+     */
+    void addAll(Collection<Employee> employees);
+
+    /**
+     * Counts an employee that is no longer stored as it was out of the summary of its department.
+     */
+    void remove(Employee employee);
+
+    /**
+     * Recomputes every summary from the employees.
+     */
+    void rebuild();
+}
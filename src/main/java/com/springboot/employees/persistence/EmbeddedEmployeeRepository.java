@@ -0,0 +1,248 @@
+package com.springboot.employees.persistence;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springboot.employees.domain.Employee;
+import com.springboot.employees.domain.EmployeeTombstone;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+
+import javax.annotation.PreDestroy;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link EmployeeRepository} backed by an append-only, memory-mapped log, selected with the {@code embedded}
+ * profile for deployments without MongoDB.
+ *
+ * Only the offset of the latest record of every employee is kept on the heap, next to the firstName and
+ * department indexes of {@link AbstractIndexedEmployeeRepository}; reads decode the record straight from the
+ * mapping. Updates and deletes append superseding records, and the log is rewritten with only the live
+ * records once the share of dead bytes passes {@code employees.embedded.compaction-garbage-ratio}.
+ *
+ * Records hold the department id only; the departments themselves are kept by
+ * {@link LocalDepartmentRepository}. Records written before still carry the whole department.
+ */
+@Repository
+@Profile("embedded")
+@Slf4j
+public class EmbeddedEmployeeRepository extends AbstractIndexedEmployeeRepository implements Closeable {
+
+    private static final int MIN_COMPACTION_SIZE = 1 << 20;
+
+    /**
+     * Matches the TTL of the tombstone collection in MongoDB; older tombstones are dropped on compaction.
+     */
+    private static final Duration TOMBSTONE_RETENTION = Duration.ofDays(30);
+
+    private final ObjectMapper objectMapper;
+    private final EmployeeLogStore logStore;
+    private final int initialSize;
+    private final boolean syncWrites;
+    private final double compactionGarbageRatio;
+
+    private final Map<UUID, Integer> offsetsById = new ConcurrentHashMap<>();
+    private long liveBytes;
+
+    @Autowired
+    public EmbeddedEmployeeRepository(ObjectMapper objectMapper,
+                                      @Value("${employees.embedded.path}") String path,
+                                      @Value("${employees.embedded.initial-size-bytes}") int initialSize,
+                                      @Value("${employees.embedded.sync-writes}") boolean syncWrites,
+                                      @Value("${employees.embedded.compaction-garbage-ratio}") double compactionGarbageRatio) {
+        this.objectMapper = objectMapper.copy()
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .addMixIn(Employee.class, StoredEmployee.class);
+        this.initialSize = initialSize;
+        this.syncWrites = syncWrites;
+        this.compactionGarbageRatio = compactionGarbageRatio;
+        this.logStore = EmployeeLogStore.open(Paths.get(path), initialSize);
+        recover();
+    }
+
+    private void recover() {
+        write(() -> {
+            logStore.replay((offset, type, payload) -> {
+                if (type == EmployeeLogStore.PUT) {
+                    Employee employee = decode(payload);
+                    forget(employee.getId());
+                    offsetsById.put(employee.getId(), offset);
+                    liveBytes += logStore.recordSize(offset);
+                    index(employee);
+                } else if (type == EmployeeLogStore.DELETE) {
+                    forget(UUID.fromString(new String(payload, StandardCharsets.UTF_8)));
+                } else if (type == EmployeeLogStore.TOMBSTONE) {
+                    liveBytes += logStore.recordSize(offset);
+                    indexTombstone(decode(payload, EmployeeTombstone.class));
+                }
+            });
+            return null;
+        });
+        log.info("Recovered {} employees from the embedded log {} ({} bytes).", offsetsById.size(), logStore.path(), logStore.size());
+    }
+
+    @Override
+    protected Employee load(UUID id) {
+        Integer offset = offsetsById.get(id);
+        return offset == null ? null : decode(logStore.read(offset));
+    }
+
+    @Override
+    protected void store(Employee employee) {
+        int offset = append(EmployeeLogStore.PUT, encode(employee));
+        forget(employee.getId());
+        offsetsById.put(employee.getId(), offset);
+        liveBytes += logStore.recordSize(offset);
+    }
+
+    @Override
+    protected void erase(UUID id) {
+        append(EmployeeLogStore.DELETE, id.toString().getBytes(StandardCharsets.UTF_8));
+        forget(id);
+    }
+
+    @Override
+    protected void storeTombstone(EmployeeTombstone tombstone) {
+        int offset = append(EmployeeLogStore.TOMBSTONE, encode(tombstone));
+        liveBytes += logStore.recordSize(offset);
+    }
+
+    @Override
+    protected void eraseAll() {
+        for (UUID id : offsetsById.keySet()) {
+            erase(id);
+        }
+    }
+
+    /**
+     * Rewrites the log with only the live records when enough of it is dead.
+     */
+    @Scheduled(fixedDelayString = "${employees.embedded.compaction-interval-ms}")
+    public void compactIfNeeded() {
+        long size = logStore.size();
+        if (size >= MIN_COMPACTION_SIZE && (size - liveBytes) >= size * compactionGarbageRatio) {
+            compact();
+        }
+    }
+
+    public void compact() {
+        write(() -> {
+            long before = logStore.size();
+            Path compactedPath = logStore.path().resolveSibling(logStore.path().getFileName() + ".compact");
+            try {
+                Files.deleteIfExists(compactedPath);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not clear a previous compaction of " + logStore.path(), e);
+            }
+
+            EmployeeLogStore compacted = EmployeeLogStore.open(compactedPath, (int) Math.max(initialSize, liveBytes));
+            Map<UUID, Integer> compactedOffsets = new HashMap<>();
+            for (Map.Entry<UUID, Integer> entry : offsetsById.entrySet()) {
+                compactedOffsets.put(entry.getKey(), compacted.append(EmployeeLogStore.PUT, logStore.read(entry.getValue())));
+            }
+            LocalDateTime expiredBefore = LocalDateTime.now().minus(TOMBSTONE_RETENTION);
+            List<EmployeeTombstone> expired = new ArrayList<>();
+            for (EmployeeTombstone tombstone : tombstones()) {
+                if (tombstone.getDeletedAt().isAfter(expiredBefore)) {
+                    compacted.append(EmployeeLogStore.TOMBSTONE, encode(tombstone));
+                } else {
+                    expired.add(tombstone);
+                }
+            }
+            logStore.replaceWith(compacted);
+            offsetsById.putAll(compactedOffsets);
+            expired.forEach(this::unindexTombstone);
+            liveBytes = logStore.size();
+
+            log.info("Compacted the embedded log {} from {} to {} bytes.", logStore.path(), before, logStore.size());
+            return null;
+        });
+    }
+
+    long logSize() {
+        return logStore.size();
+    }
+
+    @Override
+    @PreDestroy
+    public void close() throws IOException {
+        write(() -> {
+            try {
+                logStore.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return null;
+        });
+    }
+
+
+    private int append(byte type, byte[] payload) {
+        int offset = logStore.append(type, payload);
+        if (syncWrites) {
+            logStore.force();
+        }
+        return offset;
+    }
+
+    private void forget(UUID id) {
+        Integer previous = offsetsById.remove(id);
+        if (previous != null) {
+            liveBytes -= logStore.recordSize(previous);
+            unindex(id);
+        }
+    }
+
+    private byte[] encode(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not encode " + value, e);
+        }
+    }
+
+    private Employee decode(byte[] payload) {
+        return decode(payload, Employee.class);
+    }
+
+    private <T> T decode(byte[] payload, Class<T> type) {
+        try {
+            return objectMapper.readValue(payload, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not decode a " + type.getSimpleName() + " record of the embedded log", e);
+        }
+    }
+
+
+    /**
+     * Writes the department id of an employee instead of its department. A department read from an older
+     * record still sets the id.
+     */
+    @JsonIgnoreProperties(value = "department", allowSetters = true)
+    private abstract static class StoredEmployee {
+
+        @JsonIgnore(false)
+        @JsonProperty
+        private Integer departmentId;
+    }
+}
@@ -0,0 +1,148 @@
+package com.springboot.employees.persistence;
+
+import com.springboot.employees.domain.Address;
+import com.springboot.employees.domain.EmailAddress;
+import com.springboot.employees.domain.Employee;
+import org.bson.Document;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Hand-written mapping between {@link Employee} and its MongoDB document, producing exactly what the
+ * reflective mapping does: the same field names, nulls left out, primitives always written and dates stored
+ * in the system time zone like Spring's JSR-310 converters. The type hint is left to the caller.
+ *
+ * Any change to the stored fields of Employee, Address or EmailAddress has to be made here as well;
+ * {@code EmployeeMappingMongoConverterTest} compares both mappings to catch a forgotten one.
+ */
+final class EmployeeDocumentConverter {
+
+    private EmployeeDocumentConverter() {
+    }
+
+    static void write(Employee employee, Document document) {
+        putIfNotNull(document, "_id", employee.getId());
+        putIfNotNull(document, "firstName", employee.getFirstName());
+        putIfNotNull(document, "lastName", employee.getLastName());
+        putIfNotNull(document, "departmentId", employee.getDepartmentId());
+        putIfNotNull(document, "managerId", employee.getManagerId());
+        if (employee.getAddress() != null) {
+            document.put("address", write(employee.getAddress()));
+        }
+        if (employee.getEmailAddresses() != null) {
+            List<Object> emailAddresses = new ArrayList<>(employee.getEmailAddresses().size());
+            for (EmailAddress emailAddress : employee.getEmailAddresses()) {
+                emailAddresses.add(emailAddress == null ? null : write(emailAddress));
+            }
+            document.put("emailAddresses", emailAddresses);
+        }
+        putIfNotNull(document, "createdAt", toDate(employee.getCreatedAt()));
+        putIfNotNull(document, "updatedAt", toDate(employee.getUpdatedAt()));
+    }
+
+    /**
+     * Whether {@link #read(Document)} understands the document; ids stored in any other form than a UUID or
+     * its string are left to the reflective mapping.
+     */
+    static boolean canRead(Document document) {
+        Object id = document.get("_id");
+        return id == null || id instanceof UUID || id instanceof String;
+    }
+
+    static Employee read(Document document) {
+        Object id = document.get("_id");
+        Employee employee = Employee.builder()
+                .id(readUuid(id))
+                .firstName(document.getString("firstName"))
+                .lastName(document.getString("lastName"))
+                .departmentId(integerValue(document.get("departmentId")))
+                .managerId(readUuid(document.get("managerId")))
+                .address(readAddress((Document) document.get("address")))
+                .emailAddresses(readEmailAddresses(document.getList("emailAddresses", Object.class)))
+                .build();
+        Date createdAt = document.getDate("createdAt");
+        if (createdAt != null) {
+            employee.setCreatedAt(toLocalDateTime(createdAt));
+        }
+        Date updatedAt = document.getDate("updatedAt");
+        if (updatedAt != null) {
+            employee.setUpdatedAt(toLocalDateTime(updatedAt));
+        }
+        return employee;
+    }
+
+
+    private static Document write(Address address) {
+        Document document = new Document();
+        putIfNotNull(document, "city", address.getCity());
+        putIfNotNull(document, "street", address.getStreet());
+        document.put("zipcode", address.getZipcode());
+        putIfNotNull(document, "state", address.getState());
+        return document;
+    }
+
+    private static Document write(EmailAddress emailAddress) {
+        Document document = new Document();
+        putIfNotNull(document, "email", emailAddress.getEmail());
+        document.put("isPrimary", emailAddress.isPrimary());
+        return document;
+    }
+
+    private static UUID readUuid(Object value) {
+        return value instanceof String ? UUID.fromString((String) value) : (UUID) value;
+    }
+
+    private static Address readAddress(Document document) {
+        if (document == null) {
+            return null;
+        }
+        return Address.builder()
+                .city(document.getString("city"))
+                .street(document.getString("street"))
+                .zipcode(intValue(document.get("zipcode")))
+                .state(document.getString("state"))
+                .build();
+    }
+
+    private static List<EmailAddress> readEmailAddresses(List<Object> documents) {
+        if (documents == null) {
+            return null;
+        }
+        List<EmailAddress> emailAddresses = new ArrayList<>(documents.size());
+        for (Object element : documents) {
+            Document document = (Document) element;
+            emailAddresses.add(document == null ? null : EmailAddress.builder()
+                    .email(document.getString("email"))
+                    .isPrimary(Boolean.TRUE.equals(document.get("isPrimary")))
+                    .build());
+        }
+        return emailAddresses;
+    }
+
+    private static void putIfNotNull(Document document, String key, Object value) {
+        if (value != null) {
+            document.put(key, value);
+        }
+    }
+
+    private static int intValue(Object value) {
+        return value == null ? 0 : ((Number) value).intValue();
+    }
+
+    private static Integer integerValue(Object value) {
+        return value == null ? null : ((Number) value).intValue();
+    }
+
+    private static Date toDate(LocalDateTime dateTime) {
+        return dateTime == null ? null : Date.from(dateTime.atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    private static LocalDateTime toLocalDateTime(Date date) {
+        return LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,104 @@
+package com.springboot.employees.persistence;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOptions;
+import com.springboot.employees.domain.Employee;
+import com.springboot.employees.domain.EmployeeTombstone;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonBinary;
+import org.bson.BsonType;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * One-off tool that rewrites employee and tombstone ids stored as strings into BSON binary UUIDs, keeping
+ * their values so links held by clients stay valid. Run it with the {@code migrate-ids} profile, e.g.
+ * {@code java -jar employees.jar --spring.profiles.active=migrate-ids --spring.main.web-application-type=none};
+ * the application exits when it is done, and running it again only picks up what is left.
+ *
+ * {@code _id} can't be updated in place, so every document is deleted and inserted again under its binary
+ * id; deleting first keeps the unique firstName/lastName/department index satisfied. The original is
+ * parked in a backup collection until its replacement is written, and leftovers from an interrupted run
+ * are restored before anything else happens.
+ */
+@Component
+@Profile("migrate-ids")
+@Slf4j
+public class EmployeeIdMigration implements ApplicationRunner {
+
+    private static final String BACKUP_SUFFIX = "_id_migration_backup";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ConfigurableApplicationContext context;
+
+    @Value("${employees.ids.migration.batch-size:500}")
+    private int batchSize;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        migrate(mongoTemplate.getCollectionName(Employee.class));
+        migrate(mongoTemplate.getCollectionName(EmployeeTombstone.class));
+        SpringApplication.exit(context, () -> 0);
+    }
+
+    private void migrate(String collectionName) {
+        MongoCollection<Document> collection = mongoTemplate.getCollection(collectionName);
+        MongoCollection<Document> backup = mongoTemplate.getCollection(collectionName + BACKUP_SUFFIX);
+
+        long restored = 0;
+        for (Document original : backup.find()) {
+            if (collection.countDocuments(Filters.in("_id", original.get("_id"), binaryId(original))) == 0) {
+                collection.insertOne(withBinaryId(original));
+                restored++;
+            }
+            backup.deleteOne(Filters.eq("_id", original.get("_id")));
+        }
+        if (restored > 0) {
+            log.info("Restored {} documents of {} left behind by an interrupted migration.", restored, collectionName);
+        }
+
+        long migrated = 0;
+        List<Document> batch;
+        do {
+            batch = collection.find(Filters.type("_id", BsonType.STRING)).limit(batchSize).into(new ArrayList<>());
+            for (Document original : batch) {
+                backup.replaceOne(Filters.eq("_id", original.get("_id")), original, new ReplaceOptions().upsert(true));
+                collection.deleteOne(Filters.eq("_id", original.get("_id")));
+                collection.insertOne(withBinaryId(original));
+                backup.deleteOne(Filters.eq("_id", original.get("_id")));
+            }
+            migrated += batch.size();
+            if (!batch.isEmpty()) {
+                log.info("Migrated {} ids of {} so far.", migrated, collectionName);
+            }
+        } while (!batch.isEmpty());
+
+        log.info("Migrated {} ids of {} to binary UUIDs.", migrated, collectionName);
+    }
+
+    private static Document withBinaryId(Document original) {
+        Document migrated = new Document(original);
+        migrated.put("_id", binaryId(original));
+        return migrated;
+    }
+
+    private static BsonBinary binaryId(Document original) {
+        return new BsonBinary(UUID.fromString(original.getString("_id")));
+    }
+}
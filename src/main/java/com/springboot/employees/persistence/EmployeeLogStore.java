@@ -0,0 +1,186 @@
+package com.springboot.employees.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only record log in a memory-mapped file, used by {@link EmbeddedEmployeeRepository}.
+ *
+ * Every record is laid out as {@code [int payloadLength][int crc32][byte type][payload]}; the checksum
+ * covers the type and the payload. The mapping grows by doubling. On open the log is scanned up to the
+ * first zeroed or torn record, and everything after it is wiped, so a crash in the middle of an append
+ * never surfaces a partial record.
+ */
+@Slf4j
+class EmployeeLogStore implements Closeable {
+
+    static final byte PUT = 1;
+    static final byte DELETE = 2;
+    static final byte TOMBSTONE = 3;
+
+    private static final int HEADER_SIZE = 9;
+
+    private final Path path;
+    private FileChannel channel;
+    private volatile MappedByteBuffer buffer;
+    private int writePosition;
+
+    private EmployeeLogStore(Path path, int initialCapacity) throws IOException {
+        this.path = path;
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(initialCapacity, channel.size()));
+    }
+
+    static EmployeeLogStore open(Path path, int initialCapacity) {
+        try {
+            return new EmployeeLogStore(path, initialCapacity);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open the employee log at " + path, e);
+        }
+    }
+
+    /**
+     * Scans the log from the start, handing every intact record to the visitor, and positions the log
+     * for appends right after the last intact record.
+     */
+    void replay(RecordVisitor visitor) {
+        int position = 0;
+        while (position + HEADER_SIZE <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length == 0) {
+                break;
+            }
+            if (length < 0 || position + HEADER_SIZE + length > buffer.capacity()
+                    || buffer.getInt(position + 4) != checksum(buffer.get(position + 8), payloadAt(position, length))) {
+                log.warn("Discarding torn record at offset {} of the employee log {}.", position, path);
+                wipeFrom(position);
+                break;
+            }
+            visitor.visit(position, buffer.get(position + 8), payloadAt(position, length));
+            position += HEADER_SIZE + length;
+        }
+        writePosition = position;
+    }
+
+    /**
+     * Appends a record and returns its offset.
+     */
+    int append(byte type, byte[] payload) {
+        int required = writePosition + HEADER_SIZE + payload.length;
+        if (required > buffer.capacity()) {
+            grow(required);
+        }
+        int offset = writePosition;
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset + HEADER_SIZE);
+        view.put(payload);
+        buffer.put(offset + 8, type);
+        buffer.putInt(offset + 4, checksum(type, payload));
+        // The length goes last so a record cut short in memory reads as the end of the log; pages that
+        // reach the disk out of order are caught by the checksum instead.
+        buffer.putInt(offset, payload.length);
+        writePosition = required;
+        return offset;
+    }
+
+    byte[] read(int offset) {
+        return payloadAt(offset, buffer.getInt(offset));
+    }
+
+    int recordSize(int offset) {
+        return HEADER_SIZE + buffer.getInt(offset);
+    }
+
+    int size() {
+        return writePosition;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    /**
+     * Atomically replaces this log with {@code compacted}, which must have been written next to it.
+     */
+    void replaceWith(EmployeeLogStore compacted) {
+        compacted.force();
+        try {
+            compacted.channel.close();
+            channel.close();
+            Files.move(compacted.path, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            writePosition = compacted.writePosition;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not swap in the compacted employee log " + compacted.path, e);
+        }
+    }
+
+    Path path() {
+        return path;
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+
+    private byte[] payloadAt(int offset, int length) {
+        byte[] payload = new byte[length];
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset + HEADER_SIZE);
+        view.get(payload);
+        return payload;
+    }
+
+    private void grow(int required) {
+        long capacity = buffer.capacity();
+        while (capacity < required) {
+            capacity *= 2;
+        }
+        if (capacity > Integer.MAX_VALUE) {
+            throw new IllegalStateException("The employee log " + path + " cannot grow beyond 2GB, compact it first.");
+        }
+        try {
+            buffer.force();
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not grow the employee log " + path, e);
+        }
+    }
+
+    private void wipeFrom(int position) {
+        for (int i = position; i < buffer.capacity(); i++) {
+            buffer.put(i, (byte) 0);
+        }
+        buffer.force();
+    }
+
+    private static int checksum(byte type, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(payload, 0, payload.length);
+        return (int) crc.getValue();
+    }
+
+
+    interface RecordVisitor {
+        void visit(int offset, byte type, byte[] payload);
+    }
+}
@@ -0,0 +1,42 @@
+package com.springboot.employees.persistence;
+
+import com.springboot.employees.domain.Employee;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.springframework.data.mapping.context.MappingContext;
+import org.springframework.data.mongodb.core.convert.DbRefResolver;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+
+/**
+ * {@link MappingMongoConverter} that reads and writes employees with {@link EmployeeDocumentConverter}
+ * instead of walking their properties reflectively, which dominates the cost of large reads and writes.
+ * Everything else, including the mapping metadata queries and indexes are derived from, is left to the
+ * default mapping.
+ */
+public class EmployeeMappingMongoConverter extends MappingMongoConverter {
+
+    public EmployeeMappingMongoConverter(DbRefResolver dbRefResolver,
+                                         MappingContext<? extends MongoPersistentEntity<?>, MongoPersistentProperty> mappingContext) {
+        super(dbRefResolver, mappingContext);
+    }
+
+    @Override
+    public void write(Object obj, Bson bson) {
+        if (obj != null && obj.getClass() == Employee.class && bson instanceof Document) {
+            getTypeMapper().writeType(Employee.class, bson);
+            EmployeeDocumentConverter.write((Employee) obj, (Document) bson);
+            return;
+        }
+        super.write(obj, bson);
+    }
+
+    @Override
+    public <S> S read(Class<S> type, Bson bson) {
+        if (type == Employee.class && bson instanceof Document && EmployeeDocumentConverter.canRead((Document) bson)) {
+            return type.cast(EmployeeDocumentConverter.read((Document) bson));
+        }
+        return super.read(type, bson);
+    }
+}
@@ -4,14 +4,25 @@ import com.springboot.employees.domain.Employee;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
-public interface EmployeeRepository extends MongoRepository<Employee, UUID> {
-    Employee findByFirstName(String firstName);
+public interface EmployeeRepository extends MongoRepository<Employee, UUID>, EmployeeRepositoryCustom {
 
-    Employee findById(String id);
+    /**
+     * The unique multikey index on emailAddresses.email; a duplicate key error naming it means the email
+     * address belongs to another employee.
+     */
+    String EMAIL_INDEX = "emailAddresses_email";
 
-    List<Employee> findByDepartmentName(String departmentName);
+    Optional<Employee> findByFirstName(String firstName);
+
+    Optional<Employee> findByEmailAddressesEmail(String email);
+
+    List<Employee> findByDepartmentId(int departmentId);
+
+    List<Employee> findByIdIn(Collection<UUID> ids);
 }
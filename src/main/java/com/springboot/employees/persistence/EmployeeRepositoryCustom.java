@@ -0,0 +1,100 @@
+package com.springboot.employees.persistence;
+
+import com.springboot.employees.domain.Employee;
+import com.springboot.employees.domain.EmployeeTombstone;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+/**
+ * Queries of {@link EmployeeRepository} that derived query methods can't express, implemented on
+ * {@code MongoTemplate} by {@link EmployeeRepositoryImpl}.
+ */
+public interface EmployeeRepositoryCustom {
+
+    /**
+     * Employees positioned after (updatedAt, id), oldest first, served by the updatedAt_id index. A null id
+     * includes everything updated at updatedAt.
+     */
+    List<Employee> findUpdatedAfter(LocalDateTime updatedAt, UUID id, int limit);
+
+    /**
+     * Inserts the employees in one unordered bulk write. Employees that collide with another one on a unique
+     * index are skipped rather than failing the rest; their positions in the list are returned.
+     */
+    Set<Integer> insertSkippingDuplicates(List<Employee> employees);
+
+    /**
+     * Employees living in the state positioned after (city, id), in that order, served by the
+     * state_city_id index. A null id starts from the beginning; with an id, a null city stands for the
+     * employees without one, who come first.
+     */
+    List<Employee> findInState(String state, String afterCity, UUID afterId, int limit);
+
+    /**
+     * Employees living in the city of the state positioned after the id, served by the state_city_id index.
+     */
+    List<Employee> findInCity(String state, String city, UUID afterId, int limit);
+
+    /**
+     * Employees with a zipcode between from and to, both included, positioned after (zipcode, id), served by
+     * the zipcode_id index. A null zipcode starts from the beginning.
+     */
+    List<Employee> findInZipcodeRange(int from, int to, Integer afterZipcode, UUID afterId, int limit);
+
+    /**
+     * Whether the employee exists, answered from the _id index without fetching the document.
+     */
+    boolean existsId(UUID id);
+
+    /**
+     * Whether an employee has the first name, answered from the firstName_lastName_departmentId index without
+     * fetching a document.
+     */
+    boolean existsFirstName(String firstName);
+
+    /**
+     * Counts the employees of the department from the departmentId_createdAt index alone.
+     */
+    long countInDepartment(int departmentId);
+
+    long countInState(String state);
+
+    long countInCity(String state, String city);
+
+    long countInZipcodeRange(int from, int to);
+
+    /**
+     * The employees reporting to the manager, directly or through at most maxDepth - 1 levels in between,
+     * level by level, but no more than limit of them. Answered by one query on the managerId index per level.
+     */
+    List<Employee> findReports(UUID managerId, int maxDepth, int limit);
+
+    /**
+     * Applies the changes to the employee in one write, but only while it is still at the given updatedAt,
+     * and returns the new version; empty when the employee was changed or deleted in the meantime.
+     */
+    Optional<Employee> applyUpdate(UUID id, LocalDateTime updatedAt, EmployeeUpdate update);
+
+    /**
+     * Deletes the employee in one write and returns the version it deleted; empty when it was already gone,
+     * e.g. because a concurrent delete got there first.
+     */
+    Optional<Employee> removeById(UUID id);
+
+    /**
+     * Hands the id and firstName of every employee to the consumer, reading only those two fields.
+     */
+    void forEachKey(BiConsumer<UUID, String> consumer);
+
+    void saveTombstone(EmployeeTombstone tombstone);
+
+    /**
+     * Tombstones positioned after (deletedAt, id), oldest first.
+     */
+    List<EmployeeTombstone> findTombstonesAfter(LocalDateTime deletedAt, UUID id, int limit);
+}
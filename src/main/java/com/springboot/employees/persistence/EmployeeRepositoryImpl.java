@@ -0,0 +1,205 @@
+package com.springboot.employees.persistence;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.springboot.employees.domain.Employee;
+import com.springboot.employees.domain.EmployeeTombstone;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.CloseableIterator;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+public class EmployeeRepositoryImpl implements EmployeeRepositoryCustom {
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    private static final int KEY_BATCH_SIZE = 10000;
+
+    private static final String STATE = "address.state";
+    private static final String CITY = "address.city";
+    private static final String ZIPCODE = "address.zipcode";
+
+    private final MongoTemplate mongoTemplate;
+
+    @Autowired
+    public EmployeeRepositoryImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public List<Employee> findUpdatedAfter(LocalDateTime updatedAt, UUID id, int limit) {
+        return mongoTemplate.find(positionedAfter("updatedAt", updatedAt, id, limit), Employee.class);
+    }
+
+    @Override
+    public Set<Integer> insertSkippingDuplicates(List<Employee> employees) {
+        if (employees.isEmpty()) {
+            return Collections.emptySet();
+        }
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Employee.class).insert(employees).execute();
+            return Collections.emptySet();
+        } catch (BulkOperationException e) {
+            Set<Integer> duplicates = new TreeSet<>();
+            for (BulkWriteError error : e.getErrors()) {
+                if (error.getCode() != DUPLICATE_KEY) {
+                    throw e;
+                }
+                duplicates.add(error.getIndex());
+            }
+            return duplicates;
+        }
+    }
+
+    @Override
+    public List<Employee> findInState(String state, String afterCity, UUID afterId, int limit) {
+        Criteria criteria = where(STATE).is(state);
+        if (afterId != null) {
+            // Missing and null cities sort before every other value, and a $gt on null matches nothing.
+            criteria.orOperator(afterCity == null ? where(CITY).ne(null) : where(CITY).gt(afterCity),
+                    where(CITY).is(afterCity).and("_id").gt(afterId));
+        }
+        return mongoTemplate.find(new Query(criteria).with(Sort.by(Sort.Direction.ASC, CITY, "_id")).limit(limit), Employee.class);
+    }
+
+    @Override
+    public List<Employee> findInCity(String state, String city, UUID afterId, int limit) {
+        Criteria criteria = where(STATE).is(state).and(CITY).is(city);
+        if (afterId != null) {
+            criteria.and("_id").gt(afterId);
+        }
+        return mongoTemplate.find(new Query(criteria).with(Sort.by(Sort.Direction.ASC, "_id")).limit(limit), Employee.class);
+    }
+
+    @Override
+    public List<Employee> findInZipcodeRange(int from, int to, Integer afterZipcode, UUID afterId, int limit) {
+        Criteria criteria = afterZipcode == null
+                ? where(ZIPCODE).gte(from).lte(to)
+                : new Criteria().andOperator(where(ZIPCODE).lte(to), new Criteria().orOperator(
+                        where(ZIPCODE).gt(afterZipcode).gte(from),
+                        where(ZIPCODE).is(afterZipcode).and("_id").gt(afterId)));
+        return mongoTemplate.find(new Query(criteria).with(Sort.by(Sort.Direction.ASC, ZIPCODE, "_id")).limit(limit), Employee.class);
+    }
+
+    @Override
+    public boolean existsId(UUID id) {
+        // A count limited to one needs no field of the document, so the plan is an index scan without a fetch.
+        return mongoTemplate.exists(new Query(where("_id").is(id)), Employee.class);
+    }
+
+    @Override
+    public boolean existsFirstName(String firstName) {
+        return mongoTemplate.exists(new Query(where("firstName").is(firstName)), Employee.class);
+    }
+
+    @Override
+    public long countInDepartment(int departmentId) {
+        return mongoTemplate.count(new Query(where("departmentId").is(departmentId)), Employee.class);
+    }
+
+    @Override
+    public long countInState(String state) {
+        return mongoTemplate.count(new Query(where(STATE).is(state)), Employee.class);
+    }
+
+    @Override
+    public long countInCity(String state, String city) {
+        return mongoTemplate.count(new Query(where(STATE).is(state).and(CITY).is(city)), Employee.class);
+    }
+
+    @Override
+    public long countInZipcodeRange(int from, int to) {
+        return mongoTemplate.count(new Query(where(ZIPCODE).gte(from).lte(to)), Employee.class);
+    }
+
+    @Override
+    public List<Employee> findReports(UUID managerId, int maxDepth, int limit) {
+        // A $graphLookup gathers the whole subtree into one document, which fails past 16MB, so each level is
+        // its own query on the managerId index with the ids found in the previous one, limited to what is left.
+        List<Employee> reports = new ArrayList<>();
+        Set<UUID> visited = new HashSet<>();
+        List<UUID> level = Collections.singletonList(managerId);
+        for (int depth = 0; depth < maxDepth && !level.isEmpty() && reports.size() < limit; depth++) {
+            List<UUID> next = new ArrayList<>();
+            for (Employee report : mongoTemplate.find(new Query(where("managerId").in(level)).limit(limit - reports.size()), Employee.class)) {
+                if (visited.add(report.getId())) {
+                    reports.add(report);
+                    next.add(report.getId());
+                }
+            }
+            level = next;
+        }
+        return reports;
+    }
+
+    @Override
+    public Optional<Employee> applyUpdate(UUID id, LocalDateTime updatedAt, EmployeeUpdate changes) {
+        Update update = new Update();
+        changes.getSet().forEach(update::set);
+        changes.getUnset().forEach(update::unset);
+        if (!changes.getPushedEmailAddresses().isEmpty()) {
+            update.push(EmployeeUpdate.EMAIL_ADDRESSES).each(changes.getPushedEmailAddresses().toArray());
+        }
+        if (!changes.getPulledEmails().isEmpty()) {
+            update.pull(EmployeeUpdate.EMAIL_ADDRESSES, new Document("email", new Document("$in", changes.getPulledEmails())));
+        }
+        Query current = new Query(where("_id").is(id).and("updatedAt").is(updatedAt));
+        return Optional.ofNullable(mongoTemplate.findAndModify(current, update, FindAndModifyOptions.options().returnNew(true), Employee.class));
+    }
+
+    @Override
+    public Optional<Employee> removeById(UUID id) {
+        return Optional.ofNullable(mongoTemplate.findAndRemove(new Query(where("_id").is(id)), Employee.class));
+    }
+
+    @Override
+    public void forEachKey(BiConsumer<UUID, String> consumer) {
+        Query query = new Query().cursorBatchSize(KEY_BATCH_SIZE);
+        query.fields().include("firstName");
+        try (CloseableIterator<Document> keys = mongoTemplate.stream(query, Document.class, mongoTemplate.getCollectionName(Employee.class))) {
+            keys.forEachRemaining(key -> consumer.accept(key.get("_id", UUID.class), key.getString("firstName")));
+        }
+    }
+
+    @Override
+    public void saveTombstone(EmployeeTombstone tombstone) {
+        mongoTemplate.save(tombstone);
+    }
+
+    @Override
+    public List<EmployeeTombstone> findTombstonesAfter(LocalDateTime deletedAt, UUID id, int limit) {
+        return mongoTemplate.find(positionedAfter("deletedAt", deletedAt, id, limit), EmployeeTombstone.class);
+    }
+
+    /**
+     * Keyset query for documents after (field, _id) in that order: {@code field > at or (field == at and _id > id)},
+     * or {@code field >= at} without an id.
+     */
+    private static Query positionedAfter(String field, LocalDateTime at, UUID id, int limit) {
+        Criteria criteria = id == null
+                ? where(field).gte(at)
+                : new Criteria().orOperator(where(field).gt(at), where(field).is(at).and("_id").gt(id));
+        return new Query(criteria)
+                .with(Sort.by(Sort.Direction.ASC, field, "_id"))
+                .limit(limit);
+    }
+}
@@ -0,0 +1,148 @@
+package com.springboot.employees.persistence;
+
+import com.springboot.employees.domain.Address;
+import com.springboot.employees.domain.EmailAddress;
+import com.springboot.employees.domain.Employee;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The targeted changes that turn one version of an employee into another: fields to set or unset by
+ * dotted path, and email addresses to append or to pull by address. It is what a partial update sends to
+ * the database instead of the whole document, so only changed fields reach the write and the oplog.
+ */
+public final class EmployeeUpdate {
+
+    static final String EMAIL_ADDRESSES = "emailAddresses";
+
+    private final Map<String, Object> set = new LinkedHashMap<>();
+    private final Set<String> unset = new LinkedHashSet<>();
+    private final List<EmailAddress> pushedEmailAddresses = new ArrayList<>();
+    private final List<String> pulledEmails = new ArrayList<>();
+
+    private EmployeeUpdate() {
+    }
+
+    /**
+     * Compares the versions field by field, descending into the address. A list of email
+     * addresses that only grew at its end becomes a push, one that only lost addresses becomes a pull and
+     * anything else is set whole, since one update can't both push to and pull from the same array.
+     */
+    public static EmployeeUpdate between(Employee before, Employee after) {
+        EmployeeUpdate update = new EmployeeUpdate();
+        update.compare("firstName", before.getFirstName(), after.getFirstName());
+        update.compare("lastName", before.getLastName(), after.getLastName());
+        update.compare("departmentId", before.getDepartmentId(), after.getDepartmentId());
+        update.compare("managerId", before.getManagerId(), after.getManagerId());
+        update.compareAddress(before.getAddress(), after.getAddress());
+        update.compareEmailAddresses(before.getEmailAddresses(), after.getEmailAddresses());
+        return update;
+    }
+
+    public EmployeeUpdate set(String path, Object value) {
+        set.put(path, value);
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return set.isEmpty() && unset.isEmpty() && pushedEmailAddresses.isEmpty() && pulledEmails.isEmpty();
+    }
+
+    public Map<String, Object> getSet() {
+        return Collections.unmodifiableMap(set);
+    }
+
+    public Set<String> getUnset() {
+        return Collections.unmodifiableSet(unset);
+    }
+
+    public List<EmailAddress> getPushedEmailAddresses() {
+        return Collections.unmodifiableList(pushedEmailAddresses);
+    }
+
+    public List<String> getPulledEmails() {
+        return Collections.unmodifiableList(pulledEmails);
+    }
+
+    @Override
+    public String toString() {
+        return "EmployeeUpdate(set=" + set.keySet() + ", unset=" + unset + ", pushed=" + pushedEmailAddresses.size()
+                + ", pulled=" + pulledEmails.size() + ")";
+    }
+
+
+    private void compare(String path, Object before, Object after) {
+        if (Objects.equals(before, after)) {
+            return;
+        }
+        if (after == null) {
+            unset.add(path);
+        } else {
+            set.put(path, after);
+        }
+    }
+
+    private void compareAddress(Address before, Address after) {
+        if (before == null || after == null) {
+            compare("address", before, after);
+            return;
+        }
+        compare("address.city", before.getCity(), after.getCity());
+        compare("address.street", before.getStreet(), after.getStreet());
+        compare("address.zipcode", before.getZipcode(), after.getZipcode());
+        compare("address.state", before.getState(), after.getState());
+    }
+
+    private void compareEmailAddresses(List<EmailAddress> before, List<EmailAddress> after) {
+        if (before == null || after == null || Objects.equals(before, after)) {
+            compare(EMAIL_ADDRESSES, before, after);
+            return;
+        }
+        if (after.size() > before.size() && after.subList(0, before.size()).equals(before)) {
+            pushedEmailAddresses.addAll(after.subList(before.size(), after.size()));
+            return;
+        }
+        List<String> pulled = pulledEmails(before, after);
+        if (pulled != null) {
+            pulledEmails.addAll(pulled);
+        } else {
+            set.put(EMAIL_ADDRESSES, after);
+        }
+    }
+
+    /**
+     * The addresses to pull when after is before with some entries removed and a pull by address removes
+     * exactly those, otherwise null.
+     */
+    private static List<String> pulledEmails(List<EmailAddress> before, List<EmailAddress> after) {
+        List<EmailAddress> remaining = new ArrayList<>();
+        List<String> pulled = new ArrayList<>();
+        int next = 0;
+        for (EmailAddress emailAddress : before) {
+            if (next < after.size() && after.get(next).equals(emailAddress)) {
+                remaining.add(emailAddress);
+                next++;
+            } else if (emailAddress == null || emailAddress.getEmail() == null) {
+                return null;
+            } else {
+                pulled.add(emailAddress.getEmail());
+            }
+        }
+        if (next != after.size()) {
+            return null;
+        }
+        for (EmailAddress emailAddress : remaining) {
+            if (pulled.contains(emailAddress.getEmail())) {
+                return null;
+            }
+        }
+        return pulled;
+    }
+}
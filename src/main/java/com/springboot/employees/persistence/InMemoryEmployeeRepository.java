@@ -0,0 +1,63 @@
+package com.springboot.employees.persistence;
+
+import com.springboot.employees.domain.Employee;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * {@link EmployeeRepository} kept entirely on the heap, selected with the {@code in-memory} profile.
+ * It mirrors the behaviour of the Mongo repository for every method the service uses, so the application
+ * can be started and load tested without a MongoDB instance.
+ */
+@Repository
+@Profile("in-memory")
+public class InMemoryEmployeeRepository extends AbstractIndexedEmployeeRepository {
+
+    private final Map<UUID, Employee> employeesById = new ConcurrentHashMap<>();
+
+    @Override
+    protected Employee load(UUID id) {
+        return copyOf(employeesById.get(id));
+    }
+
+    @Override
+    protected void store(Employee employee) {
+        employeesById.put(employee.getId(), copyOf(employee));
+    }
+
+    @Override
+    protected void erase(UUID id) {
+        employeesById.remove(id);
+    }
+
+    @Override
+    protected void eraseAll() {
+        employeesById.clear();
+    }
+
+    static Employee copyOf(Employee employee) {
+        if (employee == null) {
+            return null;
+        }
+        Employee copy = employee.toBuilder()
+                // Only the department id is stored, as in MongoDB.
+                .department(null)
+                .address(employee.getAddress() == null ? null : employee.getAddress().toBuilder().build())
+                .emailAddresses(employee.getEmailAddresses() == null ? null : employee.getEmailAddresses().stream()
+                        .map(email -> email.toBuilder().build())
+                        .collect(Collectors.toList()))
+                .build();
+        if (employee.getCreatedAt() != null) {
+            copy.setCreatedAt(employee.getCreatedAt());
+        }
+        if (employee.getUpdatedAt() != null) {
+            copy.setUpdatedAt(employee.getUpdatedAt());
+        }
+        return copy;
+    }
+}
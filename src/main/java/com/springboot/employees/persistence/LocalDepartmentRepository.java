@@ -0,0 +1,129 @@
+package com.springboot.employees.persistence;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springboot.employees.domain.Department;
+import com.springboot.employees.domain.Employee;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+
+/**
+ * {@link DepartmentRepository} for the {@code in-memory} and {@code embedded} profiles. Departments are kept
+ * on the heap and, when {@code employees.departments.path} names a file, written to it as JSON on every
+ * change. Like the unique name index in MongoDB, a second department with the same name is rejected.
+ *
+ * Employees of an embedded log written before departments were stored on their own still carry their
+ * department; the ones missing from the file are taken from them on startup, which migrates such a log.
+ */
+@Repository
+@Profile("in-memory | embedded")
+@Slf4j
+public class LocalDepartmentRepository implements DepartmentRepository {
+
+    private final ObjectMapper objectMapper;
+    private final Path path;
+    private final Map<Integer, Department> departments = new ConcurrentSkipListMap<>();
+
+    @Autowired
+    public LocalDepartmentRepository(ObjectMapper objectMapper, EmployeeRepository employeeRepository,
+                                     @Value("${employees.departments.path}") String path) {
+        this.objectMapper = objectMapper;
+        this.path = path.trim().isEmpty() ? null : Paths.get(path);
+        load();
+        adoptCarriedDepartments(employeeRepository.findAll());
+    }
+
+    @Override
+    public List<Department> findAll() {
+        return departments.values().stream().map(LocalDepartmentRepository::copyOf).collect(Collectors.toList());
+    }
+
+    @Override
+    public Optional<Department> findById(int departmentId) {
+        return Optional.ofNullable(departments.get(departmentId)).map(LocalDepartmentRepository::copyOf);
+    }
+
+    @Override
+    public synchronized Department save(Department department) {
+        for (Department other : departments.values()) {
+            if (other.getDepartmentId() != department.getDepartmentId() && Objects.equals(other.getName(), department.getName())) {
+                throw new DuplicateKeyException("E11000 duplicate key error index: name dup key: " + department.getName());
+            }
+        }
+        departments.put(department.getDepartmentId(), copyOf(department));
+        persist();
+        return department;
+    }
+
+
+    private void load() {
+        if (path == null || !Files.exists(path)) {
+            return;
+        }
+        try {
+            List<Department> stored = objectMapper.readValue(path.toFile(), new TypeReference<List<Department>>() {});
+            stored.forEach(department -> departments.put(department.getDepartmentId(), department));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the departments from " + path, e);
+        }
+        log.info("Loaded {} departments from {}.", departments.size(), path);
+    }
+
+    private synchronized void adoptCarriedDepartments(Iterable<Employee> employees) {
+        int adopted = 0;
+        for (Employee employee : employees) {
+            Department carried = employee.getDepartment();
+            if (carried == null || departments.containsKey(carried.getDepartmentId())) {
+                continue;
+            }
+            if (departments.values().stream().anyMatch(department -> Objects.equals(department.getName(), carried.getName()))) {
+                log.warn("Department {} of employee {} is named like another department and was not taken over.",
+                        carried.getDepartmentId(), employee.getId());
+                continue;
+            }
+            departments.put(carried.getDepartmentId(), copyOf(carried));
+            adopted++;
+        }
+        if (adopted > 0) {
+            persist();
+            log.info("Took over {} departments carried by stored employees.", adopted);
+        }
+    }
+
+    private void persist() {
+        if (path == null) {
+            return;
+        }
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path written = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+            objectMapper.writeValue(written.toFile(), new ArrayList<>(departments.values()));
+            Files.move(written, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write the departments to " + path, e);
+        }
+    }
+
+    private static Department copyOf(Department department) {
+        return department.toBuilder().build();
+    }
+}
@@ -0,0 +1,100 @@
+package com.springboot.employees.persistence;
+
+import com.springboot.employees.domain.DepartmentSummary;
+import com.springboot.employees.domain.Employee;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * {@link DepartmentSummaryRepository} for the {@code in-memory} and {@code embedded} profiles. Those
+ * repositories index employees by department on the heap, so a write simply recomputes the summaries of
+ * the departments it touched from that index.
+ */
+@Repository
+@Profile("in-memory | embedded")
+public class LocalDepartmentSummaryRepository implements DepartmentSummaryRepository {
+
+    private final EmployeeRepository employeeRepository;
+    private final Map<Integer, DepartmentSummary> summaries = new ConcurrentSkipListMap<>();
+
+    @Autowired
+    public LocalDepartmentSummaryRepository(EmployeeRepository employeeRepository) {
+        this.employeeRepository = employeeRepository;
+    }
+
+    @Override
+    public Optional<DepartmentSummary> findByDepartmentId(int departmentId) {
+        return Optional.ofNullable(summaries.get(departmentId));
+    }
+
+    @Override
+    public List<DepartmentSummary> findAll() {
+        return new ArrayList<>(summaries.values());
+    }
+
+    @Override
+    public void addAll(Collection<Employee> employees) {
+        employees.stream()
+                .map(Employee::getDepartmentId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .forEach(this::refresh);
+    }
+
+    @Override
+    public void remove(Employee employee) {
+        if (employee.getDepartmentId() != null) {
+            refresh(employee.getDepartmentId());
+        }
+    }
+
+    @Override
+    public synchronized void rebuild() {
+        Map<Integer, List<Employee>> byDepartment = new HashMap<>();
+        for (Employee employee : employeeRepository.findAll()) {
+            if (employee.getDepartmentId() != null) {
+                byDepartment.computeIfAbsent(employee.getDepartmentId(), id -> new ArrayList<>()).add(employee);
+            }
+        }
+        summaries.keySet().retainAll(byDepartment.keySet());
+        byDepartment.forEach((id, employees) -> summaries.put(id, summarize(id, employees)));
+    }
+
+
+    private synchronized void refresh(int departmentId) {
+        List<Employee> employees = employeeRepository.findByDepartmentId(departmentId);
+        if (employees.isEmpty()) {
+            summaries.remove(departmentId);
+        } else {
+            summaries.put(departmentId, summarize(departmentId, employees));
+        }
+    }
+
+    private static DepartmentSummary summarize(int departmentId, List<Employee> employees) {
+        Map<String, Long> headcountByState = new TreeMap<>();
+        DepartmentSummary summary = DepartmentSummary.builder().departmentId(departmentId).headcount(employees.size()).build();
+        for (Employee employee : employees) {
+            if (employee.getAddress() != null && employee.getAddress().getState() != null) {
+                headcountByState.merge(employee.getAddress().getState(), 1L, Long::sum);
+            }
+            if (employee.getCreatedAt() != null
+                    && (summary.getMostRecentHire() == null || employee.getCreatedAt().isAfter(summary.getMostRecentHire()))) {
+                summary.setMostRecentHire(employee.getCreatedAt());
+            }
+        }
+        summary.setHeadcountByState(Collections.unmodifiableMap(headcountByState));
+        return summary;
+    }
+}
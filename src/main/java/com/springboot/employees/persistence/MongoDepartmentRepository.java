@@ -0,0 +1,41 @@
+package com.springboot.employees.persistence;
+
+import com.springboot.employees.domain.Department;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Keeps the departments in the {@code departments} collection with the department id as {@code _id}; the
+ * unique name index rejects a second department with the same name.
+ */
+@Repository
+@Profile("!in-memory & !embedded")
+public class MongoDepartmentRepository implements DepartmentRepository {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Autowired
+    public MongoDepartmentRepository(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public List<Department> findAll() {
+        return mongoTemplate.findAll(Department.class);
+    }
+
+    @Override
+    public Optional<Department> findById(int departmentId) {
+        return Optional.ofNullable(mongoTemplate.findById(departmentId, Department.class));
+    }
+
+    @Override
+    public Department save(Department department) {
+        return mongoTemplate.save(department);
+    }
+}
@@ -0,0 +1,248 @@
+package com.springboot.employees.persistence;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import com.springboot.employees.domain.DepartmentSummary;
+import com.springboot.employees.domain.Employee;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.gte;
+import static com.mongodb.client.model.Filters.lte;
+import static com.mongodb.client.model.Filters.not;
+import static com.mongodb.client.model.Projections.include;
+import static com.mongodb.client.model.Sorts.ascending;
+import static com.mongodb.client.model.Sorts.descending;
+
+/**
+ * Keeps the summaries in the {@code department_summaries} collection, one document per department with the
+ * department id as {@code _id}, so reading a summary is a single lookup on the primary key.
+ *
+ * Writes adjust the counters with {@code $inc}, {@code $max} and upserts, one round trip per department
+ * touched. States are field names of a sub-document, with {@code .} and {@code $} swapped for their
+ * full-width forms. Only a removal that may take away the most recent hire reads the employees again, through
+ * the departmentId and createdAt index. The rebuild is one aggregation over the employees ending in
+ * {@code $merge}, which needs MongoDB 4.4; summaries of departments it no longer finds are dropped afterwards.
+ *
+ * Every write also stamps the summary with the server time in {@code touchedAt}. The rebuild leaves summaries
+ * touched since it started as they are, since the scan may have passed the employees those writes counted,
+ * and doesn't drop them either; they are repaired by the next rebuild instead.
+ */
+@Repository
+@Profile("!in-memory & !embedded")
+public class MongoDepartmentSummaryRepository implements DepartmentSummaryRepository {
+
+    static final String COLLECTION = "department_summaries";
+
+    private final MongoTemplate mongoTemplate;
+
+    @Autowired
+    public MongoDepartmentSummaryRepository(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Optional<DepartmentSummary> findByDepartmentId(int departmentId) {
+        return Optional.ofNullable(summaries().find(eq("_id", departmentId)).first()).map(MongoDepartmentSummaryRepository::read);
+    }
+
+    @Override
+    public List<DepartmentSummary> findAll() {
+        List<DepartmentSummary> all = new ArrayList<>();
+        for (Document document : summaries().find().sort(ascending("_id"))) {
+            all.add(read(document));
+        }
+        return all;
+    }
+
+    @Override
+    public void addAll(Collection<Employee> employees) {
+        Map<Integer, Increment> increments = new HashMap<>();
+        for (Employee employee : employees) {
+            Integer department = employee.getDepartmentId();
+            if (department != null) {
+                increments.computeIfAbsent(department, id -> new Increment()).add(employee);
+            }
+        }
+        if (increments.isEmpty()) {
+            return;
+        }
+
+        List<WriteModel<Document>> writes = new ArrayList<>(increments.size());
+        for (Map.Entry<Integer, Increment> increment : increments.entrySet()) {
+            writes.add(new UpdateOneModel<>(eq("_id", increment.getKey()), increment.getValue().toUpdate(),
+                    new UpdateOptions().upsert(true)));
+        }
+        summaries().bulkWrite(writes, new BulkWriteOptions().ordered(false));
+    }
+
+    @Override
+    public void remove(Employee employee) {
+        Integer department = employee.getDepartmentId();
+        if (department == null) {
+            return;
+        }
+        MongoCollection<Document> summaries = summaries();
+        String state = stateOf(employee);
+        if (state == null) {
+            summaries.updateOne(eq("_id", department), Updates.combine(Updates.inc("headcount", -1), Updates.currentDate("touchedAt")));
+        } else {
+            String stateField = "headcountByState." + encode(state);
+            summaries.updateOne(eq("_id", department), Updates.combine(Updates.inc("headcount", -1), Updates.inc(stateField, -1),
+                    Updates.currentDate("touchedAt")));
+            summaries.updateOne(and(eq("_id", department), lte(stateField, 0)), Updates.unset(stateField));
+        }
+        if (summaries.deleteOne(and(eq("_id", department), lte("headcount", 0))).getDeletedCount() > 0
+                || employee.getCreatedAt() == null) {
+            return;
+        }
+
+        Date hiredAt = toDate(employee.getCreatedAt());
+        if (summaries.find(and(eq("_id", department), lte("mostRecentHire", hiredAt))).first() != null) {
+            Document latest = employees().find(eq("departmentId", department))
+                    .sort(descending("createdAt"))
+                    .projection(include("createdAt"))
+                    .first();
+            summaries.updateOne(eq("_id", department), latest == null || latest.getDate("createdAt") == null
+                    ? Updates.unset("mostRecentHire")
+                    : Updates.set("mostRecentHire", latest.getDate("createdAt")));
+        }
+    }
+
+    @Override
+    public void rebuild() {
+        Date startedAt = serverTime();
+        Document encodedState = new Document("$replaceAll", new Document("input",
+                new Document("$replaceAll", new Document("input", "$$this.k").append("find", ".").append("replacement", "\uFF0E")))
+                .append("find", new Document("$literal", "$")).append("replacement", "\uFF04"));
+        List<Bson> pipeline = Arrays.asList(
+                new Document("$match", new Document("departmentId", new Document("$type", "number"))),
+                new Document("$group", new Document("_id", new Document("department", "$departmentId").append("state", "$address.state"))
+                        .append("headcount", new Document("$sum", 1))
+                        .append("mostRecentHire", new Document("$max", "$createdAt"))),
+                new Document("$group", new Document("_id", "$_id.department")
+                        .append("headcount", new Document("$sum", "$headcount"))
+                        .append("mostRecentHire", new Document("$max", "$mostRecentHire"))
+                        .append("headcountByState", new Document("$push", new Document("k", "$_id.state").append("v", "$headcount")))),
+                new Document("$project", new Document("headcount", 1)
+                        .append("mostRecentHire", 1)
+                        .append("rebuiltAt", new Document("$literal", startedAt))
+                        .append("headcountByState", new Document("$arrayToObject", new Document("$map", new Document("input",
+                                new Document("$filter", new Document("input", "$headcountByState")
+                                        .append("cond", new Document("$eq", Arrays.asList(new Document("$type", "$$this.k"), "string")))))
+                                .append("in", new Document("k", encodedState).append("v", "$$this.v")))))),
+                new Document("$merge", new Document("into", COLLECTION)
+                        .append("on", "_id")
+                        .append("whenMatched", Collections.singletonList(new Document("$replaceWith", new Document("$cond", Arrays.asList(
+                                new Document("$gte", Arrays.asList("$touchedAt", startedAt)),
+                                new Document("$mergeObjects", Arrays.asList("$$ROOT", new Document("rebuiltAt", "$$new.rebuiltAt"))),
+                                "$$new")))))
+                        .append("whenNotMatched", "insert")));
+
+        employees().aggregate(pipeline).allowDiskUse(true).toCollection();
+        summaries().deleteMany(and(not(gte("rebuiltAt", startedAt)), not(gte("touchedAt", startedAt))));
+    }
+
+
+    /**
+     * The clock of the server, which {@code touchedAt} is stamped with too.
+     */
+    private Date serverTime() {
+        return mongoTemplate.getDb().runCommand(new Document("isMaster", 1)).getDate("localTime");
+    }
+
+    private MongoCollection<Document> summaries() {
+        return mongoTemplate.getCollection(COLLECTION);
+    }
+
+    private MongoCollection<Document> employees() {
+        return mongoTemplate.getCollection(mongoTemplate.getCollectionName(Employee.class));
+    }
+
+    private static DepartmentSummary read(Document document) {
+        Map<String, Long> headcountByState = new TreeMap<>();
+        Document states = document.get("headcountByState", Document.class);
+        if (states != null) {
+            states.forEach((state, headcount) -> headcountByState.put(decode(state), ((Number) headcount).longValue()));
+        }
+        Date mostRecentHire = document.getDate("mostRecentHire");
+        return DepartmentSummary.builder()
+                .departmentId(((Number) document.get("_id")).intValue())
+                .headcount(((Number) document.get("headcount", 0)).longValue())
+                .headcountByState(headcountByState)
+                .mostRecentHire(mostRecentHire == null ? null : LocalDateTime.ofInstant(mostRecentHire.toInstant(), ZoneId.systemDefault()))
+                .build();
+    }
+
+    private static String stateOf(Employee employee) {
+        return employee.getAddress() == null ? null : employee.getAddress().getState();
+    }
+
+    private static Date toDate(LocalDateTime dateTime) {
+        return Date.from(dateTime.atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    static String encode(String state) {
+        return state.replace('.', '\uFF0E').replace('$', '\uFF04');
+    }
+
+    static String decode(String field) {
+        return field.replace('\uFF0E', '.').replace('\uFF04', '$');
+    }
+
+
+    /**
+     * What a batch of new employees adds to the summary of one department.
+     */
+    private static final class Increment {
+
+        private long headcount;
+        private final Map<String, Long> headcountByState = new HashMap<>();
+        private LocalDateTime mostRecentHire;
+
+        private void add(Employee employee) {
+            headcount++;
+            String state = stateOf(employee);
+            if (state != null) {
+                headcountByState.merge(state, 1L, Long::sum);
+            }
+            if (employee.getCreatedAt() != null && (mostRecentHire == null || employee.getCreatedAt().isAfter(mostRecentHire))) {
+                mostRecentHire = employee.getCreatedAt();
+            }
+        }
+
+        private Bson toUpdate() {
+            List<Bson> updates = new ArrayList<>();
+            updates.add(Updates.inc("headcount", headcount));
+            updates.add(Updates.currentDate("touchedAt"));
+            headcountByState.forEach((state, count) -> updates.add(Updates.inc("headcountByState." + encode(state), count)));
+            if (mostRecentHire != null) {
+                updates.add(Updates.max("mostRecentHire", toDate(mostRecentHire)));
+            }
+            return Updates.combine(updates);
+        }
+    }
+}
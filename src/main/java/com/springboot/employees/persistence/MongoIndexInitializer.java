@@ -0,0 +1,59 @@
+package com.springboot.employees.persistence;
+
+import com.mongodb.MongoException;
+import com.springboot.employees.domain.Department;
+import com.springboot.employees.domain.Employee;
+import com.springboot.employees.domain.EmployeeTombstone;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Creates the indexes declared on the documents once the application is up, since Spring Data no longer
+ * does so by default. Runs in the background and only logs failures, so an unreachable or read-only
+ * database does not stop the service from starting; existing indexes are left as they are.
+ */
+@Component
+@Profile("!in-memory & !embedded")
+@ConditionalOnProperty(name = "employees.indexes.create-on-startup", havingValue = "true")
+@Slf4j
+public class MongoIndexInitializer {
+
+    private static final List<Class<?>> INDEXED_TYPES = Arrays.asList(Employee.class, EmployeeTombstone.class, Department.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MongoMappingContext mappingContext;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createIndexes() {
+        CompletableFuture.runAsync(() -> INDEXED_TYPES.forEach(this::createIndexes));
+    }
+
+    private void createIndexes(Class<?> type) {
+        IndexOperations indexOperations = mongoTemplate.indexOps(type);
+        IndexResolver resolver = new MongoPersistentEntityIndexResolver(mappingContext);
+        try {
+            resolver.resolveIndexFor(type).forEach(indexOperations::ensureIndex);
+            log.info("Ensured the indexes of {}.", type.getSimpleName());
+        } catch (DataAccessException | MongoException e) {
+            log.warn("Could not create the indexes of {}: {}", type.getSimpleName(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.springboot.employees.profiler;
+
+import com.mongodb.MongoException;
+import com.springboot.employees.domain.ProfilerReport;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Slow-operation profiler meant to stay on in production, switched on with {@code employees.profiler.enabled}.
+ * Requests slower than {@code employees.profiler.slow-request-ms} and MongoDB commands slower than
+ * {@code employees.profiler.slow-command-ms} go to fixed-size lock-free rings, and every repository method
+ * keeps call counts and times in striped counters. Fast operations cost a couple of atomic updates.
+ *
+ * With {@code employees.profiler.explain-slow-commands} slow reads are explained in the background, at most
+ * one every {@code employees.profiler.explain-interval-ms}, to learn how many documents they examined; the
+ * server does not report that with the results.
+ */
+@Component
+@ConditionalOnProperty(name = "employees.profiler.enabled", havingValue = "true")
+@Slf4j
+public class OperationProfiler {
+
+    private static final ThreadLocal<RequestCommands> REQUEST_COMMANDS = new ThreadLocal<>();
+
+    private final long slowRequestNanos;
+    private final long slowCommandNanos;
+    private final boolean explainSlowCommands;
+    private final long explainIntervalMillis;
+    private final ObjectProvider<MongoTemplate> mongoTemplate;
+
+    private final SlowOperationRing<ProfilerReport.SlowRequest> slowRequests;
+    private final SlowOperationRing<ProfilerReport.SlowCommand> slowCommands;
+    private final Map<String, MethodStats> methods = new ConcurrentHashMap<>();
+    private final AtomicLong nextExplainAt = new AtomicLong();
+    private final ThreadPoolExecutor explainer;
+
+    public OperationProfiler(@Value("${employees.profiler.slow-request-ms}") long slowRequestMillis,
+                             @Value("${employees.profiler.slow-command-ms}") long slowCommandMillis,
+                             @Value("${employees.profiler.ring-size}") int ringSize,
+                             @Value("${employees.profiler.explain-slow-commands}") boolean explainSlowCommands,
+                             @Value("${employees.profiler.explain-interval-ms}") long explainIntervalMillis,
+                             ObjectProvider<MongoTemplate> mongoTemplate) {
+        this.slowRequestNanos = TimeUnit.MILLISECONDS.toNanos(slowRequestMillis);
+        this.slowCommandNanos = TimeUnit.MILLISECONDS.toNanos(slowCommandMillis);
+        this.explainSlowCommands = explainSlowCommands;
+        this.explainIntervalMillis = explainIntervalMillis;
+        this.mongoTemplate = mongoTemplate;
+        this.slowRequests = new SlowOperationRing<>(ringSize);
+        this.slowCommands = new SlowOperationRing<>(ringSize);
+        this.explainer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(4), runnable -> {
+            Thread thread = new Thread(runnable, "profiler-explain");
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    @PreDestroy
+    public void close() {
+        explainer.shutdownNow();
+    }
+
+    public ProfilerReport report(int topMethods) {
+        List<ProfilerReport.MethodProfile> profiles = methods.entrySet().stream()
+                .map(method -> method.getValue().toProfile(method.getKey()))
+                .sorted(Comparator.comparingDouble(ProfilerReport.MethodProfile::getTotalMillis).reversed())
+                .limit(topMethods)
+                .collect(Collectors.toList());
+
+        return ProfilerReport.builder()
+                .slowRequestThresholdMillis(TimeUnit.NANOSECONDS.toMillis(slowRequestNanos))
+                .slowCommandThresholdMillis(TimeUnit.NANOSECONDS.toMillis(slowCommandNanos))
+                .slowRequests(slowRequests.snapshot(Comparator.comparingDouble(ProfilerReport.SlowRequest::getDurationMillis).reversed()))
+                .slowCommands(slowCommands.snapshot(Comparator.comparingDouble(ProfilerReport.SlowCommand::getDurationMillis).reversed()))
+                .repositoryMethods(profiles)
+                .build();
+    }
+
+    public void reset() {
+        slowRequests.clear();
+        slowCommands.clear();
+        methods.clear();
+    }
+
+
+    void startRequest() {
+        REQUEST_COMMANDS.set(new RequestCommands());
+    }
+
+    void finishRequest(String method, String route, int status, long nanos) {
+        RequestCommands commands = REQUEST_COMMANDS.get();
+        REQUEST_COMMANDS.remove();
+        if (nanos < slowRequestNanos) {
+            return;
+        }
+        slowRequests.add(ProfilerReport.SlowRequest.builder()
+                .at(System.currentTimeMillis())
+                .method(method)
+                .route(route)
+                .status(status)
+                .durationMillis(toMillis(nanos))
+                .mongoCommands(commands == null ? 0 : commands.count)
+                .mongoMillis(commands == null ? 0 : toMillis(commands.nanos))
+                .build());
+    }
+
+    boolean isSlowCommand(long nanos) {
+        return nanos >= slowCommandNanos;
+    }
+
+    boolean isExplaining() {
+        return explainSlowCommands;
+    }
+
+    /**
+     * Counts a finished command towards the request running on this thread, if any.
+     */
+    void commandFinished(long nanos) {
+        RequestCommands commands = REQUEST_COMMANDS.get();
+        if (commands != null) {
+            commands.count++;
+            commands.nanos += nanos;
+        }
+    }
+
+    /**
+     * Keeps a slow command, explaining it in the background when it is a read and an explain is due.
+     */
+    void recordSlowCommand(ProfilerReport.SlowCommand command, String databaseName, BsonDocument explainable) {
+        slowCommands.add(command);
+        if (explainable == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long due = nextExplainAt.get();
+        if (now >= due && nextExplainAt.compareAndSet(due, now + explainIntervalMillis)) {
+            explainer.execute(() -> explain(command, databaseName, explainable));
+        }
+    }
+
+    void recordMethod(String method, long nanos, boolean failed) {
+        methods.computeIfAbsent(method, name -> new MethodStats()).record(nanos, failed);
+    }
+
+
+    private void explain(ProfilerReport.SlowCommand command, String databaseName, BsonDocument explainable) {
+        MongoTemplate template = mongoTemplate.getIfAvailable();
+        if (template == null || !template.getDb().getName().equals(databaseName)) {
+            return;
+        }
+        try {
+            Document explained = template.getDb().runCommand(new Document("explain", explainable).append("verbosity", "executionStats"));
+            Document stats = findExecutionStats(explained);
+            if (stats != null) {
+                command.setDocsExamined(asLong(stats.get("totalDocsExamined")));
+                command.setKeysExamined(asLong(stats.get("totalKeysExamined")));
+            }
+        } catch (MongoException e) {
+            log.debug("Could not explain a slow {} command: {}", command.getCommand(), e.getMessage());
+        }
+    }
+
+    /**
+     * The first executionStats in the explain output; aggregations nest it in their first stage.
+     */
+    private static Document findExecutionStats(Object value) {
+        if (value instanceof Document) {
+            Document document = (Document) value;
+            Object stats = document.get("executionStats");
+            if (stats instanceof Document) {
+                return (Document) stats;
+            }
+            for (Object nested : document.values()) {
+                Document found = findExecutionStats(nested);
+                if (found != null) {
+                    return found;
+                }
+            }
+        } else if (value instanceof List) {
+            for (Object nested : (List<?>) value) {
+                Document found = findExecutionStats(nested);
+                if (found != null) {
+                    return found;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Long asLong(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : null;
+    }
+
+    static double toMillis(long nanos) {
+        return Math.round(nanos / 1e3) / 1e3;
+    }
+
+
+    /**
+     * Commands run on behalf of one request; only touched by the thread handling it.
+     */
+    private static final class RequestCommands {
+        private int count;
+        private long nanos;
+    }
+
+    private static final class MethodStats {
+
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private void record(long nanos, boolean failed) {
+            calls.increment();
+            totalNanos.add(nanos);
+            if (failed) {
+                errors.increment();
+            }
+            long max = maxNanos.get();
+            while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+                max = maxNanos.get();
+            }
+        }
+
+        private ProfilerReport.MethodProfile toProfile(String method) {
+            long count = calls.sum();
+            long total = totalNanos.sum();
+            return ProfilerReport.MethodProfile.builder()
+                    .method(method)
+                    .calls(count)
+                    .errors(errors.sum())
+                    .totalMillis(toMillis(total))
+                    .meanMillis(count == 0 ? 0 : toMillis(total / count))
+                    .maxMillis(toMillis(maxNanos.get()))
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.springboot.employees.profiler;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Times every {@code EmployeeRepository} call for the per-method aggregates of the {@link OperationProfiler}.
+ */
+@Aspect
+@Component
+@ConditionalOnProperty(name = "employees.profiler.enabled", havingValue = "true")
+public class ProfilerAspect {
+
+    private final OperationProfiler profiler;
+
+    public ProfilerAspect(OperationProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    @Around("execution(* com.springboot.employees.persistence.EmployeeRepository+.*(..))")
+    public Object profileRepository(ProceedingJoinPoint call) throws Throwable {
+        long started = System.nanoTime();
+        boolean failed = true;
+        try {
+            Object result = call.proceed();
+            failed = false;
+            return result;
+        } finally {
+            profiler.recordMethod(call.getSignature().getName(), System.nanoTime() - started, failed);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.springboot.employees.profiler;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import com.springboot.employees.domain.ProfilerReport;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Feeds MongoDB commands to the {@link OperationProfiler}. The driver only lends the command document for
+ * the duration of the started event, so its redacted shape is taken then; reads are also copied when slow
+ * commands are explained. Everything is dropped again when the command turns out to be fast.
+ */
+public class ProfilerCommandListener implements CommandListener {
+
+    private static final Set<String> EXPLAINABLE = new HashSet<>(Arrays.asList("find", "aggregate", "count", "distinct"));
+
+    private final OperationProfiler profiler;
+    private final Map<Integer, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    public ProfilerCommandListener(OperationProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        String name = event.getCommandName();
+        BsonDocument command = event.getCommand();
+        StringBuilder shape = new StringBuilder(128);
+        Map<String, String> parameters = new LinkedHashMap<>();
+        QueryShapes.describe(name, command, shape, parameters);
+
+        BsonValue collection = command.get(name);
+        BsonDocument explainable = null;
+        if (profiler.isExplaining() && EXPLAINABLE.contains(name)) {
+            explainable = command.clone();
+            for (String bookkeeping : new String[] {"$db", "lsid", "$clusterTime", "$readPreference", "txnNumber"}) {
+                explainable.remove(bookkeeping);
+            }
+        }
+        inFlight.put(event.getRequestId(), new InFlight(name, event.getDatabaseName(),
+                collection != null && collection.isString() ? collection.asString().getValue() : null,
+                shape.toString(), parameters, explainable));
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        InFlight started = inFlight.remove(event.getRequestId());
+        long nanos = event.getElapsedTime(TimeUnit.NANOSECONDS);
+        profiler.commandFinished(nanos);
+        if (started != null && profiler.isSlowCommand(nanos)) {
+            ProfilerReport.SlowCommand command = started.toSlowCommand(nanos);
+            command.setDocsReturned(docsReturned(event.getResponse()));
+            profiler.recordSlowCommand(command, started.databaseName, started.explainable);
+        }
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        InFlight started = inFlight.remove(event.getRequestId());
+        long nanos = event.getElapsedTime(TimeUnit.NANOSECONDS);
+        profiler.commandFinished(nanos);
+        if (started != null && profiler.isSlowCommand(nanos)) {
+            ProfilerReport.SlowCommand command = started.toSlowCommand(nanos);
+            command.setFailure(event.getThrowable().getClass().getSimpleName());
+            profiler.recordSlowCommand(command, started.databaseName, null);
+        }
+    }
+
+
+    private static Long docsReturned(BsonDocument response) {
+        if (response == null) {
+            return null;
+        }
+        BsonValue cursor = response.get("cursor");
+        if (cursor != null && cursor.isDocument()) {
+            BsonValue batch = cursor.asDocument().containsKey("firstBatch")
+                    ? cursor.asDocument().get("firstBatch") : cursor.asDocument().get("nextBatch");
+            return batch != null && batch.isArray() ? (long) batch.asArray().size() : null;
+        }
+        BsonValue n = response.get("n");
+        return n != null && n.isNumber() ? n.asNumber().longValue() : null;
+    }
+
+
+    private static final class InFlight {
+
+        private final String commandName;
+        private final String databaseName;
+        private final String collection;
+        private final String shape;
+        private final Map<String, String> parameters;
+        private final BsonDocument explainable;
+        private final long startedAt = System.currentTimeMillis();
+
+        private InFlight(String commandName, String databaseName, String collection, String shape,
+                         Map<String, String> parameters, BsonDocument explainable) {
+            this.commandName = commandName;
+            this.databaseName = databaseName;
+            this.collection = collection;
+            this.shape = shape;
+            this.parameters = parameters;
+            this.explainable = explainable;
+        }
+
+        private ProfilerReport.SlowCommand toSlowCommand(long nanos) {
+            return ProfilerReport.SlowCommand.builder()
+                    .at(startedAt)
+                    .command(commandName)
+                    .collection(collection)
+                    .shape(shape)
+                    .parameters(parameters)
+                    .durationMillis(OperationProfiler.toMillis(nanos))
+                    .build();
+        }
+    }
+}
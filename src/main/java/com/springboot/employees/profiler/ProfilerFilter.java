@@ -0,0 +1,44 @@
+package com.springboot.employees.profiler;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Times every request for the slow-request ring of the {@link OperationProfiler}, together with the MongoDB
+ * commands it ran.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+@ConditionalOnProperty(name = "employees.profiler.enabled", havingValue = "true")
+public class ProfilerFilter extends OncePerRequestFilter {
+
+    private final OperationProfiler profiler;
+
+    public ProfilerFilter(OperationProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long started = System.nanoTime();
+        profiler.startRequest();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            Object route = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            profiler.finishRequest(request.getMethod(), route != null ? route.toString() : request.getRequestURI(),
+                    response.getStatus(), System.nanoTime() - started);
+        }
+    }
+}
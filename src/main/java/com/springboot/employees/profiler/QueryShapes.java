@@ -0,0 +1,140 @@
+package com.springboot.employees.profiler;
+
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Turns MongoDB commands into shapes safe to show operators: field names, operators and field paths are
+ * kept, every literal becomes {@code ?}, and the redacted values are only described by their BSON type.
+ * Inserted documents and session or cluster bookkeeping are left out altogether.
+ *
+ * Strings starting with {@code $} are field paths or variables only in aggregation expressions: pipelines,
+ * update pipelines and {@code $expr}. Anywhere else, in a query filter or a {@code $match} stage for example,
+ * they are literals like any other and get redacted.
+ */
+final class QueryShapes {
+
+    private static final String REDACTED = "\"?\"";
+
+    private static final Set<String> OMITTED = new HashSet<>(Arrays.asList(
+            "$db", "lsid", "$clusterTime", "txnNumber", "$readPreference", "readConcern", "writeConcern",
+            "autocommit", "startTransaction", "cursor", "ordered", "bypassDocumentValidation", "allowDiskUse"));
+
+    private QueryShapes() {
+    }
+
+    /**
+     * Writes the shape of the command to {@code shape} and the type of every redacted value, by path, to
+     * {@code parameters}.
+     */
+    static void describe(String commandName, BsonDocument command, StringBuilder shape, Map<String, String> parameters) {
+        shape.append('{');
+        boolean first = true;
+        for (Map.Entry<String, BsonValue> field : command.entrySet()) {
+            String key = field.getKey();
+            if (OMITTED.contains(key)) {
+                continue;
+            }
+            if (!first) {
+                shape.append(", ");
+            }
+            first = false;
+            shape.append('"').append(key).append("\": ");
+            if (key.equals(commandName) || key.equals("collection")) {
+                shape.append(field.getValue().isString() ? '"' + field.getValue().asString().getValue() + '"' : REDACTED);
+            } else if (key.equals("documents") && field.getValue().isArray()) {
+                shape.append(field.getValue().asArray().size()).append(" documents");
+            } else if ((key.equals("updates") || key.equals("deletes")) && field.getValue().isArray()) {
+                describeStatements(field.getValue().asArray(), key, shape, parameters);
+            } else {
+                boolean expression = key.equals("pipeline") || (key.equals("update") && field.getValue().isArray());
+                redact(field.getValue(), key, expression, shape, parameters);
+            }
+        }
+        shape.append('}');
+    }
+
+
+    /**
+     * Update and delete statements are shaped by their first statement and counted.
+     */
+    private static void describeStatements(BsonArray statements, String path, StringBuilder shape, Map<String, String> parameters) {
+        shape.append('[');
+        if (!statements.isEmpty()) {
+            redact(statements.get(0), path, false, shape, parameters);
+            if (statements.size() > 1) {
+                shape.append(", ... ").append(statements.size()).append(" statements");
+            }
+        }
+        shape.append(']');
+    }
+
+    private static void redact(BsonValue value, String path, boolean expression, StringBuilder shape, Map<String, String> parameters) {
+        if (value.isDocument()) {
+            shape.append('{');
+            boolean first = true;
+            for (Map.Entry<String, BsonValue> field : value.asDocument().entrySet()) {
+                if (!first) {
+                    shape.append(", ");
+                }
+                first = false;
+                shape.append('"').append(field.getKey()).append("\": ");
+                redact(field.getValue(), path + '.' + field.getKey(), isExpression(path, field, expression), shape, parameters);
+            }
+            shape.append('}');
+        } else if (value.isArray() && (expression || containsDocuments(value.asArray()))) {
+            // The operands of an expression are kept apart, since some of them may be field paths.
+            shape.append('[');
+            BsonArray array = value.asArray();
+            for (int i = 0; i < array.size(); i++) {
+                if (i > 0) {
+                    shape.append(", ");
+                }
+                redact(array.get(i), path + '.' + i, expression, shape, parameters);
+            }
+            shape.append(']');
+        } else if (expression && value.isString() && value.asString().getValue().startsWith("$")) {
+            // A field path or variable, part of the shape rather than a parameter.
+            shape.append('"').append(value.asString().getValue()).append('"');
+        } else {
+            shape.append(REDACTED);
+            parameters.put(path, value.isArray()
+                    ? "array(" + value.asArray().size() + ")"
+                    : value.getBsonType().name().toLowerCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * Whether the value of the field is an aggregation expression, given whether the document holding it is.
+     */
+    private static boolean isExpression(String path, Map.Entry<String, BsonValue> field, boolean expression) {
+        switch (field.getKey()) {
+            case "$expr":
+                return true;
+            case "$match":
+            case "$literal":
+                return false;
+            case "u":
+                // The update of an update statement, given as a pipeline rather than as update operators.
+                return path.equals("updates") ? field.getValue().isArray() : expression;
+            default:
+                return expression;
+        }
+    }
+
+    private static boolean containsDocuments(BsonArray array) {
+        for (BsonValue element : array) {
+            if (element.isDocument()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,44 @@
+package com.springboot.employees.profiler;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed-size ring of the most recent slow operations. Writers claim a slot with one atomic increment and
+ * overwrite whatever was there, so recording never blocks or allocates beyond the entry itself; readers get
+ * a best-effort snapshot.
+ */
+final class SlowOperationRing<T> {
+
+    private final AtomicReferenceArray<T> slots;
+    private final AtomicLong next = new AtomicLong();
+
+    SlowOperationRing(int capacity) {
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    void add(T entry) {
+        slots.set((int) (next.getAndIncrement() % slots.length()), entry);
+    }
+
+    List<T> snapshot(Comparator<? super T> order) {
+        List<T> entries = new ArrayList<>(slots.length());
+        for (int i = 0; i < slots.length(); i++) {
+            T entry = slots.get(i);
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+        entries.sort(order);
+        return entries;
+    }
+
+    void clear() {
+        for (int i = 0; i < slots.length(); i++) {
+            slots.set(i, null);
+        }
+    }
+}
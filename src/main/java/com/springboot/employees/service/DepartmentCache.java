@@ -0,0 +1,116 @@
+package com.springboot.employees.service;
+
+import com.mongodb.MongoException;
+import com.springboot.employees.domain.Department;
+import com.springboot.employees.persistence.DepartmentRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Every department, held on the heap so employees get their department filled in while they are written as
+ * JSON, without a query. There are few departments: all of them are loaded, and loaded again every
+ * {@code employees.departments.refresh-interval-ms} to pick up changes made by other instances, while changes
+ * made here are seen at once.
+ *
+ * Every change bumps the version, which tells output rendered before it apart. Departments are shared
+ * between requests, so callers must not mutate them.
+ */
+@Component
+@Slf4j
+public class DepartmentCache {
+
+    private final DepartmentRepository repo;
+    private final AtomicLong version = new AtomicLong();
+    private volatile Snapshot snapshot = new Snapshot(Collections.<Department>emptyList());
+    private volatile boolean loaded;
+
+    public DepartmentCache(DepartmentRepository repo, MeterRegistry meterRegistry) {
+        this.repo = repo;
+        meterRegistry.gauge("employees.departments.cached", this, cache -> cache.snapshot.byId.size());
+    }
+
+    public Optional<Department> get(Integer departmentId) {
+        return departmentId == null ? Optional.empty() : Optional.ofNullable(snapshot.byId.get(departmentId));
+    }
+
+    public Optional<Department> getByName(String name) {
+        return Optional.ofNullable(snapshot.byName.get(name));
+    }
+
+    /**
+     * All departments in id order.
+     */
+    public List<Department> getAll() {
+        return new ArrayList<>(snapshot.byId.values());
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * Adds a department that was just written, or replaces the one with its id.
+     */
+    public synchronized void put(Department department) {
+        List<Department> departments = new ArrayList<>(snapshot.byId.values());
+        departments.removeIf(cached -> cached.getDepartmentId() == department.getDepartmentId());
+        departments.add(department);
+        snapshot = new Snapshot(departments);
+        version.incrementAndGet();
+    }
+
+    @Scheduled(fixedDelayString = "${employees.departments.refresh-interval-ms}")
+    public void refresh() {
+        long readAt = version.get();
+        try {
+            install(repo.findAll(), readAt);
+        } catch (DataAccessException | MongoException e) {
+            log.warn("Could not load the departments: {}", e.getMessage());
+        }
+    }
+
+
+    private synchronized void install(Collection<Department> departments, long readAt) {
+        // A department put while they were read is newer than what was read; the next refresh brings both.
+        if (version.get() != readAt) {
+            return;
+        }
+        Snapshot loadedSnapshot = new Snapshot(departments);
+        if (!loadedSnapshot.byId.equals(snapshot.byId)) {
+            snapshot = loadedSnapshot;
+            version.incrementAndGet();
+        }
+        loaded = true;
+    }
+
+
+    private static final class Snapshot {
+
+        private final Map<Integer, Department> byId = new TreeMap<>();
+        private final Map<String, Department> byName = new HashMap<>();
+
+        private Snapshot(Collection<Department> departments) {
+            for (Department department : departments) {
+                byId.put(department.getDepartmentId(), department);
+                byName.put(department.getName(), department);
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.springboot.employees.service;
+
+import com.springboot.employees.domain.Department;
+import com.springboot.employees.domain.Employee;
+import com.springboot.employees.exceptions.BadRequestException;
+import com.springboot.employees.exceptions.DuplicateItemException;
+import com.springboot.employees.persistence.DepartmentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Serves the departments from the {@link DepartmentCache} and writes them through to the repository. A
+ * department changes in one place, so renaming it rewrites no employee.
+ */
+@Service
+@Slf4j
+public class DepartmentService {
+
+    private static final String NAME_IN_USE = "Another department already has this name!";
+
+    private final DepartmentRepository repo;
+    private final DepartmentCache cache;
+
+    public DepartmentService(DepartmentRepository repo, DepartmentCache cache) {
+        this.repo = repo;
+        this.cache = cache;
+    }
+
+    public List<Department> retrieveDepartments() {
+        log.info("Inside retrieveDepartments method of Department service...");
+
+        ensureLoaded();
+        return cache.getAll();
+    }
+
+    public Optional<Department> retrieveDepartmentById(int departmentId) {
+        log.info("Inside retrieveDepartmentById method of Department service...");
+        log.info("Department id to be retrieved : "+departmentId);
+
+        return find(departmentId);
+    }
+
+    /**
+     * Creates the department with the id, or replaces it; the employees referencing it show the new version
+     * from then on.
+     */
+    public Department saveDepartment(int departmentId, Department department) {
+        log.info("Inside saveDepartment method of Department service...");
+        log.info("Department to be saved : "+department);
+
+        Department saved = department.toBuilder().departmentId(departmentId).build();
+        List<String> violations = EmployeeValidator.validate(saved);
+        if (!violations.isEmpty()) {
+            throw new BadRequestException(String.join(" ", violations));
+        }
+        ensureLoaded();
+        Optional<Department> named = cache.getByName(saved.getName());
+        if (named.isPresent() && named.get().getDepartmentId() != departmentId) {
+            throw new DuplicateItemException(NAME_IN_USE);
+        }
+        try {
+            repo.save(saved);
+        } catch (DuplicateKeyException ex) {
+            throw new DuplicateItemException(NAME_IN_USE);
+        }
+        cache.put(saved);
+        return saved;
+    }
+
+
+    Optional<Department> find(int departmentId) {
+        Optional<Department> cached = cache.get(departmentId);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        Optional<Department> stored = repo.findById(departmentId);
+        stored.ifPresent(cache::put);
+        return stored;
+    }
+
+    Optional<Department> findByName(String name) {
+        ensureLoaded();
+        return cache.getByName(name);
+    }
+
+    /**
+     * Makes sure the department the employee references exists. A department sent along with the employee is
+     * created when its id is unknown; for a known id it is ignored, departments being changed on their own.
+     */
+    void checkDepartment(Employee employee) {
+        if (employee.getDepartmentId() == null || find(employee.getDepartmentId()).isPresent()) {
+            return;
+        }
+        Department given = employee.getDepartment();
+        if (given == null || given.getName() == null) {
+            throw new BadRequestException("The department with id : "+employee.getDepartmentId()+" doesn't exist!");
+        }
+        saveDepartment(employee.getDepartmentId(), given);
+    }
+
+
+    private void ensureLoaded() {
+        if (!cache.isLoaded()) {
+            cache.refresh();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.springboot.employees.service;
+
+import com.mongodb.MongoException;
+import com.springboot.employees.domain.Department;
+import com.springboot.employees.domain.DepartmentSummary;
+import com.springboot.employees.domain.Employee;
+import com.springboot.employees.persistence.DepartmentSummaryRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Serves the department summaries and keeps them in step with the employee writes. A summary that fails to
+ * update does not fail the write: the failure is counted in {@code employees.department-summaries.failures}
+ * and repaired by the next full rebuild, which runs every
+ * {@code employees.department-summaries.rebuild-interval-ms}. Summaries are stored by department id and get
+ * the current name of their department here.
+ */
+@Service
+@Slf4j
+public class DepartmentSummaryService {
+
+    private final DepartmentSummaryRepository repo;
+    private final DepartmentService departments;
+    private final Counter failures;
+
+    public DepartmentSummaryService(DepartmentSummaryRepository repo, DepartmentService departments, MeterRegistry meterRegistry) {
+        this.repo = repo;
+        this.departments = departments;
+        this.failures = Counter.builder("employees.department-summaries.failures").register(meterRegistry);
+    }
+
+    public Optional<DepartmentSummary> retrieveSummary(String departmentName) {
+        log.info("Inside retrieveSummary method of DepartmentSummary service...");
+        log.info("Department summary to be retrieved : "+departmentName);
+
+        return departments.findByName(departmentName)
+                .flatMap(department -> repo.findByDepartmentId(department.getDepartmentId()).map(summary -> named(summary, department)));
+    }
+
+    public List<DepartmentSummary> retrieveSummaries() {
+        log.info("Inside retrieveSummaries method of DepartmentSummary service...");
+
+        return repo.findAll().stream()
+                .map(summary -> departments.find(summary.getDepartmentId()).map(department -> named(summary, department)))
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .sorted(Comparator.comparing(DepartmentSummary::getName))
+                .collect(Collectors.toList());
+    }
+
+    void hired(Collection<Employee> employees) {
+        if (!employees.isEmpty()) {
+            apply(() -> repo.addAll(employees));
+        }
+    }
+
+    void left(Employee employee) {
+        apply(() -> repo.remove(employee));
+    }
+
+    /**
+     * Moves an updated employee between summaries when its department or state changed.
+     */
+    void changed(Employee before, Employee after) {
+        if (!Objects.equals(before.getDepartmentId(), after.getDepartmentId()) || !Objects.equals(stateOf(before), stateOf(after))) {
+            apply(() -> {
+                repo.remove(before);
+                repo.addAll(Collections.singletonList(after));
+            });
+        }
+    }
+
+    @Scheduled(initialDelayString = "${employees.department-summaries.rebuild-initial-delay-ms}",
+            fixedDelayString = "${employees.department-summaries.rebuild-interval-ms}")
+    public void rebuildSummaries() {
+        long started = System.currentTimeMillis();
+        try {
+            repo.rebuild();
+            log.info("Rebuilt the department summaries in {} ms.", System.currentTimeMillis() - started);
+        } catch (DataAccessException | MongoException e) {
+            log.warn("Could not rebuild the department summaries: {}", e.getMessage());
+        }
+    }
+
+
+    private void apply(Runnable update) {
+        try {
+            update.run();
+        } catch (DataAccessException | MongoException e) {
+            failures.increment();
+            log.warn("Could not update the department summaries: {}", e.getMessage());
+        }
+    }
+
+    private static DepartmentSummary named(DepartmentSummary summary, Department department) {
+        return summary.toBuilder().name(department.getName()).build();
+    }
+
+    private static String stateOf(Employee employee) {
+        return employee.getAddress() == null ? null : employee.getAddress().getState();
+    }
+}
@@ -0,0 +1,185 @@
+package com.springboot.employees.service;
+
+import com.springboot.employees.domain.Employee;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-JVM cache of employees by id, switched on with {@code employees.cache.enabled}.
+ *
+ * Reads are lock-free; entries expire after {@code employees.cache.ttl-ms}, or the TTL set by
+ * {@link EmployeeInvalidationBus} while it keeps the instances coherent, and once
+ * {@code employees.cache.max-size} is exceeded the oldest of a small sample of entries is dropped on every
+ * insert. Pinned ids, the hot keys chosen by {@code HotEmployeePinner}, are passed over by that eviction.
+ * Cached instances are shared between requests, so callers must not mutate them.
+ *
+ * A read can finish after a write evicted the employee it read, so employees read from the repository are
+ * only cached when no eviction of their id happened since the read began: callers take an
+ * {@link #invalidationStamp} before the read and hand it to {@link #putIfNotInvalidatedSince}. Evictions are
+ * counted in a fixed number of stripes, so an eviction of another id may occasionally skip a put as well.
+ */
+@Component
+public class EmployeeCache {
+
+    private final boolean enabled;
+    private final int maxSize;
+    private volatile long ttlMillis;
+
+    private static final int STRIPES = 1024;
+
+    private final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLongArray evictions = new AtomicLongArray(STRIPES);
+    private final AtomicLong clears = new AtomicLong();
+    private volatile Set<UUID> pinned = Collections.emptySet();
+
+    public EmployeeCache(@Value("${employees.cache.enabled}") boolean enabled,
+                         @Value("${employees.cache.max-size}") int maxSize,
+                         @Value("${employees.cache.ttl-ms}") long ttlMillis) {
+        this.enabled = enabled;
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Changes how long employees cached from now on are kept; entries already cached keep their expiry.
+     */
+    public void setTtlMillis(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    public Optional<Employee> get(UUID id) {
+        if (!enabled || id == null) {
+            return Optional.empty();
+        }
+        Entry entry = entries.get(id);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        if (entry.expiresAt < System.currentTimeMillis()) {
+            entries.remove(id, entry);
+            return Optional.empty();
+        }
+        return Optional.of(entry.employee);
+    }
+
+    /**
+     * To be taken before the employee is read from the repository and handed to
+     * {@link #putIfNotInvalidatedSince}; it moves with every eviction of the id and every clear.
+     */
+    public long invalidationStamp(UUID id) {
+        return clears.get() + evictions.get(stripe(id));
+    }
+
+    /**
+     * Caches the employee read after the stamp was taken, unless it was evicted since, in which case the
+     * read may predate a write.
+     */
+    public void putIfNotInvalidatedSince(Employee employee, long stamp) {
+        if (!enabled || employee == null || employee.getId() == null) {
+            return;
+        }
+        UUID id = employee.getId();
+        if (invalidationStamp(id) != stamp) {
+            return;
+        }
+        Entry entry = new Entry(employee, System.currentTimeMillis() + ttlMillis);
+        entries.put(id, entry);
+        // An eviction between the check and the put counts before it removes, so it is seen here.
+        if (invalidationStamp(id) != stamp) {
+            entries.remove(id, entry);
+            return;
+        }
+        if (entries.size() > maxSize) {
+            trim();
+        }
+    }
+
+    public void evict(UUID id) {
+        if (id != null) {
+            evictions.incrementAndGet(stripe(id));
+            entries.remove(id);
+        }
+    }
+
+    public void evictAll(Collection<UUID> ids) {
+        ids.forEach(this::evict);
+    }
+
+    /**
+     * Replaces the pinned ids. Pinning keeps an entry from being evicted for size, not from expiring.
+     */
+    public void pin(Set<UUID> ids) {
+        this.pinned = Collections.unmodifiableSet(new HashSet<>(ids));
+    }
+
+    public int getPinnedCount() {
+        return pinned.size();
+    }
+
+    /**
+     * Whether the employee is missing from the cache or expires within the given time.
+     */
+    public boolean expiresWithin(UUID id, long millis) {
+        Entry entry = entries.get(id);
+        return entry == null || entry.expiresAt < System.currentTimeMillis() + millis;
+    }
+
+    public void clear() {
+        clears.incrementAndGet();
+        entries.clear();
+    }
+
+    private static int stripe(UUID id) {
+        return id == null ? 0 : (id.hashCode() & Integer.MAX_VALUE) % STRIPES;
+    }
+
+    private void trim() {
+        Set<UUID> pinned = this.pinned;
+        Iterator<Map.Entry<UUID, Entry>> iterator = entries.entrySet().iterator();
+        long oldest = Long.MAX_VALUE;
+        UUID oldestId = null;
+        // A bounded sample keeps eviction O(1) regardless of the cache size; there are only so many pinned ids to skip.
+        for (int sampled = 0; sampled < 16 && iterator.hasNext(); ) {
+            Map.Entry<UUID, Entry> candidate = iterator.next();
+            if (pinned.contains(candidate.getKey())) {
+                continue;
+            }
+            sampled++;
+            if (candidate.getValue().expiresAt < oldest) {
+                oldest = candidate.getValue().expiresAt;
+                oldestId = candidate.getKey();
+            }
+        }
+        if (oldestId != null) {
+            entries.remove(oldestId);
+        }
+    }
+
+
+    private static final class Entry {
+
+        private final Employee employee;
+        private final long expiresAt;
+
+        private Entry(Employee employee, long expiresAt) {
+            this.employee = employee;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
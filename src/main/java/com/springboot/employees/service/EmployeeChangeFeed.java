@@ -0,0 +1,233 @@
+package com.springboot.employees.service;
+
+import com.springboot.employees.domain.Employee;
+import com.springboot.employees.domain.EmployeeChangeEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fans employee mutations out to Server-Sent Events subscribers.
+ *
+ * Events either come from {@link EmployeeService} on this instance ({@code employees.changes.source=bus}) or
+ * from the MongoDB change stream through {@link EmployeeChangeStreamRelay} ({@code change-stream}), which also
+ * sees writes made by other instances and gives every instance the same tokens. The last
+ * {@code employees.changes.replay-size} events are kept so a client reconnecting with {@code Last-Event-ID} gets
+ * what it missed; when its token is no longer known it gets a {@code reset} event and has to reload.
+ *
+ * Publishing never blocks: each subscriber has its own bounded queue drained on a sender thread, and a
+ * subscriber whose queue is full is disconnected instead of slowing the writers down.
+ */
+@Component
+@Slf4j
+public class EmployeeChangeFeed {
+
+    public static final String SOURCE_BUS = "bus";
+
+    private static final EmployeeChangeEvent RESET = new EmployeeChangeEvent();
+    private static final EmployeeChangeEvent HEARTBEAT = new EmployeeChangeEvent();
+
+    private final String source;
+    private final int bufferSize;
+    private final int replaySize;
+    private final long timeoutMillis;
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong sequence = new AtomicLong();
+    private final Deque<EmployeeChangeEvent> replay = new ArrayDeque<>();
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final ExecutorService senders;
+    private final Counter slowConsumerDisconnects;
+
+    public EmployeeChangeFeed(@Value("${employees.changes.source}") String source,
+                              @Value("${employees.changes.buffer-size}") int bufferSize,
+                              @Value("${employees.changes.replay-size}") int replaySize,
+                              @Value("${employees.changes.timeout-ms}") long timeoutMillis,
+                              MeterRegistry meterRegistry) {
+        this.source = source;
+        this.bufferSize = bufferSize;
+        this.replaySize = replaySize;
+        this.timeoutMillis = timeoutMillis;
+
+        AtomicInteger threads = new AtomicInteger();
+        this.senders = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "employee-changes-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.slowConsumerDisconnects = Counter.builder("employees.changes.disconnects")
+                .tag("reason", "slow-consumer")
+                .register(meterRegistry);
+        meterRegistry.gauge("employees.changes.subscribers", subscribers, List::size);
+    }
+
+    /**
+     * Publishes a mutation made through this instance. Ignored unless the feed is fed by the in-process bus.
+     */
+    public void publish(EmployeeChangeEvent.Type type, UUID employeeId, Employee employee) {
+        if (!SOURCE_BUS.equals(source)) {
+            return;
+        }
+        append(EmployeeChangeEvent.builder()
+                .token(epoch + "-" + sequence.incrementAndGet())
+                .type(type)
+                .employeeId(employeeId)
+                .employee(employee)
+                .timestamp(System.currentTimeMillis())
+                .build());
+    }
+
+    /**
+     * Publishes an event read from the database change stream, token included.
+     */
+    void relay(EmployeeChangeEvent event) {
+        append(event);
+    }
+
+    public synchronized SseEmitter subscribe(String lastEventId) {
+        Subscriber subscriber = new Subscriber(new SseEmitter(timeoutMillis));
+        if (lastEventId != null) {
+            List<EmployeeChangeEvent> missed = eventsAfter(lastEventId);
+            if (missed == null || missed.size() >= bufferSize) {
+                subscriber.offer(RESET);
+            } else {
+                missed.forEach(subscriber::offer);
+            }
+        }
+        subscribers.add(subscriber);
+        return subscriber.emitter;
+    }
+
+    @Scheduled(fixedDelayString = "${employees.changes.heartbeat-ms}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(HEARTBEAT);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.close();
+        }
+        senders.shutdown();
+    }
+
+
+    private synchronized void append(EmployeeChangeEvent event) {
+        replay.addLast(event);
+        if (replay.size() > replaySize) {
+            replay.removeFirst();
+        }
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(event);
+        }
+    }
+
+    /**
+     * The retained events published after the given token, or null when the token is not retained.
+     */
+    private List<EmployeeChangeEvent> eventsAfter(String token) {
+        Iterator<EmployeeChangeEvent> events = replay.iterator();
+        while (events.hasNext()) {
+            if (token.equals(events.next().getToken())) {
+                List<EmployeeChangeEvent> missed = new ArrayList<>();
+                events.forEachRemaining(missed::add);
+                return missed;
+            }
+        }
+        return null;
+    }
+
+
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final BlockingQueue<EmployeeChangeEvent> queue = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean closed;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+            emitter.onCompletion(this::close);
+            emitter.onTimeout(this::close);
+            emitter.onError(error -> close());
+        }
+
+        private void offer(EmployeeChangeEvent event) {
+            if (closed) {
+                return;
+            }
+            if (!queue.offer(event)) {
+                log.warn("Disconnecting a change feed subscriber that fell {} events behind.", bufferSize);
+                slowConsumerDisconnects.increment();
+                close();
+                senders.execute(emitter::complete);
+                return;
+            }
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (!closed && !queue.isEmpty() && draining.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                EmployeeChangeEvent event;
+                while (!closed && (event = queue.poll()) != null) {
+                    send(event);
+                }
+            } catch (IOException | IllegalStateException e) {
+                close();
+            } finally {
+                draining.set(false);
+            }
+            scheduleDrain();
+        }
+
+        private void send(EmployeeChangeEvent event) throws IOException {
+            if (event == HEARTBEAT) {
+                emitter.send(SseEmitter.event().comment("heartbeat"));
+            } else if (event == RESET) {
+                emitter.send(SseEmitter.event().name("reset").data("The requested position is no longer available, reload and resubscribe."));
+            } else {
+                emitter.send(SseEmitter.event()
+                        .id(event.getToken())
+                        .name(event.getType().name().toLowerCase(Locale.ROOT))
+                        .data(event, MediaType.APPLICATION_JSON));
+            }
+        }
+
+        private void close() {
+            closed = true;
+            subscribers.remove(this);
+            queue.clear();
+        }
+    }
+}
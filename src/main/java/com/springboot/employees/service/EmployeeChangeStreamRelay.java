@@ -0,0 +1,146 @@
+package com.springboot.employees.service;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import com.springboot.employees.domain.Employee;
+import com.springboot.employees.domain.EmployeeChangeEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Feeds {@link EmployeeChangeFeed} from the change stream of the employees collection, selected with
+ * {@code employees.changes.source=change-stream}. Change streams need MongoDB to run as a replica set or
+ * sharded cluster.
+ *
+ * The stream is read on its own thread and reopened after the last seen resume token when it fails, so
+ * nothing is lost while the connection recovers. A change that can't be relayed, because its document no
+ * longer reads as an employee for example, would fail the same way every time the stream is reopened, so it
+ * is logged and skipped instead.
+ */
+@Component
+@Profile("!in-memory & !embedded")
+@ConditionalOnProperty(name = "employees.changes.source", havingValue = "change-stream")
+@Slf4j
+public class EmployeeChangeStreamRelay {
+
+    private static final long RETRY_DELAY_MILLIS = 1000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private EmployeeChangeFeed changeFeed;
+
+    private volatile boolean running;
+    private volatile MongoCursor<ChangeStreamDocument<Document>> cursor;
+    private BsonDocument resumeToken;
+    private Thread thread;
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        thread = new Thread(this::run, "employee-change-stream");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        MongoCursor<ChangeStreamDocument<Document>> current = cursor;
+        if (current != null) {
+            current.close();
+        }
+        thread.interrupt();
+    }
+
+
+    private void run() {
+        while (running) {
+            try {
+                watch();
+            } catch (RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                if (e instanceof MongoException || e instanceof IllegalStateException) {
+                    log.warn("The employee change stream failed, reopening it in {} ms: {}", RETRY_DELAY_MILLIS, e.getMessage());
+                } else {
+                    log.error("The employee change stream failed unexpectedly, reopening it in {} ms.", RETRY_DELAY_MILLIS, e);
+                }
+                try {
+                    Thread.sleep(RETRY_DELAY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void watch() {
+        ChangeStreamIterable<Document> stream = mongoTemplate.getCollection(mongoTemplate.getCollectionName(Employee.class))
+                .watch(Collections.singletonList(Aggregates.match(
+                        Filters.in("operationType", Arrays.asList("insert", "update", "replace", "delete")))))
+                .fullDocument(FullDocument.UPDATE_LOOKUP);
+        if (resumeToken != null) {
+            stream = stream.resumeAfter(resumeToken);
+        }
+
+        try (MongoCursor<ChangeStreamDocument<Document>> opened = stream.iterator()) {
+            cursor = opened;
+            while (running && opened.hasNext()) {
+                ChangeStreamDocument<Document> change = opened.next();
+                try {
+                    changeFeed.relay(toEvent(change));
+                } catch (RuntimeException e) {
+                    log.error("Skipping the employee change {} that could not be relayed.", change.getResumeToken().toJson(), e);
+                }
+                resumeToken = change.getResumeToken();
+            }
+        } finally {
+            cursor = null;
+        }
+    }
+
+    private EmployeeChangeEvent toEvent(ChangeStreamDocument<Document> change) {
+        BsonValue id = change.getDocumentKey() == null ? null : change.getDocumentKey().get("_id");
+        Document fullDocument = change.getFullDocument();
+
+        return EmployeeChangeEvent.builder()
+                .token(change.getResumeToken().toJson())
+                .type(typeOf(change.getOperationType()))
+                .employeeId(id == null || !id.isBinary() ? null : id.asBinary().asUuid())
+                .employee(fullDocument == null ? null : mongoTemplate.getConverter().read(Employee.class, fullDocument))
+                .timestamp(change.getClusterTime() == null ? System.currentTimeMillis() : change.getClusterTime().getTime() * 1000L)
+                .build();
+    }
+
+    private static EmployeeChangeEvent.Type typeOf(OperationType operationType) {
+        switch (operationType) {
+            case INSERT:
+                return EmployeeChangeEvent.Type.CREATED;
+            case DELETE:
+                return EmployeeChangeEvent.Type.DELETED;
+            default:
+                return EmployeeChangeEvent.Type.UPDATED;
+        }
+    }
+}
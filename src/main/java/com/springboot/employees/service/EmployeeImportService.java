@@ -0,0 +1,449 @@
+package com.springboot.employees.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.springboot.employees.domain.Address;
+import com.springboot.employees.domain.Department;
+import com.springboot.employees.domain.EmailAddress;
+import com.springboot.employees.domain.Employee;
+import com.springboot.employees.domain.ImportJob;
+import com.springboot.employees.exceptions.BadRequestException;
+import com.springboot.employees.exceptions.DuplicateItemException;
+import com.springboot.employees.exceptions.ServiceUnavailableException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Imports employees from CSV or NDJSON files in the background.
+ *
+ * The upload is spooled to a temporary file and a job is queued for it; the job streams the file row by row,
+ * validates every row like a single create (see {@link EmployeeValidator}) and writes the valid ones in bulk
+ * batches of {@code employees.imports.batch-size}, so memory stays bounded whatever the size of the file.
+ * Rows that fail validation, reference a department that doesn't exist without describing it, report to a
+ * manager that doesn't exist, or collide with an existing employee are rejected with their line number, the
+ * rest of the file carries on. The managers of a batch are looked up together right before it is written.
+ *
+ * CSV files need a header row; the columns are firstName, lastName, departmentId, departmentName,
+ * departmentSize, departmentFunction, managerId, street, city, state, zipcode, primaryEmail and otherEmails,
+ * the latter separated by semicolons. NDJSON files hold one employee per line, as accepted by {@code POST /employees}.
+ *
+ * Jobs are kept in memory on the instance that runs them; the last {@code employees.imports.retained-jobs}
+ * can be looked up.
+ */
+@Service
+@Slf4j
+public class EmployeeImportService {
+
+    public static final String FORMAT_CSV = "csv";
+    public static final String FORMAT_NDJSON = "ndjson";
+
+    private static final String DUPLICATE_ROW = "An employee with the same firstName, lastName and department, or with one of the same email addresses, already exists!";
+
+    private final EmployeeService employeeService;
+    private final DepartmentService departmentService;
+    private final ObjectMapper objectMapper;
+    private final CsvMapper csvMapper = new CsvMapper();
+    private final int batchSize;
+    private final int maxErrors;
+    private final ThreadPoolExecutor executor;
+    private final Map<UUID, Job> jobs;
+
+    public EmployeeImportService(EmployeeService employeeService,
+                                 DepartmentService departmentService,
+                                 ObjectMapper objectMapper,
+                                 @Value("${employees.imports.batch-size}") int batchSize,
+                                 @Value("${employees.imports.max-errors}") int maxErrors,
+                                 @Value("${employees.imports.threads}") int threads,
+                                 @Value("${employees.imports.queue-size}") int queueSize,
+                                 @Value("${employees.imports.retained-jobs}") int retainedJobs) {
+        this.employeeService = employeeService;
+        this.departmentService = departmentService;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.maxErrors = maxErrors;
+
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize), runnable -> {
+            Thread thread = new Thread(runnable, "employee-import-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.jobs = Collections.synchronizedMap(new LinkedHashMap<UUID, Job>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Job> eldest) {
+                return size() > retainedJobs;
+            }
+        });
+    }
+
+    /**
+     * Queues an import of the uploaded file. The format is taken from the given value, or else from the file
+     * name or content type.
+     */
+    public ImportJob startImport(MultipartFile file, String format) throws IOException {
+        log.info("Inside startImport method of Employee import service...");
+        log.info("File to be imported : "+file.getOriginalFilename());
+
+        if (file.isEmpty()) {
+            throw new BadRequestException("The uploaded file is empty!");
+        }
+        String resolvedFormat = formatOf(file, format);
+
+        Path spooled = Files.createTempFile("employee-import-", "." + resolvedFormat);
+        try {
+            file.transferTo(spooled);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(spooled);
+            throw e;
+        }
+
+        Job job = new Job(UUID.randomUUID(), file.getOriginalFilename(), resolvedFormat);
+        jobs.put(job.id, job);
+        try {
+            executor.execute(() -> run(job, spooled));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            Files.deleteIfExists(spooled);
+            throw new ServiceUnavailableException("Too many imports are queued, try again later!");
+        }
+        return job.snapshot();
+    }
+
+    public Optional<ImportJob> retrieveImportJob(UUID id) {
+        log.info("Inside retrieveImportJob method of Employee import service...");
+        log.info("Import job id to be retrieved : "+id);
+
+        return Optional.ofNullable(jobs.get(id)).map(Job::snapshot);
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+    }
+
+
+    private static String formatOf(MultipartFile file, String format) {
+        String hint = format;
+        if (hint == null && file.getOriginalFilename() != null) {
+            String name = file.getOriginalFilename().toLowerCase(Locale.ROOT);
+            hint = name.substring(name.lastIndexOf('.') + 1);
+        }
+        if (hint != null) {
+            switch (hint.toLowerCase(Locale.ROOT)) {
+                case "csv":
+                    return FORMAT_CSV;
+                case "ndjson":
+                case "jsonl":
+                    return FORMAT_NDJSON;
+                default:
+                    if (format != null) {
+                        throw new BadRequestException("Only csv and ndjson files can be imported!");
+                    }
+            }
+        }
+        String contentType = file.getContentType() == null ? "" : file.getContentType().toLowerCase(Locale.ROOT);
+        if (contentType.startsWith("text/csv")) {
+            return FORMAT_CSV;
+        }
+        if (contentType.startsWith("application/x-ndjson") || contentType.startsWith("application/jsonl")) {
+            return FORMAT_NDJSON;
+        }
+        throw new BadRequestException("Only csv and ndjson files can be imported!");
+    }
+
+    private void run(Job job, Path spooled) {
+        job.start();
+        try (BufferedReader reader = Files.newBufferedReader(spooled, StandardCharsets.UTF_8)) {
+            if (FORMAT_CSV.equals(job.format)) {
+                readCsv(job, reader);
+            } else {
+                readNdjson(job, reader);
+            }
+            job.flush();
+            job.finish(null);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Import job {} failed: {}", job.id, e.getMessage());
+            job.finish(e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(spooled);
+            } catch (IOException e) {
+                log.warn("Could not delete the spooled import file {}.", spooled);
+            }
+        }
+    }
+
+    private void readNdjson(Job job, BufferedReader reader) throws IOException {
+        long line = 0;
+        String row;
+        while ((row = reader.readLine()) != null) {
+            line++;
+            if (row.trim().isEmpty()) {
+                continue;
+            }
+            Employee employee;
+            try {
+                employee = objectMapper.readValue(row, Employee.class);
+            } catch (JsonProcessingException e) {
+                job.reject(line, "Malformed JSON: " + e.getOriginalMessage());
+                continue;
+            }
+            job.accept(line, employee);
+        }
+    }
+
+    private void readCsv(Job job, Reader reader) throws IOException {
+        try (MappingIterator<Map<String, String>> rows = csvMapper.readerFor(Map.class)
+                .with(CsvSchema.emptySchema().withHeader())
+                .readValues(reader)) {
+            while (rows.hasNextValue()) {
+                Map<String, String> row = rows.nextValue();
+                long line = rows.getParser().getTokenLocation().getLineNr();
+                Employee employee;
+                try {
+                    employee = fromCsv(row);
+                } catch (IllegalArgumentException e) {
+                    job.reject(line, e.getMessage());
+                    continue;
+                }
+                job.accept(line, employee);
+            }
+        }
+    }
+
+    private static Employee fromCsv(Map<String, String> row) {
+        Department department = null;
+        if (present(row, "departmentId") || present(row, "departmentName") || present(row, "departmentFunction")) {
+            department = Department.builder()
+                    .departmentId(number(row, "departmentId"))
+                    .name(row.get("departmentName"))
+                    .size(number(row, "departmentSize"))
+                    .function(row.get("departmentFunction"))
+                    .build();
+        }
+        Address address = null;
+        if (present(row, "street") || present(row, "city") || present(row, "state") || present(row, "zipcode")) {
+            address = Address.builder()
+                    .street(row.get("street"))
+                    .city(row.get("city"))
+                    .state(row.get("state"))
+                    .zipcode(number(row, "zipcode"))
+                    .build();
+        }
+        List<EmailAddress> emailAddresses = new ArrayList<>();
+        if (present(row, "primaryEmail")) {
+            emailAddresses.add(EmailAddress.builder().email(row.get("primaryEmail").trim()).isPrimary(true).build());
+        }
+        if (present(row, "otherEmails")) {
+            for (String email : row.get("otherEmails").split(";")) {
+                if (!email.trim().isEmpty()) {
+                    emailAddresses.add(EmailAddress.builder().email(email.trim()).isPrimary(false).build());
+                }
+            }
+        }
+        return Employee.builder()
+                .firstName(row.get("firstName"))
+                .lastName(row.get("lastName"))
+                .department(department)
+                .managerId(present(row, "managerId") ? uuid(row, "managerId") : null)
+                .address(address)
+                .emailAddresses(emailAddresses)
+                .build();
+    }
+
+    private static boolean present(Map<String, String> row, String column) {
+        String value = row.get(column);
+        return value != null && !value.trim().isEmpty();
+    }
+
+    private static UUID uuid(Map<String, String> row, String column) {
+        try {
+            return UUID.fromString(row.get(column).trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(column + " should be a UUID!");
+        }
+    }
+
+    private static int number(Map<String, String> row, String column) {
+        if (!present(row, column)) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(row.get(column).trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(column + " should be a number!");
+        }
+    }
+
+
+    /**
+     * The state of one import, written by its worker thread and read by status requests.
+     */
+    private final class Job {
+
+        private final UUID id;
+        private final String fileName;
+        private final String format;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+
+        private final AtomicLong rowsRead = new AtomicLong();
+        private final AtomicLong rowsImported = new AtomicLong();
+        private final AtomicLong rowsRejected = new AtomicLong();
+        private final List<ImportJob.RowError> errors = new ArrayList<>();
+
+        private final List<Employee> batch = new ArrayList<>(batchSize);
+        private final List<Long> batchLines = new ArrayList<>(batchSize);
+
+        private volatile ImportJob.Status status = ImportJob.Status.QUEUED;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime finishedAt;
+        private volatile long startedNanos;
+        private volatile long finishedNanos;
+        private volatile String failure;
+
+        private Job(UUID id, String fileName, String format) {
+            this.id = id;
+            this.fileName = fileName;
+            this.format = format;
+        }
+
+        private void start() {
+            startedNanos = System.nanoTime();
+            startedAt = LocalDateTime.now();
+            status = ImportJob.Status.RUNNING;
+        }
+
+        private void accept(long line, Employee employee) {
+            rowsRead.incrementAndGet();
+            List<String> violations = EmployeeValidator.validate(employee);
+            if (!violations.isEmpty()) {
+                rejectRead(line, String.join(" ", violations));
+                return;
+            }
+            try {
+                departmentService.checkDepartment(employee);
+            } catch (BadRequestException | DuplicateItemException e) {
+                rejectRead(line, e.getMessage());
+                return;
+            }
+            batch.add(employee);
+            batchLines.add(line);
+            if (batch.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        private void reject(long line, String message) {
+            rowsRead.incrementAndGet();
+            rejectRead(line, message);
+        }
+
+        private void rejectRead(long line, String message) {
+            rowsRejected.incrementAndGet();
+            synchronized (errors) {
+                if (errors.size() < maxErrors) {
+                    errors.add(new ImportJob.RowError(line, message));
+                }
+            }
+        }
+
+        private void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            Set<UUID> managerIds = batch.stream()
+                    .map(Employee::getManagerId)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toSet());
+            Set<UUID> unknownManagers = managerIds.isEmpty() ? Collections.emptySet() : employeeService.retrieveUnknownIds(managerIds);
+
+            List<Employee> written = new ArrayList<>(batch.size());
+            List<Long> writtenLines = new ArrayList<>(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                UUID managerId = batch.get(i).getManagerId();
+                if (managerId != null && unknownManagers.contains(managerId)) {
+                    rejectRead(batchLines.get(i), "The manager with id : "+managerId+" doesn't exist!");
+                } else {
+                    written.add(batch.get(i));
+                    writtenLines.add(batchLines.get(i));
+                }
+            }
+            batch.clear();
+            batchLines.clear();
+            if (written.isEmpty()) {
+                return;
+            }
+
+            Set<Integer> duplicates = employeeService.importEmployees(written);
+            rowsImported.addAndGet(written.size() - duplicates.size());
+            for (Integer position : duplicates) {
+                rejectRead(writtenLines.get(position), DUPLICATE_ROW);
+            }
+        }
+
+        private void finish(String failure) {
+            this.failure = failure;
+            finishedNanos = System.nanoTime();
+            finishedAt = LocalDateTime.now();
+            status = failure == null ? ImportJob.Status.COMPLETED : ImportJob.Status.FAILED;
+        }
+
+        private ImportJob snapshot() {
+            ImportJob.Status current = status;
+            List<ImportJob.RowError> errorsSoFar;
+            synchronized (errors) {
+                errorsSoFar = new ArrayList<>(errors);
+            }
+            long read = rowsRead.get();
+            double seconds = current == ImportJob.Status.QUEUED ? 0
+                    : Duration.ofNanos((finishedAt != null ? finishedNanos : System.nanoTime()) - startedNanos).toMillis() / 1000.0;
+            return ImportJob.builder()
+                    .id(id)
+                    .status(current)
+                    .fileName(fileName)
+                    .format(format)
+                    .rowsRead(read)
+                    .rowsImported(rowsImported.get())
+                    .rowsRejected(rowsRejected.get())
+                    .errors(errorsSoFar)
+                    .rowsPerSecond(seconds > 0 ? read / seconds : 0)
+                    .failure(failure)
+                    .createdAt(createdAt)
+                    .startedAt(startedAt)
+                    .finishedAt(finishedAt)
+                    .build();
+        }
+    }
+}
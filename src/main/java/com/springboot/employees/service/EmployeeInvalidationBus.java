@@ -0,0 +1,314 @@
+package com.springboot.employees.service;
+
+import com.mongodb.CursorType;
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Sorts;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps the {@link EmployeeCache} of every instance coherent, switched on with
+ * {@code employees.invalidation.enabled}. Updates and deletes append the ids they touched to the capped
+ * {@code employee_invalidations} collection, and every instance tails it with a tailable cursor and evicts
+ * those ids locally; no infrastructure beyond the MongoDB the service already uses is needed.
+ *
+ * While the cursor is open, cached employees live for {@code employees.invalidation.cache-ttl-ms}. That is
+ * only safe because a read is not cached once an eviction of its id arrived while it ran, see
+ * {@link EmployeeCache#putIfNotInvalidatedSince}; a load that began before a write elsewhere can't outlive
+ * its eviction here. When tailing breaks the cache is cleared and falls back to {@code employees.cache.ttl-ms}
+ * until the cursor is back.
+ *
+ * ObjectIds are generated by the publishers, so they are not ordered across instances. A reopened cursor
+ * therefore reads the collection again in insertion order and skips up to the last invalidation read, rather
+ * than filtering on {@code _id}. When that invalidation has been overwritten in the capped collection, after
+ * a long outage for example, messages may have been lost and the cache is cleared. Lag from publish to
+ * eviction is recorded in {@code employees.invalidation.lag} and depends on the clocks of the instances
+ * being in sync.
+ *
+ * Creates and renames publish too, with the first names they wrote, so that the {@link EmployeeNegativeCache}
+ * of every instance learns about keys written elsewhere; creates publish before they write. Writes that
+ * change reporting lines name the managers involved, whose direct reports every {@link EmployeeOrgChart}
+ * then forgets.
+ */
+@Component
+@Profile("!in-memory & !embedded")
+@ConditionalOnProperty(name = "employees.invalidation.enabled", havingValue = "true")
+@Slf4j
+public class EmployeeInvalidationBus {
+
+    static final String COLLECTION = "employee_invalidations";
+
+    private static final long RETRY_DELAY_MILLIS = 1000;
+
+    private final MongoTemplate mongoTemplate;
+    private final EmployeeCache cache;
+    private final EmployeeNegativeCache negativeCache;
+    private final EmployeeOrgChart orgChart;
+    private final long collectionSizeBytes;
+    private final long cacheTtlMillis;
+    private final long fallbackTtlMillis;
+
+    private final String node = new ObjectId().toHexString();
+    private final AtomicInteger tailing = new AtomicInteger();
+    private final Counter published;
+    private final Counter publishFailures;
+    private final Counter received;
+    private final Counter resets;
+    private final Timer lag;
+
+    private volatile boolean running;
+    private volatile MongoCollection<Document> invalidations;
+    private volatile MongoCursor<Document> cursor;
+    private ObjectId lastSeen;
+    private Thread thread;
+
+    public EmployeeInvalidationBus(MongoTemplate mongoTemplate, EmployeeCache cache, EmployeeNegativeCache negativeCache,
+                                   EmployeeOrgChart orgChart,
+                                   @Value("${employees.invalidation.collection-size-bytes}") long collectionSizeBytes,
+                                   @Value("${employees.invalidation.cache-ttl-ms}") long cacheTtlMillis,
+                                   @Value("${employees.cache.ttl-ms}") long fallbackTtlMillis,
+                                   MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.cache = cache;
+        this.negativeCache = negativeCache;
+        this.orgChart = orgChart;
+        this.collectionSizeBytes = collectionSizeBytes;
+        this.cacheTtlMillis = cacheTtlMillis;
+        this.fallbackTtlMillis = fallbackTtlMillis;
+
+        this.published = Counter.builder("employees.invalidation.messages").tag("result", "published").register(meterRegistry);
+        this.publishFailures = Counter.builder("employees.invalidation.messages").tag("result", "failed").register(meterRegistry);
+        this.received = Counter.builder("employees.invalidation.messages").tag("result", "received").register(meterRegistry);
+        this.resets = Counter.builder("employees.invalidation.resets").register(meterRegistry);
+        this.lag = Timer.builder("employees.invalidation.lag").publishPercentiles(0.5, 0.99).register(meterRegistry);
+        meterRegistry.gauge("employees.invalidation.tailing", tailing);
+        negativeCache.expectRemoteWrites();
+        orgChart.expectRemoteWrites();
+    }
+
+    @PostConstruct
+    public void start() {
+        try {
+            invalidations();
+        } catch (MongoException | DataAccessException e) {
+            // Tailing creates it once MongoDB can be reached.
+            log.warn("Could not create {}: {}", COLLECTION, e.getMessage());
+        }
+        running = true;
+        thread = new Thread(this::run, "employee-invalidations");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        MongoCursor<Document> current = cursor;
+        if (current != null) {
+            current.close();
+        }
+        thread.interrupt();
+    }
+
+    /**
+     * Tells the other instances to evict the given employees. A failure is only logged: their caches then
+     * catch up through expiry.
+     */
+    public void publish(Collection<UUID> ids) {
+        publish(ids, Collections.emptyList());
+    }
+
+    /**
+     * Like {@link #publish(Collection)}, also telling the other instances the first names that were written.
+     */
+    public void publish(Collection<UUID> ids, Collection<String> firstNames) {
+        publish(ids, firstNames, Collections.emptyList());
+    }
+
+    /**
+     * Like {@link #publish(Collection, Collection)}, also naming the managers whose direct reports changed.
+     */
+    public void publish(Collection<UUID> ids, Collection<String> firstNames, Collection<UUID> managerIds) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        try {
+            Document invalidation = new Document("node", node).append("ids", new ArrayList<>(ids)).append("at", new Date());
+            if (!firstNames.isEmpty()) {
+                invalidation.append("firstNames", new ArrayList<>(firstNames));
+            }
+            if (!managerIds.isEmpty()) {
+                invalidation.append("managerIds", new ArrayList<>(managerIds));
+            }
+            invalidations().insertOne(invalidation);
+            published.increment();
+        } catch (MongoException | DataAccessException e) {
+            publishFailures.increment();
+            log.warn("Could not publish the invalidation of {} employees: {}", ids.size(), e.getMessage());
+        }
+    }
+
+
+    private void run() {
+        while (running) {
+            try {
+                tail();
+            } catch (MongoException | DataAccessException | IllegalStateException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Tailing the employee invalidations failed, retrying in {} ms: {}", RETRY_DELAY_MILLIS, e.getMessage());
+            }
+            degrade();
+            try {
+                Thread.sleep(RETRY_DELAY_MILLIS);
+            } catch (InterruptedException interrupted) {
+                return;
+            }
+        }
+    }
+
+    private void tail() {
+        MongoCollection<Document> invalidations = invalidations();
+        Document oldest = invalidations.find().sort(Sorts.ascending("$natural")).first();
+        if (oldest == null) {
+            // A tailable cursor on an empty capped collection is closed right away.
+            invalidations.insertOne(new Document("node", node).append("ids", new ArrayList<>()).append("at", new Date()));
+        } else if (lastSeen != null && invalidations.find(Filters.eq("_id", lastSeen)).first() == null) {
+            resets.increment();
+            log.warn("Employee invalidations were overwritten before they were read, clearing the cache.");
+            cache.clear();
+            negativeCache.tailingStopped();
+            orgChart.tailingStopped();
+            lastSeen = null;
+        }
+        if (lastSeen == null) {
+            Document newest = invalidations.find().sort(Sorts.descending("$natural")).first();
+            lastSeen = newest == null ? null : newest.getObjectId("_id");
+            appliedUpTo(newest);
+        }
+
+        ObjectId resumeAfter = lastSeen;
+        try (MongoCursor<Document> opened = invalidations.find()
+                .cursorType(CursorType.TailableAwait)
+                .noCursorTimeout(true)
+                .iterator()) {
+            cursor = opened;
+            recover();
+            boolean skipping = resumeAfter != null;
+            while (running && opened.hasNext()) {
+                Document invalidation = opened.next();
+                if (skipping) {
+                    skipping = !resumeAfter.equals(invalidation.getObjectId("_id"));
+                } else {
+                    apply(invalidation);
+                }
+            }
+        } finally {
+            cursor = null;
+        }
+    }
+
+    private void apply(Document invalidation) {
+        lastSeen = invalidation.getObjectId("_id");
+        if (node.equals(invalidation.getString("node"))) {
+            appliedUpTo(invalidation);
+            return;
+        }
+        List<UUID> ids = invalidation.getList("ids", UUID.class);
+        if (ids != null) {
+            cache.evictAll(ids);
+            ids.forEach(id -> negativeCache.add(id, null));
+        }
+        List<String> firstNames = invalidation.getList("firstNames", String.class);
+        if (firstNames != null) {
+            firstNames.forEach(firstName -> negativeCache.add(null, firstName));
+        }
+        List<UUID> managerIds = invalidation.getList("managerIds", UUID.class);
+        if (managerIds != null) {
+            orgChart.forget(managerIds);
+        }
+        received.increment();
+        Date at = invalidation.getDate("at");
+        if (at != null) {
+            lag.record(Math.max(0, System.currentTimeMillis() - at.getTime()), TimeUnit.MILLISECONDS);
+        }
+        appliedUpTo(invalidation);
+    }
+
+    private void appliedUpTo(Document invalidation) {
+        Date at = invalidation == null ? null : invalidation.getDate("at");
+        if (at != null) {
+            negativeCache.invalidationsAppliedUpTo(at.getTime());
+        }
+    }
+
+    /**
+     * The capped collection, created by the first call that reaches MongoDB; writes must not go to it before,
+     * they would create it uncapped.
+     */
+    private MongoCollection<Document> invalidations() {
+        MongoCollection<Document> created = invalidations;
+        if (created != null) {
+            return created;
+        }
+        synchronized (this) {
+            if (invalidations == null) {
+                if (!mongoTemplate.collectionExists(COLLECTION)) {
+                    try {
+                        mongoTemplate.createCollection(COLLECTION, CollectionOptions.empty().capped().size(collectionSizeBytes));
+                    } catch (DataAccessException e) {
+                        // Another instance created it first.
+                        log.debug("Could not create {}: {}", COLLECTION, e.getMessage());
+                    }
+                }
+                invalidations = mongoTemplate.getCollection(COLLECTION);
+            }
+            return invalidations;
+        }
+    }
+
+    private void recover() {
+        if (tailing.compareAndSet(0, 1)) {
+            cache.setTtlMillis(cacheTtlMillis);
+            negativeCache.tailingStarted();
+            orgChart.tailingStarted();
+            log.info("Tailing the employee invalidations, cached employees live {} ms.", cacheTtlMillis);
+        }
+    }
+
+    private void degrade() {
+        if (tailing.compareAndSet(1, 0)) {
+            cache.setTtlMillis(fallbackTtlMillis);
+            cache.clear();
+            negativeCache.tailingStopped();
+            orgChart.tailingStopped();
+            log.warn("Stopped tailing the employee invalidations, cached employees live {} ms.", fallbackTtlMillis);
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.springboot.employees.service;
+
+import com.mongodb.MongoException;
+import com.springboot.employees.domain.Employee;
+import com.springboot.employees.persistence.EmployeeRepository;
+import com.springboot.employees.util.ScalableBloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bloom filters over the ids and first names of all employees, switched on with
+ * {@code employees.negative-cache.enabled}, so lookups of keys that certainly don't exist are answered
+ * without a query. The filters are built from a scan of the two fields shortly after startup and rebuilt once
+ * they are {@code employees.negative-cache.rebuild-interval-ms} old or no longer trusted, which is checked every
+ * {@code employees.negative-cache.check-interval-ms}; until a build is done every lookup goes to the database.
+ *
+ * Creates and imports through this instance add their keys, and announce them on the bus, both before the
+ * write and again after it: the first covers lookups racing the write, the second a rebuild whose scan ran
+ * before the write committed. Renames add theirs right after the write. Deletes can't be taken out of a Bloom filter; a deleted key costs one
+ * query until the next rebuild drops it. Writes made by other instances arrive through
+ * {@link EmployeeInvalidationBus}: with the bus on, the filters are only trusted while it is tailing and only
+ * if they were built since it started tailing last. An announcement is still on its way while the bus lags,
+ * so version 7 ids minted after the newest invalidation applied here are never rejected. Several instances
+ * without the bus must leave the negative cache off.
+ */
+@Component
+@Slf4j
+public class EmployeeNegativeCache {
+
+    private final boolean enabled;
+    private final long expectedEmployees;
+    private final double falsePositiveRate;
+    private final long rebuildIntervalMillis;
+    private final EmployeeRepository repo;
+    private final Counter idRejections;
+    private final Counter firstNameRejections;
+
+    private volatile Filters filters;
+    private volatile Filters building;
+    private volatile boolean remoteWrites;
+    private volatile boolean tailing;
+    private final AtomicLong tailingEpoch = new AtomicLong();
+    private final AtomicLong appliedUpToMillis = new AtomicLong();
+
+    public EmployeeNegativeCache(@Value("${employees.negative-cache.enabled}") boolean enabled,
+                                 @Value("${employees.negative-cache.expected-employees}") long expectedEmployees,
+                                 @Value("${employees.negative-cache.false-positive-rate}") double falsePositiveRate,
+                                 @Value("${employees.negative-cache.rebuild-interval-ms}") long rebuildIntervalMillis,
+                                 EmployeeRepository repo,
+                                 MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.expectedEmployees = expectedEmployees;
+        this.falsePositiveRate = falsePositiveRate;
+        this.rebuildIntervalMillis = rebuildIntervalMillis;
+        this.repo = repo;
+        this.idRejections = Counter.builder("employees.negative-cache.rejections").tag("lookup", "id").register(meterRegistry);
+        this.firstNameRejections = Counter.builder("employees.negative-cache.rejections").tag("lookup", "firstName").register(meterRegistry);
+        meterRegistry.gauge("employees.negative-cache.keys", this, cache -> {
+            Filters current = cache.filters;
+            return current == null ? 0 : current.ids.getKeys();
+        });
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Whether no employee has the id; false means it may exist.
+     */
+    public boolean isAbsentId(UUID id) {
+        Filters current = usable();
+        if (current == null || id == null || isNewerThanAppliedInvalidations(id) || current.ids.mightContain(id.toString())) {
+            return false;
+        }
+        idRejections.increment();
+        return true;
+    }
+
+    /**
+     * Whether no employee has the first name; false means one may exist.
+     */
+    public boolean isAbsentFirstName(String firstName) {
+        Filters current = usable();
+        if (current == null || firstName == null || current.firstNames.mightContain(firstName)) {
+            return false;
+        }
+        firstNameRejections.increment();
+        return true;
+    }
+
+    /**
+     * Records an employee that was written, or is about to be; either key may be null. Only an add after the
+     * write is sure to survive a rebuild that is not running yet.
+     */
+    public void add(UUID id, String firstName) {
+        if (!enabled) {
+            return;
+        }
+        // The filter being built is read first: if the rebuild has finished by then, the new filters are
+        // already installed, and if it has not started, its scan will see the write once it has committed.
+        Filters next = building;
+        Filters current = filters;
+        if (next != null) {
+            next.add(id, firstName);
+        }
+        if (current != null) {
+            current.add(id, firstName);
+        }
+    }
+
+    public void addAll(Collection<Employee> employees) {
+        employees.forEach(employee -> add(employee.getId(), employee.getFirstName()));
+    }
+
+    @Scheduled(fixedDelayString = "${employees.negative-cache.check-interval-ms}")
+    public void refresh() {
+        Filters current = usable();
+        if (current == null || System.currentTimeMillis() - current.builtAt >= rebuildIntervalMillis) {
+            rebuild();
+        }
+    }
+
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        if (remoteWrites && !tailing) {
+            log.debug("Not rebuilding the employee negative cache while the invalidations are not tailed.");
+            return;
+        }
+        long started = System.currentTimeMillis();
+        Filters next = new Filters(expectedEmployees, falsePositiveRate, tailingEpoch.get(), started);
+        building = next;
+        try {
+            repo.forEachKey(next::add);
+            filters = next;
+            log.info("Rebuilt the employee negative cache with {} employees in {} ms.", next.ids.getKeys(), System.currentTimeMillis() - started);
+        } catch (DataAccessException | MongoException e) {
+            log.warn("Could not rebuild the employee negative cache: {}", e.getMessage());
+        } finally {
+            building = null;
+        }
+    }
+
+
+    /**
+     * Called by the invalidation bus when it starts, once writes of other instances have to be seen.
+     */
+    void expectRemoteWrites() {
+        remoteWrites = true;
+    }
+
+    /**
+     * Called by the invalidation bus for every invalidation it has read, with the time it was published.
+     */
+    void invalidationsAppliedUpTo(long publishedAtMillis) {
+        appliedUpToMillis.accumulateAndGet(publishedAtMillis, Math::max);
+    }
+
+    void tailingStarted() {
+        tailingEpoch.incrementAndGet();
+        tailing = true;
+    }
+
+    /**
+     * Invalidations may be missed from now on, so the filters are not trusted again before a rebuild.
+     */
+    void tailingStopped() {
+        tailing = false;
+        tailingEpoch.incrementAndGet();
+    }
+
+    /**
+     * Version 7 ids start with the millisecond they were minted in; other ids carry no time and are
+     * trusted to the filters.
+     */
+    private boolean isNewerThanAppliedInvalidations(UUID id) {
+        return remoteWrites && id.version() == 7 && id.getMostSignificantBits() >>> 16 > appliedUpToMillis.get();
+    }
+
+    private Filters usable() {
+        Filters current = filters;
+        if (!enabled || current == null) {
+            return null;
+        }
+        if (remoteWrites && (!tailing || current.epoch != tailingEpoch.get())) {
+            return null;
+        }
+        return current;
+    }
+
+
+    private static final class Filters {
+
+        private final ScalableBloomFilter ids;
+        private final ScalableBloomFilter firstNames;
+        private final long epoch;
+        private final long builtAt;
+
+        private Filters(long expectedEmployees, double falsePositiveRate, long epoch, long builtAt) {
+            this.ids = new ScalableBloomFilter(expectedEmployees, falsePositiveRate);
+            this.firstNames = new ScalableBloomFilter(expectedEmployees, falsePositiveRate);
+            this.epoch = epoch;
+            this.builtAt = builtAt;
+        }
+
+        private void add(UUID id, String firstName) {
+            if (id != null) {
+                ids.put(id.toString());
+            }
+            if (firstName != null) {
+                firstNames.put(firstName);
+            }
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.springboot.employees.service;
+
+import com.springboot.employees.domain.Employee;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Adjacency lists of the reporting lines, switched on with {@code employees.org-chart.enabled}, so repeated
+ * subtree queries are answered from memory instead of by a $graphLookup. The chart only holds what queries
+ * loaded: a subtree fetched to some depth gives the complete direct reports of every employee above its last
+ * level, and a later query is answered when every employee it has to expand is known. Once
+ * {@code employees.org-chart.max-managers} lists are held the chart starts over.
+ *
+ * Creates, deletes and manager changes forget the direct reports of the managers involved, here and through
+ * {@link EmployeeInvalidationBus} on the other instances. A subtree read while one of them was applied is
+ * not recorded, and with the bus on the chart is only used while it is tailing. Several instances without
+ * the bus must leave the chart off.
+ */
+@Component
+public class EmployeeOrgChart {
+
+    private final boolean enabled;
+    private final int maxManagers;
+    private final Counter hits;
+    private final Counter misses;
+
+    private final Map<UUID, List<UUID>> directReports = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private volatile boolean remoteWrites;
+    private volatile boolean tailing;
+
+    public EmployeeOrgChart(@Value("${employees.org-chart.enabled}") boolean enabled,
+                            @Value("${employees.org-chart.max-managers}") int maxManagers,
+                            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.maxManagers = maxManagers;
+        this.hits = Counter.builder("employees.org-chart.lookups").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("employees.org-chart.lookups").tag("result", "miss").register(meterRegistry);
+        meterRegistry.gauge("employees.org-chart.managers", directReports, Map::size);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * The ids of the employees reporting to the manager through at most maxDepth levels, level by level;
+     * empty when the chart doesn't know all of them.
+     */
+    public Optional<List<UUID>> reports(UUID managerId, int maxDepth) {
+        if (!usable()) {
+            return Optional.empty();
+        }
+        Set<UUID> reports = new LinkedHashSet<>();
+        List<UUID> level = Collections.singletonList(managerId);
+        for (int depth = 0; depth < maxDepth && !level.isEmpty(); depth++) {
+            List<UUID> next = new ArrayList<>();
+            for (UUID id : level) {
+                List<UUID> known = directReports.get(id);
+                if (known == null) {
+                    misses.increment();
+                    return Optional.empty();
+                }
+                for (UUID report : known) {
+                    if (reports.add(report)) {
+                        next.add(report);
+                    }
+                }
+            }
+            level = next;
+        }
+        hits.increment();
+        return Optional.of(new ArrayList<>(reports));
+    }
+
+    /**
+     * To be read before a subtree is fetched and handed to {@link #record}.
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Orders the employees fetched for the subtree level by level, direct reports first, and records the
+     * direct reports of every employee above the last level, unless the reporting lines changed since the
+     * generation was read.
+     */
+    public List<Employee> record(UUID managerId, int maxDepth, List<Employee> reports, long readAt) {
+        Map<UUID, List<Employee>> byManager = new HashMap<>();
+        for (Employee report : reports) {
+            byManager.computeIfAbsent(report.getManagerId(), id -> new ArrayList<>()).add(report);
+        }
+
+        Map<UUID, List<UUID>> complete = new HashMap<>();
+        Map<UUID, Employee> ordered = new LinkedHashMap<>();
+        List<UUID> level = Collections.singletonList(managerId);
+        for (int depth = 0; depth < maxDepth && !level.isEmpty(); depth++) {
+            List<UUID> next = new ArrayList<>();
+            for (UUID id : level) {
+                List<Employee> children = byManager.getOrDefault(id, Collections.emptyList());
+                List<UUID> childIds = new ArrayList<>(children.size());
+                for (Employee child : children) {
+                    childIds.add(child.getId());
+                    if (ordered.putIfAbsent(child.getId(), child) == null) {
+                        next.add(child.getId());
+                    }
+                }
+                complete.put(id, Collections.unmodifiableList(childIds));
+            }
+            level = next;
+        }
+
+        if (usable()) {
+            install(complete, readAt);
+        }
+        return new ArrayList<>(ordered.values());
+    }
+
+    /**
+     * Forgets the direct reports of the managers, whose reporting lines changed.
+     */
+    public synchronized void forget(Collection<UUID> managerIds) {
+        generation.incrementAndGet();
+        managerIds.forEach(id -> {
+            if (id != null) {
+                directReports.remove(id);
+            }
+        });
+    }
+
+    public synchronized void clear() {
+        generation.incrementAndGet();
+        directReports.clear();
+    }
+
+
+    /**
+     * Called by the invalidation bus when it starts, once writes of other instances have to be seen.
+     */
+    void expectRemoteWrites() {
+        remoteWrites = true;
+    }
+
+    void tailingStarted() {
+        tailing = true;
+    }
+
+    /**
+     * Manager changes elsewhere may be missed from now on, so the chart starts over.
+     */
+    void tailingStopped() {
+        tailing = false;
+        clear();
+    }
+
+    private boolean usable() {
+        return enabled && (!remoteWrites || tailing);
+    }
+
+    private synchronized void install(Map<UUID, List<UUID>> complete, long readAt) {
+        // Forgetting is synchronized too, so a change can't slip in between this check and the puts.
+        if (generation.get() != readAt || complete.size() > maxManagers) {
+            return;
+        }
+        if (directReports.size() + complete.size() > maxManagers) {
+            directReports.clear();
+        }
+        directReports.putAll(complete);
+    }
+}
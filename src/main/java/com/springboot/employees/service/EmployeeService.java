@@ -1,46 +1,174 @@
 package com.springboot.employees.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springboot.employees.domain.EmailAddress;
 import com.springboot.employees.domain.Employee;
+import com.springboot.employees.domain.EmployeeBatch;
+import com.springboot.employees.domain.EmployeeChangeEvent;
+import com.springboot.employees.domain.EmployeeDelta;
+import com.springboot.employees.domain.EmployeePage;
+import com.springboot.employees.domain.EmployeeTombstone;
 import com.springboot.employees.domain.EmployeeWrapper;
 import com.springboot.employees.exceptions.BadRequestException;
 import com.springboot.employees.exceptions.DuplicateItemException;
 import com.springboot.employees.exceptions.ItemNotFoundException;
+import com.springboot.employees.heavyhitters.HeavyHitterTracker;
 import com.springboot.employees.persistence.EmployeeRepository;
+import com.springboot.employees.persistence.EmployeeUpdate;
+import com.springboot.employees.util.IdGenerator;
+import com.springboot.employees.util.JsonPatches;
+import com.springboot.employees.util.JsonDateSerializer;
+import com.springboot.employees.util.SingleFlight;
+import com.springboot.employees.util.UuidOrder;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 
-import java.text.ParseException;
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 public class EmployeeService {
 
+    private static final String EMAIL_IN_USE = "One of the email addresses already belongs to another employee!";
+
+    private static final String NATURAL_KEY_IN_USE = "An employee with the same firstName, lastName and department already exists!";
+
+    private static final int PATCH_ATTEMPTS = 3;
+
+    private static final String[] READ_ONLY_FIELDS = { "id", "createdAt", "updatedAt" };
+
     @Autowired
     private EmployeeRepository repo;
 
+    @Autowired
+    private EmployeeCache cache;
+
+    @Autowired
+    private EmployeeChangeFeed changeFeed;
+
+    @Autowired
+    private HeavyHitterTracker heavyHitters;
+
+    @Autowired
+    private EmployeeNegativeCache negativeCache;
+
+    @Autowired
+    private DepartmentService departments;
+
+    @Autowired
+    private DepartmentSummaryService departmentSummaries;
+
+    @Autowired
+    private EmployeeOrgChart orgChart;
+
+    @Autowired(required = false)
+    private EmployeeInvalidationBus invalidationBus;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${employees.batch.max-ids}")
+    private int maxBatchIds;
+
+    @Value("${employees.delta.max-page-size}")
+    private int maxDeltaPageSize;
+
+    @Value("${employees.delta.settle-ms}")
+    private long deltaSettleMillis;
+
+    @Value("${employees.locations.max-page-size}")
+    private int maxLocationPageSize;
+
+    @Value("${employees.reports.max-depth}")
+    private int maxReportDepth;
+
+    @Value("${employees.reports.max-size}")
+    private int maxReports;
+
+    @Value("${employees.single-flight.enabled}")
+    private boolean singleFlightEnabled;
+
+    @Autowired
+    private IdGenerator idGenerator;
+
+    private SingleFlight<UUID, StampedLookup> byIdLookups;
+    private SingleFlight<String, Optional<Employee>> byFirstNameLookups;
+    private SingleFlight<String, List<Employee>> byDepartmentNameLookups;
+
+    /**
+     * Concurrent identical lookups share one repository query; see {@link SingleFlight}.
+     */
+    @PostConstruct
+    void initLookups() {
+        byIdLookups = new SingleFlight<>("byId", singleFlightEnabled, meterRegistry);
+        byFirstNameLookups = new SingleFlight<>("byFirstName", singleFlightEnabled, meterRegistry);
+        byDepartmentNameLookups = new SingleFlight<>("byDepartmentName", singleFlightEnabled, meterRegistry);
+    }
+
     public EmployeeWrapper saveEmployee(Employee employee) {
         log.info("Inside saveEmployee method of Employee service...");
         log.info("Employee to be created : "+employee.toString());
 
         EmployeeWrapper savedEmployee = null;
         try{
-            if (employee.getEmailAddresses().stream().allMatch(email -> email.isPrimary() == Boolean.FALSE)) {
-                throw new BadRequestException("At least one emailAddress should be marked as primary!");
+            if (!EmployeeValidator.hasPrimaryEmail(employee)) {
+                throw new BadRequestException(EmployeeValidator.PRIMARY_EMAIL_REQUIRED);
             }
+            checkManager(null, employee.getManagerId());
+            departments.checkDepartment(employee);
 
-            employee.setId(UUID.randomUUID().toString());
-            employee.setCreatedAt(LocalDateTime.now());
-            employee.setUpdatedAt(LocalDateTime.now());
+            employee.setId(idGenerator.next());
+            LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+            employee.setCreatedAt(now);
+            employee.setUpdatedAt(now);
+            announceCreated(Collections.singletonList(employee));
             savedEmployee =  EmployeeWrapper.builder().employee(repo.save(employee)).isIdempotent(false).build();
-        }catch (DuplicateKeyException | ParseException ex){
-            Employee existingEmployee = retrieveEmployeeByFirstName(employee.getFirstName());
-            if(null != existingEmployee) {
-                savedEmployee = EmployeeWrapper.builder().employee(existingEmployee).isIdempotent(true).build();
+            List<Employee> saved = Collections.singletonList(savedEmployee.getEmployee());
+            recordWritten(saved, managersOf(saved));
+            departmentSummaries.hired(Collections.singletonList(savedEmployee.getEmployee()));
+            changeFeed.publish(EmployeeChangeEvent.Type.CREATED, savedEmployee.getEmployee().getId(), savedEmployee.getEmployee());
+        }catch (DuplicateKeyException ex){
+            if (isEmailConflict(ex)) {
+                savedEmployee = emailHolderOf(employee)
+                        .filter(holder -> isSameEmployee(holder, employee))
+                        .map(existingEmployee -> EmployeeWrapper.builder().employee(existingEmployee).isIdempotent(true).build())
+                        .orElseThrow(() -> new DuplicateItemException(EMAIL_IN_USE));
+            } else {
+                // Both other unique keys start with the first name, so it exists even if the negative cache missed it.
+                negativeCache.add(null, employee.getFirstName());
+                savedEmployee = retrieveEmployeeByFirstName(employee.getFirstName())
+                        .map(existingEmployee -> EmployeeWrapper.builder().employee(existingEmployee).isIdempotent(true).build())
+                        .orElse(null);
             }
         }
 
@@ -48,61 +176,730 @@ public class EmployeeService {
     }
 
 
-    public Employee retrieveEmployeeById(String id) {
+    /**
+     * Creates a batch of validated employees with a single bulk write. Employees that collide with an existing
+     * one are skipped and their positions returned; the others are published like single creates.
+     */
+    public Set<Integer> importEmployees(List<Employee> employees) {
+        log.info("Inside importEmployees method of Employee service...");
+        log.info("Number of employees to be imported : "+employees.size());
+
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        for (Employee employee : employees) {
+            employee.setId(idGenerator.next());
+            employee.setCreatedAt(now);
+            employee.setUpdatedAt(now);
+        }
+
+        announceCreated(employees);
+        Set<Integer> duplicates = repo.insertSkippingDuplicates(employees);
+        List<Employee> imported = new ArrayList<>(employees.size() - duplicates.size());
+        for (int i = 0; i < employees.size(); i++) {
+            if (!duplicates.contains(i)) {
+                imported.add(employees.get(i));
+            }
+        }
+        recordWritten(imported, managersOf(imported));
+        departmentSummaries.hired(imported);
+        for (Employee employee : imported) {
+            changeFeed.publish(EmployeeChangeEvent.Type.CREATED, employee.getId(), employee);
+        }
+        return duplicates;
+    }
+
+
+    /**
+     * The ids among the given ones that no employee has, looked up with at most one query.
+     */
+    public Set<UUID> retrieveUnknownIds(Collection<UUID> ids) {
+        log.info("Inside retrieveUnknownIds method of Employee service...");
+        log.info("Number of employee ids to be checked : "+ids.size());
+
+        Set<UUID> unknown = new LinkedHashSet<>(ids);
+        unknown.removeAll(findAllById(ids).keySet());
+        return unknown;
+    }
+
+
+    public Optional<Employee> retrieveEmployeeById(UUID id) {
         log.info("Inside retrieveEmployeeById method of Employee service...");
-        log.info("Employee id to be retrieved : "+UUID.fromString(id));
+        log.info("Employee id to be retrieved : "+id);
+
+        heavyHitters.record(HeavyHitterTracker.Lookup.ID, id);
+        Optional<Employee> cached = cache.get(id);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        if (negativeCache.isAbsentId(id)) {
+            return Optional.empty();
+        }
+        long stamp = cache.invalidationStamp(id);
+        StampedLookup lookup = byIdLookups.execute(id, () -> {
+            long readAt = cache.invalidationStamp(id);
+            Optional<Employee> employee = repo.findById(id);
+            employee.ifPresent(found -> cache.putIfNotInvalidatedSince(found, readAt));
+            return new StampedLookup(employee, readAt);
+        });
+        if (lookup.stamp != stamp) {
+            // Joined a read that began before a write this caller has to see.
+            return repo.findById(id);
+        }
+        return lookup.employee;
+    }
+
+    /**
+     * Resolves many ids at once: cached employees are served from the cache and the rest are fetched with a
+     * single {@code $in} query. Employees come back in the order of the given ids, duplicates removed, and
+     * unknown ids are reported instead of failing the batch.
+     */
+    public EmployeeBatch retrieveEmployeesByIds(List<UUID> ids) {
+        log.info("Inside retrieveEmployeesByIds method of Employee service...");
+        log.info("Number of employee ids to be retrieved : "+ids.size());
 
-        return repo.findById(id);
+        if (ids.isEmpty() || ids.size() > maxBatchIds) {
+            throw new BadRequestException("Between 1 and "+maxBatchIds+" employee ids can be retrieved at once!");
+        }
+
+        Map<UUID, Employee> found = findAllById(ids);
+        List<Employee> employees = new ArrayList<>();
+        List<UUID> missingIds = new ArrayList<>();
+        for (UUID id : new LinkedHashSet<>(ids)) {
+            Employee employee = found.get(id);
+            if (employee != null) {
+                employees.add(employee);
+            } else {
+                missingIds.add(id);
+            }
+        }
+        return EmployeeBatch.builder().employees(employees).missingIds(missingIds).build();
     }
 
-    public Employee retrieveEmployeeByFirstName(String firstName) {
+    public Optional<Employee> retrieveEmployeeByFirstName(String firstName) {
         log.info("Inside retrieveEmployeeByFirstName method of Employee service...");
         log.info("Employee firstName to be retrieved : "+firstName);
 
-        return repo.findByFirstName(firstName);
+        heavyHitters.record(HeavyHitterTracker.Lookup.FIRST_NAME, firstName);
+        if (negativeCache.isAbsentFirstName(firstName)) {
+            return Optional.empty();
+        }
+        return byFirstNameLookups.execute(firstName, () -> repo.findByFirstName(firstName));
+    }
+
+    /**
+     * Looks the employee up on the unique emailAddresses.email index; any of its addresses matches, primary
+     * or not.
+     */
+    public Optional<Employee> retrieveEmployeeByEmail(String email) {
+        log.info("Inside retrieveEmployeeByEmail method of Employee service...");
+        log.info("Employee email to be retrieved : "+email);
+
+        return repo.findByEmailAddressesEmail(email);
     }
 
     public List<Employee> retrieveEmployeesByDepartmentName(String departmentName) {
         log.info("Inside retrieveEmployeesByDepartmentName method of Employee service...");
         log.info("Employee departmentName to be retrieved : "+departmentName);
 
-        return repo.findByDepartmentName(departmentName);
+        heavyHitters.record(HeavyHitterTracker.Lookup.DEPARTMENT_NAME, departmentName);
+        return byDepartmentNameLookups.execute(departmentName, () -> departments.findByName(departmentName)
+                .map(department -> repo.findByDepartmentId(department.getDepartmentId()))
+                .orElse(Collections.emptyList()));
+    }
+
+    /**
+     * Whether the employee exists, without loading it: from the caches when they know, otherwise from the
+     * _id index alone.
+     */
+    public boolean employeeExists(UUID id) {
+        log.info("Inside employeeExists method of Employee service...");
+        log.info("Employee id to be checked : "+id);
+
+        if (cache.get(id).isPresent()) {
+            return true;
+        }
+        return !negativeCache.isAbsentId(id) && repo.existsId(id);
+    }
+
+    public boolean employeeWithFirstNameExists(String firstName) {
+        log.info("Inside employeeWithFirstNameExists method of Employee service...");
+        log.info("Employee firstName to be checked : "+firstName);
+
+        return !negativeCache.isAbsentFirstName(firstName) && repo.existsFirstName(firstName);
+    }
+
+    public long countEmployeesInDepartment(String departmentName) {
+        log.info("Inside countEmployeesInDepartment method of Employee service...");
+        log.info("Employee departmentName to be counted : "+departmentName);
+
+        return departments.findByName(departmentName)
+                .map(department -> repo.countInDepartment(department.getDepartmentId()))
+                .orElse(0L);
+    }
+
+    /**
+     * Returns the employees reporting to the manager through at most depth levels, level by level with the
+     * direct reports first. The reporting lines come from the {@link EmployeeOrgChart} when it knows them,
+     * and the employees then from the cache and one {@code $in} query; otherwise one query per level fetches
+     * the subtree and the chart records it. Subtrees of more than {@code employees.reports.max-size}
+     * employees are refused rather than loaded, so the caller has to ask for fewer levels.
+     */
+    public List<Employee> retrieveReports(UUID managerId, Integer depth) {
+        log.info("Inside retrieveReports method of Employee service...");
+        log.info("Employee id to retrieve the reports of : "+managerId);
+
+        int maxDepth = depth == null ? maxReportDepth : depth;
+        if (maxDepth < 1 || maxDepth > maxReportDepth) {
+            throw new BadRequestException("depth should be between 1 and "+maxReportDepth+"!");
+        }
+
+        Optional<List<UUID>> known = orgChart.reports(managerId, maxDepth);
+        if (known.isPresent()) {
+            checkReports(known.get().size(), maxDepth);
+            Map<UUID, Employee> found = findAllById(known.get());
+            return known.get().stream().map(found::get).filter(Objects::nonNull).collect(Collectors.toList());
+        }
+        if (!employeeExists(managerId)) {
+            throw new ItemNotFoundException("The employee with id : "+managerId+" could not be found!");
+        }
+        long generation = orgChart.generation();
+        List<Employee> reports = repo.findReports(managerId, maxDepth, maxReports + 1);
+        checkReports(reports.size(), maxDepth);
+        return orgChart.record(managerId, maxDepth, reports, generation);
+    }
+
+    /**
+     * Returns a page of the employees living in a state, in (city, id) order; the cursor is the one of the
+     * previous page, or null for the first one.
+     */
+    public EmployeePage retrieveEmployeesInState(String state, String cursor, int limit) {
+        log.info("Inside retrieveEmployeesInState method of Employee service...");
+        log.info("Employee state to be retrieved : "+state);
+
+        checkLocationPageSize(limit);
+        LocationCursor after = LocationCursor.decode(cursor);
+        return page(repo.findInState(state, after == null ? null : after.key, after == null ? null : after.id, limit + 1),
+                limit, employee -> employee.getAddress().getCity());
+    }
+
+    /**
+     * Returns a page of the employees living in a city of a state, in id order.
+     */
+    public EmployeePage retrieveEmployeesInCity(String state, String city, String cursor, int limit) {
+        log.info("Inside retrieveEmployeesInCity method of Employee service...");
+        log.info("Employee city to be retrieved : "+city+", "+state);
+
+        checkLocationPageSize(limit);
+        LocationCursor after = LocationCursor.decode(cursor);
+        return page(repo.findInCity(state, city, after == null ? null : after.id, limit + 1), limit, employee -> "");
+    }
+
+    /**
+     * Returns a page of the employees with a zipcode between from and to, both included, in (zipcode, id) order.
+     */
+    public EmployeePage retrieveEmployeesInZipcodeRange(int from, int to, String cursor, int limit) {
+        log.info("Inside retrieveEmployeesInZipcodeRange method of Employee service...");
+        log.info("Employee zipcodes to be retrieved : "+from+" to "+to);
+
+        checkZipcodeRange(from, to);
+        checkLocationPageSize(limit);
+        LocationCursor after = LocationCursor.decode(cursor);
+        Integer afterZipcode = null;
+        if (after != null) {
+            try {
+                afterZipcode = Integer.valueOf(after.key);
+            } catch (NumberFormatException e) {
+                throw new BadRequestException(LocationCursor.INVALID);
+            }
+        }
+        return page(repo.findInZipcodeRange(from, to, afterZipcode, after == null ? null : after.id, limit + 1),
+                limit, employee -> String.valueOf(employee.getAddress().getZipcode()));
     }
 
+    public long countEmployeesInState(String state) {
+        log.info("Inside countEmployeesInState method of Employee service...");
+        log.info("Employee state to be counted : "+state);
+
+        return repo.countInState(state);
+    }
+
+    public long countEmployeesInCity(String state, String city) {
+        log.info("Inside countEmployeesInCity method of Employee service...");
+        log.info("Employee city to be counted : "+city+", "+state);
+
+        return repo.countInCity(state, city);
+    }
 
-    public Employee updateEmployee(Employee updateBody) throws ParseException {
+    public long countEmployeesInZipcodeRange(int from, int to) {
+        log.info("Inside countEmployeesInZipcodeRange method of Employee service...");
+        log.info("Employee zipcodes to be counted : "+from+" to "+to);
+
+        checkZipcodeRange(from, to);
+        return repo.countInZipcodeRange(from, to);
+    }
+
+
+    public Employee updateEmployee(Employee updateBody) {
         log.info("Inside updateEmployee method of Employee service...");
         log.info("Employee id to be updated : "+updateBody.getId());
 
-        Employee original = retrieveEmployeeById(updateBody.getId());
-        if(original != null) {
+        // Read past the cache: the original is mutated below and cached instances are shared.
+        Employee original = repo.findById(updateBody.getId())
+                .orElseThrow(() -> new ItemNotFoundException("The employee you wish to update doesn't exist!"));
+
+        if(original.equals(updateBody)) {
+            throw new DuplicateItemException("The employee details you wish to update to already exists!");
+        }
+        if (!Objects.equals(original.getManagerId(), updateBody.getManagerId())) {
+            checkManager(original.getId(), updateBody.getManagerId());
+        }
+        if (!Objects.equals(original.getDepartmentId(), updateBody.getDepartmentId())) {
+            departments.checkDepartment(updateBody);
+        }
+        Employee before = original.toBuilder().build();
+        before.setCreatedAt(original.getCreatedAt());
+
+        original.setFirstName(updateBody.getFirstName());
+        original.setLastName(updateBody.getLastName());
+        original.setDepartmentId(updateBody.getDepartmentId());
+        original.setManagerId(updateBody.getManagerId());
+        original.setAddress(updateBody.getAddress());
+        original.setUpdatedAt(LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS));
+        original.setEmailAddresses(updateBody.getEmailAddresses());
+
+        Employee updated;
+        try {
+            updated = repo.save(original);
+        } catch (DuplicateKeyException ex) {
+            throw new DuplicateItemException(isEmailConflict(ex) ? EMAIL_IN_USE : NATURAL_KEY_IN_USE);
+        }
+        cache.evict(updated.getId());
+        recordWritten(Collections.singletonList(updated), managersChanged(before, updated));
+        departmentSummaries.changed(before, updated);
+        changeFeed.publish(EmployeeChangeEvent.Type.UPDATED, updated.getId(), updated);
+        return updated;
+    }
+
+    /**
+     * Applies a JSON Merge Patch, or a JSON Patch when jsonPatch is set, to the stored employee. The result
+     * is validated like a full update, then only what the patch changed is written: $set and $unset on the
+     * fields, $push or $pull on the email addresses, in one update that is conditional on the version the
+     * patch was applied to. When the employee changed in between, the patch is applied again to the newer
+     * version.
+     */
+    public Employee patchEmployee(UUID id, JsonNode patch, boolean jsonPatch) {
+        log.info("Inside patchEmployee method of Employee service...");
+        log.info("Employee id to be patched : "+id);
 
-            if(original.equals(updateBody)) {
-                throw new DuplicateItemException("The employee details you wish to update to already exists!");
+        for (int attempt = 0; attempt < PATCH_ATTEMPTS; attempt++) {
+            Employee original = repo.findById(id)
+                    .orElseThrow(() -> new ItemNotFoundException("The employee you wish to patch doesn't exist!"));
+            Employee patched = applyPatch(original, patch, jsonPatch);
+            List<String> violations = EmployeeValidator.validate(patched);
+            if (!violations.isEmpty()) {
+                throw new BadRequestException(String.join(" ", violations));
             }
 
-            original.setFirstName(updateBody.getFirstName());
-            original.setLastName(updateBody.getLastName());
-            original.setDepartment(updateBody.getDepartment());
-            original.setAddress(updateBody.getAddress());
-            original.setUpdatedAt(LocalDateTime.now());
-            original.setEmailAddresses(updateBody.getEmailAddresses());
+            if (!Objects.equals(original.getManagerId(), patched.getManagerId())) {
+                checkManager(id, patched.getManagerId());
+            }
+            if (!Objects.equals(original.getDepartmentId(), patched.getDepartmentId())) {
+                departments.checkDepartment(patched);
+            }
+
+            EmployeeUpdate update = EmployeeUpdate.between(original, patched);
+            if (update.isEmpty()) {
+                return original;
+            }
+            update.set("updatedAt", LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS));
 
-            return repo.save(original);
-        } else {
-            throw new ItemNotFoundException("The employee you wish to update doesn't exist!");
+            Optional<Employee> updated;
+            try {
+                updated = repo.applyUpdate(id, original.getUpdatedAt(), update);
+            } catch (DuplicateKeyException ex) {
+                throw new DuplicateItemException(isEmailConflict(ex) ? EMAIL_IN_USE : NATURAL_KEY_IN_USE);
+            }
+            if (updated.isPresent()) {
+                cache.evict(id);
+                recordWritten(Collections.singletonList(updated.get()), managersChanged(original, updated.get()));
+                departmentSummaries.changed(original, updated.get());
+                changeFeed.publish(EmployeeChangeEvent.Type.UPDATED, id, updated.get());
+                return updated.get();
+            }
         }
+        throw new DuplicateItemException("The employee kept changing while it was being patched, please retry!");
     }
 
-    public void deleteEmployee(String id) {
+    public void deleteEmployee(UUID id) {
         log.info("Inside deleteEmployee method of Employee service...");
         log.info("Employee id to be updated : "+id);
 
-        Employee employee = retrieveEmployeeById(id);
-        if (employee != null) {
-            repo.delete(employee);
-        } else {
-            throw new ItemNotFoundException("The employee with id : "+id+" you wish to delete doesn't exist!");
+        // Only the call that actually removed the document counts it out of its department, writes the
+        // tombstone and announces the delete; a concurrent delete of the same id ends up here as not found.
+        Employee employee = repo.removeById(id)
+                .orElseThrow(() -> new ItemNotFoundException("The employee with id : "+id+" you wish to delete doesn't exist!"));
+        repo.saveTombstone(EmployeeTombstone.builder().id(id).deletedAt(LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS)).build());
+        cache.evict(id);
+        Set<UUID> managers = managersOf(Collections.singletonList(employee));
+        managers.add(id);
+        orgChart.forget(managers);
+        invalidateElsewhere(id, managers);
+        departmentSummaries.left(employee);
+        changeFeed.publish(EmployeeChangeEvent.Type.DELETED, id, null);
+    }
+
+    /**
+     * Returns the employees changed and deleted after a watermark, in (updatedAt, id) order. The position is
+     * the cursor of a previous page or, for the first sync, a timestamp. Changes younger than
+     * {@code employees.delta.settle-ms} are held back so writes that commit late, or on a node with a
+     * slightly slower clock, can't end up behind a watermark that was already handed out.
+     */
+    public EmployeeDelta retrieveEmployeeChangesSince(String since, String cursor, int limit) {
+        log.info("Inside retrieveEmployeeChangesSince method of Employee service...");
+        log.info("Employee changes to be retrieved after : "+(cursor != null ? cursor : since));
+
+        if (limit < 1 || limit > maxDeltaPageSize) {
+            throw new BadRequestException("Between 1 and "+maxDeltaPageSize+" changes can be retrieved at once!");
+        }
+        DeltaPosition from = cursor != null ? DeltaPosition.decode(cursor) : DeltaPosition.of(since);
+
+        List<DeltaPosition> positions = new ArrayList<>();
+        for (Employee employee : repo.findUpdatedAfter(from.at, from.id, limit + 1)) {
+            EmployeeChangeEvent.Type type = employee.getUpdatedAt().equals(employee.getCreatedAt())
+                    ? EmployeeChangeEvent.Type.CREATED : EmployeeChangeEvent.Type.UPDATED;
+            positions.add(new DeltaPosition(employee.getUpdatedAt(), employee.getId(), type, employee));
+        }
+        for (EmployeeTombstone tombstone : repo.findTombstonesAfter(from.at, from.id, limit + 1)) {
+            positions.add(new DeltaPosition(tombstone.getDeletedAt(), tombstone.getId(), EmployeeChangeEvent.Type.DELETED, null));
+        }
+        positions.sort(null);
+
+        LocalDateTime settled = LocalDateTime.now().minus(deltaSettleMillis, ChronoUnit.MILLIS);
+        List<EmployeeChangeEvent> changes = new ArrayList<>();
+        DeltaPosition watermark = from;
+        boolean hasMore = false;
+        for (DeltaPosition position : positions) {
+            if (position.at.isAfter(settled)) {
+                break;
+            }
+            if (changes.size() == limit) {
+                hasMore = true;
+                break;
+            }
+            changes.add(position.toEvent());
+            watermark = position;
+        }
+
+        return EmployeeDelta.builder()
+                .changes(changes)
+                .watermark(watermark.encode())
+                .hasMore(hasMore)
+                .build();
+    }
+
+
+    /**
+     * Whether the write was rejected by the unique email index rather than by the firstName, lastName and
+     * department one; the driver only tells them apart by the index named in the error.
+     */
+    private static boolean isEmailConflict(DuplicateKeyException ex) {
+        return ex.getMessage() != null && ex.getMessage().contains(EmployeeRepository.EMAIL_INDEX);
+    }
+
+    /**
+     * The stored employee already holding one of the employee's email addresses.
+     */
+    private Optional<Employee> emailHolderOf(Employee employee) {
+        for (EmailAddress emailAddress : employee.getEmailAddresses()) {
+            Optional<Employee> holder = repo.findByEmailAddressesEmail(emailAddress.getEmail());
+            if (holder.isPresent()) {
+                return holder;
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Whether both share the firstName, lastName and department the unique index identifies employees by,
+     * i.e. the create is a replay of one that already succeeded.
+     */
+    private static boolean isSameEmployee(Employee stored, Employee employee) {
+        return Objects.equals(stored.getFirstName(), employee.getFirstName())
+                && Objects.equals(stored.getLastName(), employee.getLastName())
+                && stored.getDepartmentId() != null && stored.getDepartmentId().equals(employee.getDepartmentId());
+    }
+
+    private Employee applyPatch(Employee original, JsonNode patch, boolean jsonPatch) {
+        JsonNode document = objectMapper.valueToTree(original);
+        JsonNode patched;
+        try {
+            patched = jsonPatch ? JsonPatches.applyJsonPatch(document, patch) : JsonPatches.applyMergePatch(document, patch);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage());
+        }
+        for (String field : READ_ONLY_FIELDS) {
+            if (!Objects.equals(document.get(field), patched.get(field))) {
+                throw new BadRequestException("id, createdAt and updatedAt can't be patched!");
+            }
+        }
+        try {
+            return objectMapper.treeToValue(patched, Employee.class);
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            throw new BadRequestException("The patched employee is malformed!");
+        }
+    }
+
+    private void checkLocationPageSize(int limit) {
+        if (limit < 1 || limit > maxLocationPageSize) {
+            throw new BadRequestException("limit should be between 1 and "+maxLocationPageSize+"!");
+        }
+    }
+
+    private static void checkZipcodeRange(int from, int to) {
+        if (from > to) {
+            throw new BadRequestException("from should not be greater than to!");
+        }
+    }
+
+    private void checkReports(int found, int maxDepth) {
+        if (found > maxReports) {
+            throw new BadRequestException("More than "+maxReports+" employees report to this one within "+maxDepth+" levels, ask for fewer levels!");
+        }
+    }
+
+    /**
+     * Trims the one employee fetched past the limit, which only tells whether another page exists.
+     */
+    private static EmployeePage page(List<Employee> employees, int limit, Function<Employee, String> key) {
+        if (employees.size() <= limit) {
+            return EmployeePage.builder().employees(employees).hasMore(false).build();
+        }
+        List<Employee> page = employees.subList(0, limit);
+        Employee last = page.get(limit - 1);
+        return EmployeePage.builder()
+                .employees(new ArrayList<>(page))
+                .cursor(new LocationCursor(key.apply(last), last.getId()).encode())
+                .hasMore(true)
+                .build();
+    }
+
+    /**
+     * Adds the keys of written employees to the negative cache and forgets the direct reports of the managers
+     * whose reporting lines changed, then tells the other instances to evict the employees and do the same.
+     */
+    private void recordWritten(List<Employee> written, Set<UUID> managers) {
+        negativeCache.addAll(written);
+        if (!managers.isEmpty()) {
+            orgChart.forget(managers);
+        }
+        if (invalidationBus != null && !written.isEmpty()) {
+            invalidationBus.publish(written.stream().map(Employee::getId).collect(Collectors.toList()),
+                    written.stream().map(Employee::getFirstName).filter(Objects::nonNull).collect(Collectors.toList()),
+                    managers);
+        }
+    }
+
+    /**
+     * Makes the keys of employees about to be created known, here and to the other instances, before they are
+     * written, so no negative cache can deny an employee that already exists. Keys of employees that end up
+     * not being written only cost a query each until the next rebuild. A rebuild whose scan runs between this
+     * and the write misses them, which is why {@link #recordWritten} adds them again once they are written.
+     */
+    private void announceCreated(List<Employee> created) {
+        negativeCache.addAll(created);
+        if (invalidationBus != null && !created.isEmpty()) {
+            invalidationBus.publish(created.stream().map(Employee::getId).collect(Collectors.toList()),
+                    created.stream().map(Employee::getFirstName).filter(Objects::nonNull).collect(Collectors.toList()));
+        }
+    }
+
+    private static Set<UUID> managersOf(List<Employee> employees) {
+        Set<UUID> managers = new LinkedHashSet<>();
+        for (Employee employee : employees) {
+            if (employee.getManagerId() != null) {
+                managers.add(employee.getManagerId());
+            }
+        }
+        return managers;
+    }
+
+    /**
+     * The old and the new manager when the employee moved, otherwise nobody.
+     */
+    private static Set<UUID> managersChanged(Employee before, Employee after) {
+        return Objects.equals(before.getManagerId(), after.getManagerId()) ? new LinkedHashSet<>() : managersOf(Arrays.asList(before, after));
+    }
+
+    /**
+     * Rejects a manager that doesn't exist, and for an existing employee one that reports to the employee,
+     * directly or not, since the reporting lines would then go round in a circle.
+     *
+     * The check is best-effort: it reads the chain before the write, and the write is only conditional on
+     * the employee itself, so two concurrent updates making A report to B and B to A can both pass and store
+     * a cycle. Walking the chain of every link under a lock or transaction is not worth it here, since the
+     * readers of reporting lines, this walk included, visit every employee once however the ids loop.
+     */
+    private void checkManager(UUID employeeId, UUID managerId) {
+        Set<UUID> chain = new HashSet<>();
+        for (UUID next = managerId; next != null && chain.add(next); ) {
+            if (next.equals(employeeId)) {
+                throw new BadRequestException("An employee can't report to themselves or to one of their reports!");
+            }
+            Optional<Employee> manager = repo.findById(next);
+            if (!manager.isPresent()) {
+                if (next.equals(managerId)) {
+                    throw new BadRequestException("The manager with id : "+managerId+" doesn't exist!");
+                }
+                return;
+            }
+            next = manager.get().getManagerId();
+        }
+    }
+
+    /**
+     * Cached employees from the cache, the others with a single {@code $in} query; unknown ids are left out.
+     */
+    private Map<UUID, Employee> findAllById(Collection<UUID> ids) {
+        Map<UUID, Employee> found = new HashMap<>();
+        Set<UUID> uncached = new LinkedHashSet<>();
+        for (UUID id : ids) {
+            Optional<Employee> cached = cache.get(id);
+            if (cached.isPresent()) {
+                found.put(id, cached.get());
+            } else {
+                uncached.add(id);
+            }
+        }
+
+        if (!uncached.isEmpty()) {
+            Map<UUID, Long> stamps = new HashMap<>();
+            uncached.forEach(id -> stamps.put(id, cache.invalidationStamp(id)));
+            for (Employee employee : repo.findByIdIn(uncached)) {
+                found.put(employee.getId(), employee);
+                cache.putIfNotInvalidatedSince(employee, stamps.get(employee.getId()));
+            }
+        }
+        return found;
+    }
+
+    private void invalidateElsewhere(UUID id, Set<UUID> managers) {
+        if (invalidationBus != null) {
+            invalidationBus.publish(Collections.singletonList(id), Collections.emptyList(), managers);
+        }
+    }
+
+
+    /**
+     * A (key, id) position in an address index, the key being the city, the zipcode or nothing depending on
+     * the query; encoded it is the opaque cursor handed to clients.
+     */
+    /**
+     * The key and id of the last employee of a page. A null key, the city of an employee without one, is
+     * encoded as the id alone, so it doesn't come back as a city named "null".
+     */
+    private static final class LocationCursor {
+
+        private static final String INVALID = "The cursor is not one returned by this service!";
+
+        private final String key;
+        private final UUID id;
+
+        private LocationCursor(String key, UUID id) {
+            this.key = key;
+            this.id = id;
+        }
+
+        private static LocationCursor decode(String cursor) {
+            if (cursor == null) {
+                return null;
+            }
+            try {
+                String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = decoded.lastIndexOf('|');
+                return new LocationCursor(separator < 0 ? null : decoded.substring(0, separator), UUID.fromString(decoded.substring(separator + 1)));
+            } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                throw new BadRequestException(INVALID);
+            }
+        }
+
+        private String encode() {
+            String position = key == null ? id.toString() : key + '|' + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * The result of a lookup by id, with the invalidation stamp taken before it was read.
+     */
+    private static final class StampedLookup {
+
+        private final Optional<Employee> employee;
+        private final long stamp;
+
+        private StampedLookup(Optional<Employee> employee, long stamp) {
+            this.employee = employee;
+            this.stamp = stamp;
+        }
+    }
+
+    /**
+     * A (timestamp, id) position in the change order; encoded it is the opaque watermark handed to clients.
+     */
+    private static final class DeltaPosition implements Comparable<DeltaPosition> {
+
+        private final LocalDateTime at;
+        private final UUID id;
+        private final EmployeeChangeEvent.Type type;
+        private final Employee employee;
+
+        private DeltaPosition(LocalDateTime at, UUID id, EmployeeChangeEvent.Type type, Employee employee) {
+            this.at = at;
+            this.id = id;
+            this.type = type;
+            this.employee = employee;
+        }
+
+        private static DeltaPosition of(String since) {
+            if (since == null) {
+                throw new BadRequestException("Either a ts or a cursor is required!");
+            }
+            try {
+                return new DeltaPosition(LocalDateTime.from(JsonDateSerializer.formatter.parse(since)), null, null, null);
+            } catch (DateTimeException e) {
+                throw new BadRequestException("ts should look like 2021-01-31T23:59:59.000Z!");
+            }
+        }
+
+        private static DeltaPosition decode(String cursor) {
+            try {
+                String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = decoded.indexOf('|');
+                String id = decoded.substring(separator + 1);
+                return new DeltaPosition(LocalDateTime.from(JsonDateSerializer.formatter.parse(decoded.substring(0, separator))),
+                        id.isEmpty() ? null : UUID.fromString(id), null, null);
+            } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeException e) {
+                throw new BadRequestException("The cursor is not a watermark returned by this service!");
+            }
+        }
+
+        private String encode() {
+            String position = JsonDateSerializer.formatter.format(at) + '|' + (id == null ? "" : id.toString());
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private EmployeeChangeEvent toEvent() {
+            return EmployeeChangeEvent.builder()
+                    .token(encode())
+                    .type(type)
+                    .employeeId(id)
+                    .employee(employee)
+                    .timestamp(at.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli())
+                    .build();
+        }
+
+        @Override
+        public int compareTo(DeltaPosition other) {
+            int byTime = at.compareTo(other.at);
+            return byTime != 0 ? byTime : UuidOrder.BINARY.compare(id, other.id);
         }
     }
 }
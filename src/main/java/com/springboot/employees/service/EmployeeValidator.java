@@ -0,0 +1,119 @@
+package com.springboot.employees.service;
+
+import com.springboot.employees.domain.Department;
+import com.springboot.employees.domain.Employee;
+import org.springframework.data.annotation.Transient;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Checks an employee against the rules the API promises: the {@code @NotBlank}, {@code @NotEmpty} and
+ * {@code @NotNull} constraints declared on {@link Employee} and the domain objects it contains, and at least
+ * one primary email address. The constraints are read from the annotations, so the domain classes stay the
+ * one place they are defined.
+ *
+ * {@code @NotBlank} on a field that is not text, like the department id, means the value is required. Fields
+ * that are not stored, like the department sent along with an employee, are left to the code using them.
+ */
+final class EmployeeValidator {
+
+    static final String PRIMARY_EMAIL_REQUIRED = "At least one emailAddress should be marked as primary!";
+
+    private static final String DOMAIN_PACKAGE = Employee.class.getPackage().getName();
+
+    private static final ClassValue<List<Field>> CONSTRAINED_FIELDS = new ClassValue<List<Field>>() {
+        @Override
+        protected List<Field> computeValue(Class<?> type) {
+            List<Field> fields = new ArrayList<>();
+            for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+                for (Field field : current.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers())) {
+                        field.setAccessible(true);
+                        fields.add(field);
+                    }
+                }
+            }
+            return Collections.unmodifiableList(fields);
+        }
+    };
+
+    private EmployeeValidator() {
+    }
+
+    static boolean hasPrimaryEmail(Employee employee) {
+        return employee.getEmailAddresses() != null
+                && employee.getEmailAddresses().stream().anyMatch(email -> email != null && email.isPrimary());
+    }
+
+    /**
+     * The messages of every rule the employee breaks, empty when it is valid.
+     */
+    static List<String> validate(Employee employee) {
+        List<String> violations = new ArrayList<>();
+        check(employee, violations);
+        if (violations.isEmpty() && !hasPrimaryEmail(employee)) {
+            violations.add(PRIMARY_EMAIL_REQUIRED);
+        }
+        return violations;
+    }
+
+
+    /**
+     * The messages of every rule the department breaks, empty when it is valid.
+     */
+    static List<String> validate(Department department) {
+        List<String> violations = new ArrayList<>();
+        check(department, violations);
+        return violations;
+    }
+
+
+    private static void check(Object bean, List<String> violations) {
+        for (Field field : CONSTRAINED_FIELDS.get(bean.getClass())) {
+            if (field.getType().isPrimitive() || field.isAnnotationPresent(Transient.class)) {
+                continue;
+            }
+            Object value = valueOf(field, bean);
+
+            NotBlank notBlank = field.getAnnotation(NotBlank.class);
+            NotEmpty notEmpty = field.getAnnotation(NotEmpty.class);
+            NotNull notNull = field.getAnnotation(NotNull.class);
+            if (notBlank != null && (value == null || value instanceof CharSequence && value.toString().trim().isEmpty())) {
+                violations.add(notBlank.message());
+            } else if (notEmpty != null && (value == null || value instanceof Collection && ((Collection<?>) value).isEmpty()
+                    || value instanceof CharSequence && ((CharSequence) value).length() == 0)) {
+                violations.add(notEmpty.message());
+            } else if (notNull != null && value == null) {
+                violations.add(notNull.message());
+            } else if (value instanceof Collection) {
+                for (Object element : (Collection<?>) value) {
+                    if (isDomainObject(element)) {
+                        check(element, violations);
+                    }
+                }
+            } else if (isDomainObject(value)) {
+                check(value, violations);
+            }
+        }
+    }
+
+    private static boolean isDomainObject(Object value) {
+        return value != null && DOMAIN_PACKAGE.equals(value.getClass().getPackage().getName()) && !value.getClass().isEnum();
+    }
+
+    private static Object valueOf(Field field, Object bean) {
+        try {
+            return field.get(bean);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
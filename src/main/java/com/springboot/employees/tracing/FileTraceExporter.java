@@ -0,0 +1,96 @@
+package com.springboot.employees.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends every trace as one JSON line to {@code employees.tracing.file}, selected with
+ * {@code employees.tracing.exporter=file}. Traces are handed to a writer thread through a queue of
+ * {@code employees.tracing.queue-size}; when the disk can't keep up traces are dropped and counted in
+ * {@code employees.tracing.dropped} rather than slowing requests down.
+ */
+@Component
+@ConditionalOnProperty(name = "employees.tracing.exporter", havingValue = "file")
+@Slf4j
+public class FileTraceExporter implements TraceExporter {
+
+    private final Path path;
+    private final ObjectMapper objectMapper;
+    private final BlockingQueue<Map<String, Object>> queue;
+    private final Counter dropped;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public FileTraceExporter(@Value("${employees.tracing.file}") String path,
+                             @Value("${employees.tracing.queue-size}") int queueSize,
+                             ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.path = Paths.get(path);
+        this.objectMapper = objectMapper;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.dropped = Counter.builder("employees.tracing.dropped").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        running = true;
+        writer = new Thread(this::run, "trace-exporter");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    @Override
+    public void export(Map<String, Object> trace) {
+        if (!queue.offer(trace)) {
+            dropped.increment();
+        }
+    }
+
+
+    private void run() {
+        try (Writer out = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE)) {
+            while (running || !queue.isEmpty()) {
+                Map<String, Object> trace = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (trace == null) {
+                    out.flush();
+                    continue;
+                }
+                out.write(objectMapper.writeValueAsString(trace));
+                out.write('\n');
+            }
+        } catch (IOException e) {
+            log.warn("Stopped exporting traces to {}: {}", path, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
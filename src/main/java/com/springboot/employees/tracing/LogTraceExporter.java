@@ -0,0 +1,36 @@
+package com.springboot.employees.tracing;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Writes every trace as one JSON line to the {@code com.springboot.employees.tracing.LogTraceExporter}
+ * logger, selected with {@code employees.tracing.exporter=log}.
+ */
+@Component
+@ConditionalOnProperty(name = "employees.tracing.exporter", havingValue = "log")
+@Slf4j
+public class LogTraceExporter implements TraceExporter {
+
+    private final ObjectMapper objectMapper;
+
+    public LogTraceExporter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void export(Map<String, Object> trace) {
+        if (log.isInfoEnabled()) {
+            try {
+                log.info(objectMapper.writeValueAsString(trace));
+            } catch (JsonProcessingException e) {
+                log.warn("Could not export trace {}: {}", trace.get("traceId"), e.getMessage());
+            }
+        }
+    }
+}
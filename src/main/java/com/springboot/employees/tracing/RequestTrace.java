@@ -0,0 +1,147 @@
+package com.springboot.employees.tracing;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * The spans recorded while one request is handled, on the thread handling it. Spans nest: one opened while
+ * another is open becomes its child. Code that runs outside a traced request, such as background imports,
+ * records nothing, so instrumented methods can always call {@link #span(String, Supplier)}.
+ */
+public final class RequestTrace {
+
+    private static final ThreadLocal<RequestTrace> CURRENT = new ThreadLocal<>();
+
+    private final String traceId;
+    private final long startedAtMillis = System.currentTimeMillis();
+    private final long startedAtNanos = System.nanoTime();
+    private final List<Span> spans = new ArrayList<>();
+    private Span open;
+
+    private RequestTrace() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        this.traceId = String.format(Locale.ROOT, "%016x%016x", random.nextLong(), random.nextLong());
+    }
+
+    static RequestTrace start() {
+        RequestTrace trace = new RequestTrace();
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    static void stop() {
+        CURRENT.remove();
+    }
+
+    static RequestTrace current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Runs the work inside a span when a request is being traced, otherwise just runs it.
+     */
+    public static <T> T span(String name, Supplier<T> work) {
+        RequestTrace trace = CURRENT.get();
+        if (trace == null) {
+            return work.get();
+        }
+        Span span = trace.open(name);
+        try {
+            return work.get();
+        } finally {
+            trace.close(span);
+        }
+    }
+
+    Span open(String name) {
+        Span span = new Span(spans.size(), open, name, System.nanoTime() - startedAtNanos);
+        spans.add(span);
+        open = span;
+        return span;
+    }
+
+    void close(Span span) {
+        span.endNanos = System.nanoTime() - startedAtNanos;
+        open = span.parent;
+    }
+
+    /**
+     * Records a span that started and ended at the given offsets from the start of the request.
+     */
+    void add(String name, long startNanos, long endNanos) {
+        Span span = new Span(spans.size(), null, name, startNanos);
+        span.endNanos = endNanos;
+        spans.add(span);
+    }
+
+    long elapsedNanos() {
+        return System.nanoTime() - startedAtNanos;
+    }
+
+    String getTraceId() {
+        return traceId;
+    }
+
+    long getStartedAtMillis() {
+        return startedAtMillis;
+    }
+
+    List<Span> getSpans() {
+        return spans;
+    }
+
+    /**
+     * Total time per span name, in the order the names first appeared.
+     */
+    Map<String, Long> durationsByName() {
+        Map<String, Long> durations = new LinkedHashMap<>();
+        for (Span span : spans) {
+            if (span.endNanos >= 0) {
+                durations.merge(span.name, span.endNanos - span.startNanos, Long::sum);
+            }
+        }
+        return durations;
+    }
+
+
+    static final class Span {
+
+        private final int index;
+        private final Span parent;
+        private final String name;
+        private final long startNanos;
+        private long endNanos = -1;
+
+        private Span(int index, Span parent, String name, long startNanos) {
+            this.index = index;
+            this.parent = parent;
+            this.name = name;
+            this.startNanos = startNanos;
+        }
+
+        int getIndex() {
+            return index;
+        }
+
+        Span getParent() {
+            return parent;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        long getStartNanos() {
+            return startNanos;
+        }
+
+        long getEndNanos() {
+            return endNanos;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.springboot.employees.tracing;
+
+import java.util.Map;
+
+/**
+ * Ships finished request traces somewhere they can be looked at later. Exporters are called on the request
+ * thread once the response is complete, so they must not block.
+ */
+public interface TraceExporter {
+
+    /**
+     * Exports one trace, given as the JSON-ready map built by {@link TracingFilter}.
+     */
+    void export(Map<String, Object> trace);
+}
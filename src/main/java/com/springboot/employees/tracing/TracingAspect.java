@@ -0,0 +1,48 @@
+package com.springboot.employees.tracing;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Opens a span around every controller handler, every {@code EmployeeService} method and every repository
+ * call made while a request is traced. Calls outside a traced request pay for a thread-local lookup only.
+ */
+@Aspect
+@Component
+@ConditionalOnProperty(name = "employees.tracing.enabled", havingValue = "true")
+public class TracingAspect {
+
+    @Around("execution(public * com.springboot.employees.controller.*Controller.*(..))")
+    public Object traceController(ProceedingJoinPoint call) throws Throwable {
+        return trace("controller", call);
+    }
+
+    @Around("execution(public * com.springboot.employees.service.EmployeeService.*(..))")
+    public Object traceService(ProceedingJoinPoint call) throws Throwable {
+        return trace("service", call);
+    }
+
+    @Around("execution(* com.springboot.employees.persistence.*Repository+.*(..))")
+    public Object traceRepository(ProceedingJoinPoint call) throws Throwable {
+        RequestTrace trace = RequestTrace.current();
+        return trace == null ? call.proceed() : trace(trace, "repository." + call.getSignature().getName(), call);
+    }
+
+
+    private static Object trace(String name, ProceedingJoinPoint call) throws Throwable {
+        RequestTrace trace = RequestTrace.current();
+        return trace == null ? call.proceed() : trace(trace, name, call);
+    }
+
+    private static Object trace(RequestTrace trace, String name, ProceedingJoinPoint call) throws Throwable {
+        RequestTrace.Span span = trace.open(name);
+        try {
+            return call.proceed();
+        } finally {
+            trace.close(span);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.springboot.employees.tracing;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Traces every request, switched on with {@code employees.tracing.enabled}. Spans for the controller, the
+ * service, each repository call and HATEOAS link building are recorded along the way; everything between
+ * the handler returning and the response being complete is recorded as {@code serialization}.
+ *
+ * With {@code employees.tracing.server-timing} the totals per span go back in a {@code Server-Timing}
+ * header. The header has to follow the body, so those responses are buffered before they are sent. A response
+ * stops being buffered, and gets no header, as soon as it turns out to be an event stream or the request goes
+ * async, whatever the request accepted. Finished traces go to the configured {@link TraceExporter}.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = "employees.tracing.enabled", havingValue = "true")
+public class TracingFilter extends OncePerRequestFilter {
+
+    static final String SERVER_TIMING = "Server-Timing";
+
+    private final boolean serverTiming;
+    private final ObjectProvider<TraceExporter> exporter;
+
+    public TracingFilter(@Value("${employees.tracing.server-timing}") boolean serverTiming,
+                         ObjectProvider<TraceExporter> exporter) {
+        this.serverTiming = serverTiming;
+        this.exporter = exporter;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RequestTrace trace = RequestTrace.start();
+        ServerTimingResponse buffered = serverTiming ? new ServerTimingResponse(response) : null;
+        try {
+            chain.doFilter(request, buffered != null ? buffered : response);
+        } finally {
+            RequestTrace.stop();
+            long finishedNanos = trace.elapsedNanos();
+            addSerializationSpan(trace, finishedNanos);
+            if (buffered != null && (request.isAsyncStarted() || buffered.isStreaming())) {
+                buffered.stream();
+            } else if (buffered != null) {
+                buffered.setHeader(SERVER_TIMING, serverTiming(trace, finishedNanos));
+                buffered.copyBodyToResponse();
+            }
+            TraceExporter target = exporter.getIfAvailable();
+            if (target != null && !request.isAsyncStarted()) {
+                target.export(toExport(trace, request, response.getStatus(), finishedNanos));
+            }
+        }
+    }
+
+
+    /**
+     * The last controller span ends when the handler returns; what follows is the response being written.
+     */
+    private static void addSerializationSpan(RequestTrace trace, long finishedNanos) {
+        List<RequestTrace.Span> spans = trace.getSpans();
+        for (int i = spans.size() - 1; i >= 0; i--) {
+            RequestTrace.Span span = spans.get(i);
+            if (span.getParent() == null && "controller".equals(span.getName()) && span.getEndNanos() >= 0) {
+                trace.add("serialization", span.getEndNanos(), finishedNanos);
+                return;
+            }
+        }
+    }
+
+    static String serverTiming(RequestTrace trace, long finishedNanos) {
+        StringBuilder header = new StringBuilder();
+        for (Map.Entry<String, Long> duration : trace.durationsByName().entrySet()) {
+            appendMetric(header, duration.getKey(), duration.getValue());
+        }
+        appendMetric(header, "total", finishedNanos);
+        return header.toString();
+    }
+
+    private static void appendMetric(StringBuilder header, String name, long nanos) {
+        if (header.length() > 0) {
+            header.append(", ");
+        }
+        header.append(name).append(";dur=").append(String.format(Locale.ROOT, "%.3f", nanos / 1e6));
+    }
+
+    private static Map<String, Object> toExport(RequestTrace trace, HttpServletRequest request, int status, long finishedNanos) {
+        Object route = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String rootId = trace.getTraceId().substring(16);
+
+        List<Map<String, Object>> spans = new ArrayList<>(trace.getSpans().size());
+        for (RequestTrace.Span span : trace.getSpans()) {
+            Map<String, Object> exported = new LinkedHashMap<>();
+            exported.put("spanId", spanId(rootId, span.getIndex()));
+            exported.put("parentId", span.getParent() == null ? rootId : spanId(rootId, span.getParent().getIndex()));
+            exported.put("name", span.getName());
+            exported.put("startOffsetMicros", TimeUnit.NANOSECONDS.toMicros(span.getStartNanos()));
+            exported.put("durationMicros", TimeUnit.NANOSECONDS.toMicros(Math.max(0, span.getEndNanos() - span.getStartNanos())));
+            spans.add(exported);
+        }
+
+        Map<String, Object> exported = new LinkedHashMap<>();
+        exported.put("traceId", trace.getTraceId());
+        exported.put("spanId", rootId);
+        exported.put("name", request.getMethod() + " " + (route != null ? route : request.getRequestURI()));
+        exported.put("status", status);
+        exported.put("startEpochMillis", trace.getStartedAtMillis());
+        exported.put("durationMicros", TimeUnit.NANOSECONDS.toMicros(finishedNanos));
+        exported.put("spans", spans);
+        return exported;
+    }
+
+    private static String spanId(String rootId, int index) {
+        return rootId.substring(0, 8) + String.format(Locale.ROOT, "%08x", index + 1);
+    }
+
+    /**
+     * Buffers the body until the content type says it is an event stream; from then on everything written
+     * goes straight to the client.
+     */
+    private static final class ServerTimingResponse extends ContentCachingResponseWrapper {
+
+        private boolean streaming;
+
+        ServerTimingResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        boolean isStreaming() {
+            return streaming;
+        }
+
+        void stream() throws IOException {
+            if (!streaming) {
+                copyBodyToResponse(false);
+                streaming = true;
+            }
+        }
+
+        @Override
+        public void setContentType(String type) {
+            super.setContentType(type);
+            streamIfEventStream(HttpHeaders.CONTENT_TYPE, type);
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            super.setHeader(name, value);
+            streamIfEventStream(name, value);
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            super.addHeader(name, value);
+            streamIfEventStream(name, value);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            return streaming ? getResponse().getOutputStream() : super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            return streaming ? getResponse().getWriter() : super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (streaming) {
+                getResponse().flushBuffer();
+            } else {
+                super.flushBuffer();
+            }
+        }
+
+        private void streamIfEventStream(String name, String value) {
+            if (HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(name) && value != null
+                    && value.toLowerCase(Locale.ROOT).startsWith(MediaType.TEXT_EVENT_STREAM_VALUE)) {
+                try {
+                    stream();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+}
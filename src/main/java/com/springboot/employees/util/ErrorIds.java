@@ -0,0 +1,22 @@
+package com.springboot.employees.util;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generates the ids returned with error responses. They keep the random UUID format clients already see,
+ * but draw from {@link ThreadLocalRandom} instead of the contended {@code SecureRandom} behind
+ * {@link UUID#randomUUID()}; the ids only correlate logs and need not be unguessable.
+ */
+public final class ErrorIds {
+
+    private ErrorIds() {
+    }
+
+    public static String next() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long mostSigBits = (random.nextLong() & 0xFFFFFFFFFFFF0FFFL) | 0x0000000000004000L;
+        long leastSigBits = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits).toString();
+    }
+}
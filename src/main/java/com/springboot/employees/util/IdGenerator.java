@@ -0,0 +1,11 @@
+package com.springboot.employees.util;
+
+import java.util.UUID;
+
+/**
+ * Strategy for the ids of new employees, picked with {@code employees.ids.strategy}.
+ */
+public interface IdGenerator {
+
+    UUID next();
+}
@@ -0,0 +1,189 @@
+package com.springboot.employees.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies JSON Merge Patch (RFC 7386) and JSON Patch (RFC 6902) documents to Jackson trees. The target is
+ * never modified; a patch that is malformed or does not apply raises an {@link IllegalArgumentException}
+ * whose message can be shown to the client.
+ */
+public final class JsonPatches {
+
+    public static final String MERGE_PATCH_JSON_VALUE = "application/merge-patch+json";
+
+    public static final String JSON_PATCH_JSON_VALUE = "application/json-patch+json";
+
+    private JsonPatches() {
+    }
+
+    public static JsonNode applyMergePatch(JsonNode target, JsonNode patch) {
+        if (patch == null || !patch.isObject()) {
+            return patch == null ? target : patch.deepCopy();
+        }
+        ObjectNode merged = target != null && target.isObject() ? ((ObjectNode) target).deepCopy() : JsonNodeFactory.instance.objectNode();
+        Iterator<Map.Entry<String, JsonNode>> fields = patch.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if (field.getValue().isNull()) {
+                merged.remove(field.getKey());
+            } else {
+                merged.set(field.getKey(), applyMergePatch(merged.get(field.getKey()), field.getValue()));
+            }
+        }
+        return merged;
+    }
+
+    public static JsonNode applyJsonPatch(JsonNode target, JsonNode patch) {
+        if (patch == null || !patch.isArray()) {
+            throw new IllegalArgumentException("A JSON Patch should be an array of operations!");
+        }
+        JsonNode document = target.deepCopy();
+        for (JsonNode operation : patch) {
+            String op = operation.path("op").asText();
+            String path = required(operation, "path");
+            switch (op) {
+                case "add":
+                    document = add(document, path, value(operation));
+                    break;
+                case "remove":
+                    document = remove(document, path);
+                    break;
+                case "replace":
+                    document = add(remove(document, path), path, value(operation));
+                    break;
+                case "move": {
+                    String from = required(operation, "from");
+                    JsonNode moved = resolve(document, from);
+                    document = add(remove(document, from), path, moved);
+                    break;
+                }
+                case "copy":
+                    document = add(document, path, resolve(document, required(operation, "from")).deepCopy());
+                    break;
+                case "test":
+                    if (!resolve(document, path).equals(value(operation))) {
+                        throw new IllegalArgumentException("The test of " + path + " failed!");
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported JSON Patch operation : " + op);
+            }
+        }
+        return document;
+    }
+
+
+    private static String required(JsonNode operation, String member) {
+        JsonNode value = operation.get(member);
+        if (value == null || !value.isTextual()) {
+            throw new IllegalArgumentException("Every JSON Patch operation needs a " + member + "!");
+        }
+        return value.asText();
+    }
+
+    private static JsonNode value(JsonNode operation) {
+        JsonNode value = operation.get("value");
+        if (value == null) {
+            throw new IllegalArgumentException("Every add, replace and test operation needs a value!");
+        }
+        return value;
+    }
+
+    private static List<String> tokens(String pointer) {
+        if (pointer.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (pointer.charAt(0) != '/') {
+            throw new IllegalArgumentException("Not a JSON Pointer : " + pointer);
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : pointer.substring(1).split("/", -1)) {
+            tokens.add(token.replace("~1", "/").replace("~0", "~"));
+        }
+        return tokens;
+    }
+
+    private static JsonNode resolve(JsonNode document, String pointer) {
+        JsonNode node = document;
+        for (String token : tokens(pointer)) {
+            node = node.isArray() ? node.get(index(node, token, false)) : node.get(token);
+            if (node == null) {
+                throw new IllegalArgumentException("Nothing to patch at " + pointer);
+            }
+        }
+        return node;
+    }
+
+    private static JsonNode add(JsonNode document, String pointer, JsonNode value) {
+        List<String> tokens = tokens(pointer);
+        if (tokens.isEmpty()) {
+            return value.deepCopy();
+        }
+        JsonNode parent = parent(document, pointer, tokens);
+        String last = tokens.get(tokens.size() - 1);
+        if (parent.isArray()) {
+            ArrayNode array = (ArrayNode) parent;
+            if ("-".equals(last)) {
+                array.add(value.deepCopy());
+            } else {
+                array.insert(index(array, last, true), value.deepCopy());
+            }
+        } else {
+            ((ObjectNode) parent).set(last, value.deepCopy());
+        }
+        return document;
+    }
+
+    private static JsonNode remove(JsonNode document, String pointer) {
+        List<String> tokens = tokens(pointer);
+        if (tokens.isEmpty()) {
+            throw new IllegalArgumentException("The whole document can't be removed!");
+        }
+        JsonNode parent = parent(document, pointer, tokens);
+        String last = tokens.get(tokens.size() - 1);
+        if (parent.isArray()) {
+            ((ArrayNode) parent).remove(index(parent, last, false));
+        } else if (((ObjectNode) parent).remove(last) == null) {
+            throw new IllegalArgumentException("Nothing to patch at " + pointer);
+        }
+        return document;
+    }
+
+    private static JsonNode parent(JsonNode document, String pointer, List<String> tokens) {
+        JsonNode parent = document;
+        for (String token : tokens.subList(0, tokens.size() - 1)) {
+            parent = parent.isArray() ? parent.get(index(parent, token, false)) : parent.get(token);
+            if (parent == null) {
+                throw new IllegalArgumentException("Nothing to patch at " + pointer);
+            }
+        }
+        if (!parent.isContainerNode()) {
+            throw new IllegalArgumentException("Nothing to patch at " + pointer);
+        }
+        return parent;
+    }
+
+    /**
+     * The array index a token names; one past the end is only allowed where elements are added.
+     */
+    private static int index(JsonNode array, String token, boolean insert) {
+        int index;
+        try {
+            index = Integer.parseInt(token);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not an array index : " + token);
+        }
+        if (index < 0 || index > array.size() || index == array.size() && !insert) {
+            throw new IllegalArgumentException("Array index out of bounds : " + token);
+        }
+        return index;
+    }
+}
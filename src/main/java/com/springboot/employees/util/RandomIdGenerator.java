@@ -0,0 +1,19 @@
+package com.springboot.employees.util;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Generates random version 4 UUIDs, the ids employees had before time-ordered ids were introduced.
+ */
+@Component
+@ConditionalOnProperty(name = "employees.ids.strategy", havingValue = "random")
+public class RandomIdGenerator implements IdGenerator {
+
+    @Override
+    public UUID next() {
+        return UUID.randomUUID();
+    }
+}
@@ -0,0 +1,138 @@
+package com.springboot.employees.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Scalable Bloom filter (Almeida et al.) over string keys: a key that was put is always reported as possibly
+ * present, a key that was not is reported absent except at about the given false positive rate. Once a stage
+ * holds as many keys as it was sized for, a stage twice as large with half the false positive rate is added;
+ * the first stage gets half the given rate, so the overall rate stays under it however many keys arrive.
+ * Keys can't be removed.
+ *
+ * Puts and lookups are lock-free; only adding a stage synchronizes.
+ */
+public final class ScalableBloomFilter {
+
+    private static final int GROWTH = 2;
+    private static final double TIGHTENING = 0.5;
+
+    private final List<Stage> stages = new CopyOnWriteArrayList<>();
+
+    public ScalableBloomFilter(long expectedKeys, double falsePositiveRate) {
+        if (expectedKeys < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("A Bloom filter needs at least one key and a false positive rate between 0 and 1!");
+        }
+        stages.add(new Stage(expectedKeys, falsePositiveRate * (1 - TIGHTENING)));
+    }
+
+    public void put(String key) {
+        long hash = hash(key);
+        Stage last = stages.get(stages.size() - 1);
+        if (last.keys.get() >= last.capacity) {
+            last = grow(last);
+        }
+        last.put(hash);
+    }
+
+    public boolean mightContain(String key) {
+        long hash = hash(key);
+        for (Stage stage : stages) {
+            if (stage.mightContain(hash)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * How many keys were put, counting a key put twice twice.
+     */
+    public long getKeys() {
+        return stages.stream().mapToLong(stage -> stage.keys.get()).sum();
+    }
+
+    public long getBits() {
+        return stages.stream().mapToLong(stage -> stage.bits).sum();
+    }
+
+
+    private synchronized Stage grow(Stage full) {
+        Stage last = stages.get(stages.size() - 1);
+        if (last != full) {
+            return last;
+        }
+        Stage next = new Stage(full.capacity * GROWTH, full.falsePositiveRate * TIGHTENING);
+        stages.add(next);
+        return next;
+    }
+
+    /**
+     * FNV-1a over the UTF-8 bytes, finished with the SplitMix64 mixer so that every bit of the hash is usable.
+     */
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+
+    private static final class Stage {
+
+        private final long capacity;
+        private final double falsePositiveRate;
+        private final long bits;
+        private final int hashes;
+        private final AtomicLongArray words;
+        private final AtomicLong keys = new AtomicLong();
+
+        private Stage(long capacity, double falsePositiveRate) {
+            this.capacity = capacity;
+            this.falsePositiveRate = falsePositiveRate;
+            double ln2 = Math.log(2);
+            long optimalBits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (ln2 * ln2));
+            this.words = new AtomicLongArray((int) Math.min(Integer.MAX_VALUE, (optimalBits + 63) / 64));
+            this.bits = words.length() * 64L;
+            this.hashes = Math.max(1, (int) Math.round(-Math.log(falsePositiveRate) / ln2));
+        }
+
+        private void put(long hash) {
+            // Double hashing (Kirsch and Mitzenmacher) derives all the positions from two hashes.
+            long h1 = hash;
+            long h2 = mix(hash) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Long.remainderUnsigned(h1 + i * h2, bits);
+                long mask = 1L << (bit & 63);
+                int word = (int) (bit >>> 6);
+                if ((words.get(word) & mask) == 0) {
+                    words.getAndAccumulate(word, mask, (current, set) -> current | set);
+                }
+            }
+            keys.incrementAndGet();
+        }
+
+        private boolean mightContain(long hash) {
+            long h1 = hash;
+            long h2 = mix(hash) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Long.remainderUnsigned(h1 + i * h2, bits);
+                if ((words.get((int) (bit >>> 6)) & (1L << (bit & 63))) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
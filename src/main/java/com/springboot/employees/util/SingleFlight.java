@@ -0,0 +1,125 @@
+package com.springboot.employees.util;
+
+import com.mongodb.MongoExecutionTimeoutException;
+import com.springboot.employees.deadline.RequestDeadline;
+import com.springboot.employees.exceptions.DeadlineExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent calls for the same key into one: the first caller runs the loader, everyone arriving
+ * while it is in flight waits for and shares its result (or its exception). Nothing is remembered once the
+ * call completes, so this is not a cache.
+ *
+ * The loader runs under the {@link RequestDeadline} of the caller that leads. Waiters only wait until their own
+ * deadline, and when the leader fails because its deadline ran out, either here or as a {@code maxTimeMS} in
+ * MongoDB, they don't take that failure over: they try again and one of them leads the next call.
+ *
+ * Every call is counted in {@code employees.lookups} tagged with the lookup name and whether it ran the
+ * loader ({@code executed}) or piggybacked on another call ({@code coalesced}).
+ */
+public final class SingleFlight<K, V> {
+
+    private static final Object RETRY = new Object();
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final boolean enabled;
+    private final Counter executed;
+    private final Counter coalesced;
+
+    public SingleFlight(String name, boolean enabled, MeterRegistry registry) {
+        this.enabled = enabled;
+        this.executed = Counter.builder("employees.lookups").tag("lookup", name).tag("result", "executed").register(registry);
+        this.coalesced = Counter.builder("employees.lookups").tag("lookup", name).tag("result", "coalesced").register(registry);
+        registry.gauge("employees.lookups.in-flight", Tags.of("lookup", name), inFlight, Map::size);
+    }
+
+    public V execute(K key, Supplier<V> loader) {
+        if (!enabled || key == null) {
+            executed.increment();
+            return loader.get();
+        }
+
+        while (true) {
+            CompletableFuture<V> call = new CompletableFuture<>();
+            CompletableFuture<V> leader = inFlight.putIfAbsent(key, call);
+            if (leader == null) {
+                executed.increment();
+                return lead(key, call, loader);
+            }
+            coalesced.increment();
+            Object result = await(leader);
+            if (result != RETRY) {
+                @SuppressWarnings("unchecked")
+                V value = (V) result;
+                return value;
+            }
+        }
+    }
+
+
+    /**
+     * Runs the loader; the call is taken out of flight before it completes, so a waiter that retries never
+     * finds it again.
+     */
+    private V lead(K key, CompletableFuture<V> call, Supplier<V> loader) {
+        V value;
+        try {
+            value = loader.get();
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(key, call);
+            call.completeExceptionally(e);
+            throw e;
+        }
+        inFlight.remove(key, call);
+        call.complete(value);
+        return value;
+    }
+
+    /**
+     * The result of the leader, or {@link #RETRY} when the leader ran out of its own time.
+     */
+    private static Object await(CompletableFuture<?> call) {
+        while (true) {
+            long remaining = RequestDeadline.check();
+            try {
+                return remaining == RequestDeadline.NONE ? call.get() : call.get(remaining, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // The deadline is checked again, it is spent by now or within a millisecond of rounding.
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for a lookup of the same key", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (isOutOfTime(cause)) {
+                    return RETRY;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IllegalStateException(cause);
+            }
+        }
+    }
+
+    private static boolean isOutOfTime(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DeadlineExceededException || cause instanceof MongoExecutionTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
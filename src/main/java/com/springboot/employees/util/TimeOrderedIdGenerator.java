@@ -0,0 +1,49 @@
+package com.springboot.employees.util;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates version 7 UUIDs: a 48 bit Unix millisecond timestamp, then a 12 bit counter and 62 random bits.
+ * Stored as binary they sort by creation time, so inserts append to the right edge of the {@code _id} index
+ * instead of touching random pages.
+ *
+ * The counter starts at a random value every millisecond and is incremented for ids generated in the same
+ * millisecond; when it overflows the timestamp part is advanced, so ids from one instance never go
+ * backwards, not even when the clock does.
+ */
+@Component
+@ConditionalOnProperty(name = "employees.ids.strategy", havingValue = "uuid7", matchIfMissing = true)
+public class TimeOrderedIdGenerator implements IdGenerator {
+
+    private static final int COUNTER_BITS = 12;
+
+    /**
+     * The last timestamp and counter handed out, as {@code millis << 12 | counter}.
+     */
+    private final AtomicLong lastState = new AtomicLong();
+
+    @Override
+    public UUID next() {
+        long now = System.currentTimeMillis();
+        long state;
+        long next;
+        do {
+            state = lastState.get();
+            if (now > state >>> COUNTER_BITS) {
+                // Leave half of the counter free for ids that follow within the same millisecond.
+                next = now << COUNTER_BITS | ThreadLocalRandom.current().nextInt(1 << (COUNTER_BITS - 1));
+            } else {
+                next = state + 1;
+            }
+        } while (!lastState.compareAndSet(state, next));
+
+        long mostSigBits = (next >>> COUNTER_BITS) << 16 | 0x7000L | (next & 0xFFFL);
+        long leastSigBits = (ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+}
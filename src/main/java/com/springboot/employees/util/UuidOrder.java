@@ -0,0 +1,18 @@
+package com.springboot.employees.util;
+
+import java.util.Comparator;
+import java.util.UUID;
+
+/**
+ * The order MongoDB sorts UUIDs stored as BSON binary in: byte by byte, unsigned. {@link UUID#compareTo}
+ * compares the halves as signed longs and disagrees whenever a half has its top bit set.
+ */
+public final class UuidOrder {
+
+    public static final Comparator<UUID> BINARY = Comparator
+            .comparing(UUID::getMostSignificantBits, Long::compareUnsigned)
+            .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
+
+    private UuidOrder() {
+    }
+}
@@ -3,9 +3,16 @@ package com.springboot.employees.controllers;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.springboot.employees.domain.*;
+import com.springboot.employees.exceptions.DuplicateItemException;
 import com.springboot.employees.exceptions.ItemNotFoundException;
+import com.springboot.employees.persistence.DepartmentRepository;
 import com.springboot.employees.persistence.EmployeeRepository;
+import com.springboot.employees.service.DepartmentCache;
+import com.springboot.employees.service.DepartmentService;
+import com.springboot.employees.service.DepartmentSummaryService;
+import com.springboot.employees.service.EmployeeChangeFeed;
 import com.springboot.employees.service.EmployeeService;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -15,22 +22,32 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.json.JacksonTester;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.hateoas.MediaTypes;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
-import java.text.ParseException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Optional;
 import java.util.UUID;
 
+import static org.junit.Assert.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
@@ -50,12 +67,30 @@ public class EmployeeControllerTest {
     @MockBean
     private EmployeeService service;
 
+    @MockBean
+    private DepartmentSummaryService summaryService;
+
+    @MockBean
+    private DepartmentService departmentService;
+
+    @MockBean
+    private DepartmentRepository departmentRepository;
+
+    @Autowired
+    private DepartmentCache departmentCache;
+
+    @Autowired
+    private EmployeeChangeFeed changeFeed;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     private Employee employee;
 
     private JacksonTester<Employee> jsonTester;
 
     @Before
-    public void setup() throws ParseException {
+    public void setup() {
         JacksonTester.initFields(this, objectMapper);
         employee = createEmployee();
     }
@@ -99,32 +134,245 @@ public class EmployeeControllerTest {
     @Test
     public void findEmployeeByIdTest() throws Exception {
 
-        when(service.retrieveEmployeeById(anyString())).thenReturn(employee);
+        when(service.retrieveEmployeeById(any())).thenReturn(Optional.of(employee));
 
         mvc.perform(get("/employees/"+employee.getId())
                 .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk());
     }
 
+    @Test
+    public void employeeExistsTest() throws Exception {
+        when(service.employeeExists(employee.getId())).thenReturn(true);
+        when(service.employeeWithFirstNameExists("Nobody")).thenReturn(false);
+
+        mvc.perform(head("/employees/"+employee.getId()))
+                .andExpect(status().isOk())
+                .andExpect(content().string(""));
+        mvc.perform(head("/employees/"+UUID.randomUUID()))
+                .andExpect(status().isNotFound());
+        mvc.perform(head("/employees/names/Nobody"))
+                .andExpect(status().isNotFound());
+        verify(service, never()).retrieveEmployeeById(any());
+    }
+
+    @Test
+    public void findReportsTest() throws Exception {
+        Employee report = employee.toBuilder().id(UUID.randomUUID()).firstName("Rane").managerId(employee.getId()).build();
+        when(service.retrieveReports(employee.getId(), 2)).thenReturn(Collections.singletonList(report));
+
+        mvc.perform(get("/employees/"+employee.getId()+"/reports?depth=2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._embedded.employeeList[0].managerId").value(employee.getId().toString()))
+                .andExpect(jsonPath("$._embedded.employeeList[0]._links.self.href").value("http://localhost/employees/"+report.getId()))
+                .andExpect(jsonPath("$._links.self.href").value("http://localhost/employees/"+employee.getId()+"/reports?depth=2"));
+    }
+
+    @Test
+    public void countEmployeesInDepartmentTest() throws Exception {
+        when(service.countEmployeesInDepartment("NDE")).thenReturn(42L);
+
+        mvc.perform(get("/employees/departments/names/NDE/count"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(42))
+                .andExpect(jsonPath("$._links.self.href").value("http://localhost/employees/departments/names/NDE/count"));
+    }
+
+    @Test
+    public void findEmployeeByIdRenderedOnceTest() throws Exception {
+        employee.setCreatedAt(LocalDateTime.now());
+        employee.setUpdatedAt(LocalDateTime.now());
+        when(service.retrieveEmployeeById(employee.getId())).thenReturn(Optional.of(employee));
+        double hits = meterRegistry.get("employees.responses.cache").tag("result", "hit").counter().count();
+
+        String rendered = mvc.perform(get("/employees/"+employee.getId()))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaTypes.HAL_JSON))
+                .andExpect(jsonPath("$.firstName").value(employee.getFirstName()))
+                .andExpect(jsonPath("$._links.self.href").value("http://localhost/employees/"+employee.getId()))
+                .andReturn().getResponse().getContentAsString();
+        mvc.perform(get("/employees/"+employee.getId())
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(content().string(rendered));
+        assertEquals(hits + 1, meterRegistry.get("employees.responses.cache").tag("result", "hit").counter().count(), 0.0);
+
+        Employee updated = employee.toBuilder().firstName("Vish").build();
+        updated.setUpdatedAt(employee.getUpdatedAt().plusSeconds(1));
+        when(service.retrieveEmployeeById(employee.getId())).thenReturn(Optional.of(updated));
+
+        mvc.perform(get("/employees/"+employee.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.firstName").value("Vish"));
+    }
+
+    @Test
+    public void findEmployeeWithRenamedDepartmentTest() throws Exception {
+        // Stored employees only hold the id of their department.
+        Employee stored = employee.toBuilder().id(UUID.randomUUID()).department(null).departmentId(201).build();
+        stored.setUpdatedAt(LocalDateTime.now());
+        when(service.retrieveEmployeeById(stored.getId())).thenReturn(Optional.of(stored));
+        Department research = Department.builder().departmentId(201).name("Research").size(10).function("Research").build();
+        departmentCache.put(research);
+
+        mvc.perform(get("/employees/"+stored.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.department.name").value("Research"))
+                .andExpect(jsonPath("$.departmentId").doesNotExist());
+
+        departmentCache.put(research.toBuilder().name("Platform").build());
+        mvc.perform(get("/employees/"+stored.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.department.name").value("Platform"));
+    }
+
+    @Test
+    public void findEmployeeByIdAsHalFormsTest() throws Exception {
+        employee.setUpdatedAt(LocalDateTime.now());
+        when(service.retrieveEmployeeById(employee.getId())).thenReturn(Optional.of(employee));
+
+        mvc.perform(get("/employees/"+employee.getId())
+                .accept(MediaTypes.HAL_FORMS_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaTypes.HAL_FORMS_JSON))
+                .andExpect(jsonPath("$.links[0].rel").value("self"));
+    }
+
     @Test
     public void findEmployeeByIdNegativeTest() throws Exception {
 
-        when(service.retrieveEmployeeById(anyString())).thenThrow(ItemNotFoundException.class);
+        when(service.retrieveEmployeeById(any())).thenThrow(ItemNotFoundException.class);
 
         mvc.perform(get("/employees/"+employee.getId())
                 .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    public void findMissingEmployeeByIdTest() throws Exception {
+
+        when(service.retrieveEmployeeById(any())).thenReturn(Optional.empty());
+
+        mvc.perform(get("/employees/"+employee.getId())
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.httpStatus").value(404))
+                .andExpect(jsonPath("$.errorType").value("ItemNotFoundException"));
+    }
+
+    @Test
+    public void unmappedExceptionTest() throws Exception {
+
+        when(service.retrieveEmployeeById(any())).thenThrow(IllegalStateException.class);
+
+        mvc.perform(get("/employees/"+employee.getId())
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isInternalServerError())
+                .andExpect(jsonPath("$.errorType").value("IllegalStateException"));
+    }
+
+    @Test
+    public void findEmployeesByIdsTest() throws Exception {
+        UUID missingId = UUID.randomUUID();
+        EmployeeBatch batch = EmployeeBatch.builder()
+                .employees(Collections.singletonList(employee))
+                .missingIds(Collections.singletonList(missingId))
+                .build();
+        when(service.retrieveEmployeesByIds(Arrays.asList(employee.getId(), missingId))).thenReturn(batch);
+
+        mvc.perform(get("/employees").param("ids", employee.getId()+","+missingId)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.employees[0].id").value(employee.getId().toString()))
+                .andExpect(jsonPath("$.missingIds[0]").value(missingId.toString()));
+    }
+
+    @Test
+    public void findEmployeesByIdsInBodyTest() throws Exception {
+        EmployeeBatch batch = EmployeeBatch.builder()
+                .employees(Collections.singletonList(employee))
+                .missingIds(Collections.emptyList())
+                .build();
+        when(service.retrieveEmployeesByIds(Collections.singletonList(employee.getId()))).thenReturn(batch);
+
+        mvc.perform(post("/employees/batch")
+                .content(objectMapper.writeValueAsString(Collections.singletonList(employee.getId())))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.employees[0].id").value(employee.getId().toString()));
+    }
+
+    @Test
+    public void streamEmployeeChangesTest() throws Exception {
+        MvcResult result = mvc.perform(get("/employees/changes"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        changeFeed.publish(EmployeeChangeEvent.Type.UPDATED, employee.getId(), employee);
+
+        String stream = awaitContent(result, "\"employeeId\":\""+employee.getId()+"\"");
+        assert (stream.contains("event:updated"));
+    }
+
+    @Test
+    public void resumeEmployeeChangesTest() throws Exception {
+        MvcResult first = mvc.perform(get("/employees/changes"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        changeFeed.publish(EmployeeChangeEvent.Type.CREATED, employee.getId(), employee);
+        String token = awaitContent(first, "event:created").split("id:")[1].split("\n")[0];
+        changeFeed.publish(EmployeeChangeEvent.Type.DELETED, employee.getId(), null);
+
+        MvcResult resumed = mvc.perform(get("/employees/changes").header("Last-Event-ID", token))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String stream = awaitContent(resumed, "event:deleted");
+        assert (!stream.contains("event:created"));
+
+        MvcResult unknown = mvc.perform(get("/employees/changes").header("Last-Event-ID", "not-a-token"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        awaitContent(unknown, "event:reset");
+    }
+
+    @Test
+    public void findEmployeeChangesSinceTest() throws Exception {
+        EmployeeDelta delta = EmployeeDelta.builder()
+                .changes(Collections.emptyList())
+                .watermark("d2F0ZXJtYXJr")
+                .hasMore(false)
+                .build();
+        when(service.retrieveEmployeeChangesSince("2021-01-01T00:00:00.000Z", null, 500)).thenReturn(delta);
+
+        mvc.perform(get("/employees/changes-since").param("ts", "2021-01-01T00:00:00.000Z")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.watermark").value("d2F0ZXJtYXJr"))
+                .andExpect(jsonPath("$._links.next.href").value("http://localhost/employees/changes-since?cursor=d2F0ZXJtYXJr&limit=500"));
+    }
+
     @Test
     public void findEmployeeByFirstNameTest() throws Exception {
-        when(service.retrieveEmployeeByFirstName(anyString())).thenReturn(employee);
+        when(service.retrieveEmployeeByFirstName(anyString())).thenReturn(Optional.of(employee));
 
         mvc.perform(get("/employees/names/"+employee.getFirstName())
                 .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk());
     }
 
+    @Test
+    public void findEmployeeByEmailTest() throws Exception {
+        when(service.retrieveEmployeeByEmail("abc@mailinator.com")).thenReturn(Optional.of(employee));
+
+        mvc.perform(get("/employees/emails/abc@mailinator.com"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.firstName").value(employee.getFirstName()))
+                .andExpect(jsonPath("$._links.self.href").value("http://localhost/employees/emails/abc@mailinator.com"));
+        mvc.perform(get("/employees/emails/nobody@mailinator.com"))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     public void findEmployeeByFirstNameNegativeTest() throws Exception {
         when(service.retrieveEmployeeByFirstName(anyString())).thenThrow(ItemNotFoundException.class);
@@ -134,6 +382,15 @@ public class EmployeeControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    public void findMissingEmployeeByFirstNameTest() throws Exception {
+        when(service.retrieveEmployeeByFirstName(anyString())).thenReturn(Optional.empty());
+
+        mvc.perform(get("/employees/names/"+employee.getFirstName())
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     public void findEmployeeByDepartmentNameTest() throws Exception {
         when(service.retrieveEmployeesByDepartmentName(anyString())).thenReturn(Collections.singletonList(employee));
@@ -185,7 +442,7 @@ public class EmployeeControllerTest {
 
         //Mismatched employeeIds in URL and request payload
         Employee.EmployeeBuilder employeeBuilder2 = employee.toBuilder();
-        Employee updateDetails2 = employeeBuilder2.firstName("Vish").lastName("Rane").id("123").build();
+        Employee updateDetails2 = employeeBuilder2.firstName("Vish").lastName("Rane").id(UUID.randomUUID()).build();
         final String updateDetailsJson2 = jsonTester.write(updateDetails2).getJson();
         when(service.updateEmployee(any())).thenReturn(updateDetails2);
 
@@ -197,6 +454,138 @@ public class EmployeeControllerTest {
 
 
 
+    @Test
+    public void importEmployeesTest() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "employees.ndjson", "application/x-ndjson",
+                (jsonTester.write(employee).getJson() + "\n").getBytes(StandardCharsets.UTF_8));
+
+        MvcResult result = mvc.perform(multipart("/employees/imports").file(file))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.format").value("ndjson"))
+                .andReturn();
+
+        String location = result.getResponse().getHeader("Location");
+        mvc.perform(get(location))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.fileName").value("employees.ndjson"))
+                .andExpect(jsonPath("$._links.self.href").value(location));
+    }
+
+    @Test
+    public void findMissingImportJobTest() throws Exception {
+        mvc.perform(get("/jobs/"+UUID.randomUUID()))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void findDepartmentSummaryTest() throws Exception {
+        DepartmentSummary summary = DepartmentSummary.builder()
+                .name("NDE")
+                .headcount(2)
+                .headcountByState(Collections.singletonMap("Oregon", 2L))
+                .mostRecentHire(LocalDateTime.of(2021, 1, 1, 10, 0))
+                .build();
+        when(summaryService.retrieveSummary("NDE")).thenReturn(Optional.of(summary));
+
+        mvc.perform(get("/employees/departments/names/NDE/summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.headcount").value(2))
+                .andExpect(jsonPath("$.headcountByState.Oregon").value(2))
+                .andExpect(jsonPath("$._links.self.href").value("http://localhost/employees/departments/names/NDE/summary"));
+    }
+
+    @Test
+    public void findMissingDepartmentSummaryTest() throws Exception {
+        when(summaryService.retrieveSummary(anyString())).thenReturn(Optional.empty());
+
+        mvc.perform(get("/employees/departments/names/QA/summary"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void findDepartmentsTest() throws Exception {
+        when(departmentService.retrieveDepartments()).thenReturn(Collections.singletonList(employee.getDepartment()));
+        when(departmentService.retrieveDepartmentById(101)).thenReturn(Optional.of(employee.getDepartment()));
+
+        mvc.perform(get("/employees/departments"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._embedded.departmentList[0].name").value("NDE"))
+                .andExpect(jsonPath("$._embedded.departmentList[0]._links.self.href").value("http://localhost/employees/departments/101"));
+        mvc.perform(get("/employees/departments/101"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.function").value("Technology"));
+        mvc.perform(get("/employees/departments/102"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void saveDepartmentTest() throws Exception {
+        Department renamed = employee.getDepartment().toBuilder().name("Platform").build();
+        when(departmentService.saveDepartment(eq(101), any())).thenReturn(renamed);
+        when(departmentService.saveDepartment(eq(102), any())).thenThrow(new DuplicateItemException("Another department already has this name!"));
+
+        mvc.perform(put("/employees/departments/101")
+                .content(objectMapper.writeValueAsString(renamed))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Platform"))
+                .andExpect(jsonPath("$._links.self.href").value("http://localhost/employees/departments/101"));
+        mvc.perform(put("/employees/departments/102")
+                .content(objectMapper.writeValueAsString(renamed))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    public void findEmployeesInStateTest() throws Exception {
+        EmployeePage page = EmployeePage.builder()
+                .employees(Collections.singletonList(employee))
+                .cursor("SGlsbHNib3JvfDE")
+                .hasMore(true)
+                .build();
+        when(service.retrieveEmployeesInState("Oregon", null, 1)).thenReturn(page);
+        when(service.countEmployeesInZipcodeRange(97000, 97999)).thenReturn(3L);
+
+        mvc.perform(get("/employees/locations/states/Oregon").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.employees[0].firstName").value(employee.getFirstName()))
+                .andExpect(jsonPath("$._links.self.href").value("http://localhost/employees/locations/states/Oregon?limit=1"))
+                .andExpect(jsonPath("$._links.next.href").value("http://localhost/employees/locations/states/Oregon?cursor=SGlsbHNib3JvfDE&limit=1"));
+        mvc.perform(get("/employees/locations/zipcodes/count").param("from", "97000").param("to", "97999"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(3));
+    }
+
+    @Test
+    public void findProfileTest() throws Exception {
+        mvc.perform(get("/internal/profiler").param("top", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.slowCommandThresholdMillis").value(100))
+                .andExpect(jsonPath("$._links.self.href").value("http://localhost/internal/profiler"));
+        mvc.perform(get("/internal/profiler").param("top", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void patchEmployeeTest() throws Exception {
+        when(service.patchEmployee(eq(employee.getId()), any(), eq(false))).thenReturn(employee);
+        when(service.patchEmployee(eq(employee.getId()), any(), eq(true))).thenReturn(employee);
+
+        mvc.perform(patch("/employees/"+employee.getId())
+                .content("{\"lastName\":\"Krishna\"}")
+                .contentType("application/merge-patch+json"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._links.self.href").value("http://localhost/employees/"+employee.getId()));
+        mvc.perform(patch("/employees/"+employee.getId())
+                .content("[{\"op\":\"replace\",\"path\":\"/lastName\",\"value\":\"Krishna\"}]")
+                .contentType("application/json-patch+json"))
+                .andExpect(status().isOk());
+        mvc.perform(patch("/employees/"+employee.getId())
+                .content("{\"lastName\":\"Krishna\"}")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isUnsupportedMediaType());
+    }
+
     @Test
     public void deleteEmployeeTest() throws Exception {
         mvc.perform(delete("/employees/"+employee.getId())
@@ -206,16 +595,35 @@ public class EmployeeControllerTest {
 
     @Test
     public void deleteEmployeeNegativeTest() throws Exception {
-        doThrow(ItemNotFoundException.class).when(service).deleteEmployee(anyString());
-        mvc.perform(delete("/employees/"+null)
+        doThrow(ItemNotFoundException.class).when(service).deleteEmployee(any());
+        mvc.perform(delete("/employees/"+UUID.randomUUID())
                 .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    public void malformedEmployeeIdTest() throws Exception {
+        mvc.perform(delete("/employees/"+null)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.httpStatus").value(400));
+    }
+
 
 
 
 
+    private static String awaitContent(MvcResult result, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        String content = result.getResponse().getContentAsString();
+        while (!content.contains(expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            content = result.getResponse().getContentAsString();
+        }
+        assert (content.contains(expected)) : content;
+        return content;
+    }
+
     private Employee createEmployee() {
 
         EmailAddress emailAddress1 = EmailAddress.builder()
@@ -248,7 +656,7 @@ public class EmployeeControllerTest {
                 .emailAddresses(Arrays.asList(emailAddress1, emailAddress2))
                 .address(address)
                 .department(department)
-                .id(UUID.randomUUID().toString())
+                .id(UUID.randomUUID())
                 .build();
     }
 }
@@ -0,0 +1,82 @@
+package com.springboot.employees.deadline;
+
+import com.springboot.employees.exceptions.BadRequestException;
+import com.springboot.employees.exceptions.DeadlineExceededException;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DeadlineInterceptorTest {
+
+    private final DeadlineInterceptor interceptor = new DeadlineInterceptor(true, 10_000, 30_000,
+            new MockEnvironment().withProperty("employees.deadlines.lookup-ms", "2000"));
+
+    @After
+    public void tearDown() {
+        RequestDeadline.stop();
+    }
+
+    @Test
+    public void budgetTest() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        HandlerMethod lookup = new HandlerMethod(this, Endpoints.class.getMethod("lookup"));
+        HandlerMethod other = new HandlerMethod(this, Endpoints.class.getMethod("other"));
+
+        assertEquals(2000, interceptor.budgetOf(request, lookup));
+        assertEquals(10_000, interceptor.budgetOf(request, other));
+
+        request.addHeader(DeadlineInterceptor.HEADER, "60000");
+        assertEquals(30_000, interceptor.budgetOf(request, lookup));
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void malformedHeaderTest() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(DeadlineInterceptor.HEADER, "soon");
+        interceptor.budgetOf(request, null);
+    }
+
+    @Test
+    public void spentDeadlineTest() throws Exception {
+        assertEquals(RequestDeadline.NONE, RequestDeadline.remainingMillis());
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(DeadlineInterceptor.HEADER, "1");
+        interceptor.preHandle(request, new MockHttpServletResponse(), null);
+        Thread.sleep(5);
+        try {
+            RequestDeadline.check();
+            throw new AssertionError("The deadline should be spent");
+        } catch (DeadlineExceededException expected) {
+            assertTrue(expected.getMessage().contains("1 ms"));
+        }
+
+        interceptor.afterCompletion(request, new MockHttpServletResponse(), null, null);
+        assertEquals(RequestDeadline.NONE, RequestDeadline.remainingMillis());
+    }
+
+    @Test
+    public void asyncHandlersReleaseTheDeadlineTest() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        interceptor.preHandle(request, new MockHttpServletResponse(), null);
+        assertTrue(RequestDeadline.remainingMillis() > 0);
+
+        interceptor.afterConcurrentHandlingStarted(request, new MockHttpServletResponse(), null);
+        assertEquals(RequestDeadline.NONE, RequestDeadline.remainingMillis());
+    }
+
+
+    public interface Endpoints {
+
+        @DeadlineDefault("${employees.deadlines.lookup-ms}")
+        void lookup();
+
+        void other();
+    }
+}
@@ -0,0 +1,137 @@
+package com.springboot.employees.heavyhitters;
+
+import com.springboot.employees.domain.Employee;
+import com.springboot.employees.domain.HeavyHitterReport;
+import com.springboot.employees.persistence.EmployeeRepository;
+import com.springboot.employees.service.EmployeeCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class HeavyHitterTrackerTest {
+
+    @Test
+    public void sketchKeepsFrequentKeysTest() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(4);
+        for (int i = 0; i < 200; i++) {
+            sketch.offer("hot");
+            sketch.offer("cold-" + i);
+        }
+
+        Map<String, SpaceSavingSketch.Counter> totals = new HashMap<>();
+        assertEquals(400, sketch.addTo(totals));
+        assertTrue(totals.size() <= 4);
+        SpaceSavingSketch.Counter hot = totals.get("hot");
+        assertNotNull(hot);
+        assertTrue(hot.getCount() >= 200);
+        assertTrue(hot.getCount() - hot.getError() <= 200);
+    }
+
+    @Test
+    public void windowAgesOutOldBucketsTest() {
+        HeavyHitterTracker tracker = new HeavyHitterTracker(true, 8, 1000, 3, 1, new SimpleMeterRegistry());
+        for (int i = 0; i < 5; i++) {
+            tracker.record(HeavyHitterTracker.Lookup.FIRST_NAME, "Vishwanath", 100);
+        }
+        tracker.record(HeavyHitterTracker.Lookup.FIRST_NAME, "Vish", 2500);
+        tracker.record(HeavyHitterTracker.Lookup.FIRST_NAME, "Vish", 2600);
+
+        HeavyHitterReport recent = tracker.report(HeavyHitterTracker.Lookup.FIRST_NAME, 1000, 10, 2700);
+        assertEquals(2, recent.getLookups());
+        assertEquals("Vish", recent.getTop().get(0).getKey());
+        assertEquals(1, recent.getTop().size());
+
+        HeavyHitterReport whole = tracker.report(HeavyHitterTracker.Lookup.FIRST_NAME, 60000, 10, 2700);
+        assertEquals(3000, whole.getWindowMillis());
+        assertEquals(7, whole.getLookups());
+        assertEquals("Vishwanath", whole.getTop().get(0).getKey());
+        assertEquals(5.0 / 7, whole.getTop().get(0).getShare(), 1e-9);
+
+        tracker.record(HeavyHitterTracker.Lookup.FIRST_NAME, "Vish", 3100);
+        HeavyHitterReport later = tracker.report(HeavyHitterTracker.Lookup.FIRST_NAME, 60000, 10, 3100);
+        assertEquals(3, later.getLookups());
+        assertEquals("Vish", later.getTop().get(0).getKey());
+        assertEquals(1, later.getTop().size());
+        assertEquals(0, tracker.report(HeavyHitterTracker.Lookup.ID, 60000, 10, 3100).getLookups());
+    }
+
+    @Test
+    public void stripesRecordedByManyThreadsAreMergedTest() throws InterruptedException {
+        HeavyHitterTracker tracker = new HeavyHitterTracker(true, 8, 60000, 1, 4, new SimpleMeterRegistry());
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 100; i++) {
+                    tracker.record(HeavyHitterTracker.Lookup.ID, "hot", 100);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        HeavyHitterReport report = tracker.report(HeavyHitterTracker.Lookup.ID, 60000, 10, 100);
+        assertEquals(800, report.getLookups());
+        assertEquals(1, report.getTop().size());
+        assertEquals(800, report.getTop().get(0).getCount());
+    }
+
+    @Test
+    public void pinnedEmployeesSurviveSizeEvictionTest() {
+        EmployeeCache cache = new EmployeeCache(true, 2, 60000);
+        Employee hot = employee();
+        cache.pin(Collections.singleton(hot.getId()));
+
+        cache.putIfNotInvalidatedSince(hot, cache.invalidationStamp(hot.getId()));
+        for (int i = 0; i < 20; i++) {
+            Employee other = employee();
+            cache.putIfNotInvalidatedSince(other, cache.invalidationStamp(other.getId()));
+        }
+
+        assertTrue(cache.get(hot.getId()).isPresent());
+        assertFalse(cache.expiresWithin(hot.getId(), 1000));
+        assertTrue(cache.expiresWithin(hot.getId(), 120000));
+        assertTrue(cache.expiresWithin(UUID.randomUUID(), 0));
+    }
+
+    @Test
+    public void pinnedEmployeesWrittenWhileReloadedAreNotCachedTest() {
+        HeavyHitterTracker tracker = new HeavyHitterTracker(true, 8, 60000, 1, 1, new SimpleMeterRegistry());
+        EmployeeCache cache = new EmployeeCache(true, 10, 60000);
+        EmployeeRepository repo = mock(EmployeeRepository.class);
+        Employee hot = employee();
+        Employee written = employee();
+        for (int i = 0; i < 5; i++) {
+            tracker.record(HeavyHitterTracker.Lookup.ID, hot.getId());
+            tracker.record(HeavyHitterTracker.Lookup.ID, written.getId());
+        }
+        when(repo.findByIdIn(any())).thenAnswer(invocation -> {
+            // Updated and evicted while the reload was reading it.
+            cache.evict(written.getId());
+            return Arrays.asList(hot, written);
+        });
+
+        new HotEmployeePinner(tracker, cache, repo, 10, 2, 60000, new SimpleMeterRegistry()).pinHotEmployees();
+
+        assertTrue(cache.get(hot.getId()).isPresent());
+        assertFalse(cache.get(written.getId()).isPresent());
+    }
+
+
+    private static Employee employee() {
+        Employee employee = new Employee();
+        employee.setId(UUID.randomUUID());
+        return employee;
+    }
+}
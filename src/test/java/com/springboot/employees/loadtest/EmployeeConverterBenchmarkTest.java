@@ -0,0 +1,139 @@
+package com.springboot.employees.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.springboot.employees.domain.Address;
+import com.springboot.employees.domain.Department;
+import com.springboot.employees.domain.EmailAddress;
+import com.springboot.employees.domain.Employee;
+import com.springboot.employees.persistence.EmployeeMappingMongoConverter;
+import com.springboot.employees.util.TimeOrderedIdGenerator;
+import org.bson.Document;
+import org.junit.Test;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the reflective {@link MappingMongoConverter} with {@link EmployeeMappingMongoConverter} by writing
+ * employees to documents and reading them back, without a database, so the numbers are the mapping cost
+ * alone. Run it with {@code mvn -P load-test test -Dtest=EmployeeConverterBenchmarkTest}; size it with
+ * {@code loadtest.converterDocuments} and {@code loadtest.converterRounds}, the results go to
+ * {@code loadtest.converterReport}.
+ */
+public class EmployeeConverterBenchmarkTest {
+
+    private final int documents = Integer.getInteger("loadtest.converterDocuments", 10_000);
+    private final int rounds = Integer.getInteger("loadtest.converterRounds", 20);
+    private final String reportPath = System.getProperty("loadtest.converterReport", "target/converter-benchmark-report.json");
+
+    @Test
+    public void compareConverters() throws IOException {
+        MongoCustomConversions conversions = new MongoCustomConversions(Collections.emptyList());
+        MongoMappingContext context = new MongoMappingContext();
+        context.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        context.afterPropertiesSet();
+
+        List<Employee> employees = new ArrayList<>(documents);
+        TimeOrderedIdGenerator ids = new TimeOrderedIdGenerator();
+        for (int i = 0; i < documents; i++) {
+            employees.add(newEmployee(ids, i));
+        }
+
+        Map<String, Object> converters = new LinkedHashMap<>();
+        converters.put("reflective", run(configure(new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, context), conversions), employees));
+        converters.put("hand-written", run(configure(new EmployeeMappingMongoConverter(NoOpDbRefResolver.INSTANCE, context), conversions), employees));
+
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("documents", documents);
+        config.put("rounds", rounds);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("config", config);
+        report.put("converters", converters);
+
+        File reportFile = new File(reportPath);
+        if (reportFile.getParentFile() != null) {
+            reportFile.getParentFile().mkdirs();
+        }
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(reportFile, report);
+        assertTrue("The converter benchmark report was not written", reportFile.isFile());
+    }
+
+
+    private static MappingMongoConverter configure(MappingMongoConverter converter, MongoCustomConversions conversions) {
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        return converter;
+    }
+
+    /**
+     * Writes and reads every employee once per round; the first half of the rounds warm the JIT up and are
+     * not measured.
+     */
+    private Map<String, Object> run(MappingMongoConverter converter, List<Employee> employees) {
+        List<Document> written = new ArrayList<>(employees.size());
+        for (Employee employee : employees) {
+            Document document = new Document();
+            converter.write(employee, document);
+            written.add(document);
+        }
+
+        long writeNanos = 0;
+        long readNanos = 0;
+        int checksum = 0;
+        for (int round = 0; round < rounds; round++) {
+            long started = System.nanoTime();
+            for (Employee employee : employees) {
+                Document document = new Document();
+                converter.write(employee, document);
+                checksum += document.size();
+            }
+            long wrote = System.nanoTime();
+            for (Document document : written) {
+                checksum += converter.read(Employee.class, document).getFirstName().length();
+            }
+            long read = System.nanoTime();
+            if (round >= rounds / 2) {
+                writeNanos += wrote - started;
+                readNanos += read - wrote;
+            }
+        }
+
+        long measured = (long) (rounds - rounds / 2) * employees.size();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("writesPerSecond", measured / (writeNanos / 1e9));
+        result.put("readsPerSecond", measured / (readNanos / 1e9));
+        result.put("checksum", checksum);
+        return result;
+    }
+
+    private static Employee newEmployee(TimeOrderedIdGenerator ids, int sequence) {
+        Employee employee = Employee.builder()
+                .id(ids.next())
+                .firstName("First" + sequence)
+                .lastName("Last" + sequence)
+                .department(Department.builder().departmentId(sequence % 50).name("NDE").size(5000).function("Technology").build())
+                .address(Address.builder().city("Hillsboro").street("1189 NE 89th Street").zipcode(97006).state("Oregon").build())
+                .emailAddresses(Arrays.asList(
+                        EmailAddress.builder().email("first" + sequence + "@mailinator.com").isPrimary(true).build(),
+                        EmailAddress.builder().email("last" + sequence + "@mailinator.com").isPrimary(false).build()))
+                .build();
+        employee.setCreatedAt(LocalDateTime.now());
+        employee.setUpdatedAt(LocalDateTime.now());
+        return employee;
+    }
+}
@@ -0,0 +1,307 @@
+package com.springboot.employees.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.springboot.employees.domain.Address;
+import com.springboot.employees.domain.Department;
+import com.springboot.employees.domain.EmailAddress;
+import com.springboot.employees.domain.Employee;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ActiveProfilesResolver;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Open-loop HTTP load test against the application running on the {@code in-memory} profile, or on the
+ * profile named by {@code loadtest.profile} (e.g. {@code embedded}).
+ *
+ * Excluded from the default build; run it with {@code mvn -P load-test test}. The mix, rate and duration
+ * are read from system properties (see {@link #readMix()} and the {@code loadtest.*} keys below) and the
+ * results are written as JSON to {@code loadtest.report}, so runs against different commits can be diffed.
+ * Latencies are measured from the scheduled send time, which keeps queueing delay in the percentiles.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles(resolver = EmployeeLoadTest.ProfileResolver.class)
+public class EmployeeLoadTest {
+
+    static final String OPERATION_HEADER = "X-Load-Test-Operation";
+
+    private static final String[] DEPARTMENTS = { "NDE", "Finance", "Legal", "Sales", "Support" };
+
+    private final int rate = Integer.getInteger("loadtest.rate", 200);
+    private final int durationSeconds = Integer.getInteger("loadtest.durationSeconds", 10);
+    private final int warmupSeconds = Integer.getInteger("loadtest.warmupSeconds", 2);
+    private final int concurrency = Integer.getInteger("loadtest.concurrency", 32);
+    private final int preload = Integer.getInteger("loadtest.preload", 1_000);
+    private final String reportPath = System.getProperty("loadtest.report", "target/load-test-report.json");
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OperationStats.Registry operationStats;
+
+    private final AtomicReferenceArray<String> liveIds = new AtomicReferenceArray<>(65_536);
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong nameSequence = new AtomicLong();
+
+    @Test
+    public void runLoadMix() throws Exception {
+        Map<String, Integer> mix = readMix();
+        for (int i = 0; i < preload; i++) {
+            create();
+        }
+
+        run(mix, warmupSeconds);
+        operationStats.clear();
+        long started = System.nanoTime();
+        run(mix, durationSeconds);
+        double elapsedSeconds = (System.nanoTime() - started) / 1e9;
+
+        Map<String, Object> operations = new LinkedHashMap<>();
+        long total = 0;
+        for (String operation : mix.keySet()) {
+            OperationStats stats = operationStats.forOperation(operation);
+            operations.put(operation, stats.toReport(elapsedSeconds));
+            total += stats.count();
+        }
+
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("targetRatePerSecond", rate);
+        config.put("durationSeconds", durationSeconds);
+        config.put("concurrency", concurrency);
+        config.put("preload", preload);
+        config.put("mix", mix);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("config", config);
+        report.put("totalRequests", total);
+        report.put("throughputPerSecond", total / elapsedSeconds);
+        report.put("operations", operations);
+
+        File reportFile = new File(reportPath);
+        if (reportFile.getParentFile() != null) {
+            reportFile.getParentFile().mkdirs();
+        }
+        objectMapper.copy().enable(SerializationFeature.INDENT_OUTPUT).writeValue(reportFile, report);
+
+        assertTrue("No requests were issued during the measured window", total > 0);
+        assertTrue("The load test report was not written", reportFile.isFile());
+    }
+
+    private void run(Map<String, Integer> mix, int seconds) throws InterruptedException {
+        String[] weighted = mix.entrySet().stream()
+                .flatMap(entry -> Arrays.stream(new String[entry.getValue()]).map(ignored -> entry.getKey()))
+                .toArray(String[]::new);
+
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+
+        for (long intended = start; intended < end; intended += intervalNanos) {
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            String operation = weighted[ThreadLocalRandom.current().nextInt(weighted.length)];
+            long scheduledAt = intended;
+            workers.execute(() -> execute(operation, scheduledAt));
+        }
+
+        workers.shutdown();
+        workers.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    private void execute(String operation, long scheduledAt) {
+        boolean success;
+        try {
+            success = perform(operation);
+        } catch (RuntimeException e) {
+            success = false;
+        }
+        operationStats.forOperation(operation).record(System.nanoTime() - scheduledAt, success);
+    }
+
+    /**
+     * Returns false for server errors only; a 404 for an id deleted by a concurrent worker is a valid outcome.
+     */
+    private boolean perform(String operation) {
+        switch (operation) {
+            case "create":
+                return create() != null;
+            case "get":
+                return succeeded(exchange(operation, HttpMethod.GET, "/employees/" + anyLiveId(), null));
+            case "list":
+                String department = DEPARTMENTS[ThreadLocalRandom.current().nextInt(DEPARTMENTS.length)];
+                return succeeded(exchange(operation, HttpMethod.GET, "/employees/departments/names/" + department, null));
+            case "missing":
+                return succeeded(exchange(operation, HttpMethod.GET, "/employees/" + UUID.randomUUID(), null));
+            case "update":
+                return update();
+            case "delete":
+                return delete();
+            default:
+                throw new IllegalArgumentException("Unknown load test operation : " + operation);
+        }
+    }
+
+    private String create() {
+        ResponseEntity<Employee> response = exchange("create", HttpMethod.POST, "/employees", newEmployee());
+        if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
+            return null;
+        }
+        String id = response.getBody().getId().toString();
+        liveIds.set((int) (createdCount.getAndIncrement() % liveIds.length()), id);
+        return id;
+    }
+
+    private boolean update() {
+        String id = anyLiveId();
+        Employee employee = newEmployee().toBuilder().id(UUID.fromString(id)).build();
+        return succeeded(exchange("update", HttpMethod.PUT, "/employees/" + id, employee));
+    }
+
+    private boolean delete() {
+        int slot = anyLiveSlot();
+        String id = liveIds.get(slot);
+        if (id == null || !liveIds.compareAndSet(slot, id, null)) {
+            return true;
+        }
+        return succeeded(exchange("delete", HttpMethod.DELETE, "/employees/" + id, null));
+    }
+
+    private static boolean succeeded(ResponseEntity<?> response) {
+        return !response.getStatusCode().is5xxServerError();
+    }
+
+    private ResponseEntity<Employee> exchange(String operation, HttpMethod method, String path, Employee body) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set(OPERATION_HEADER, operation);
+        return restTemplate.exchange(path, method, new HttpEntity<>(body, headers), Employee.class);
+    }
+
+    private String anyLiveId() {
+        String id = liveIds.get(anyLiveSlot());
+        return id == null ? UUID.randomUUID().toString() : id;
+    }
+
+    private int anyLiveSlot() {
+        long created = Math.max(1, Math.min(createdCount.get(), liveIds.length()));
+        return ThreadLocalRandom.current().nextInt((int) created);
+    }
+
+    private Employee newEmployee() {
+        long sequence = nameSequence.incrementAndGet();
+        String department = DEPARTMENTS[(int) (sequence % DEPARTMENTS.length)];
+        return Employee.builder()
+                .firstName("First" + sequence)
+                .lastName("Last" + sequence)
+                .department(Department.builder().departmentId(department.hashCode()).name(department).function("Technology").size(100).build())
+                .address(Address.builder().city("Hillsboro").street(sequence + " NE 89th Street").zipcode(97006).state("Oregon").build())
+                .emailAddresses(Arrays.asList(
+                        EmailAddress.builder().email("employee" + sequence + "@mailinator.com").isPrimary(true).build(),
+                        EmailAddress.builder().email("other" + sequence + "@mailinator.com").isPrimary(false).build()))
+                .build();
+    }
+
+    /**
+     * Parses {@code loadtest.mix}, e.g. {@code create=10,get=60,list=10,update=15,delete=5}. The {@code missing}
+     * operation looks up random ids that don't exist, to measure the not-found path.
+     */
+    private static Map<String, Integer> readMix() {
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        for (String entry : System.getProperty("loadtest.mix", "create=10,get=60,list=10,update=15,delete=5").split(",")) {
+            String[] parts = entry.trim().split("=");
+            mix.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+        }
+        assertEquals("Every operation of the mix needs a weight", mix.size(), mix.values().stream().filter(weight -> weight > 0).count());
+        return mix;
+    }
+
+
+    static class ProfileResolver implements ActiveProfilesResolver {
+
+        @Override
+        public String[] resolve(Class<?> testClass) {
+            return new String[]{ System.getProperty("loadtest.profile", "in-memory") };
+        }
+    }
+
+
+    @TestConfiguration
+    static class AllocationTrackingConfiguration {
+
+        @Bean
+        OperationStats.Registry operationStats() {
+            return new OperationStats.Registry();
+        }
+
+        /**
+         * Attributes the bytes allocated by the request thread to the operation named in the request header.
+         */
+        @Bean
+        FilterRegistrationBean<OncePerRequestFilter> allocationTrackingFilter(OperationStats.Registry operationStats) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            OncePerRequestFilter filter = new OncePerRequestFilter() {
+                @Override
+                protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+                        throws ServletException, IOException {
+                    String operation = request.getHeader(OPERATION_HEADER);
+                    long threadId = Thread.currentThread().getId();
+                    long before = threads.getThreadAllocatedBytes(threadId);
+                    try {
+                        chain.doFilter(request, response);
+                    } finally {
+                        if (operation != null) {
+                            operationStats.forOperation(operation).recordAllocation(threads.getThreadAllocatedBytes(threadId) - before);
+                        }
+                    }
+                }
+            };
+            FilterRegistrationBean<OncePerRequestFilter> registration = new FilterRegistrationBean<>(filter);
+            registration.setOrder(Integer.MIN_VALUE);
+            return registration;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.springboot.employees.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.InsertManyOptions;
+import com.springboot.employees.util.RandomIdGenerator;
+import com.springboot.employees.util.TimeOrderedIdGenerator;
+import org.bson.BsonBinary;
+import org.bson.Document;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares insert throughput and index sizes of the employee id strategies straight against MongoDB: random
+ * UUIDs stored as strings (the old ids), random UUIDs stored as binary and time-ordered UUIDs stored as
+ * binary. Every strategy gets a scratch collection with the {@code _id} and {@code updatedAt_id} indexes.
+ *
+ * Needs a MongoDB to talk to and is skipped without one; run it with
+ * {@code mvn -P load-test test -Dtest=IdStrategyBenchmarkTest -Dloadtest.mongodbUri=mongodb://localhost/benchmark}.
+ * Size it with {@code loadtest.idDocuments}; the results go to {@code loadtest.idReport}.
+ */
+public class IdStrategyBenchmarkTest {
+
+    private final String mongodbUri = System.getProperty("loadtest.mongodbUri");
+    private final int documents = Integer.getInteger("loadtest.idDocuments", 200_000);
+    private final int batchSize = Integer.getInteger("loadtest.idBatchSize", 1_000);
+    private final String reportPath = System.getProperty("loadtest.idReport", "target/id-benchmark-report.json");
+
+    @Test
+    public void compareIdStrategies() throws IOException {
+        Assume.assumeNotNull(mongodbUri);
+
+        RandomIdGenerator random = new RandomIdGenerator();
+        TimeOrderedIdGenerator timeOrdered = new TimeOrderedIdGenerator();
+
+        Map<String, Object> strategies = new LinkedHashMap<>();
+        try (MongoClient client = MongoClients.create(mongodbUri)) {
+            MongoDatabase database = client.getDatabase(databaseName());
+            strategies.put("random-string", run(database, "random-string", () -> random.next().toString()));
+            strategies.put("random-binary", run(database, "random-binary", () -> new BsonBinary(random.next())));
+            strategies.put("uuid7-binary", run(database, "uuid7-binary", () -> new BsonBinary(timeOrdered.next())));
+        }
+
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("documents", documents);
+        config.put("batchSize", batchSize);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("config", config);
+        report.put("strategies", strategies);
+
+        File reportFile = new File(reportPath);
+        if (reportFile.getParentFile() != null) {
+            reportFile.getParentFile().mkdirs();
+        }
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(reportFile, report);
+        assertTrue("The id benchmark report was not written", reportFile.isFile());
+    }
+
+
+    private Map<String, Object> run(MongoDatabase database, String strategy, Supplier<Object> ids) {
+        String collectionName = "id_benchmark_" + strategy.replace('-', '_');
+        MongoCollection<Document> collection = database.getCollection(collectionName);
+        collection.drop();
+        collection.createIndex(Indexes.ascending("updatedAt", "_id"), new IndexOptions().name("updatedAt_id"));
+
+        long started = System.nanoTime();
+        for (int inserted = 0; inserted < documents; inserted += batchSize) {
+            List<Document> batch = new ArrayList<>(batchSize);
+            for (int i = 0; i < batchSize && inserted + i < documents; i++) {
+                batch.add(newEmployee(ids.get(), inserted + i));
+            }
+            collection.insertMany(batch, new InsertManyOptions().ordered(false));
+        }
+        double elapsedSeconds = (System.nanoTime() - started) / 1e9;
+
+        Document stats = database.runCommand(new Document("collStats", collectionName));
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("insertsPerSecond", documents / elapsedSeconds);
+        result.put("totalIndexSizeBytes", stats.get("totalIndexSize"));
+        result.put("indexSizesBytes", stats.get("indexSizes"));
+        result.put("storageSizeBytes", stats.get("storageSize"));
+        collection.drop();
+        return result;
+    }
+
+    private String databaseName() {
+        String path = mongodbUri.replaceFirst("^mongodb(\\+srv)?://[^/]*/?", "").replaceFirst("\\?.*$", "");
+        return path.isEmpty() ? "benchmark" : path;
+    }
+
+    private static Document newEmployee(Object id, int sequence) {
+        Date now = new Date();
+        return new Document("_id", id)
+                .append("firstName", "First" + sequence)
+                .append("lastName", "Last" + sequence)
+                .append("departmentId", sequence % 50)
+                .append("address", new Document("city", "Hillsboro").append("street", "1189 NE 89th Street").append("zipcode", 97006).append("state", "Oregon"))
+                .append("emailAddresses", Arrays.asList(new Document("email", "first" + sequence + "@mailinator.com").append("isPrimary", true)))
+                .append("createdAt", now)
+                .append("updatedAt", now);
+    }
+}
@@ -0,0 +1,88 @@
+package com.springboot.employees.loadtest;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency, error and server-side allocation figures for one operation of the load mix.
+ */
+class OperationStats {
+
+    private long[] latenciesNanos = new long[1024];
+    private int size;
+
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final LongAdder allocationSamples = new LongAdder();
+
+    synchronized void record(long latencyNanos, boolean success) {
+        if (size == latenciesNanos.length) {
+            latenciesNanos = Arrays.copyOf(latenciesNanos, size * 2);
+        }
+        latenciesNanos[size++] = latencyNanos;
+        if (!success) {
+            errors.increment();
+        }
+    }
+
+    void recordAllocation(long bytes) {
+        allocatedBytes.add(bytes);
+        allocationSamples.increment();
+    }
+
+    synchronized Map<String, Object> toReport(double elapsedSeconds) {
+        long[] sorted = Arrays.copyOf(latenciesNanos, size);
+        Arrays.sort(sorted);
+
+        Map<String, Object> latency = new LinkedHashMap<>();
+        latency.put("p50", percentileMicros(sorted, 0.50));
+        latency.put("p99", percentileMicros(sorted, 0.99));
+        latency.put("p999", percentileMicros(sorted, 0.999));
+        latency.put("max", size == 0 ? 0 : sorted[size - 1] / 1_000);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("count", size);
+        report.put("errors", errors.sum());
+        report.put("throughputPerSecond", size / elapsedSeconds);
+        report.put("latencyMicros", latency);
+        long samples = allocationSamples.sum();
+        report.put("allocatedBytesPerRequest", samples == 0 ? 0 : allocatedBytes.sum() / samples);
+        return report;
+    }
+
+    synchronized int count() {
+        return size;
+    }
+
+    long errors() {
+        return errors.sum();
+    }
+
+    private static long percentileMicros(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1_000;
+    }
+
+
+    /**
+     * Stats per operation name, shared between the load driver and the server-side allocation filter.
+     */
+    static class Registry {
+
+        private final Map<String, OperationStats> stats = new ConcurrentHashMap<>();
+
+        OperationStats forOperation(String operation) {
+            return stats.computeIfAbsent(operation, k -> new OperationStats());
+        }
+
+        void clear() {
+            stats.clear();
+        }
+    }
+}
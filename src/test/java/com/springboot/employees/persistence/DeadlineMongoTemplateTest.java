@@ -0,0 +1,70 @@
+package com.springboot.employees.persistence;
+
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.CountOptions;
+import com.springboot.employees.deadline.DeadlineInterceptor;
+import com.springboot.employees.exceptions.DeadlineExceededException;
+import org.bson.Document;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+public class DeadlineMongoTemplateTest {
+
+    private final DeadlineInterceptor interceptor = new DeadlineInterceptor(true, 10_000, 30_000, new MockEnvironment());
+
+    private final MockHttpServletRequest request = new MockHttpServletRequest();
+
+    @After
+    public void tearDown() {
+        interceptor.afterCompletion(request, new MockHttpServletResponse(), null, null);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void maxTimeTest() {
+        MongoCollection<Document> collection = mock(MongoCollection.class);
+        FindIterable<Document> cursor = mock(FindIterable.class);
+        when(collection.find(any(Document.class), eq(Document.class))).thenReturn(cursor);
+        MongoCollection<Document> bound = DeadlineMongoTemplate.withDeadline(collection);
+
+        bound.find(new Document(), Document.class);
+        verify(cursor, never()).maxTime(anyLong(), any());
+
+        request.addHeader(DeadlineInterceptor.HEADER, "5000");
+        interceptor.preHandle(request, new MockHttpServletResponse(), null);
+        bound.find(new Document(), Document.class);
+        CountOptions options = new CountOptions();
+        bound.countDocuments(new Document(), options);
+
+        long maxTime = options.getMaxTime(TimeUnit.MILLISECONDS);
+        assertTrue(maxTime > 0 && maxTime <= 5000);
+        verify(cursor).maxTime(longThat(millis -> millis > 0 && millis <= 5000), eq(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void spentDeadlineTest() throws InterruptedException {
+        MongoCollection<Document> collection = mock(MongoCollection.class);
+        request.addHeader(DeadlineInterceptor.HEADER, "1");
+        interceptor.preHandle(request, new MockHttpServletResponse(), null);
+        Thread.sleep(5);
+
+        try {
+            DeadlineMongoTemplate.withDeadline(collection).insertOne(new Document());
+            throw new AssertionError("The operation should not be sent");
+        } catch (DeadlineExceededException expected) {
+            verifyNoInteractions(collection);
+        }
+    }
+}
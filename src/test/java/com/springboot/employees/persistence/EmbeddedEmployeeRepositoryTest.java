@@ -0,0 +1,378 @@
+package com.springboot.employees.persistence;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import com.springboot.employees.domain.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class EmbeddedEmployeeRepositoryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path logPath;
+
+    private EmbeddedEmployeeRepository repository;
+
+    @Before
+    public void setUp() throws IOException {
+        logPath = folder.getRoot().toPath().resolve("employees.log");
+        repository = open();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        repository.close();
+    }
+
+    @Test
+    public void saveAndFindTest() {
+        Employee employee = repository.save(createEmployee("Vishwanath", 101));
+
+        assertEquals(Optional.of(employee), repository.findById(employee.getId()));
+        assertEquals(Optional.of(employee), repository.findByFirstName("Vishwanath"));
+        assertEquals(1, repository.findByDepartmentId(101).size());
+        assertFalse(repository.findById(UUID.randomUUID()).isPresent());
+    }
+
+    @Test
+    public void updateMovesSecondaryIndexesTest() {
+        Employee employee = repository.save(createEmployee("Vishwanath", 101));
+        Employee update = employee.toBuilder()
+                .firstName("Vish")
+                .departmentId(102)
+                .build();
+        repository.save(update);
+
+        assertFalse(repository.findByFirstName("Vishwanath").isPresent());
+        assertTrue(repository.findByDepartmentId(101).isEmpty());
+        assertEquals(Optional.of(update), repository.findByFirstName("Vish"));
+        assertEquals(1, repository.findByDepartmentId(102).size());
+        assertEquals(1, repository.count());
+    }
+
+    @Test(expected = DuplicateKeyException.class)
+    public void uniqueIndexTest() {
+        repository.save(createEmployee("Vishwanath", 101));
+        repository.save(createEmployee("Vishwanath", 101));
+    }
+
+    @Test
+    public void uniqueEmailIndexTest() {
+        Employee employee = repository.save(createEmployee("Vishwanath", 101));
+        try {
+            repository.save(withEmail(createEmployee("Rane", 101), "vishwanath.other@mailinator.com"));
+            fail("The email address is taken");
+        } catch (DuplicateKeyException expected) {
+            assertTrue(expected.getMessage().contains(EmployeeRepository.EMAIL_INDEX));
+        }
+
+        assertEquals(Optional.of(employee), repository.findByEmailAddressesEmail("vishwanath.other@mailinator.com"));
+        repository.save(withEmail(employee, "vish@mailinator.com"));
+        assertFalse(repository.findByEmailAddressesEmail("vishwanath.other@mailinator.com").isPresent());
+        repository.save(withEmail(createEmployee("Rane", 101), "vishwanath.other@mailinator.com"));
+        assertEquals(2, repository.count());
+    }
+
+    @Test
+    public void existenceAndCountTest() {
+        Employee employee = repository.save(createEmployee("Vishwanath", 101));
+        repository.save(createEmployee("Rane", 101));
+        repository.save(createEmployee("Krishna", 102));
+
+        assertTrue(repository.existsId(employee.getId()));
+        assertFalse(repository.existsId(UUID.randomUUID()));
+        assertTrue(repository.existsFirstName("Rane"));
+        assertFalse(repository.existsFirstName("Nobody"));
+        assertEquals(2, repository.countInDepartment(101));
+        assertEquals(0, repository.countInDepartment(103));
+
+        repository.delete(employee);
+        assertFalse(repository.existsFirstName("Vishwanath"));
+    }
+
+    @Test
+    public void queryByExampleTest() {
+        Employee employee = repository.save(createEmployee("Vishwanath", 101));
+        repository.save(createEmployee("Rane", 101));
+        repository.save(createEmployee("Krishna", 102));
+
+        assertEquals(2, repository.count(Example.of(Employee.builder().departmentId(101).build())));
+        assertEquals(Optional.of(employee), repository.findOne(Example.of(Employee.builder().firstName("VISH").build(),
+                ExampleMatcher.matching().withStringMatcher(ExampleMatcher.StringMatcher.STARTING).withIgnoreCase())));
+        assertEquals(3, repository.findAll(Example.of(Employee.builder().address(Address.builder().city("Hillsboro").build()).build(),
+                ExampleMatcher.matching().withIgnorePaths("address.zipcode"))).size());
+        assertTrue(repository.findAll(Example.of(Employee.builder().address(Address.builder().city("Hillsboro").build()).build())).isEmpty());
+        assertTrue(repository.exists(Example.of(Employee.builder().firstName("Nobody").departmentId(102).build(), ExampleMatcher.matchingAny())));
+        assertFalse(repository.exists(Example.of(Employee.builder().firstName("Nobody").departmentId(102).build())));
+        assertEquals(Arrays.asList("Krishna", "Rane"), repository.findAll(Example.of(Employee.builder().lastName("Patil").build()),
+                PageRequest.of(0, 2, Sort.by("firstName"))).map(Employee::getFirstName).getContent());
+
+        try {
+            repository.findOne(Example.of(Employee.builder().departmentId(101).build()));
+            fail("Two employees match");
+        } catch (IncorrectResultSizeDataAccessException e) {
+            assertEquals(2, e.getActualSize());
+        }
+    }
+
+    @Test
+    public void findReportsTest() throws IOException {
+        Employee manager = repository.save(createEmployee("Vishwanath", 101));
+        Employee lead = createEmployee("Rane", 101);
+        lead.setManagerId(manager.getId());
+        repository.save(lead);
+        Employee engineer = createEmployee("Krishna", 101);
+        engineer.setManagerId(lead.getId());
+        repository.save(engineer);
+
+        assertEquals(Collections.singletonList(lead.getId()), ids(repository.findReports(manager.getId(), 1, Integer.MAX_VALUE)));
+        assertEquals(new HashSet<>(Arrays.asList(lead.getId(), engineer.getId())), new HashSet<>(ids(repository.findReports(manager.getId(), 2, Integer.MAX_VALUE))));
+        assertTrue(repository.findReports(engineer.getId(), 5, Integer.MAX_VALUE).isEmpty());
+
+        engineer.setManagerId(manager.getId());
+        repository.save(engineer);
+        assertTrue(repository.findReports(lead.getId(), 5, Integer.MAX_VALUE).isEmpty());
+
+        repository.close();
+        repository = open();
+        assertEquals(2, repository.findReports(manager.getId(), 1, Integer.MAX_VALUE).size());
+        assertEquals(1, repository.findReports(manager.getId(), 1, 1).size());
+    }
+
+    @Test
+    public void applyUpdateTest() {
+        Employee employee = createEmployee("Vishwanath", 101);
+        employee.setUpdatedAt(LocalDateTime.of(2021, 1, 1, 0, 0));
+        repository.save(employee);
+        Employee patched = withEmail(employee, "vish@mailinator.com").toBuilder()
+                .address(employee.getAddress().toBuilder().street(null).city("Portland").build())
+                .build();
+        EmployeeUpdate update = EmployeeUpdate.between(employee, patched).set("updatedAt", LocalDateTime.of(2021, 1, 2, 0, 0));
+
+        assertFalse(repository.applyUpdate(employee.getId(), LocalDateTime.of(2020, 1, 1, 0, 0), update).isPresent());
+        Employee updated = repository.applyUpdate(employee.getId(), employee.getUpdatedAt(), update).get();
+
+        assertEquals(patched, updated);
+        assertEquals(Collections.singletonList(updated), repository.findInCity("Oregon", "Portland", null, 10));
+        assertEquals(Optional.of(updated), repository.findByEmailAddressesEmail("vish@mailinator.com"));
+    }
+
+    @Test
+    public void insertSkippingDuplicatesTest() {
+        repository.save(createEmployee("Vishwanath", 101));
+
+        Set<Integer> duplicates = repository.insertSkippingDuplicates(Arrays.asList(
+                createEmployee("Vish", 101), createEmployee("Vishwanath", 101), createEmployee("Krishna", 101)));
+
+        assertEquals(Collections.singleton(1), duplicates);
+        assertEquals(3, repository.count());
+    }
+
+    @Test
+    public void recoverAfterReopenTest() throws IOException {
+        Employee kept = repository.save(createEmployee("Vishwanath", 101));
+        Employee deleted = repository.save(createEmployee("Rane", 101));
+        repository.delete(deleted);
+        repository.close();
+
+        repository = open();
+        assertEquals(Optional.of(kept), repository.findById(kept.getId()));
+        assertFalse(repository.findById(deleted.getId()).isPresent());
+        assertEquals(1, repository.findByDepartmentId(101).size());
+        // Only the reference to the department is written to the log.
+        assertNull(repository.findById(kept.getId()).get().getDepartment());
+        assertEquals(Integer.valueOf(101), repository.findById(kept.getId()).get().getDepartmentId());
+    }
+
+    @Test
+    public void tornRecordIsDiscardedTest() throws IOException {
+        Employee kept = repository.save(createEmployee("Vishwanath", 101));
+        long end = repository.logSize();
+        repository.close();
+
+        try (RandomAccessFile file = new RandomAccessFile(logPath.toFile(), "rw")) {
+            file.seek(end);
+            file.writeInt(64);
+            file.writeInt(12345);
+            file.write(new byte[]{ 1, '{', '"' });
+        }
+
+        repository = open();
+        assertEquals(1, repository.count());
+        assertEquals(Optional.of(kept), repository.findById(kept.getId()));
+
+        Employee added = repository.save(createEmployee("Rane", 101));
+        repository.close();
+        repository = open();
+        assertEquals(Optional.of(added), repository.findById(added.getId()));
+        assertEquals(2, repository.count());
+    }
+
+    @Test
+    public void changesAndTombstonesInOrderTest() throws Exception {
+        LocalDateTime start = LocalDateTime.of(2021, 1, 1, 0, 0);
+        Employee first = createEmployee("Vishwanath", 101);
+        first.setUpdatedAt(start.plusMinutes(2));
+        Employee second = createEmployee("Rane", 101);
+        second.setUpdatedAt(start.plusMinutes(1));
+        repository.save(first);
+        repository.save(second);
+        UUID deletedId = UUID.randomUUID();
+        repository.saveTombstone(EmployeeTombstone.builder().id(deletedId).deletedAt(LocalDateTime.now().withNano(0)).build());
+
+        assertEquals(Arrays.asList(second, first), repository.findUpdatedAfter(start, null, 10));
+        assertEquals(Collections.singletonList(first), repository.findUpdatedAfter(second.getUpdatedAt(), second.getId(), 10));
+
+        repository.close();
+        repository = open();
+        assertEquals(1, repository.findTombstonesAfter(start, null, 10).size());
+        repository.compact();
+        assertEquals(deletedId, repository.findTombstonesAfter(start, null, 10).get(0).getId());
+    }
+
+    @Test
+    public void compactionDropsExpiredTombstonesTest() {
+        LocalDateTime start = LocalDateTime.of(2021, 1, 1, 0, 0);
+        UUID expiredId = UUID.randomUUID();
+        UUID keptId = UUID.randomUUID();
+        repository.saveTombstone(EmployeeTombstone.builder().id(expiredId).deletedAt(LocalDateTime.now().minusDays(31)).build());
+        repository.saveTombstone(EmployeeTombstone.builder().id(keptId).deletedAt(LocalDateTime.now().withNano(0)).build());
+        assertEquals(2, repository.findTombstonesAfter(start, null, 10).size());
+
+        repository.compact();
+
+        assertEquals(Collections.singletonList(keptId), repository.findTombstonesAfter(start, null, 10).stream()
+                .map(EmployeeTombstone::getId)
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    public void addressQueriesPageInIndexOrderTest() {
+        Employee portland = repository.save(livingIn(createEmployee("Vishwanath", 101), "Portland", 97201));
+        Employee hillsboro = repository.save(livingIn(createEmployee("Rane", 101), "Hillsboro", 97006));
+        Employee beaverton = repository.save(livingIn(createEmployee("Krishna", 101), "Beaverton", 97005));
+        repository.save(createEmployee("Patil", 101).toBuilder()
+                .address(Address.builder().city("Seattle").state("Washington").zipcode(98101).build())
+                .build());
+
+        assertEquals(Arrays.asList(beaverton, hillsboro), repository.findInState("Oregon", null, null, 2));
+        assertEquals(Collections.singletonList(portland), repository.findInState("Oregon", "Hillsboro", hillsboro.getId(), 2));
+        assertEquals(Collections.singletonList(hillsboro), repository.findInCity("Oregon", "Hillsboro", null, 10));
+        assertEquals(Arrays.asList(beaverton, hillsboro), repository.findInZipcodeRange(97000, 97100, null, null, 10));
+        assertEquals(Collections.singletonList(hillsboro), repository.findInZipcodeRange(97000, 97100, 97005, beaverton.getId(), 10));
+        assertEquals(3, repository.countInState("Oregon"));
+        assertEquals(1, repository.countInCity("Washington", "Seattle"));
+        assertEquals(3, repository.countInZipcodeRange(97000, 97999));
+
+        repository.save(livingIn(hillsboro, "Salem", 97301));
+        assertEquals(0, repository.countInCity("Oregon", "Hillsboro"));
+        assertEquals(hillsboro.getId(), repository.findInZipcodeRange(97300, 97399, null, null, 10).get(0).getId());
+
+        Employee cityless = repository.save(livingIn(createEmployee("Deshmukh", 101), null, 97007));
+        assertEquals(Collections.singletonList(cityless), repository.findInState("Oregon", null, null, 1));
+        assertEquals(Collections.singletonList(beaverton), repository.findInState("Oregon", null, cityless.getId(), 1));
+    }
+
+    @Test
+    public void compactionKeepsLiveRecordsTest() throws IOException {
+        Employee employee = repository.save(createEmployee("Vishwanath", 101));
+        for (int i = 0; i < 100; i++) {
+            repository.save(employee.toBuilder().lastName("Patil" + i).build());
+        }
+        long before = repository.logSize();
+
+        repository.compact();
+        assertTrue(repository.logSize() < before);
+        assertEquals("Patil99", repository.findById(employee.getId()).get().getLastName());
+
+        repository.close();
+        repository = open();
+        assertEquals("Patil99", repository.findByFirstName("Vishwanath").get().getLastName());
+        assertEquals(1, repository.count());
+    }
+
+
+    private EmbeddedEmployeeRepository open() {
+        return new EmbeddedEmployeeRepository(
+                Jackson2ObjectMapperBuilder.json().modulesToInstall(new ParameterNamesModule(JsonCreator.Mode.DEFAULT)).build(), logPath.toString(), 4096, false, 0.5);
+    }
+
+    private static List<UUID> ids(List<Employee> employees) {
+        return employees.stream().map(Employee::getId).collect(Collectors.toList());
+    }
+
+    private static Employee withEmail(Employee employee, String email) {
+        return employee.toBuilder()
+                .emailAddresses(Collections.singletonList(EmailAddress.builder().email(email).isPrimary(true).build()))
+                .build();
+    }
+
+    private static Employee livingIn(Employee employee, String city, int zipcode) {
+        return employee.toBuilder()
+                .address(employee.getAddress().toBuilder().city(city).zipcode(zipcode).build())
+                .build();
+    }
+
+    private Employee createEmployee(String firstName, int departmentId) {
+
+        EmailAddress emailAddress1 = EmailAddress.builder()
+                .email(firstName.toLowerCase() + "@mailinator.com")
+                .isPrimary(true)
+                .build();
+
+        EmailAddress emailAddress2 = EmailAddress.builder()
+                .email(firstName.toLowerCase() + ".other@mailinator.com")
+                .isPrimary(false)
+                .build();
+
+        Address address = Address.builder()
+                .city("Hillsboro")
+                .street("1189 NE 89th Street")
+                .zipcode(97006)
+                .state("Oregon")
+                .build();
+
+        Department department = Department.builder()
+                .departmentId(departmentId)
+                .function("Technology")
+                .size(5000)
+                .name("Department " + departmentId)
+                .build();
+
+        return Employee.builder()
+                .firstName(firstName)
+                .lastName("Patil")
+                .emailAddresses(Arrays.asList(emailAddress1, emailAddress2))
+                .address(address)
+                .department(department)
+                .id(UUID.randomUUID())
+                .build();
+    }
+}
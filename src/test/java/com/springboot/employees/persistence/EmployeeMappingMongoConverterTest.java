@@ -0,0 +1,142 @@
+package com.springboot.employees.persistence;
+
+import com.springboot.employees.domain.*;
+import org.bson.Document;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class EmployeeMappingMongoConverterTest {
+
+    private MappingMongoConverter reflective;
+
+    private MappingMongoConverter handWritten;
+
+    @Before
+    public void setUp() {
+        MongoCustomConversions conversions = new MongoCustomConversions(Collections.emptyList());
+        MongoMappingContext context = new MongoMappingContext();
+        context.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        context.afterPropertiesSet();
+
+        reflective = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, context);
+        reflective.setCustomConversions(conversions);
+        reflective.afterPropertiesSet();
+
+        handWritten = new EmployeeMappingMongoConverter(NoOpDbRefResolver.INSTANCE, context);
+        handWritten.setCustomConversions(conversions);
+        handWritten.afterPropertiesSet();
+    }
+
+    @Test
+    public void writesSameDocumentTest() {
+        Employee employee = createEmployee();
+
+        assertEquals(write(reflective, employee), write(handWritten, employee));
+        assertEquals(101, write(handWritten, employee).get("departmentId"));
+        assertFalse(write(handWritten, employee).containsKey("department"));
+    }
+
+    @Test
+    public void writesSameSparseDocumentTest() {
+        Employee employee = Employee.builder()
+                .firstName("Vishwanath")
+                .department(Department.builder().name("NDE").build())
+                .address(Address.builder().city("Hillsboro").build())
+                .emailAddresses(Collections.singletonList(EmailAddress.builder().build()))
+                .build();
+
+        assertEquals(write(reflective, employee), write(handWritten, employee));
+        assertEquals(write(reflective, new Employee()), write(handWritten, new Employee()));
+    }
+
+    @Test
+    public void readsSameEmployeeTest() {
+        Document document = write(reflective, createEmployee());
+
+        assertSameEmployee(reflective.read(Employee.class, document), handWritten.read(Employee.class, document));
+    }
+
+    @Test
+    public void roundTripTest() {
+        Employee employee = createEmployee();
+
+        assertSameEmployee(employee, handWritten.read(Employee.class, write(handWritten, employee)));
+    }
+
+    @Test
+    public void readsLegacyDocumentsTest() {
+        Document document = write(reflective, createEmployee());
+        document.put("_id", document.get("_id").toString());
+        ((Document) document.get("address")).put("zipcode", 97006L);
+
+        Employee employee = handWritten.read(Employee.class, document);
+
+        assertSameEmployee(reflective.read(Employee.class, document), employee);
+        assertEquals(97006, employee.getAddress().getZipcode());
+    }
+
+
+    private static Document write(MappingMongoConverter converter, Employee employee) {
+        Document document = new Document();
+        converter.write(employee, document);
+        return document;
+    }
+
+    private static void assertSameEmployee(Employee expected, Employee actual) {
+        assertEquals(expected, actual);
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getCreatedAt(), actual.getCreatedAt());
+        assertEquals(expected.getUpdatedAt(), actual.getUpdatedAt());
+    }
+
+    private static Employee createEmployee() {
+
+        EmailAddress emailAddress1 = EmailAddress.builder()
+                .email("abc@mailinator.com")
+                .isPrimary(true)
+                .build();
+
+        EmailAddress emailAddress2 = EmailAddress.builder()
+                .email("def@mailinator.com")
+                .isPrimary(false)
+                .build();
+
+        Address address = Address.builder()
+                .city("Hillsboro")
+                .street("1189 NE 89th Street")
+                .zipcode(97006)
+                .state("Oregon")
+                .build();
+
+        Department department = Department.builder()
+                .departmentId(101)
+                .function("Technology")
+                .size(5000)
+                .name("NDE")
+                .build();
+
+        Employee employee = Employee.builder()
+                .id(UUID.randomUUID())
+                .firstName("Vishwanath")
+                .lastName("Krishna")
+                .department(department)
+                .managerId(UUID.randomUUID())
+                .address(address)
+                .emailAddresses(Arrays.asList(emailAddress1, emailAddress2))
+                .build();
+        employee.setCreatedAt(LocalDateTime.now().minusDays(1));
+        employee.setUpdatedAt(LocalDateTime.now());
+        return employee;
+    }
+}
@@ -0,0 +1,77 @@
+package com.springboot.employees.persistence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springboot.employees.domain.Department;
+import com.springboot.employees.domain.Employee;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class LocalDepartmentRepositoryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private final EmployeeRepository employees = mock(EmployeeRepository.class);
+
+    private String path;
+
+    @Before
+    public void setUp() {
+        path = folder.getRoot().toPath().resolve("departments.json").toString();
+        when(employees.findAll()).thenReturn(Collections.emptyList());
+    }
+
+    @Test
+    public void savedDepartmentsAreReadBackTest() {
+        LocalDepartmentRepository repository = new LocalDepartmentRepository(objectMapper, employees, path);
+        repository.save(department(101, "NDE"));
+        repository.save(department(102, "QA"));
+        repository.save(department(101, "Platform"));
+
+        LocalDepartmentRepository reopened = new LocalDepartmentRepository(objectMapper, employees, path);
+        assertEquals(Arrays.asList(department(101, "Platform"), department(102, "QA")), reopened.findAll());
+        assertFalse(reopened.findById(103).isPresent());
+    }
+
+    @Test(expected = DuplicateKeyException.class)
+    public void namesAreUniqueTest() {
+        LocalDepartmentRepository repository = new LocalDepartmentRepository(objectMapper, employees, "");
+        repository.save(department(101, "NDE"));
+        repository.save(department(102, "NDE"));
+    }
+
+    @Test
+    public void carriedDepartmentsAreTakenOverTest() {
+        when(employees.findAll()).thenReturn(Arrays.asList(
+                employee(department(101, "NDE")), employee(department(101, "NDE")), employee(department(102, "NDE"))));
+
+        LocalDepartmentRepository repository = new LocalDepartmentRepository(objectMapper, employees, path);
+
+        assertEquals(Collections.singletonList(department(101, "NDE")), repository.findAll());
+        when(employees.findAll()).thenReturn(Collections.emptyList());
+        assertEquals(1, new LocalDepartmentRepository(objectMapper, employees, path).findAll().size());
+    }
+
+
+    private static Employee employee(Department department) {
+        return Employee.builder().id(UUID.randomUUID()).firstName("Vishwanath").department(department).build();
+    }
+
+    private static Department department(int departmentId, String name) {
+        return Department.builder().departmentId(departmentId).name(name).size(100).function("Technology").build();
+    }
+}
@@ -0,0 +1,74 @@
+package com.springboot.employees.persistence;
+
+import com.springboot.employees.domain.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class LocalDepartmentSummaryRepositoryTest {
+
+    private InMemoryEmployeeRepository employees;
+
+    private LocalDepartmentSummaryRepository summaries;
+
+    @Before
+    public void setUp() {
+        employees = new InMemoryEmployeeRepository();
+        summaries = new LocalDepartmentSummaryRepository(employees);
+    }
+
+    @Test
+    public void addAndRemoveTest() {
+        Employee first = employees.save(createEmployee("Vishwanath", 101, "Oregon", LocalDateTime.of(2021, 1, 1, 10, 0)));
+        Employee second = employees.save(createEmployee("Vish", 101, "Texas", LocalDateTime.of(2021, 2, 1, 10, 0)));
+        summaries.addAll(Arrays.asList(first, second));
+
+        DepartmentSummary summary = summaries.findByDepartmentId(101).orElseThrow(AssertionError::new);
+        assertEquals(2, summary.getHeadcount());
+        assertEquals(Long.valueOf(1), summary.getHeadcountByState().get("Texas"));
+        assertEquals(second.getCreatedAt(), summary.getMostRecentHire());
+
+        employees.delete(second);
+        summaries.remove(second);
+        summary = summaries.findByDepartmentId(101).orElseThrow(AssertionError::new);
+        assertEquals(1, summary.getHeadcount());
+        assertEquals(Collections.singletonMap("Oregon", 1L), summary.getHeadcountByState());
+        assertEquals(first.getCreatedAt(), summary.getMostRecentHire());
+
+        employees.delete(first);
+        summaries.remove(first);
+        assertFalse(summaries.findByDepartmentId(101).isPresent());
+    }
+
+    @Test
+    public void rebuildTest() {
+        employees.save(createEmployee("Vishwanath", 101, "Oregon", LocalDateTime.of(2021, 1, 1, 10, 0)));
+        employees.save(createEmployee("Vish", 102, "Oregon", LocalDateTime.of(2021, 2, 1, 10, 0)));
+
+        summaries.rebuild();
+        assertEquals(2, summaries.findAll().size());
+        assertEquals(101, summaries.findAll().get(0).getDepartmentId());
+        assertEquals(1, summaries.findByDepartmentId(102).orElseThrow(AssertionError::new).getHeadcount());
+    }
+
+
+    private static Employee createEmployee(String firstName, int departmentId, String state, LocalDateTime createdAt) {
+        Employee employee = Employee.builder()
+                .id(UUID.randomUUID())
+                .firstName(firstName)
+                .lastName("Krishna")
+                .departmentId(departmentId)
+                .address(Address.builder().city("Hillsboro").street("1189 NE 89th Street").zipcode(97006).state(state).build())
+                .emailAddresses(Collections.singletonList(EmailAddress.builder().email(firstName + "@mailinator.com").isPrimary(true).build()))
+                .build();
+        employee.setCreatedAt(createdAt);
+        employee.setUpdatedAt(createdAt);
+        return employee;
+    }
+}
@@ -0,0 +1,116 @@
+package com.springboot.employees.profiler;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionDescription;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import com.springboot.employees.domain.ProfilerReport;
+import org.bson.BsonDocument;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+
+public class OperationProfilerTest {
+
+    private static final ConnectionDescription CONNECTION = new ConnectionDescription(new ServerId(new ClusterId(), new ServerAddress()));
+
+    private OperationProfiler profiler;
+
+    private ProfilerCommandListener listener;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        profiler = new OperationProfiler(100, 10, 4, false, 1000, mock(ObjectProvider.class));
+        listener = new ProfilerCommandListener(profiler);
+    }
+
+    @Test
+    public void slowCommandShapeTest() {
+        BsonDocument find = BsonDocument.parse("{find: 'employees', filter: {firstName: 'Vishwanath', 'address.zipcode': {$gt: 97000}, "
+                + "$or: [{lastName: 'Krishna'}, {lastName: 'Rane'}]}, limit: 1, $db: 'Employee', lsid: {id: 1}}");
+        listener.commandStarted(new CommandStartedEvent(1, CONNECTION, "Employee", "find", find));
+        listener.commandSucceeded(new CommandSucceededEvent(1, CONNECTION, "find",
+                BsonDocument.parse("{cursor: {firstBatch: [{}, {}], id: 0}, ok: 1}"), TimeUnit.MILLISECONDS.toNanos(25)));
+
+        listener.commandStarted(new CommandStartedEvent(2, CONNECTION, "Employee", "find", find));
+        listener.commandSucceeded(new CommandSucceededEvent(2, CONNECTION, "find",
+                BsonDocument.parse("{cursor: {firstBatch: [], id: 0}, ok: 1}"), TimeUnit.MILLISECONDS.toNanos(2)));
+
+        ProfilerReport report = profiler.report(10);
+        assertEquals(1, report.getSlowCommands().size());
+        ProfilerReport.SlowCommand command = report.getSlowCommands().get(0);
+        assertEquals("employees", command.getCollection());
+        assertEquals(Long.valueOf(2), command.getDocsReturned());
+        assertEquals(25.0, command.getDurationMillis(), 0.001);
+        assertFalse(command.getShape(), command.getShape().contains("Vishwanath"));
+        assertFalse(command.getShape(), command.getShape().contains("lsid"));
+        assertTrue(command.getShape(), command.getShape().contains("\"address.zipcode\": {\"$gt\": \"?\"}"));
+        assertEquals("string", command.getParameters().get("filter.firstName"));
+        assertEquals("int32", command.getParameters().get("filter.address.zipcode.$gt"));
+        assertEquals("string", command.getParameters().get("filter.$or.1.lastName"));
+    }
+
+    @Test
+    public void onlyExpressionsKeepDollarStringsTest() {
+        StringBuilder shape = new StringBuilder();
+        Map<String, String> parameters = new HashMap<>();
+        QueryShapes.describe("find", BsonDocument.parse("{find: 'employees', filter: {firstName: '$ecret', "
+                + "$expr: {$eq: ['$managerId', '$$ROOT._id']}}}"), shape, parameters);
+
+        assertFalse(shape.toString(), shape.toString().contains("$ecret"));
+        assertEquals("string", parameters.get("filter.firstName"));
+        assertTrue(shape.toString(), shape.toString().contains("[\"$managerId\", \"$$ROOT._id\"]"));
+
+        shape.setLength(0);
+        parameters.clear();
+        QueryShapes.describe("aggregate", BsonDocument.parse("{aggregate: 'employees', pipeline: [{$match: {lastName: '$ecret'}}, "
+                + "{$graphLookup: {from: 'employees', startWith: '$_id', connectFromField: '_id', connectToField: 'managerId', as: 'reports'}}]}"),
+                shape, parameters);
+
+        assertFalse(shape.toString(), shape.toString().contains("$ecret"));
+        assertEquals("string", parameters.get("pipeline.0.$match.lastName"));
+        assertTrue(shape.toString(), shape.toString().contains("\"startWith\": \"$_id\""));
+    }
+
+    @Test
+    public void slowestFirstTest() {
+        for (int i = 1; i <= 6; i++) {
+            profiler.startRequest();
+            profiler.finishRequest("GET", "/employees/{id}", 200, TimeUnit.MILLISECONDS.toNanos(100 + i));
+        }
+
+        ProfilerReport report = profiler.report(10);
+        assertEquals(4, report.getSlowRequests().size());
+        assertEquals(106.0, report.getSlowRequests().get(0).getDurationMillis(), 0.001);
+        assertEquals(103.0, report.getSlowRequests().get(3).getDurationMillis(), 0.001);
+    }
+
+    @Test
+    public void topRepositoryMethodsTest() {
+        profiler.recordMethod("findById", TimeUnit.MILLISECONDS.toNanos(1), false);
+        profiler.recordMethod("findById", TimeUnit.MILLISECONDS.toNanos(3), true);
+        profiler.recordMethod("findByDepartmentName", TimeUnit.MILLISECONDS.toNanos(10), false);
+        profiler.recordMethod("save", TimeUnit.MILLISECONDS.toNanos(2), false);
+
+        ProfilerReport report = profiler.report(2);
+        assertEquals(2, report.getRepositoryMethods().size());
+        assertEquals("findByDepartmentName", report.getRepositoryMethods().get(0).getMethod());
+        ProfilerReport.MethodProfile findById = report.getRepositoryMethods().get(1);
+        assertEquals(2, findById.getCalls());
+        assertEquals(1, findById.getErrors());
+        assertEquals(3.0, findById.getMaxMillis(), 0.001);
+
+        profiler.reset();
+        assertTrue(profiler.report(2).getRepositoryMethods().isEmpty());
+    }
+}
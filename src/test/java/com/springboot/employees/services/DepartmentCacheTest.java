@@ -0,0 +1,71 @@
+package com.springboot.employees.services;
+
+import com.springboot.employees.domain.Department;
+import com.springboot.employees.persistence.DepartmentRepository;
+import com.springboot.employees.service.DepartmentCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class DepartmentCacheTest {
+
+    private final Department nde = Department.builder().departmentId(101).name("NDE").size(5000).function("Technology").build();
+
+    private final Department qa = Department.builder().departmentId(102).name("QA").size(100).function("Quality").build();
+
+    private DepartmentRepository repository;
+
+    private DepartmentCache cache;
+
+    @Before
+    public void setUp() {
+        repository = mock(DepartmentRepository.class);
+        when(repository.findAll()).thenReturn(Arrays.asList(qa, nde));
+        cache = new DepartmentCache(repository, new SimpleMeterRegistry());
+    }
+
+    @Test
+    public void refreshLoadsEveryDepartmentTest() {
+        assertFalse(cache.isLoaded());
+        assertFalse(cache.get(101).isPresent());
+
+        cache.refresh();
+
+        assertTrue(cache.isLoaded());
+        assertEquals(Arrays.asList(nde, qa), cache.getAll());
+        assertEquals(Optional.of(qa), cache.getByName("QA"));
+        assertFalse(cache.get(null).isPresent());
+    }
+
+    @Test
+    public void versionOnlyMovesOnChangesTest() {
+        cache.refresh();
+        long loaded = cache.version();
+
+        cache.refresh();
+        assertEquals(loaded, cache.version());
+
+        Department renamed = nde.toBuilder().name("Platform").build();
+        cache.put(renamed);
+        assertTrue(cache.version() > loaded);
+        assertEquals(Optional.of(renamed), cache.get(101));
+        assertFalse(cache.getByName("NDE").isPresent());
+    }
+
+    @Test
+    public void failedRefreshKeepsTheDepartmentsTest() {
+        cache.refresh();
+        when(repository.findAll()).thenThrow(new DataAccessResourceFailureException("down"));
+
+        cache.refresh();
+
+        assertEquals(Optional.of(nde), cache.get(101));
+    }
+}
@@ -0,0 +1,48 @@
+package com.springboot.employees.services;
+
+import com.springboot.employees.domain.Employee;
+import com.springboot.employees.service.EmployeeCache;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class EmployeeCacheTest {
+
+    private final EmployeeCache cache = new EmployeeCache(true, 100, 60000);
+
+    private final Employee employee = Employee.builder().id(UUID.randomUUID()).firstName("Vishwanath").build();
+
+    @Test
+    public void readsStampedBeforeAnEvictionAreNotCachedTest() {
+        long stamp = cache.invalidationStamp(employee.getId());
+        cache.evict(employee.getId());
+
+        cache.putIfNotInvalidatedSince(employee, stamp);
+        assertFalse(cache.get(employee.getId()).isPresent());
+
+        cache.putIfNotInvalidatedSince(employee, cache.invalidationStamp(employee.getId()));
+        assertEquals(Optional.of(employee), cache.get(employee.getId()));
+    }
+
+    @Test
+    public void readsStampedBeforeAClearAreNotCachedTest() {
+        long stamp = cache.invalidationStamp(employee.getId());
+        cache.clear();
+
+        cache.putIfNotInvalidatedSince(employee, stamp);
+        assertFalse(cache.get(employee.getId()).isPresent());
+    }
+
+    @Test
+    public void evictionsOfOtherIdsAreMostlyIgnoredTest() {
+        long stamp = cache.invalidationStamp(employee.getId());
+        cache.evictAll(Collections.singletonList(new UUID(employee.getId().getMostSignificantBits(), employee.getId().getLeastSignificantBits() + 1)));
+
+        cache.putIfNotInvalidatedSince(employee, stamp);
+        assertTrue(cache.get(employee.getId()).isPresent());
+    }
+}
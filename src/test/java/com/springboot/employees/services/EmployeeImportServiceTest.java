@@ -0,0 +1,155 @@
+package com.springboot.employees.services;
+
+import com.springboot.employees.domain.Employee;
+import com.springboot.employees.domain.ImportJob;
+import com.springboot.employees.exceptions.BadRequestException;
+import com.springboot.employees.persistence.DepartmentRepository;
+import com.springboot.employees.persistence.DepartmentSummaryRepository;
+import com.springboot.employees.persistence.EmployeeRepository;
+import com.springboot.employees.service.EmployeeImportService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "employees.imports.batch-size=2")
+public class EmployeeImportServiceTest {
+
+    private static final String CSV_HEADER = "firstName,lastName,departmentId,departmentName,departmentSize,departmentFunction,street,city,state,zipcode,primaryEmail,otherEmails\n";
+
+    @Autowired
+    private EmployeeImportService importService;
+
+    @MockBean
+    private EmployeeRepository repository;
+
+    @MockBean
+    private DepartmentSummaryRepository summaryRepository;
+
+    @MockBean
+    private DepartmentRepository departmentRepository;
+
+    @Test
+    public void importCsvTest() throws Exception {
+        when(repository.insertSkippingDuplicates(anyList())).thenReturn(Collections.emptySet(), Collections.singleton(0));
+        String csv = CSV_HEADER
+                + "Vishwanath,Krishna,101,NDE,5000,Technology,1189 NE 89th Street,Hillsboro,Oregon,97006,abc@mailinator.com,def@mailinator.com;ghi@mailinator.com\n"
+                + "Vish,Rane,101,NDE,5000,Technology,\"1189 NE 89th Street, Apt 2\",Hillsboro,Oregon,97006,vish@mailinator.com,\n"
+                + "NoPrimary,Email,101,NDE,5000,Technology,1189 NE 89th Street,Hillsboro,Oregon,97006,,def@mailinator.com\n"
+                + "Bad,Zip,101,NDE,5000,Technology,1189 NE 89th Street,Hillsboro,Oregon,abc,bad@mailinator.com,\n"
+                + "Already,There,101,NDE,5000,Technology,1189 NE 89th Street,Hillsboro,Oregon,97006,there@mailinator.com,\n";
+
+        ImportJob job = awaitFinished(importService.startImport(file("employees.csv", "text/csv", csv), null).getId());
+
+        assertEquals(ImportJob.Status.COMPLETED, job.getStatus());
+        assertEquals(5, job.getRowsRead());
+        assertEquals(2, job.getRowsImported());
+        assertEquals(3, job.getRowsRejected());
+        assertEquals(4, job.getErrors().get(0).getLine());
+        assertEquals("At least one emailAddress should be marked as primary!", job.getErrors().get(0).getMessage());
+        assertEquals(5, job.getErrors().get(1).getLine());
+        assertEquals("zipcode should be a number!", job.getErrors().get(1).getMessage());
+        assertEquals(6, job.getErrors().get(2).getLine());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Employee>> batches = ArgumentCaptor.forClass(List.class);
+        verify(repository, times(2)).insertSkippingDuplicates(batches.capture());
+        Employee first = batches.getAllValues().get(0).get(0);
+        assertNotNull(first.getId());
+        assertEquals("NDE", first.getDepartment().getName());
+        assertEquals(3, first.getEmailAddresses().size());
+        assertTrue(first.getEmailAddresses().get(0).isPrimary());
+        assertEquals("1189 NE 89th Street, Apt 2", batches.getAllValues().get(0).get(1).getAddress().getStreet());
+    }
+
+    @Test
+    public void importNdjsonTest() throws Exception {
+        when(repository.insertSkippingDuplicates(anyList())).thenReturn(Collections.emptySet());
+        String ndjson = "{\"firstName\":\"Vishwanath\",\"lastName\":\"Krishna\","
+                + "\"department\":{\"departmentId\":101,\"name\":\"NDE\",\"size\":5000,\"function\":\"Technology\"},"
+                + "\"address\":{\"city\":\"Hillsboro\",\"street\":\"1189 NE 89th Street\",\"zipcode\":97006,\"state\":\"Oregon\"},"
+                + "\"emailAddresses\":[{\"email\":\"abc@mailinator.com\",\"isPrimary\":true}]}\n"
+                + "\n"
+                + "{\"firstName\":\"Broken\"\n"
+                + "{\"firstName\":\"\",\"lastName\":\"Krishna\"}\n";
+
+        ImportJob job = awaitFinished(importService.startImport(file("employees.ndjson", "application/octet-stream", ndjson), null).getId());
+
+        assertEquals(ImportJob.Status.COMPLETED, job.getStatus());
+        assertEquals(3, job.getRowsRead());
+        assertEquals(1, job.getRowsImported());
+        assertEquals(2, job.getRowsRejected());
+        assertEquals(3, job.getErrors().get(0).getLine());
+        assertTrue(job.getErrors().get(0).getMessage().startsWith("Malformed JSON"));
+        assertEquals(4, job.getErrors().get(1).getLine());
+        assertTrue(job.getErrors().get(1).getMessage().contains("firstName can't be empty!."));
+        assertTrue(job.getErrors().get(1).getMessage().contains("Employee department details are required."));
+    }
+
+    @Test
+    public void importWithUnknownManagersTest() throws Exception {
+        UUID managerId = UUID.randomUUID();
+        UUID unknownManagerId = UUID.randomUUID();
+        when(repository.findByIdIn(anyCollection())).thenReturn(Collections.singletonList(Employee.builder().id(managerId).firstName("Rane").build()));
+        when(repository.insertSkippingDuplicates(anyList())).thenReturn(Collections.emptySet());
+        String csv = "firstName,lastName,departmentId,departmentName,departmentSize,departmentFunction,managerId,street,city,state,zipcode,primaryEmail\n"
+                + "Vishwanath,Krishna,101,NDE,5000,Technology," + unknownManagerId + ",1189 NE 89th Street,Hillsboro,Oregon,97006,abc@mailinator.com\n"
+                + "Vish,Rane,101,NDE,5000,Technology," + managerId + ",1189 NE 89th Street,Hillsboro,Oregon,97006,vish@mailinator.com\n";
+
+        ImportJob job = awaitFinished(importService.startImport(file("employees.csv", "text/csv", csv), null).getId());
+
+        assertEquals(ImportJob.Status.COMPLETED, job.getStatus());
+        assertEquals(1, job.getRowsImported());
+        assertEquals(1, job.getRowsRejected());
+        assertEquals(2, job.getErrors().get(0).getLine());
+        assertEquals("The manager with id : " + unknownManagerId + " doesn't exist!", job.getErrors().get(0).getMessage());
+        verify(repository, times(1)).findByIdIn(anyCollection());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Employee>> batch = ArgumentCaptor.forClass(List.class);
+        verify(repository).insertSkippingDuplicates(batch.capture());
+        assertEquals(Collections.singletonList(managerId), batch.getValue().stream().map(Employee::getManagerId).collect(Collectors.toList()));
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void unsupportedFormatTest() throws Exception {
+        importService.startImport(file("employees.xml", "application/xml", "<employees/>"), null);
+    }
+
+    @Test
+    public void unknownJobTest() {
+        assertFalse(importService.retrieveImportJob(UUID.randomUUID()).isPresent());
+    }
+
+
+    private ImportJob awaitFinished(UUID jobId) throws InterruptedException {
+        for (int attempt = 0; attempt < 500; attempt++) {
+            ImportJob job = importService.retrieveImportJob(jobId).orElseThrow(IllegalStateException::new);
+            if (job.getStatus() == ImportJob.Status.COMPLETED || job.getStatus() == ImportJob.Status.FAILED) {
+                return job;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("The import job did not finish in time");
+    }
+
+    private static MockMultipartFile file(String name, String contentType, String content) {
+        return new MockMultipartFile("file", name, contentType, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,218 @@
+package com.springboot.employees.services;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.springboot.employees.domain.Employee;
+import com.springboot.employees.persistence.EmployeeRepository;
+import com.springboot.employees.service.EmployeeCache;
+import com.springboot.employees.service.EmployeeInvalidationBus;
+import com.springboot.employees.service.EmployeeNegativeCache;
+import com.springboot.employees.service.EmployeeOrgChart;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.*;
+
+public class EmployeeInvalidationBusTest {
+
+    private static final String COLLECTION = "employee_invalidations";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final EmployeeCache cache = new EmployeeCache(true, 100, 60000);
+
+    private final EmployeeOrgChart orgChart = new EmployeeOrgChart(true, 100, meterRegistry);
+
+    private final BlockingQueue<Object> tailed = new LinkedBlockingQueue<>();
+
+    private final Document first = invalidation(new ObjectId(), "other");
+
+    private final Document newer = invalidation(new ObjectId(), "other");
+
+    private MongoTemplate mongoTemplate;
+
+    private MongoCollection<Document> collection;
+
+    private FindIterable<Document> lookup;
+
+    private EmployeeNegativeCache negativeCache;
+
+    private EmployeeInvalidationBus bus;
+
+    private Object next;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        collection = mock(MongoCollection.class);
+        when(mongoTemplate.collectionExists(COLLECTION)).thenReturn(true);
+        when(mongoTemplate.getCollection(COLLECTION)).thenReturn(collection);
+
+        // The oldest and newest invalidations, then the oldest and newest after a reset.
+        FindIterable<Document> all = mock(FindIterable.class);
+        FindIterable<Document> ends = mock(FindIterable.class);
+        when(collection.find()).thenReturn(all);
+        when(all.sort(any())).thenReturn(ends);
+        when(ends.first()).thenReturn(first, first, newer);
+
+        // The last invalidation read is still in the collection unless a test overwrites it.
+        lookup = mock(FindIterable.class);
+        when(collection.find(any(Bson.class))).thenReturn(lookup);
+        when(lookup.first()).thenReturn(first);
+
+        // Tailing reads from the start of the collection, up to the last invalidation read first.
+        tailed.add(first);
+        FindIterable<Document> tail = mock(FindIterable.class);
+        MongoCursor<Document> cursor = mock(MongoCursor.class);
+        when(all.cursorType(any())).thenReturn(tail);
+        when(tail.noCursorTimeout(anyBoolean())).thenReturn(tail);
+        when(tail.iterator()).thenReturn(cursor);
+        when(cursor.hasNext()).thenAnswer(invocation -> {
+            try {
+                next = tailed.take();
+            } catch (InterruptedException e) {
+                throw new MongoException("Cursor closed");
+            }
+            if (next instanceof RuntimeException) {
+                throw (RuntimeException) next;
+            }
+            return true;
+        });
+        when(cursor.next()).thenAnswer(invocation -> next);
+
+        EmployeeRepository repository = mock(EmployeeRepository.class);
+        negativeCache = new EmployeeNegativeCache(true, 1000, 0.01, 3600000, repository, meterRegistry);
+        bus = new EmployeeInvalidationBus(mongoTemplate, cache, negativeCache, orgChart, 1048576, 600000, 30000, meterRegistry);
+        bus.start();
+        await(() -> tailing() == 1);
+    }
+
+    @After
+    public void tearDown() {
+        bus.stop();
+    }
+
+    @Test
+    public void invalidationsOfOtherInstancesAreAppliedTest() {
+        Employee employee = cached();
+        UUID managerId = UUID.randomUUID();
+        negativeCache.rebuild();
+        orgChart.record(managerId, 1, Collections.singletonList(Employee.builder().id(employee.getId()).managerId(managerId).build()), orgChart.generation());
+        assertTrue(negativeCache.isAbsentFirstName("Rane"));
+
+        tailed.add(invalidation(new ObjectId(), "other")
+                .append("ids", Collections.singletonList(employee.getId()))
+                .append("firstNames", Collections.singletonList("Rane"))
+                .append("managerIds", Collections.singletonList(managerId)));
+
+        await(() -> meterRegistry.get("employees.invalidation.messages").tag("result", "received").counter().count() == 1);
+        assertFalse(cache.get(employee.getId()).isPresent());
+        assertFalse(negativeCache.isAbsentFirstName("Rane"));
+        assertFalse(negativeCache.isAbsentId(employee.getId()));
+        assertFalse(orgChart.reports(managerId, 1).isPresent());
+    }
+
+    @Test
+    public void idsNewerThanTheAppliedInvalidationsAreNotRejectedTest() {
+        negativeCache.rebuild();
+        long mintedAt = System.currentTimeMillis() + 60000;
+        UUID minted = new UUID(mintedAt << 16 | 0x7000L, 0x8000000000000000L);
+        assertTrue(negativeCache.isAbsentId(UUID.randomUUID()));
+        assertFalse(negativeCache.isAbsentId(minted));
+
+        tailed.add(invalidation(new ObjectId(), "other").append("at", new Date(mintedAt)));
+
+        await(() -> meterRegistry.get("employees.invalidation.messages").tag("result", "received").counter().count() == 1);
+        assertTrue(negativeCache.isAbsentId(minted));
+    }
+
+    @Test
+    public void publishesWithoutLookingUpTheCollectionAgainTest() {
+        bus.publish(Collections.singletonList(UUID.randomUUID()));
+        bus.publish(Arrays.asList(UUID.randomUUID(), UUID.randomUUID()), Collections.singletonList("Rane"));
+
+        verify(collection, times(2)).insertOne(any(Document.class));
+        verify(mongoTemplate, times(1)).collectionExists(COLLECTION);
+    }
+
+    @Test
+    public void brokenTailingClearsTheCacheAndLostMessagesClearItAgainTest() {
+        Employee employee = cached();
+
+        when(lookup.first()).thenReturn(null);
+        tailed.add(new MongoException("Connection reset"));
+
+        await(() -> tailing() == 0);
+        assertFalse(cache.get(employee.getId()).isPresent());
+
+        // Back after the retry delay, the last invalidation read has been overwritten.
+        await(() -> tailing() == 1);
+        assertEquals(1, meterRegistry.get("employees.invalidation.resets").counter().count(), 0.0);
+    }
+
+    @Test
+    public void resumedTailingAppliesWhatFollowsTheLastReadWhateverItsIdTest() {
+        tailed.add(new MongoException("Connection reset"));
+        await(() -> tailing() == 0);
+        await(() -> tailing() == 1);
+        Employee employee = cached();
+
+        // Another instance minted a smaller ObjectId but inserted it after the last invalidation read.
+        tailed.add(first);
+        tailed.add(invalidation(new ObjectId(new Date(0)), "other")
+                .append("ids", Collections.singletonList(employee.getId())));
+
+        await(() -> meterRegistry.get("employees.invalidation.messages").tag("result", "received").counter().count() == 1);
+        assertFalse(cache.get(employee.getId()).isPresent());
+        assertEquals(0, meterRegistry.get("employees.invalidation.resets").counter().count(), 0.0);
+    }
+
+
+    private Employee cached() {
+        Employee employee = Employee.builder().id(UUID.randomUUID()).firstName("Vishwanath").build();
+        cache.putIfNotInvalidatedSince(employee, cache.invalidationStamp(employee.getId()));
+        assertEquals(Optional.of(employee), cache.get(employee.getId()));
+        return employee;
+    }
+
+    private double tailing() {
+        return meterRegistry.get("employees.invalidation.tailing").gauge().value();
+    }
+
+    private static Document invalidation(ObjectId id, String node) {
+        return new Document("_id", id).append("node", node).append("ids", Collections.emptyList()).append("at", new Date());
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue("Timed out", System.currentTimeMillis() < deadline);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.springboot.employees.services;
+
+import com.springboot.employees.persistence.EmployeeRepository;
+import com.springboot.employees.service.EmployeeNegativeCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class EmployeeNegativeCacheTest {
+
+    private final UUID existingId = UUID.randomUUID();
+
+    private EmployeeRepository repository;
+
+    private EmployeeNegativeCache negativeCache;
+
+    @Before
+    public void setUp() {
+        repository = mock(EmployeeRepository.class);
+        doAnswer(invocation -> {
+            BiConsumer<UUID, String> consumer = invocation.getArgument(0);
+            consumer.accept(existingId, "Vishwanath");
+            return null;
+        }).when(repository).forEachKey(any());
+        negativeCache = new EmployeeNegativeCache(true, 1000, 0.01, 3600000, repository, new SimpleMeterRegistry());
+    }
+
+    @Test
+    public void definiteMissesAfterRebuildTest() {
+        UUID unknownId = UUID.randomUUID();
+        assertFalse(negativeCache.isAbsentId(unknownId));
+        assertFalse(negativeCache.isAbsentFirstName("Nobody"));
+
+        negativeCache.refresh();
+
+        verify(repository, times(1)).forEachKey(any());
+        assertFalse(negativeCache.isAbsentId(existingId));
+        assertFalse(negativeCache.isAbsentFirstName("Vishwanath"));
+        assertTrue(negativeCache.isAbsentId(unknownId));
+        assertTrue(negativeCache.isAbsentFirstName("Nobody"));
+
+        negativeCache.refresh();
+        verify(repository, times(1)).forEachKey(any());
+    }
+
+    @Test
+    public void writtenKeysAreAddedTest() {
+        negativeCache.rebuild();
+        UUID createdId = UUID.randomUUID();
+
+        negativeCache.add(createdId, "Vish");
+
+        assertFalse(negativeCache.isAbsentId(createdId));
+        assertFalse(negativeCache.isAbsentFirstName("Vish"));
+    }
+
+    @Test
+    public void disabledCacheNeverRejectsTest() {
+        EmployeeNegativeCache disabled = new EmployeeNegativeCache(false, 1000, 0.01, 3600000, repository, new SimpleMeterRegistry());
+
+        disabled.rebuild();
+
+        verifyNoInteractions(repository);
+        assertFalse(disabled.isAbsentId(UUID.randomUUID()));
+    }
+}
@@ -0,0 +1,87 @@
+package com.springboot.employees.services;
+
+import com.springboot.employees.domain.Employee;
+import com.springboot.employees.service.EmployeeOrgChart;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class EmployeeOrgChartTest {
+
+    private final UUID ceo = UUID.randomUUID();
+    private final UUID cto = UUID.randomUUID();
+    private final UUID cfo = UUID.randomUUID();
+    private final UUID engineer = UUID.randomUUID();
+
+    private EmployeeOrgChart orgChart;
+
+    private List<Employee> subtree;
+
+    @Before
+    public void setUp() {
+        orgChart = new EmployeeOrgChart(true, 1000, new SimpleMeterRegistry());
+        // Deepest first, like an unordered $graphLookup result.
+        subtree = Arrays.asList(report(engineer, cto), report(cto, ceo), report(cfo, ceo));
+    }
+
+    @Test
+    public void recordedSubtreesAreAnsweredFromMemoryTest() {
+        assertFalse(orgChart.reports(ceo, 3).isPresent());
+
+        List<Employee> ordered = orgChart.record(ceo, 3, subtree, orgChart.generation());
+
+        assertEquals(Arrays.asList(cto, cfo, engineer), ids(ordered));
+        assertEquals(Optional.of(Arrays.asList(cto, cfo, engineer)), orgChart.reports(ceo, 3));
+        assertEquals(Optional.of(Arrays.asList(cto, cfo)), orgChart.reports(ceo, 1));
+        assertEquals(Optional.of(Collections.singletonList(engineer)), orgChart.reports(cto, 2));
+        assertEquals(Optional.of(Collections.emptyList()), orgChart.reports(engineer, 1));
+    }
+
+    @Test
+    public void onlyLevelsAboveTheLastAreRecordedTest() {
+        List<Employee> ordered = orgChart.record(ceo, 1, Arrays.asList(report(cto, ceo), report(cfo, ceo)), orgChart.generation());
+
+        assertEquals(Arrays.asList(cto, cfo), ids(ordered));
+        assertTrue(orgChart.reports(ceo, 1).isPresent());
+        assertFalse(orgChart.reports(ceo, 2).isPresent());
+    }
+
+    @Test
+    public void changedReportingLinesAreForgottenTest() {
+        orgChart.record(ceo, 3, subtree, orgChart.generation());
+
+        orgChart.forget(Collections.singletonList(cto));
+
+        assertFalse(orgChart.reports(ceo, 3).isPresent());
+        assertTrue(orgChart.reports(ceo, 1).isPresent());
+    }
+
+    @Test
+    public void subtreesReadDuringAChangeAreNotRecordedTest() {
+        long generation = orgChart.generation();
+        orgChart.forget(Collections.singletonList(cto));
+
+        List<Employee> ordered = orgChart.record(ceo, 3, subtree, generation);
+
+        assertEquals(3, ordered.size());
+        assertFalse(orgChart.reports(ceo, 3).isPresent());
+    }
+
+
+    private static Employee report(UUID id, UUID managerId) {
+        return Employee.builder().id(id).managerId(managerId).build();
+    }
+
+    private static List<UUID> ids(List<Employee> employees) {
+        return employees.stream().map(Employee::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,76 @@
+package com.springboot.employees.services;
+
+import com.springboot.employees.domain.*;
+import com.springboot.employees.persistence.DepartmentRepository;
+import com.springboot.employees.persistence.DepartmentSummaryRepository;
+import com.springboot.employees.persistence.EmployeeRepository;
+import com.springboot.employees.service.DepartmentCache;
+import com.springboot.employees.service.EmployeeNegativeCache;
+import com.springboot.employees.service.EmployeeService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"employees.negative-cache.enabled=true", "employees.negative-cache.check-interval-ms=3600000"})
+public class EmployeeServiceNegativeCacheTest {
+
+    @Autowired
+    private EmployeeService service;
+
+    @Autowired
+    private EmployeeNegativeCache negativeCache;
+
+    @Autowired
+    private DepartmentCache departmentCache;
+
+    @MockBean
+    private EmployeeRepository repository;
+
+    @MockBean
+    private DepartmentSummaryRepository summaryRepository;
+
+    @MockBean
+    private DepartmentRepository departmentRepository;
+
+    private final Department department = Department.builder().departmentId(101).name("NDE").size(5000).function("Technology").build();
+
+    @Before
+    public void setUp() {
+        when(departmentRepository.findAll()).thenReturn(Collections.singletonList(department));
+        departmentCache.refresh();
+    }
+
+    @Test
+    public void createRacingARebuildIsNotDeniedTest() {
+        // The rebuild scans the collection while the insert has not committed yet, so it sees nothing.
+        doNothing().when(repository).forEachKey(any());
+        when(repository.save(any(Employee.class))).thenAnswer(invocation -> {
+            negativeCache.rebuild();
+            return invocation.getArgument(0);
+        });
+
+        Employee created = service.saveEmployee(Employee.builder()
+                .firstName("Vishwanath")
+                .lastName("Krishna")
+                .department(department)
+                .address(Address.builder().city("Hillsboro").street("1189 NE 89th Street").zipcode(97006).state("Oregon").build())
+                .emailAddresses(Collections.singletonList(EmailAddress.builder().email("abc@mailinator.com").isPrimary(true).build()))
+                .build()).getEmployee();
+
+        verify(repository, atLeastOnce()).forEachKey(any());
+        assertFalse(negativeCache.isAbsentId(created.getId()));
+        assertFalse(negativeCache.isAbsentFirstName("Vishwanath"));
+        assertTrue(negativeCache.isAbsentFirstName("Nobody"));
+    }
+}
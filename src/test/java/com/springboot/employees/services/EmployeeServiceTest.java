@@ -1,32 +1,47 @@
 package com.springboot.employees.services;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.MongoException;
 import com.springboot.employees.domain.*;
+import com.springboot.employees.exceptions.BadRequestException;
 import com.springboot.employees.exceptions.DuplicateItemException;
 import com.springboot.employees.exceptions.ItemNotFoundException;
+import com.springboot.employees.persistence.DepartmentRepository;
+import com.springboot.employees.persistence.DepartmentSummaryRepository;
 import com.springboot.employees.persistence.EmployeeRepository;
+import com.springboot.employees.persistence.EmployeeUpdate;
+import com.springboot.employees.service.DepartmentCache;
+import com.springboot.employees.service.EmployeeInvalidationBus;
 import com.springboot.employees.service.EmployeeService;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.test.context.junit4.SpringRunner;
 
-import java.text.ParseException;
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 import static org.junit.Assert.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 @RunWith(SpringRunner.class)
-@SpringBootTest
+@SpringBootTest(properties = "employees.cache.enabled=true")
 public class EmployeeServiceTest {
 
     @Autowired
@@ -35,6 +50,18 @@ public class EmployeeServiceTest {
     @MockBean
     private EmployeeRepository repository;
 
+    @MockBean
+    private DepartmentSummaryRepository summaryRepository;
+
+    @MockBean
+    private DepartmentRepository departmentRepository;
+
+    @Autowired
+    private DepartmentCache departmentCache;
+
+    @MockBean
+    private EmployeeInvalidationBus invalidationBus;
+
     private Employee employee;
 
     private EmployeeWrapper employeeWrapper;
@@ -43,6 +70,9 @@ public class EmployeeServiceTest {
     public void setUp() {
         employee = createEmployee();
         employeeWrapper = createEmployeeWrapper(employee);
+        when(departmentRepository.findAll()).thenReturn(Arrays.asList(employee.getDepartment(),
+                Department.builder().departmentId(102).function("Quality").size(100).name("QA").build()));
+        departmentCache.refresh();
     }
 
 
@@ -60,94 +90,386 @@ public class EmployeeServiceTest {
         assertEquals(wrapper.getEmployee().getEmailAddresses(), employee.getEmailAddresses());
         assertEquals(wrapper.getEmployee().getEmailAddresses().size(), employee.getEmailAddresses().size());
         assertEquals(wrapper.getEmployee().getId(), employee.getId());
+        assertEquals(wrapper.getEmployee().getCreatedAt(), wrapper.getEmployee().getUpdatedAt());
+        assertEquals(0, wrapper.getEmployee().getCreatedAt().getNano() % 1000000);
+        verify(summaryRepository, times(1)).addAll(Collections.singletonList(employee));
+
+        InOrder announcedFirst = inOrder(invalidationBus, repository);
+        announcedFirst.verify(invalidationBus).publish(Collections.singletonList(employee.getId()), Collections.singletonList(employee.getFirstName()));
+        announcedFirst.verify(repository).save(employee);
+    }
+
+    @Test
+    public void saveEmployeeWithFailingSummaryTest() {
+        when(repository.save(employee)).thenReturn(employee);
+        doThrow(new MongoException("unreachable")).when(summaryRepository).addAll(any());
+
+        EmployeeWrapper wrapper = service.saveEmployee(employee);
+        assertEquals(wrapper.getEmployee(), employee);
+        assertFalse(wrapper.isIdempotent());
     }
 
     @Test
     public void saveEmployeeIdempotentTest() {
         when(repository.save(employee)).thenThrow(DuplicateKeyException.class);
-        when(repository.findByFirstName(employee.getFirstName())).thenReturn(employee);
+        when(repository.findByFirstName(employee.getFirstName())).thenReturn(Optional.of(employee));
 
         EmployeeWrapper wrapper = service.saveEmployee(employee);
         assertEquals(wrapper.getEmployee(), employee);
         assertTrue(wrapper.isIdempotent());
     }
 
+    @Test
+    public void saveEmployeeWithTakenEmailTest() {
+        Employee holder = employee.toBuilder().id(UUID.randomUUID()).firstName("Rane").build();
+        when(repository.save(employee)).thenThrow(new DuplicateKeyException("E11000 duplicate key error index: emailAddresses_email dup key"));
+        when(repository.findByEmailAddressesEmail(employee.getEmailAddresses().get(0).getEmail())).thenReturn(Optional.of(holder));
+
+        try {
+            service.saveEmployee(employee);
+            fail("A duplicate email should be rejected");
+        } catch (DuplicateItemException expected) {
+            verify(repository, never()).findByFirstName(anyString());
+        }
+
+        when(repository.findByEmailAddressesEmail(employee.getEmailAddresses().get(0).getEmail())).thenReturn(Optional.of(employee));
+        assertTrue(service.saveEmployee(employee).isIdempotent());
+    }
+
     @Test
     public void retrieveEmployeeByIdTest() {
-        when(repository.findById(anyString())).thenReturn(employee);
+        when(repository.findById(any(UUID.class))).thenReturn(Optional.of(employee));
 
-        Employee employeeFetched = service.retrieveEmployeeById(employee.getId());
+        Employee employeeFetched = service.retrieveEmployeeById(employee.getId()).get();
         assertNotNull(employeeFetched);
         assertEquals(employeeFetched.getFirstName(), employee.getFirstName());
     }
 
+    @Test
+    public void readRacingAnUpdateIsNotCachedTest() {
+        Employee stale = employee.toBuilder().build();
+        Employee updateDetails = employee.toBuilder().firstName("Vish").build();
+        when(repository.save(any(Employee.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(repository.findById(employee.getId())).thenAnswer(new Answer<Optional<Employee>>() {
+            private int reads;
+
+            @Override
+            public Optional<Employee> answer(InvocationOnMock invocation) {
+                reads++;
+                if (reads == 1) {
+                    // The update commits and evicts while this read is still on its way back.
+                    service.updateEmployee(updateDetails);
+                    return Optional.of(stale);
+                }
+                return Optional.of(reads == 2 ? stale.toBuilder().build() : updateDetails);
+            }
+        });
+
+        assertEquals("Vishwanath", service.retrieveEmployeeById(employee.getId()).get().getFirstName());
+        assertEquals("Vish", service.retrieveEmployeeById(employee.getId()).get().getFirstName());
+        verify(repository, times(3)).findById(employee.getId());
+    }
+
+    @Test
+    public void retrieveNonExistentEmployeeByIdTest() {
+        when(repository.findById(any(UUID.class))).thenReturn(Optional.empty());
+
+        assertFalse(service.retrieveEmployeeById(UUID.randomUUID()).isPresent());
+    }
+
+    @Test
+    public void retrieveEmployeesByIdsTest() {
+        Employee other = employee.toBuilder().id(UUID.randomUUID()).firstName("Rane").build();
+        when(repository.findByIdIn(any())).thenReturn(Arrays.asList(employee, other));
+
+        UUID missingId = UUID.randomUUID();
+        EmployeeBatch batch = service.retrieveEmployeesByIds(
+                Arrays.asList(other.getId(), missingId, employee.getId(), other.getId()));
+        assertEquals(Arrays.asList(other, employee), batch.getEmployees());
+        assertEquals(Collections.singletonList(missingId), batch.getMissingIds());
+        verify(repository, times(1)).findByIdIn(any());
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void retrieveEmployeesByNoIdsTest() {
+        service.retrieveEmployeesByIds(Collections.emptyList());
+    }
+
     @Test
     public void retrieveEmployeeByFirstNameTest() {
-        when(repository.findByFirstName(anyString())).thenReturn(employee);
+        when(repository.findByFirstName(anyString())).thenReturn(Optional.of(employee));
 
-        Employee employeeFetched = service.retrieveEmployeeByFirstName(employee.getFirstName());
+        Employee employeeFetched = service.retrieveEmployeeByFirstName(employee.getFirstName()).get();
         assertNotNull(employeeFetched);
         assertEquals(employeeFetched.getFirstName(), employee.getFirstName());
     }
 
     @Test
     public void retrieveEmployeesByDepartmentNameTest() {
-        when(repository.findByDepartmentName(anyString())).thenReturn(Collections.singletonList(employee));
+        when(repository.findByDepartmentId(101)).thenReturn(Collections.singletonList(employee));
 
         List<Employee> employeesFetched = service.retrieveEmployeesByDepartmentName(employee.getDepartment().getName());
         assertEquals(employeesFetched.size(), 1);
         assertEquals(employeesFetched.get(0).getFirstName(), employee.getFirstName());
-        assertEquals(employeesFetched.get(0).getDepartment().getName(), employee.getDepartment().getName());
+        assertEquals(employeesFetched.get(0).getDepartmentId(), employee.getDepartmentId());
+    }
+
+    @Test
+    public void retrieveEmployeesByUnknownDepartmentNameTest() {
+        assertTrue(service.retrieveEmployeesByDepartmentName("Nowhere").isEmpty());
+        assertEquals(0, service.countEmployeesInDepartment("Nowhere"));
+        verify(repository, never()).findByDepartmentId(anyInt());
+        verify(repository, never()).countInDepartment(anyInt());
     }
 
     @Test
-    public void updateEmployeeTest() throws ParseException {
+    public void saveEmployeeInNewDepartmentTest() {
+        Department finance = Department.builder().departmentId(103).function("Finance").size(50).name("Finance").build();
+        Employee newcomer = employee.toBuilder().department(finance).build();
+        when(repository.save(newcomer)).thenReturn(newcomer);
+
+        service.saveEmployee(newcomer);
+        verify(departmentRepository, times(1)).save(finance);
+        assertEquals(Optional.of(finance), departmentCache.get(103));
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void saveEmployeeInUnknownDepartmentTest() {
+        service.saveEmployee(employee.toBuilder().department(null).departmentId(104).build());
+    }
+
+    @Test
+    public void updateEmployeeTest() {
         Employee.EmployeeBuilder employeeBuilder = employee.toBuilder();
         Employee updateDetails = employeeBuilder.firstName("Vish").lastName("Rane").build();
 
-        when(repository.findById(anyString())).thenReturn(employee);
+        when(repository.findById(any(UUID.class))).thenReturn(Optional.of(employee));
         when(repository.save(any(Employee.class))).thenReturn(updateDetails);
 
         Employee updatedEmployee = service.updateEmployee(updateDetails);
         assertEquals(updatedEmployee.getFirstName(), updateDetails.getFirstName());
         assertEquals(updatedEmployee.getLastName(), updateDetails.getLastName());
         assertEquals(updatedEmployee.getAddress(), employee.getAddress());
+        verifyNoInteractions(summaryRepository);
+        verify(invalidationBus, times(1)).publish(Collections.singletonList(employee.getId()), Collections.singletonList("Vish"), Collections.emptySet());
+    }
+
+    @Test
+    public void updateEmployeeDepartmentTest() {
+        Employee updateDetails = employee.toBuilder()
+                .department(Department.builder().departmentId(102).name("Ignored").build())
+                .build();
+
+        when(repository.findById(any(UUID.class))).thenReturn(Optional.of(employee));
+        when(repository.save(any(Employee.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        service.updateEmployee(updateDetails);
+        verify(summaryRepository, times(1)).remove(argThat(before -> before.getDepartmentId() == 101));
+        verify(summaryRepository, times(1)).addAll(argThat(after -> after.iterator().next().getDepartmentId() == 102));
+        // The department is known, so what was sent along with the employee doesn't change it.
+        verify(departmentRepository, never()).save(any(Department.class));
     }
 
     @Test(expected = DuplicateItemException.class)
-    public void updateEmployeeDuplicateTest() throws ParseException {
+    public void updateEmployeeDuplicateTest() {
         Employee updateDetails = createEmployee();
 
-        when(repository.findById(anyString())).thenReturn(employee);
+        when(repository.findById(any(UUID.class))).thenReturn(Optional.of(employee));
 
         service.updateEmployee(updateDetails);
     }
 
     @Test(expected = ItemNotFoundException.class)
-    public void nonExistentUpdateTest() throws ParseException {
+    public void nonExistentUpdateTest() {
         Employee updateDetails = createEmployee();
 
-        when(repository.findById(anyString())).thenReturn(null);
+        when(repository.findById(any(UUID.class))).thenReturn(Optional.empty());
 
         service.updateEmployee(updateDetails);
     }
 
 
+    @Test
+    public void mergePatchEmployeeTest() throws Exception {
+        LocalDateTime updatedAt = LocalDateTime.of(2021, 1, 1, 10, 0);
+        employee.setCreatedAt(updatedAt);
+        employee.setUpdatedAt(updatedAt);
+        when(repository.findById(employee.getId())).thenReturn(Optional.of(employee));
+        when(repository.applyUpdate(eq(employee.getId()), eq(updatedAt), any())).thenReturn(Optional.empty(), Optional.of(employee));
+
+        service.patchEmployee(employee.getId(), new ObjectMapper().readTree("{\"lastName\":\"Krishna\",\"address\":{\"street\":null}}"), false);
+
+        ArgumentCaptor<EmployeeUpdate> update = ArgumentCaptor.forClass(EmployeeUpdate.class);
+        verify(repository, times(2)).applyUpdate(eq(employee.getId()), eq(updatedAt), update.capture());
+        assertEquals(new HashSet<>(Arrays.asList("lastName", "updatedAt")), update.getValue().getSet().keySet());
+        assertEquals(Collections.singleton("address.street"), update.getValue().getUnset());
+        assertEquals("Krishna", update.getValue().getSet().get("lastName"));
+        verify(invalidationBus, times(1)).publish(Collections.singletonList(employee.getId()), Collections.singletonList(employee.getFirstName()), Collections.emptySet());
+    }
+
+    @Test
+    public void jsonPatchEmployeeTest() throws Exception {
+        employee.setUpdatedAt(LocalDateTime.of(2021, 1, 1, 10, 0));
+        when(repository.findById(employee.getId())).thenReturn(Optional.of(employee));
+        when(repository.applyUpdate(any(), any(), any())).thenReturn(Optional.of(employee));
+
+        service.patchEmployee(employee.getId(), new ObjectMapper().readTree(
+                "[{\"op\":\"remove\",\"path\":\"/emailAddresses/1\"}]"), true);
+
+        ArgumentCaptor<EmployeeUpdate> update = ArgumentCaptor.forClass(EmployeeUpdate.class);
+        verify(repository).applyUpdate(any(), any(), update.capture());
+        assertEquals(Collections.singletonList("def@mailinator.com"), update.getValue().getPulledEmails());
+        assertEquals(Collections.singleton("updatedAt"), update.getValue().getSet().keySet());
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void patchEmployeeInvalidTest() throws Exception {
+        employee.setUpdatedAt(LocalDateTime.of(2021, 1, 1, 10, 0));
+        when(repository.findById(employee.getId())).thenReturn(Optional.of(employee));
+
+        service.patchEmployee(employee.getId(), new ObjectMapper().readTree("{\"firstName\":null}"), false);
+    }
+
     @Test
     public void deleteEmployeeTest() {
-        when(repository.findById(anyString())).thenReturn(employee);
+        when(repository.removeById(employee.getId())).thenReturn(Optional.of(employee));
 
         service.deleteEmployee(employee.getId());
-        verify(repository, times(1)).delete(employee);
+        verify(repository, times(1)).removeById(employee.getId());
+        verify(repository, times(1)).saveTombstone(any());
+        verify(summaryRepository, times(1)).remove(employee);
+        verify(invalidationBus, times(1)).publish(Collections.singletonList(employee.getId()), Collections.emptyList(), Collections.singleton(employee.getId()));
     }
 
+    @Test
+    public void updateEmployeeManagerTest() {
+        Employee manager = employee.toBuilder().id(UUID.randomUUID()).firstName("Rane").build();
+        Employee updateDetails = employee.toBuilder().managerId(manager.getId()).build();
+
+        when(repository.findById(employee.getId())).thenReturn(Optional.of(employee));
+        when(repository.findById(manager.getId())).thenReturn(Optional.of(manager));
+        when(repository.save(any(Employee.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        assertEquals(manager.getId(), service.updateEmployee(updateDetails).getManagerId());
+        verify(invalidationBus, times(1)).publish(Collections.singletonList(employee.getId()),
+                Collections.singletonList(employee.getFirstName()), Collections.singleton(manager.getId()));
+    }
+
+    @Test
+    public void updateEmployeeManagerCycleTest() {
+        Employee report = employee.toBuilder().id(UUID.randomUUID()).firstName("Rane").managerId(employee.getId()).build();
+        Employee updateDetails = employee.toBuilder().managerId(report.getId()).build();
+
+        when(repository.findById(employee.getId())).thenReturn(Optional.of(employee));
+        when(repository.findById(report.getId())).thenReturn(Optional.of(report));
+
+        try {
+            service.updateEmployee(updateDetails);
+            fail("Reporting to one's own report should be rejected");
+        } catch (BadRequestException e) {
+            verify(repository, never()).save(any());
+        }
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void saveEmployeeWithUnknownManagerTest() {
+        employee.setManagerId(UUID.randomUUID());
+        when(repository.findById(employee.getManagerId())).thenReturn(Optional.empty());
+
+        service.saveEmployee(employee);
+    }
+
+    @Test
+    public void retrieveTooManyReportsTest() {
+        when(repository.existsId(employee.getId())).thenReturn(true);
+        when(repository.findReports(employee.getId(), 20, 10001)).thenReturn(Collections.nCopies(10001, employee));
+
+        try {
+            service.retrieveReports(employee.getId(), null);
+            fail("Subtrees past employees.reports.max-size should be rejected");
+        } catch (BadRequestException e) {
+            assertTrue(e.getMessage().startsWith("More than 10000 employees"));
+        }
+    }
+
+
+    @Test
+    public void retrieveEmployeeChangesSinceTest() {
+        LocalDateTime updatedAt = LocalDateTime.of(2021, 1, 1, 10, 0);
+        employee.setCreatedAt(updatedAt.minusDays(1));
+        employee.setUpdatedAt(updatedAt);
+        EmployeeTombstone earlier = EmployeeTombstone.builder().id(UUID.randomUUID()).deletedAt(updatedAt.minusHours(1)).build();
+        EmployeeTombstone later = EmployeeTombstone.builder().id(UUID.randomUUID()).deletedAt(updatedAt.plusHours(1)).build();
+        when(repository.findUpdatedAfter(any(), any(), anyInt())).thenReturn(Collections.singletonList(employee));
+        when(repository.findTombstonesAfter(any(), any(), anyInt())).thenReturn(Arrays.asList(earlier, later));
+
+        EmployeeDelta delta = service.retrieveEmployeeChangesSince("2021-01-01T00:00:00.000Z", null, 2);
+        assertEquals(2, delta.getChanges().size());
+        assertEquals(EmployeeChangeEvent.Type.DELETED, delta.getChanges().get(0).getType());
+        assertEquals(earlier.getId(), delta.getChanges().get(0).getEmployeeId());
+        assertEquals(EmployeeChangeEvent.Type.UPDATED, delta.getChanges().get(1).getType());
+        assertEquals(employee.getId(), delta.getChanges().get(1).getEmployeeId());
+        assertTrue(delta.isHasMore());
+
+        service.retrieveEmployeeChangesSince(null, delta.getWatermark(), 2);
+        verify(repository).findUpdatedAfter(updatedAt, employee.getId(), 3);
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void retrieveEmployeeChangesWithForgedCursorTest() {
+        service.retrieveEmployeeChangesSince(null, "not-a-watermark", 10);
+    }
+
+    @Test
+    public void retrieveEmployeesInStateTest() {
+        Employee next = employee.toBuilder().id(UUID.randomUUID()).build();
+        when(repository.findInState(eq("Oregon"), any(), any(), anyInt())).thenReturn(Arrays.asList(employee, next));
+
+        EmployeePage page = service.retrieveEmployeesInState("Oregon", null, 1);
+        assertEquals(Collections.singletonList(employee), page.getEmployees());
+        assertTrue(page.isHasMore());
+
+        service.retrieveEmployeesInState("Oregon", page.getCursor(), 1);
+        verify(repository).findInState("Oregon", employee.getAddress().getCity(), employee.getId(), 2);
+    }
+
+    @Test
+    public void retrieveEmployeesInStateAfterMissingCityTest() {
+        Employee cityless = employee.toBuilder().id(UUID.randomUUID()).address(employee.getAddress().toBuilder().city(null).build()).build();
+        when(repository.findInState(eq("Oregon"), any(), any(), anyInt())).thenReturn(Arrays.asList(cityless, employee));
+
+        EmployeePage page = service.retrieveEmployeesInState("Oregon", null, 1);
+        service.retrieveEmployeesInState("Oregon", page.getCursor(), 1);
+        verify(repository).findInState("Oregon", null, cityless.getId(), 2);
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void retrieveEmployeesInEmptyZipcodeRangeTest() {
+        service.retrieveEmployeesInZipcodeRange(97999, 97000, null, 10);
+    }
 
     @Test(expected = ItemNotFoundException.class)
     public void nonExistentDeleteTest() {
-        when(repository.findById(anyString())).thenReturn(null);
+        when(repository.removeById(any(UUID.class))).thenReturn(Optional.empty());
+
+        service.deleteEmployee(employee.getId());
+    }
+
+    @Test
+    public void concurrentDeleteIsAppliedOnceTest() {
+        when(repository.findById(employee.getId())).thenReturn(Optional.of(employee));
+        service.retrieveEmployeeById(employee.getId());
+        when(repository.removeById(employee.getId())).thenReturn(Optional.of(employee), Optional.empty());
 
         service.deleteEmployee(employee.getId());
-        verify(repository, times(0)).delete(employee);
+        try {
+            service.deleteEmployee(employee.getId());
+            fail("The second delete should find nothing to delete");
+        } catch (ItemNotFoundException expected) {
+            verify(repository, times(1)).saveTombstone(any());
+            verify(summaryRepository, times(1)).remove(employee);
+            verify(invalidationBus, times(1)).publish(anyList(), anyList(), anySet());
+        }
     }
 
 
@@ -191,7 +513,7 @@ public class EmployeeServiceTest {
                 .emailAddresses(Arrays.asList(emailAddress1, emailAddress2))
                 .address(address)
                 .department(department)
-                .id(UUID.randomUUID().toString())
+                .id(UUID.randomUUID())
                 .build();
     }
 }
@@ -0,0 +1,108 @@
+package com.springboot.employees.tracing;
+
+import com.springboot.employees.domain.*;
+import com.springboot.employees.persistence.EmployeeRepository;
+import com.springboot.employees.service.EmployeeChangeFeed;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"employees.tracing.enabled=true", "employees.tracing.server-timing=true", "employees.response-cache.enabled=false"})
+@AutoConfigureMockMvc
+@ActiveProfiles("in-memory")
+public class TracingFilterTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private EmployeeRepository repository;
+
+    @Autowired
+    private EmployeeChangeFeed changeFeed;
+
+    @MockBean
+    private TraceExporter exporter;
+
+    @Test
+    public void serverTimingTest() throws Exception {
+        Employee employee = Employee.builder()
+                .id(UUID.randomUUID())
+                .firstName("Vishwanath")
+                .lastName("Krishna")
+                .department(Department.builder().departmentId(101).name("NDE").size(5000).function("Technology").build())
+                .address(Address.builder().city("Hillsboro").street("1189 NE 89th Street").zipcode(97006).state("Oregon").build())
+                .emailAddresses(Collections.singletonList(EmailAddress.builder().email("abc@mailinator.com").isPrimary(true).build()))
+                .build();
+        repository.save(employee);
+
+        MvcResult result = mvc.perform(get("/employees/" + employee.getId()))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        String serverTiming = result.getResponse().getHeader(TracingFilter.SERVER_TIMING);
+        assertNotNull(serverTiming);
+        for (String metric : new String[] {"controller;dur=", "service;dur=", "repository.findById;dur=", "links;dur=", "serialization;dur=", "total;dur="}) {
+            assertTrue(serverTiming + " lacks " + metric, serverTiming.contains(metric));
+        }
+        assertTrue(result.getResponse().getContentAsString().contains("Vishwanath"));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Map<String, Object>> trace = ArgumentCaptor.forClass(Map.class);
+        verify(exporter, times(1)).export(trace.capture());
+        assertEquals("GET /employees/{id}", trace.getValue().get("name"));
+        assertEquals(200, trace.getValue().get("status"));
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> spans = (List<Map<String, Object>>) trace.getValue().get("spans");
+        Map<String, Object> controller = spans.get(0);
+        Map<String, Object> service = spans.get(1);
+        assertEquals("controller", controller.get("name"));
+        assertEquals(trace.getValue().get("spanId"), controller.get("parentId"));
+        assertEquals("service", service.get("name"));
+        assertEquals(controller.get("spanId"), service.get("parentId"));
+    }
+
+    @Test
+    public void eventStreamsAreNotBufferedWhateverTheRequestAcceptsTest() throws Exception {
+        MvcResult result = mvc.perform(get("/employees/changes"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        UUID id = UUID.randomUUID();
+        changeFeed.publish(EmployeeChangeEvent.Type.DELETED, id, null);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!result.getResponse().getContentAsString().contains(id.toString())) {
+            assertTrue("The event never reached the client", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+        assertNull(result.getResponse().getHeader(TracingFilter.SERVER_TIMING));
+        verify(exporter, never()).export(any());
+    }
+
+    @Test
+    public void untracedCallTest() {
+        assertEquals("done", RequestTrace.span("links", () -> "done"));
+        assertNull(RequestTrace.current());
+    }
+}
@@ -0,0 +1,54 @@
+package com.springboot.employees.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+
+public class JsonPatchesTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void mergePatchTest() throws IOException {
+        JsonNode target = json("{'firstName':'Vish','address':{'city':'Hillsboro','street':'NE 89th'},'emails':['a']}");
+
+        JsonNode patched = JsonPatches.applyMergePatch(target, json("{'address':{'street':null,'city':'Portland'},'emails':['b']}"));
+
+        assertEquals(json("{'firstName':'Vish','address':{'city':'Portland'},'emails':['b']}"), patched);
+        assertEquals("NE 89th", target.path("address").path("street").asText());
+    }
+
+    @Test
+    public void jsonPatchTest() throws IOException {
+        JsonNode target = json("{'firstName':'Vish','emails':['a','b'],'a/b':1}");
+
+        JsonNode patched = JsonPatches.applyJsonPatch(target, json("["
+                + "{'op':'test','path':'/firstName','value':'Vish'},"
+                + "{'op':'replace','path':'/firstName','value':'Vishwanath'},"
+                + "{'op':'add','path':'/emails/-','value':'c'},"
+                + "{'op':'remove','path':'/emails/0'},"
+                + "{'op':'move','from':'/a~1b','path':'/moved'},"
+                + "{'op':'copy','from':'/emails/0','path':'/emails/0'}]"));
+
+        assertEquals(json("{'firstName':'Vishwanath','emails':['b','b','c'],'moved':1}"), patched);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void failedTestTest() throws IOException {
+        JsonPatches.applyJsonPatch(json("{'firstName':'Vish'}"), json("[{'op':'test','path':'/firstName','value':'Rane'}]"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void missingPathTest() throws IOException {
+        JsonPatches.applyJsonPatch(json("{'emails':[]}"), json("[{'op':'remove','path':'/emails/0'}]"));
+    }
+
+
+    private JsonNode json(String json) throws IOException {
+        return mapper.readTree(json.replace('\'', '"'));
+    }
+}
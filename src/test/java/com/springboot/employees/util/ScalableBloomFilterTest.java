@@ -0,0 +1,39 @@
+package com.springboot.employees.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ScalableBloomFilterTest {
+
+    @Test
+    public void keysPutAreAlwaysFoundTest() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(100, 0.01);
+        long firstStageBits = filter.getBits();
+        for (int i = 0; i < 5000; i++) {
+            filter.put("employee-" + i);
+        }
+
+        for (int i = 0; i < 5000; i++) {
+            assertTrue(filter.mightContain("employee-" + i));
+        }
+        assertEquals(5000, filter.getKeys());
+        assertTrue(filter.getBits() > firstStageBits);
+    }
+
+    @Test
+    public void falsePositiveRateStaysUnderTargetTest() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(1000, 0.01);
+        for (int i = 0; i < 20000; i++) {
+            filter.put("present-" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100000; i++) {
+            if (filter.mightContain("absent-" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue("false positives: " + falsePositives, falsePositives < 1500);
+    }
+}
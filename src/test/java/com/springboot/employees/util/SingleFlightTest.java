@@ -0,0 +1,179 @@
+package com.springboot.employees.util;
+
+import com.springboot.employees.deadline.DeadlineInterceptor;
+import com.springboot.employees.exceptions.DeadlineExceededException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class SingleFlightTest {
+
+    private MeterRegistry registry;
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        executor = Executors.newFixedThreadPool(8);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void concurrentCallsShareOneLoadTest() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>("test", true, registry);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> results = new ArrayList<>();
+        results.add(executor.submit(() -> flight.execute("key", () -> {
+            loads.incrementAndGet();
+            await(release);
+            return "value";
+        })));
+        waitUntilInFlight(1);
+        for (int i = 0; i < 7; i++) {
+            results.add(executor.submit(() -> flight.execute("key", () -> {
+                loads.incrementAndGet();
+                return "other";
+            })));
+        }
+        waitUntilCoalesced(7);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertEquals("value", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1.0, registry.get("employees.lookups").tag("result", "executed").counter().count(), 0.0);
+        assertEquals(7.0, registry.get("employees.lookups").tag("result", "coalesced").counter().count(), 0.0);
+    }
+
+    @Test
+    public void failureIsSharedAndNotRememberedTest() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>("test", true, registry);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<String> leader = executor.submit(() -> flight.execute("key", () -> {
+            await(release);
+            throw new IllegalStateException("boom");
+        }));
+        waitUntilInFlight(1);
+        Future<String> follower = executor.submit(() -> flight.execute("key", () -> "other"));
+        waitUntilCoalesced(1);
+        release.countDown();
+
+        assertFailedWith(IllegalStateException.class, leader);
+        assertFailedWith(IllegalStateException.class, follower);
+        assertEquals("fresh", flight.execute("key", () -> "fresh"));
+    }
+
+    @Test
+    public void leaderRunningOutOfTimeIsRetriedByWaitersTest() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>("test", true, registry);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<String> leader = executor.submit(() -> flight.execute("key", () -> {
+            await(release);
+            throw new DeadlineExceededException("The request did not complete within its 1 ms deadline!");
+        }));
+        waitUntilInFlight(1);
+        Future<String> follower = executor.submit(() -> flight.execute("key", () -> "value"));
+        waitUntilCoalesced(1);
+        release.countDown();
+
+        assertFailedWith(DeadlineExceededException.class, leader);
+        assertEquals("value", follower.get(5, TimeUnit.SECONDS));
+        assertEquals(2.0, registry.get("employees.lookups").tag("result", "executed").counter().count(), 0.0);
+    }
+
+    @Test
+    public void waitersGiveUpAtTheirOwnDeadlineTest() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>("test", true, registry);
+        CountDownLatch release = new CountDownLatch(1);
+        DeadlineInterceptor interceptor = new DeadlineInterceptor(true, 10_000, 30_000, new MockEnvironment());
+
+        Future<String> leader = executor.submit(() -> flight.execute("key", () -> {
+            await(release);
+            return "value";
+        }));
+        waitUntilInFlight(1);
+        Future<String> follower = executor.submit(() -> {
+            MockHttpServletRequest request = new MockHttpServletRequest();
+            request.addHeader(DeadlineInterceptor.HEADER, "50");
+            interceptor.preHandle(request, new MockHttpServletResponse(), null);
+            try {
+                return flight.execute("key", () -> "other");
+            } finally {
+                interceptor.afterCompletion(request, new MockHttpServletResponse(), null, null);
+            }
+        });
+
+        try {
+            assertFailedWith(DeadlineExceededException.class, follower);
+        } finally {
+            release.countDown();
+        }
+        assertEquals("value", leader.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void disabledAlwaysLoadsTest() {
+        SingleFlight<String, String> flight = new SingleFlight<>("test", false, registry);
+
+        assertEquals("value", flight.execute("key", () -> "value"));
+        assertEquals(0.0, registry.get("employees.lookups.in-flight").gauge().value(), 0.0);
+        assertEquals(1.0, registry.get("employees.lookups").tag("result", "executed").counter().count(), 0.0);
+    }
+
+
+    private void waitUntilInFlight(int calls) throws InterruptedException {
+        while (registry.get("employees.lookups.in-flight").gauge().value() < calls) {
+            Thread.sleep(1);
+        }
+    }
+
+    private void waitUntilCoalesced(int calls) throws InterruptedException {
+        while (registry.get("employees.lookups").tag("result", "coalesced").counter().count() < calls) {
+            Thread.sleep(1);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void assertFailedWith(Class<? extends Throwable> type, Future<?> future) throws Exception {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("Expected " + type.getSimpleName());
+        } catch (ExecutionException e) {
+            assertEquals(type, e.getCause().getClass());
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.springboot.employees.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class TimeOrderedIdGeneratorTest {
+
+    private final TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator();
+
+    @Test
+    public void versionAndVariantTest() {
+        UUID id = generator.next();
+
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+        assertEquals(System.currentTimeMillis(), id.getMostSignificantBits() >>> 16, 1000);
+    }
+
+    @Test
+    public void idsSortInGenerationOrderTest() {
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            ids.add(generator.next());
+        }
+
+        for (int i = 1; i < ids.size(); i++) {
+            assertTrue(UuidOrder.BINARY.compare(ids.get(i - 1), ids.get(i)) < 0);
+        }
+        assertEquals(ids.size(), new HashSet<>(ids).size());
+    }
+}